@@ -0,0 +1,21 @@
+-- V12__task_claim_lease.sql
+-- Purpose:
+-- - Support batch claiming with FOR UPDATE SKIP LOCKED ordered by created_at.
+-- - Lease recovery scans RUNNING tasks by locked_at (idx_task_status_locked_at from V2).
+-- - Safe to run multiple times.
+
+SET @idx_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.STATISTICS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'analysis_task'
+    AND INDEX_NAME = 'idx_task_status_created_at'
+);
+SET @ddl := IF(
+  @idx_exists = 0,
+  'ALTER TABLE analysis_task ADD INDEX idx_task_status_created_at (status, created_at, id)',
+  'SELECT ''skip idx_task_status_created_at'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,71 @@
+-- V13__report_resource_analytics_columns.sql
+-- Purpose:
+-- - Store risk_score (0-100 scale) and owning user_id on report_resource so trend/warning/drift
+--   analytics no longer evaluate JSON_EXTRACT(report_json, ...) per row.
+-- - Composite indexes for per-user windows and emotion distribution windows.
+-- - Existing rows are filled in batches by ReportAnalyticsBackfillService after startup.
+-- - Safe to run multiple times.
+
+SET @col_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.COLUMNS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'report_resource'
+    AND COLUMN_NAME = 'user_id'
+);
+SET @ddl := IF(
+  @col_exists = 0,
+  'ALTER TABLE report_resource ADD COLUMN user_id BIGINT NULL AFTER audio_id',
+  'SELECT ''skip report_resource.user_id'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @col_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.COLUMNS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'report_resource'
+    AND COLUMN_NAME = 'risk_score'
+);
+SET @ddl := IF(
+  @col_exists = 0,
+  'ALTER TABLE report_resource ADD COLUMN risk_score DECIMAL(10,4) NULL AFTER risk_level',
+  'SELECT ''skip report_resource.risk_score'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @idx_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.STATISTICS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'report_resource'
+    AND INDEX_NAME = 'idx_rr_user_created'
+);
+SET @ddl := IF(
+  @idx_exists = 0,
+  'ALTER TABLE report_resource ADD INDEX idx_rr_user_created (user_id, created_at)',
+  'SELECT ''skip idx_rr_user_created'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @idx_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.STATISTICS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'report_resource'
+    AND INDEX_NAME = 'idx_rr_created_emotion'
+);
+SET @ddl := IF(
+  @idx_exists = 0,
+  'ALTER TABLE report_resource ADD INDEX idx_rr_created_emotion (created_at, overall_emotion)',
+  'SELECT ''skip idx_rr_created_emotion'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
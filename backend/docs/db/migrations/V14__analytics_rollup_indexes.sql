@@ -0,0 +1,23 @@
+-- V14__analytics_rollup_indexes.sql
+-- Purpose:
+-- - analytics_daily_summary is rolled up per day by AnalyticsDailyRollupService;
+--   each day is recomputed with created_at range scans instead of full GROUP BY DATE(created_at).
+-- - audio_file (idx_audio_file_created_at) and report_resource (idx_report_created) already
+--   have created_at indexes; warning_event only had status/user leading indexes.
+-- - Safe to run multiple times.
+
+SET @idx_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.STATISTICS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'warning_event'
+    AND INDEX_NAME = 'idx_warning_event_created'
+);
+SET @ddl := IF(
+  @idx_exists = 0,
+  'ALTER TABLE warning_event ADD INDEX idx_warning_event_created (created_at)',
+  'SELECT ''skip idx_warning_event_created'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
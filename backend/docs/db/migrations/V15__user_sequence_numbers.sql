@@ -0,0 +1,125 @@
+-- V15__user_sequence_numbers.sql
+-- Purpose:
+-- - Store per-user task/report sequence numbers and the user register number on the rows,
+--   so task_no / report_no formatting no longer runs COUNT(*) over user history on every read.
+-- - user_sequence_counter hands out new numbers inside the inserting transaction (row lock => gap-free).
+-- - Backfill reproduces the previous COUNT(*)-based numbering for existing rows.
+-- - Safe to run multiple times.
+
+SET @col_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.COLUMNS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'analysis_task'
+    AND COLUMN_NAME = 'user_task_seq'
+);
+SET @ddl := IF(
+  @col_exists = 0,
+  'ALTER TABLE analysis_task ADD COLUMN user_task_seq BIGINT NULL',
+  'SELECT ''skip analysis_task.user_task_seq'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @col_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.COLUMNS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'report_resource'
+    AND COLUMN_NAME = 'user_report_seq'
+);
+SET @ddl := IF(
+  @col_exists = 0,
+  'ALTER TABLE report_resource ADD COLUMN user_report_seq BIGINT NULL',
+  'SELECT ''skip report_resource.user_report_seq'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @col_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.COLUMNS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'auth_user'
+    AND COLUMN_NAME = 'user_register_no'
+);
+SET @ddl := IF(
+  @col_exists = 0,
+  'ALTER TABLE auth_user ADD COLUMN user_register_no BIGINT NULL',
+  'SELECT ''skip auth_user.user_register_no'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+CREATE TABLE IF NOT EXISTS user_sequence_counter (
+  user_id BIGINT NOT NULL,
+  seq_type VARCHAR(16) NOT NULL,
+  last_value BIGINT NOT NULL DEFAULT 0,
+  updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (user_id, seq_type)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+UPDATE analysis_task t
+JOIN (
+  SELECT t2.id,
+         ROW_NUMBER() OVER (PARTITION BY af.user_id ORDER BY t2.id) AS seq
+  FROM analysis_task t2
+  JOIN audio_file af ON af.id = t2.audio_file_id
+  WHERE af.user_id IS NOT NULL
+) numbered ON numbered.id = t.id
+SET t.user_task_seq = numbered.seq
+WHERE t.user_task_seq IS NULL;
+
+UPDATE report_resource rr
+JOIN (
+  SELECT rr2.id,
+         ROW_NUMBER() OVER (PARTITION BY af.user_id ORDER BY rr2.id) AS seq
+  FROM report_resource rr2
+  JOIN audio_file af ON af.id = rr2.audio_id
+  WHERE af.user_id IS NOT NULL
+) numbered ON numbered.id = rr.id
+SET rr.user_report_seq = numbered.seq
+WHERE rr.user_report_seq IS NULL;
+
+-- register number = count of USER-role accounts created up to and including this account
+UPDATE auth_user u
+JOIN (
+  SELECT au.id,
+         SUM(CASE WHEN role_user.user_id IS NULL THEN 0 ELSE 1 END)
+           OVER (ORDER BY au.created_at, au.id ROWS UNBOUNDED PRECEDING) AS register_no
+  FROM auth_user au
+  LEFT JOIN (
+    SELECT DISTINCT ur.user_id
+    FROM auth_user_role ur
+    JOIN auth_role r ON r.id = ur.role_id
+    WHERE r.code = 'USER'
+  ) role_user ON role_user.user_id = au.id
+) numbered ON numbered.id = u.id
+SET u.user_register_no = numbered.register_no
+WHERE u.user_register_no IS NULL;
+
+INSERT INTO user_sequence_counter (user_id, seq_type, last_value)
+SELECT af.user_id, 'TASK', MAX(t.user_task_seq)
+FROM analysis_task t
+JOIN audio_file af ON af.id = t.audio_file_id
+WHERE af.user_id IS NOT NULL
+  AND t.user_task_seq IS NOT NULL
+GROUP BY af.user_id
+ON DUPLICATE KEY UPDATE last_value = GREATEST(last_value, VALUES(last_value));
+
+INSERT INTO user_sequence_counter (user_id, seq_type, last_value)
+SELECT af.user_id, 'REPORT', MAX(rr.user_report_seq)
+FROM report_resource rr
+JOIN audio_file af ON af.id = rr.audio_id
+WHERE af.user_id IS NOT NULL
+  AND rr.user_report_seq IS NOT NULL
+GROUP BY af.user_id
+ON DUPLICATE KEY UPDATE last_value = GREATEST(last_value, VALUES(last_value));
+
+INSERT INTO user_sequence_counter (user_id, seq_type, last_value)
+SELECT 0, 'REGISTER', COALESCE(MAX(user_register_no), 0)
+FROM auth_user
+ON DUPLICATE KEY UPDATE last_value = GREATEST(last_value, VALUES(last_value));
@@ -0,0 +1,23 @@
+-- V16__keyset_pagination_indexes.sql
+-- Purpose:
+-- - Task/report/audio/warning lists accept an opaque cursor and page with
+--   (sort column, id) keyset predicates instead of LIMIT/OFFSET.
+-- - created_at keysets are served by existing indexes (InnoDB secondary indexes carry the primary key);
+--   analysis_task had no index for the updatedAt sort.
+-- - Safe to run multiple times.
+
+SET @idx_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.STATISTICS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'analysis_task'
+    AND INDEX_NAME = 'idx_task_updated_at'
+);
+SET @ddl := IF(
+  @idx_exists = 0,
+  'ALTER TABLE analysis_task ADD INDEX idx_task_updated_at (updated_at)',
+  'SELECT ''skip idx_task_updated_at'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
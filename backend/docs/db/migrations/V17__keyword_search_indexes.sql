@@ -0,0 +1,88 @@
+-- V17__keyword_search_indexes.sql
+-- Purpose:
+-- - List keyword search is routed by keyword shape instead of CAST(id AS CHAR) LIKE '%x%':
+--   ids -> primary/foreign keys, task/report numbers -> stored sequence columns,
+--   trace ids -> trace_id prefix range, everything else -> ngram FULLTEXT on file names.
+-- - ft_audio_file_name uses the ngram parser so CJK file names are searchable (ngram_token_size, default 2).
+-- - The application checks ft_audio_file_name through SchemaCapabilityRegistry and falls back to LIKE without it.
+-- - Safe to run multiple times.
+
+SET @idx_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.STATISTICS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'analysis_task'
+    AND INDEX_NAME = 'idx_task_trace_id'
+);
+SET @ddl := IF(
+  @idx_exists = 0,
+  'ALTER TABLE analysis_task ADD INDEX idx_task_trace_id (trace_id)',
+  'SELECT ''skip idx_task_trace_id'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @idx_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.STATISTICS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'analysis_task'
+    AND INDEX_NAME = 'idx_task_audio_user_seq'
+);
+SET @ddl := IF(
+  @idx_exists = 0,
+  'ALTER TABLE analysis_task ADD INDEX idx_task_audio_user_seq (audio_file_id, user_task_seq)',
+  'SELECT ''skip idx_task_audio_user_seq'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @idx_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.STATISTICS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'report_resource'
+    AND INDEX_NAME = 'idx_rr_user_report_seq'
+);
+SET @ddl := IF(
+  @idx_exists = 0,
+  'ALTER TABLE report_resource ADD INDEX idx_rr_user_report_seq (user_id, user_report_seq)',
+  'SELECT ''skip idx_rr_user_report_seq'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @idx_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.STATISTICS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'auth_user'
+    AND INDEX_NAME = 'idx_auth_user_register_no'
+);
+SET @ddl := IF(
+  @idx_exists = 0,
+  'ALTER TABLE auth_user ADD INDEX idx_auth_user_register_no (user_register_no)',
+  'SELECT ''skip idx_auth_user_register_no'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @idx_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.STATISTICS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'audio_file'
+    AND INDEX_NAME = 'ft_audio_file_name'
+);
+SET @ddl := IF(
+  @idx_exists = 0,
+  'ALTER TABLE audio_file ADD FULLTEXT INDEX ft_audio_file_name (original_name, stored_name) WITH PARSER ngram',
+  'SELECT ''skip ft_audio_file_name'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
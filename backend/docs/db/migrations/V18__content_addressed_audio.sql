@@ -0,0 +1,69 @@
+-- V18__content_addressed_audio.sql
+-- Purpose:
+-- - New uploads are stored as <sha256><ext> and identical recordings share one blob, so several
+--   audio_file rows may carry the same stored_name: the unique key becomes a plain index.
+-- - idx_audio_sha256 backs the blob reference count taken before a shared blob is removed.
+-- - analysis_result_cache keeps ASR/SER responses per audio hash + model/config key
+--   (used only when ANALYSIS_RESULT_CACHE_ENABLED=true).
+-- - Safe to run multiple times.
+
+SET @idx_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.STATISTICS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'audio_file'
+    AND INDEX_NAME = 'idx_audio_stored_name'
+);
+SET @ddl := IF(
+  @idx_exists = 0,
+  'ALTER TABLE audio_file ADD INDEX idx_audio_stored_name (stored_name)',
+  'SELECT ''skip idx_audio_stored_name'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @idx_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.STATISTICS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'audio_file'
+    AND INDEX_NAME = 'uk_audio_file_stored_name'
+);
+SET @ddl := IF(
+  @idx_exists > 0,
+  'ALTER TABLE audio_file DROP INDEX uk_audio_file_stored_name',
+  'SELECT ''skip drop uk_audio_file_stored_name'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @idx_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.STATISTICS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'audio_file'
+    AND INDEX_NAME = 'idx_audio_sha256'
+);
+SET @ddl := IF(
+  @idx_exists = 0,
+  'ALTER TABLE audio_file ADD INDEX idx_audio_sha256 (sha256, status)',
+  'SELECT ''skip idx_audio_sha256'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+CREATE TABLE IF NOT EXISTS analysis_result_cache (
+  audio_sha256 CHAR(64) NOT NULL,
+  stage VARCHAR(16) NOT NULL,
+  input_key CHAR(64) NOT NULL,
+  config_version VARCHAR(128) NOT NULL,
+  payload_json LONGTEXT NOT NULL,
+  hit_count BIGINT NOT NULL DEFAULT 0,
+  created_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+  last_hit_at DATETIME(3) NULL,
+  PRIMARY KEY (audio_sha256, stage, input_key),
+  KEY idx_arc_created_at (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -0,0 +1,41 @@
+-- V19__upload_session_chunk_bitmap.sql
+-- Purpose:
+-- - received_bitmap holds one bit per chunk (MSB first, 500 bytes covers the 4000-chunk limit);
+--   a chunk upload ORs its bit in and recounts with BIT_COUNT in a single UPDATE instead of
+--   upserting an audio_upload_chunk row and running COUNT(*) in a transaction.
+-- - chunk_size_bytes is set when the client declares a fixed chunk size; chunks are then written
+--   at their offsets into one preallocated file and complete no longer merges part files.
+-- - Sessions created before this migration keep a NULL bitmap and stay on the audio_upload_chunk path.
+-- - Safe to run multiple times.
+
+SET @col_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.COLUMNS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'audio_upload_session'
+    AND COLUMN_NAME = 'received_bitmap'
+);
+SET @ddl := IF(
+  @col_exists = 0,
+  'ALTER TABLE audio_upload_session ADD COLUMN received_bitmap VARBINARY(500) NULL AFTER received_chunks',
+  'SELECT ''skip audio_upload_session.received_bitmap'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @col_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.COLUMNS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'audio_upload_session'
+    AND COLUMN_NAME = 'chunk_size_bytes'
+);
+SET @ddl := IF(
+  @col_exists = 0,
+  'ALTER TABLE audio_upload_session ADD COLUMN chunk_size_bytes BIGINT NULL AFTER total_chunks',
+  'SELECT ''skip audio_upload_session.chunk_size_bytes'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,17 @@
+-- V20__analysis_task_checkpoint.sql
+-- Purpose:
+-- - Persist finished pipeline stage outputs (ASR transcript, text sentiment + fused text features) per task,
+--   so a retried attempt (RETRY_WAIT after a SER timeout) resumes at SER instead of redoing ASR/text scoring.
+-- - attempt_no records which attempt produced the checkpoint; rows are removed once the task is
+--   SUCCESS/FAILED/DELETED.
+-- - Safe to run multiple times.
+
+CREATE TABLE IF NOT EXISTS analysis_task_checkpoint (
+  task_id BIGINT NOT NULL,
+  stage VARCHAR(16) NOT NULL,
+  attempt_no INT NOT NULL,
+  payload_json LONGTEXT NOT NULL,
+  created_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+  PRIMARY KEY (task_id, stage),
+  CONSTRAINT fk_atc_task FOREIGN KEY (task_id) REFERENCES analysis_task(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
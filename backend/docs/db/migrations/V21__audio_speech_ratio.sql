@@ -0,0 +1,22 @@
+-- V21__audio_speech_ratio.sql
+-- Purpose:
+-- - speech_ratio is the share of the recording the worker's energy VAD classified as speech (0..1);
+--   the worker also fills duration_ms from the WAV header in the same update.
+-- - Rows of non-WAV uploads and of audio never analysed keep NULL.
+-- - Safe to run multiple times.
+
+SET @col_exists := (
+  SELECT COUNT(*)
+  FROM INFORMATION_SCHEMA.COLUMNS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 'audio_file'
+    AND COLUMN_NAME = 'speech_ratio'
+);
+SET @ddl := IF(
+  @col_exists = 0,
+  'ALTER TABLE audio_file ADD COLUMN speech_ratio DECIMAL(5,4) NULL AFTER duration_ms',
+  'SELECT ''skip audio_file.speech_ratio'''
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,16 @@
+-- V22__analysis_task_signal.sql
+-- Purpose:
+-- - Single-row wake-up counter for analysis workers. A node bumps seq (autocommit, after its task insert
+--   commits); idle workers on every node read it by primary key each poll interval and only run the
+--   claim query when it moved, instead of scanning analysis_task every second.
+-- - Without this table workers fall back to scanning at the base poll interval.
+-- - Safe to run multiple times.
+
+CREATE TABLE IF NOT EXISTS analysis_task_signal (
+  id TINYINT NOT NULL,
+  seq BIGINT NOT NULL DEFAULT 0,
+  updated_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+  PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+INSERT IGNORE INTO analysis_task_signal (id, seq) VALUES (1, 0);
@@ -0,0 +1,124 @@
+package com.wuhao.aiemotion.benchmark;
+
+import com.wuhao.aiemotion.domain.AnalysisSegment;
+import com.wuhao.aiemotion.integration.asr.AsrTranscribeResponse;
+import com.wuhao.aiemotion.integration.ser.SerAnalyzeResponse;
+import com.wuhao.aiemotion.integration.text.TextSentimentResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+final class BenchmarkFixtures {
+
+    private static final String[] EMOTIONS = {"SAD", "NEU", "ANG", "HAP"};
+    private static final long SEGMENT_MS = 8000L;
+
+    private BenchmarkFixtures() {
+    }
+
+    static String transcript(String language, int length) {
+        String base = readFixture("fixtures/transcript_" + language + ".txt");
+        StringBuilder builder = new StringBuilder(length + base.length());
+        while (builder.length() < length) {
+            builder.append(base);
+        }
+        return builder.substring(0, length);
+    }
+
+    static List<AnalysisSegment> segments(int count) {
+        SplittableRandom random = new SplittableRandom(count);
+        List<AnalysisSegment> segments = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            segments.add(new AnalysisSegment(
+                    index + 1L,
+                    1L,
+                    Math.toIntExact(index * SEGMENT_MS),
+                    Math.toIntExact((index + 1) * SEGMENT_MS),
+                    EMOTIONS[random.nextInt(EMOTIONS.length)],
+                    0.4D + random.nextDouble() * 0.6D,
+                    null
+            ));
+        }
+        return segments;
+    }
+
+    static SerAnalyzeResponse serResponse(int segmentCount) {
+        List<SerAnalyzeResponse.Segment> segments = new ArrayList<>(segmentCount);
+        for (AnalysisSegment segment : segments(segmentCount)) {
+            segments.add(new SerAnalyzeResponse.Segment(
+                    segment.startMs(),
+                    segment.endMs(),
+                    segment.emotionCode(),
+                    segment.confidence()
+            ));
+        }
+        return new SerAnalyzeResponse(
+                new SerAnalyzeResponse.Overall("SAD", 0.9134D),
+                segments,
+                new SerAnalyzeResponse.AudioSummary(0.12D, 0.08D, 0.21D, 0.59D, 0.9134D, 0.87D, "SAD"),
+                new SerAnalyzeResponse.TextFeatures(0.41D, 0.33D, 0.26D, 0.52D, 0.8D,
+                        0.14D, 0.18D, 0.27D, 0.41D, 0.41D, 1.21D, 1.0D),
+                new SerAnalyzeResponse.Fusion(
+                        true,
+                        true,
+                        "SAD",
+                        "SAD",
+                        0.8812D,
+                        2.16D,
+                        Map.of("ANG", 0.05D, "HAP", 0.02D, "NEU", 0.09D, "SAD", 0.84D),
+                        Map.of("ANG", 0.04D, "HAP", 0.03D, "NEU", 0.05D, "SAD", 0.88D),
+                        Map.of("audio_prob_sad", 0.59D, "text_negative", 0.41D),
+                        null
+                ),
+                new SerAnalyzeResponse.Meta("emotion2vec_plus_large", "funasr", "zh", "language_hint", "zh",
+                        16000, segmentCount * SEGMENT_MS, true)
+        );
+    }
+
+    static AsrTranscribeResponse asrResponse(String transcript, int segmentCount) {
+        List<AsrTranscribeResponse.AsrSegment> segments = new ArrayList<>(segmentCount);
+        int chunk = Math.max(1, transcript.length() / Math.max(1, segmentCount));
+        for (int index = 0; index < segmentCount; index++) {
+            int from = Math.min(transcript.length(), index * chunk);
+            int to = Math.min(transcript.length(), from + chunk);
+            segments.add(new AsrTranscribeResponse.AsrSegment(index * SEGMENT_MS, (index + 1) * SEGMENT_MS,
+                    transcript.substring(from, to)));
+        }
+        return new AsrTranscribeResponse(transcript, "zh", segments,
+                new AsrTranscribeResponse.AsrMeta("sensevoice-small", segmentCount * SEGMENT_MS));
+    }
+
+    static TextSentimentResponse textSentiment() {
+        return new TextSentimentResponse(
+                "negative",
+                0.6529D,
+                Map.of("negative", 0.6529D, "neutral", 0.2224D, "positive", 0.1247D),
+                true,
+                Map.of("ANG", 0.12D, "HAP", 0.1247D, "NEU", 0.2224D, "SAD", 0.5329D),
+                0.9871D,
+                "SAD",
+                0.5329D,
+                "negative",
+                0.6529D,
+                Map.of("negative", 0.6529D, "neutral", 0.2224D, "positive", 0.1247D),
+                new TextSentimentResponse.Meta("hf", "roberta-base-finetuned-jd", "zh", "language_hint")
+        );
+    }
+
+    private static String readFixture(String resourcePath) {
+        try (InputStream stream = BenchmarkFixtures.class.getClassLoader().getResourceAsStream(resourcePath)) {
+            if (stream == null) {
+                throw new IllegalStateException("benchmark fixture not found: " + resourcePath);
+            }
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
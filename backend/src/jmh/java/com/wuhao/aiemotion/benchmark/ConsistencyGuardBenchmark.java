@@ -0,0 +1,54 @@
+package com.wuhao.aiemotion.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wuhao.aiemotion.integration.ser.SerAnalyzeResponse;
+import com.wuhao.aiemotion.integration.text.TextSentimentResponse;
+import com.wuhao.aiemotion.service.AnalysisConsistencyProperties;
+import com.wuhao.aiemotion.service.ConsistencyDecision;
+import com.wuhao.aiemotion.service.ConsistencyGuardService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConsistencyGuardBenchmark {
+
+    @Param({"zh", "en"})
+    public String language;
+
+    @Param({"64", "512", "4096"})
+    public int length;
+
+    private ConsistencyGuardService service;
+    private String transcript;
+    private SerAnalyzeResponse serResponse;
+    private TextSentimentResponse textSentiment;
+
+    @Setup
+    public void setUp() {
+        service = new ConsistencyGuardService(new AnalysisConsistencyProperties(), new ObjectMapper());
+        transcript = BenchmarkFixtures.transcript(language, length);
+        serResponse = BenchmarkFixtures.serResponse(60);
+        textSentiment = BenchmarkFixtures.textSentiment();
+    }
+
+    @Benchmark
+    public ConsistencyDecision evaluate() {
+        return service.evaluate(1L, 1L, "bench", transcript, serResponse, textSentiment, 0.42D);
+    }
+}
@@ -0,0 +1,81 @@
+package com.wuhao.aiemotion.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wuhao.aiemotion.dto.response.AnalysisTaskResultResponse;
+import com.wuhao.aiemotion.integration.asr.AsrTranscribeResponse;
+import com.wuhao.aiemotion.integration.ser.SerAnalyzeResponse;
+import com.wuhao.aiemotion.integration.text.TextSentimentResponse;
+import com.wuhao.aiemotion.service.AnalysisConsistencyProperties;
+import com.wuhao.aiemotion.service.ConsistencyDecision;
+import com.wuhao.aiemotion.service.ConsistencyGuardService;
+import com.wuhao.aiemotion.service.InterventionAdviceService;
+import com.wuhao.aiemotion.service.PsychologicalRiskScoringService;
+import com.wuhao.aiemotion.service.TextNegScorer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RawJsonSerializationBenchmark {
+
+    @Param({"10", "100", "500", "2000"})
+    public int segmentCount;
+
+    private ObjectMapper objectMapper;
+    private PersistedPayload payload;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        String transcript = BenchmarkFixtures.transcript("zh", 2048);
+        SerAnalyzeResponse serResponse = BenchmarkFixtures.serResponse(segmentCount);
+        TextSentimentResponse textSentiment = BenchmarkFixtures.textSentiment();
+        TextNegScorer.TextNegScoreResult textNeg = new TextNegScorer(10.0D, 0.8D).score(transcript);
+        AnalysisTaskResultResponse.RiskAssessmentPayload risk = new PsychologicalRiskScoringService(new InterventionAdviceService())
+                .evaluate(BenchmarkFixtures.segments(segmentCount), textNeg.textNeg());
+        ConsistencyDecision decision = new ConsistencyGuardService(new AnalysisConsistencyProperties(), objectMapper)
+                .evaluate(1L, 1L, "bench", transcript, serResponse, textSentiment, textNeg.textNeg());
+        payload = new PersistedPayload(
+                serResponse,
+                BenchmarkFixtures.asrResponse(transcript, segmentCount),
+                transcript,
+                textNeg,
+                textSentiment,
+                risk,
+                decision
+        );
+    }
+
+    @Benchmark
+    public String writeRawJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(payload);
+    }
+
+    // Mirrors the shape the worker persists into analysis_result.raw_json.
+    public record PersistedPayload(
+            SerAnalyzeResponse ser,
+            AsrTranscribeResponse asr,
+            String transcript,
+            TextNegScorer.TextNegScoreResult textNeg,
+            TextSentimentResponse textSentiment,
+            AnalysisTaskResultResponse.RiskAssessmentPayload riskAssessment,
+            ConsistencyDecision decision
+    ) {
+    }
+}
@@ -0,0 +1,46 @@
+package com.wuhao.aiemotion.benchmark;
+
+import com.wuhao.aiemotion.domain.AnalysisSegment;
+import com.wuhao.aiemotion.dto.response.AnalysisTaskResultResponse;
+import com.wuhao.aiemotion.service.InterventionAdviceService;
+import com.wuhao.aiemotion.service.PsychologicalRiskScoringService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RiskScoringBenchmark {
+
+    @Param({"10", "100", "500", "2000"})
+    public int segmentCount;
+
+    private PsychologicalRiskScoringService service;
+    private List<AnalysisSegment> segments;
+
+    @Setup
+    public void setUp() {
+        service = new PsychologicalRiskScoringService(new InterventionAdviceService());
+        segments = BenchmarkFixtures.segments(segmentCount);
+    }
+
+    @Benchmark
+    public AnalysisTaskResultResponse.RiskAssessmentPayload evaluate() {
+        return service.evaluate(segments, 0.59D, 0.12D, 0.08D, 0.42D);
+    }
+}
@@ -0,0 +1,45 @@
+package com.wuhao.aiemotion.benchmark;
+
+import com.wuhao.aiemotion.service.TextNegScorer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextNegScorerBenchmark {
+
+    @Param({"zh", "en"})
+    public String language;
+
+    @Param({"64", "512", "4096", "32768"})
+    public int length;
+
+    private TextNegScorer scorer;
+    private String transcript;
+
+    @Setup
+    public void setUp() {
+        scorer = new TextNegScorer(10.0D, 0.8D);
+        transcript = BenchmarkFixtures.transcript(language, length);
+    }
+
+    @Benchmark
+    public TextNegScorer.TextNegScoreResult score() {
+        return scorer.score(transcript);
+    }
+}
@@ -1,12 +1,14 @@
 package com.wuhao.aiemotion.config;
 
+import com.wuhao.aiemotion.service.AnalysisResultCacheProperties;
 import com.wuhao.aiemotion.service.AnalysisWorkerProperties;
+import com.wuhao.aiemotion.service.AudioVadProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
 @EnableScheduling
-@EnableConfigurationProperties(AnalysisWorkerProperties.class)
+@EnableConfigurationProperties({AnalysisWorkerProperties.class, AnalysisResultCacheProperties.class, AudioVadProperties.class})
 public class AnalysisWorkerConfiguration {
 }
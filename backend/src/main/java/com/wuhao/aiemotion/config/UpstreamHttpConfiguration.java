@@ -0,0 +1,10 @@
+package com.wuhao.aiemotion.config;
+
+import com.wuhao.aiemotion.integration.http.UpstreamHttpProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(UpstreamHttpProperties.class)
+public class UpstreamHttpConfiguration {
+}
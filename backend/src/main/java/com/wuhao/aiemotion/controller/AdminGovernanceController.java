@@ -2,6 +2,7 @@ package com.wuhao.aiemotion.controller;
 
 import com.wuhao.aiemotion.config.AuthInterceptor;
 import com.wuhao.aiemotion.service.AdminGovernanceService;
+import com.wuhao.aiemotion.service.AnalyticsDailyRollupService;
 import com.wuhao.aiemotion.service.AuthService;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -15,9 +16,12 @@ import java.util.Map;
 public class AdminGovernanceController {
 
     private final AdminGovernanceService adminGovernanceService;
+    private final AnalyticsDailyRollupService analyticsDailyRollupService;
 
-    public AdminGovernanceController(AdminGovernanceService adminGovernanceService) {
+    public AdminGovernanceController(AdminGovernanceService adminGovernanceService,
+                                     AnalyticsDailyRollupService analyticsDailyRollupService) {
         this.adminGovernanceService = adminGovernanceService;
+        this.analyticsDailyRollupService = analyticsDailyRollupService;
     }
 
     @GetMapping("/models")
@@ -122,11 +126,13 @@ public class AdminGovernanceController {
     @GetMapping("/warnings")
     public Map<String, Object> warnings(@RequestParam(defaultValue = "1") int page,
                                         @RequestParam(defaultValue = "10") int pageSize,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(required = false) Boolean withTotal,
                                         @RequestParam(required = false) String status,
                                         @RequestParam(required = false) String riskLevel,
                                         @RequestParam(required = false) String breached,
                                         @RequestParam(required = false) String keyword) {
-        return adminGovernanceService.listWarnings(page, pageSize, status, riskLevel, breached, keyword);
+        return adminGovernanceService.listWarnings(page, pageSize, cursor, withTotal, status, riskLevel, breached, keyword);
     }
 
     @PostMapping("/warnings/{warningId}/actions")
@@ -154,6 +160,11 @@ public class AdminGovernanceController {
         return adminGovernanceService.listAnalyticsDaily(days);
     }
 
+    @PostMapping("/analytics/daily/rebuild")
+    public Map<String, Object> rebuildAnalyticsDaily(@RequestParam(required = false) Integer days) {
+        return analyticsDailyRollupService.rebuild(days);
+    }
+
     @GetMapping("/analytics/quality")
     public Map<String, Object> analyticsQuality(@RequestParam(required = false) Integer windowDays,
                                                 @RequestParam(required = false) Integer baselineDays) {
@@ -1,10 +1,12 @@
 package com.wuhao.aiemotion.controller;
 
 import com.wuhao.aiemotion.config.AuthInterceptor;
+import com.wuhao.aiemotion.domain.AudioFile;
 import com.wuhao.aiemotion.dto.response.AudioDeleteResponse;
 import com.wuhao.aiemotion.dto.response.AudioListResponse;
 import com.wuhao.aiemotion.dto.response.AudioUploadResponse;
 import com.wuhao.aiemotion.repository.AudioRepository;
+import com.wuhao.aiemotion.repository.PageCursor;
 import com.wuhao.aiemotion.service.AudioChunkUploadService;
 import com.wuhao.aiemotion.service.AudioService;
 import com.wuhao.aiemotion.service.AuthService;
@@ -18,6 +20,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -69,21 +72,39 @@ public class AudioController {
             @RequestParam(defaultValue = "1") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) Long userId,
-            @RequestParam(defaultValue = "true") boolean onlyUploaded   // 鉁?鏀逛负 true
+            @RequestParam(defaultValue = "true") boolean onlyUploaded,   // 鉁?鏀逛负 true
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean withTotal
     ) {
         if (page < 1) page = 1;
         if (size < 1) size = 10;
         if (size > 100) size = 100;
 
         int offset = (page - 1) * size;
+        PageCursor after = PageCursor.decode(cursor);
+        if (after != null) {
+            after.requireSort("createdAt", false);
+        }
 
-        var list = (userId == null)
-                ? audioRepository.findPage(offset, size, onlyUploaded)
-                : audioRepository.findPageByUser(userId, offset, size, onlyUploaded);
-
-        long total = (userId == null)
-                ? audioRepository.countAll(onlyUploaded)
-                : audioRepository.countByUser(userId, onlyUploaded);
+        List<AudioFile> list;
+        if (after != null) {
+            list = audioRepository.findPageAfter(userId, onlyUploaded, after, size + 1);
+        } else {
+            list = (userId == null)
+                    ? audioRepository.findPage(offset, size + 1, onlyUploaded)
+                    : audioRepository.findPageByUser(userId, offset, size + 1, onlyUploaded);
+        }
+        boolean hasMore = list.size() > size;
+        list = hasMore ? list.subList(0, size) : list;
+        AudioFile last = list.isEmpty() ? null : list.get(list.size() - 1);
+        PageCursor next = hasMore ? PageCursor.after("createdAt", false, last.createdAt(), last.id()) : null;
+
+        Long total = null;
+        if (withTotal != null ? withTotal : after == null) {
+            total = (userId == null)
+                    ? audioRepository.countAll(onlyUploaded)
+                    : audioRepository.countByUser(userId, onlyUploaded);
+        }
 
         var items = list.stream()
                 .map(a -> new AudioListResponse.Item(
@@ -99,7 +120,7 @@ public class AudioController {
                 ))
                 .collect(Collectors.toList());
 
-        return new AudioListResponse(total, page, size, items);
+        return new AudioListResponse(total, page, size, items, next == null ? null : next.encode());
     }
 
     /**
@@ -118,6 +139,7 @@ public class AudioController {
                 request.contentType(),
                 request.fileSize(),
                 request.totalChunks(),
+                request.chunkSize(),
                 resolveUserId(servletRequest)
         );
     }
@@ -160,7 +182,8 @@ public class AudioController {
             @NotBlank String fileName,
             String contentType,
             @Min(0) Long fileSize,
-            @Min(1) Integer totalChunks
+            @Min(1) Integer totalChunks,
+            @Min(1) Long chunkSize
     ) {
     }
 
@@ -35,6 +35,8 @@ public class ResourceController {
     public TaskListResponse tasks(@RequestParam(defaultValue = "1") int page,
                                   @RequestParam(required = false) Integer pageSize,
                                   @RequestParam(required = false) Integer size,
+                                  @RequestParam(required = false) String cursor,
+                                  @RequestParam(required = false) Boolean withTotal,
                                   @RequestParam(required = false) String status,
                                   @RequestParam(required = false) String keyword,
                                   @RequestParam(required = false) String q,
@@ -49,6 +51,8 @@ public class ResourceController {
         return resourceManagementService.tasks(
                 page,
                 resolvedPageSize,
+                cursor,
+                withTotal,
                 status,
                 resolvedKeyword,
                 sortValues[0],
@@ -62,6 +66,8 @@ public class ResourceController {
     public ReportListResponse reports(@RequestParam(defaultValue = "1") int page,
                                       @RequestParam(required = false) Integer pageSize,
                                       @RequestParam(required = false) Integer size,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) Boolean withTotal,
                                       @RequestParam(required = false) String riskLevel,
                                       @RequestParam(required = false) String emotion,
                                       @RequestParam(required = false) String keyword,
@@ -77,6 +83,8 @@ public class ResourceController {
         return resourceManagementService.reports(
                 page,
                 resolvedPageSize,
+                cursor,
+                withTotal,
                 riskLevel,
                 emotion,
                 resolvedKeyword,
@@ -121,8 +129,10 @@ public class ResourceController {
     @GetMapping("/audios")
     public AudioListResponse audios(@RequestParam(defaultValue = "1") int page,
                                     @RequestParam(defaultValue = "10") int size,
+                                    @RequestParam(required = false) String cursor,
+                                    @RequestParam(required = false) Boolean withTotal,
                                     @RequestParam(required = false) String q) {
-        return resourceManagementService.audios(page, size, q);
+        return resourceManagementService.audios(page, size, cursor, withTotal, q);
     }
 
     @DeleteMapping("/audios/{audioId}")
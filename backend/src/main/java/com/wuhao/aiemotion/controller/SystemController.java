@@ -2,6 +2,7 @@ package com.wuhao.aiemotion.controller;
 
 import com.wuhao.aiemotion.service.SystemStatusService;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Map;
@@ -19,4 +20,9 @@ public class SystemController {
     public Map<String, Object> status() {
         return systemStatusService.status();
     }
+
+    @PostMapping("/api/admin/system/schema-capabilities/refresh")
+    public Map<String, Object> refreshSchemaCapabilities() {
+        return systemStatusService.refreshSchemaCapabilities();
+    }
 }
@@ -18,6 +18,7 @@ public record AnalysisTask(
         Long durationMs,
         Long serLatencyMs,
         LocalDateTime createdAt,
-        LocalDateTime updatedAt
+        LocalDateTime updatedAt,
+        Long userTaskSeq
 ) {
 }
@@ -10,6 +10,7 @@ public record ReportResource(
         String riskLevel,
         String overallEmotion,
         LocalDateTime createdAt,
-        LocalDateTime deletedAt
+        LocalDateTime deletedAt,
+        Long userReportSeq
 ) {
 }
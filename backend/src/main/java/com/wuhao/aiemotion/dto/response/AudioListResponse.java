@@ -3,10 +3,11 @@ package com.wuhao.aiemotion.dto.response;
 import java.util.List;
 
 public record AudioListResponse(
-        long total,
+        Long total,
         int page,
         int size,
-        List<Item> items
+        List<Item> items,
+        String nextCursor
 ) {
     public record Item(
             long id,
@@ -3,11 +3,12 @@ package com.wuhao.aiemotion.dto.response;
 import java.util.List;
 
 public record ReportListResponse(
-        long total,
+        Long total,
         int page,
         int pageSize,
         int size,
-        List<ReportDTO> items
+        List<ReportDTO> items,
+        String nextCursor
 ) {
     public record ReportDTO(
             long id,
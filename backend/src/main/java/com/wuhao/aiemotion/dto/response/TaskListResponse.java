@@ -3,11 +3,12 @@ package com.wuhao.aiemotion.dto.response;
 import java.util.List;
 
 public record TaskListResponse(
-        long total,
+        Long total,
         int page,
         int pageSize,
         int size,
-        List<TaskDTO> items
+        List<TaskDTO> items,
+        String nextCursor
 ) {
     public record TaskDTO(
             long id,
@@ -18,7 +18,8 @@ public record TaskRealtimeSnapshotResponse(
         RiskSummary risk,
         DecisionResponse decision,
         ProgressSummary progress,
-        List<RiskCurvePoint> curve
+        List<RiskCurvePoint> curve,
+        NarrativeSummary narrative
 ) {
 
     public record RiskSummary(
@@ -49,4 +50,13 @@ public record TaskRealtimeSnapshotResponse(
             double riskIndex
     ) {
     }
+
+    public record NarrativeSummary(
+            String status,
+            String summary,
+            String explanation,
+            List<String> personalizedAdvice,
+            String safetyNotice
+    ) {
+    }
 }
@@ -1,12 +1,10 @@
 package com.wuhao.aiemotion.integration.ai.local;
 
+import com.wuhao.aiemotion.integration.http.UpstreamHttpClients;
 import com.wuhao.aiemotion.service.AnalysisNarrativeProperties;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
-import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -14,12 +12,12 @@ import java.util.Map;
 @Component
 public class OllamaNarrativeClient {
 
-    private final RestTemplateBuilder restTemplateBuilder;
+    private final UpstreamHttpClients upstreamHttpClients;
     private final AnalysisNarrativeProperties properties;
 
-    public OllamaNarrativeClient(RestTemplateBuilder restTemplateBuilder,
+    public OllamaNarrativeClient(UpstreamHttpClients upstreamHttpClients,
                                  AnalysisNarrativeProperties properties) {
-        this.restTemplateBuilder = restTemplateBuilder;
+        this.upstreamHttpClients = upstreamHttpClients;
         this.properties = properties;
     }
 
@@ -28,11 +26,6 @@ public class OllamaNarrativeClient {
     }
 
     public String chat(String systemPrompt, String userPrompt, Double temperatureOverride) {
-        RestTemplate restTemplate = restTemplateBuilder
-                .setConnectTimeout(Duration.ofMillis(properties.getOllama().getConnectTimeoutMs()))
-                .setReadTimeout(Duration.ofMillis(properties.getOllama().getReadTimeoutMs()))
-                .build();
-
         Map<String, Object> options = new LinkedHashMap<>();
         options.put("temperature", temperatureOverride == null ? properties.getOllama().getTemperature() : temperatureOverride);
 
@@ -48,10 +41,10 @@ public class OllamaNarrativeClient {
                 resolveKeepAlive()
         );
 
-        ResponseEntity<OllamaChatResponse> response = restTemplate.postForEntity(
-                normalizeUrl("/api/chat"),
-                request,
-                OllamaChatResponse.class
+        String url = normalizeUrl("/api/chat");
+        ResponseEntity<OllamaChatResponse> response = upstreamHttpClients.ollama().exchange(
+                properties.getOllama().getReadTimeoutMs(),
+                restTemplate -> restTemplate.postForEntity(url, request, OllamaChatResponse.class)
         );
         OllamaChatResponse body = response.getBody();
         if (body == null || body.message() == null || body.message().content() == null || body.message().content().isBlank()) {
@@ -61,11 +54,6 @@ public class OllamaNarrativeClient {
     }
 
     public void preload() {
-        RestTemplate restTemplate = restTemplateBuilder
-                .setConnectTimeout(Duration.ofMillis(properties.getOllama().getConnectTimeoutMs()))
-                .setReadTimeout(Duration.ofMillis(properties.getOllama().getReadTimeoutMs()))
-                .build();
-
         Map<String, Object> request = new LinkedHashMap<>();
         request.put("model", properties.getOllama().getModel());
         Object keepAlive = resolveKeepAlive();
@@ -74,10 +62,10 @@ public class OllamaNarrativeClient {
         }
         request.put("stream", false);
 
-        restTemplate.postForEntity(
-                normalizeUrl("/api/generate"),
-                request,
-                Map.class
+        String url = normalizeUrl("/api/generate");
+        upstreamHttpClients.ollama().exchange(
+                properties.getOllama().getReadTimeoutMs(),
+                restTemplate -> restTemplate.postForEntity(url, request, Map.class)
         );
     }
 
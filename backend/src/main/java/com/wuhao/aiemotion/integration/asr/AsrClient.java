@@ -1,7 +1,7 @@
 package com.wuhao.aiemotion.integration.asr;
 
+import com.wuhao.aiemotion.integration.http.UpstreamHttpClients;
 import com.wuhao.aiemotion.integration.ser.SerProperties;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -10,19 +10,17 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
 
 import java.nio.file.Path;
-import java.time.Duration;
 
 @Component
 public class AsrClient {
 
-    private final RestTemplateBuilder restTemplateBuilder;
+    private final UpstreamHttpClients upstreamHttpClients;
     private final SerProperties properties;
 
-    public AsrClient(RestTemplateBuilder restTemplateBuilder, SerProperties properties) {
-        this.restTemplateBuilder = restTemplateBuilder;
+    public AsrClient(UpstreamHttpClients upstreamHttpClients, SerProperties properties) {
+        this.upstreamHttpClients = upstreamHttpClients;
         this.properties = properties;
     }
 
@@ -36,11 +34,10 @@ public class AsrClient {
         headers.setContentType(MediaType.MULTIPART_FORM_DATA);
 
         HttpEntity<MultiValueMap<String, Object>> req = new HttpEntity<>(body, headers);
-        RestTemplate restTemplate = restTemplateBuilder
-                .setConnectTimeout(Duration.ofMillis(timeoutMs))
-                .setReadTimeout(Duration.ofMillis(timeoutMs))
-                .build();
-        ResponseEntity<AsrTranscribeResponse> response = restTemplate.postForEntity(url, req, AsrTranscribeResponse.class);
+        ResponseEntity<AsrTranscribeResponse> response = upstreamHttpClients.asr().exchange(
+                timeoutMs,
+                restTemplate -> restTemplate.postForEntity(url, req, AsrTranscribeResponse.class)
+        );
         AsrTranscribeResponse payload = response.getBody();
         if (payload == null) {
             throw new IllegalStateException("ASR service returned empty body");
@@ -48,4 +45,3 @@ public class AsrClient {
         return payload;
     }
 }
-
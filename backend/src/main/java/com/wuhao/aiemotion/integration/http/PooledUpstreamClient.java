@@ -0,0 +1,114 @@
+package com.wuhao.aiemotion.integration.http;
+
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+public class PooledUpstreamClient {
+
+    private final String name;
+    private final HttpClient httpClient;
+    private final RestTemplateBuilder restTemplateBuilder;
+    private final int maxConnections;
+    private final long acquireTimeoutMs;
+    private final Semaphore permits;
+    private final ConcurrentHashMap<Long, RestTemplate> templatesByTimeout = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private final LongAdder totalLatencyMs = new LongAdder();
+
+    PooledUpstreamClient(String name,
+                         RestTemplateBuilder restTemplateBuilder,
+                         ExecutorService executor,
+                         long connectTimeoutMs,
+                         UpstreamHttpProperties.Pool pool) {
+        this.name = name;
+        this.restTemplateBuilder = restTemplateBuilder;
+        this.maxConnections = Math.max(1, pool.getMaxConnections());
+        this.acquireTimeoutMs = Math.max(0L, pool.getAcquireTimeoutMs());
+        this.permits = new Semaphore(maxConnections, true);
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(Math.max(1L, connectTimeoutMs)))
+                .executor(executor)
+                .build();
+    }
+
+    public <T> T exchange(long readTimeoutMs, Function<RestTemplate, T> call) {
+        RestTemplate restTemplate = templatesByTimeout.computeIfAbsent(Math.max(1L, readTimeoutMs), this::buildRestTemplate);
+        acquire();
+        int current = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(current, Math::max);
+        requests.increment();
+        long startNs = System.nanoTime();
+        try {
+            return call.apply(restTemplate);
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            totalLatencyMs.add((System.nanoTime() - startNs) / 1_000_000L);
+            inFlight.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    /**
+     * Same connections, but no permit: health probes and warmups must not queue behind, or hold a slot
+     * needed by, the real requests the pool is bounding.
+     */
+    public <T> T exchangeWithoutPermit(long readTimeoutMs, Function<RestTemplate, T> call) {
+        return call.apply(templatesByTimeout.computeIfAbsent(Math.max(1L, readTimeoutMs), this::buildRestTemplate));
+    }
+
+    public Map<String, Object> metrics() {
+        long total = requests.sum();
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("maxConnections", maxConnections);
+        payload.put("inFlight", inFlight.get());
+        payload.put("peakInFlight", peakInFlight.get());
+        payload.put("waiting", permits.getQueueLength());
+        payload.put("requests", total);
+        payload.put("failures", failures.sum());
+        payload.put("acquireTimeouts", acquireTimeouts.sum());
+        payload.put("avgLatencyMs", total == 0 ? 0 : totalLatencyMs.sum() / total);
+        payload.put("timeoutProfiles", templatesByTimeout.size());
+        return payload;
+    }
+
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                acquireTimeouts.increment();
+                throw new ResourceAccessException(name + " connection pool wait timed out after " + acquireTimeoutMs + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException(name + " connection pool wait interrupted");
+        }
+    }
+
+    private RestTemplate buildRestTemplate(long readTimeoutMs) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return restTemplateBuilder
+                .requestFactory(() -> requestFactory)
+                .build();
+    }
+}
@@ -0,0 +1,71 @@
+package com.wuhao.aiemotion.integration.http;
+
+import com.wuhao.aiemotion.integration.ser.SerProperties;
+import com.wuhao.aiemotion.service.AnalysisNarrativeProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class UpstreamHttpClients {
+
+    private final ExecutorService executor;
+    private final PooledUpstreamClient ser;
+    private final PooledUpstreamClient asr;
+    private final PooledUpstreamClient text;
+    private final PooledUpstreamClient ollama;
+
+    public UpstreamHttpClients(RestTemplateBuilder restTemplateBuilder,
+                               UpstreamHttpProperties properties,
+                               SerProperties serProperties,
+                               AnalysisNarrativeProperties narrativeProperties) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "upstream-http-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long serConnectTimeoutMs = serProperties.getConnectTimeoutMs();
+        this.ser = new PooledUpstreamClient("ser", restTemplateBuilder, executor, serConnectTimeoutMs, properties.getSer());
+        this.asr = new PooledUpstreamClient("asr", restTemplateBuilder, executor, serConnectTimeoutMs, properties.getAsr());
+        this.text = new PooledUpstreamClient("text", restTemplateBuilder, executor, serConnectTimeoutMs, properties.getText());
+        this.ollama = new PooledUpstreamClient("ollama", restTemplateBuilder, executor,
+                narrativeProperties.getOllama().getConnectTimeoutMs(), properties.getOllama());
+    }
+
+    public PooledUpstreamClient ser() {
+        return ser;
+    }
+
+    public PooledUpstreamClient asr() {
+        return asr;
+    }
+
+    public PooledUpstreamClient text() {
+        return text;
+    }
+
+    public PooledUpstreamClient ollama() {
+        return ollama;
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("ser", ser.metrics());
+        payload.put("asr", asr.metrics());
+        payload.put("text", text.metrics());
+        payload.put("ollama", ollama.metrics());
+        return payload;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,74 @@
+package com.wuhao.aiemotion.integration.http;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "upstream.http")
+public class UpstreamHttpProperties {
+
+    private Pool ser = new Pool(4);
+    private Pool asr = new Pool(4);
+    private Pool text = new Pool(8);
+    private Pool ollama = new Pool(2);
+
+    public Pool getSer() {
+        return ser;
+    }
+
+    public void setSer(Pool ser) {
+        this.ser = ser;
+    }
+
+    public Pool getAsr() {
+        return asr;
+    }
+
+    public void setAsr(Pool asr) {
+        this.asr = asr;
+    }
+
+    public Pool getText() {
+        return text;
+    }
+
+    public void setText(Pool text) {
+        this.text = text;
+    }
+
+    public Pool getOllama() {
+        return ollama;
+    }
+
+    public void setOllama(Pool ollama) {
+        this.ollama = ollama;
+    }
+
+    public static class Pool {
+
+        private int maxConnections;
+        private long acquireTimeoutMs = 30000;
+
+        public Pool() {
+            this(4);
+        }
+
+        public Pool(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public long getAcquireTimeoutMs() {
+            return acquireTimeoutMs;
+        }
+
+        public void setAcquireTimeoutMs(long acquireTimeoutMs) {
+            this.acquireTimeoutMs = acquireTimeoutMs;
+        }
+    }
+}
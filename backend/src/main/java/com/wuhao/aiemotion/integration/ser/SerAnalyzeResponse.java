@@ -19,8 +19,13 @@ public record SerAnalyzeResponse(
             long startMs,
             long endMs,
             String emotionCode,
-            double confidence
-    ) {}
+            double confidence,
+            java.util.Map<String, Double> scores
+    ) {
+        public Segment(long startMs, long endMs, String emotionCode, double confidence) {
+            this(startMs, endMs, emotionCode, confidence, null);
+        }
+    }
 
     public record AudioSummary(
             Double audio_prob_ang,
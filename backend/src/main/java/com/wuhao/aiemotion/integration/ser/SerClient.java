@@ -1,7 +1,7 @@
 package com.wuhao.aiemotion.integration.ser;
 
 import com.wuhao.aiemotion.exception.SerServiceUnavailableException;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import com.wuhao.aiemotion.integration.http.UpstreamHttpClients;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -18,18 +18,17 @@ import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import java.nio.file.Path;
-import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Component
 public class SerClient {
 
-    private final RestTemplateBuilder restTemplateBuilder;
+    private final UpstreamHttpClients upstreamHttpClients;
     private final SerProperties properties;
 
-    public SerClient(RestTemplateBuilder restTemplateBuilder, SerProperties properties) {
-        this.restTemplateBuilder = restTemplateBuilder;
+    public SerClient(UpstreamHttpClients upstreamHttpClients, SerProperties properties) {
+        this.upstreamHttpClients = upstreamHttpClients;
         this.properties = properties;
     }
 
@@ -94,9 +93,11 @@ public class SerClient {
         headers.setContentType(MediaType.MULTIPART_FORM_DATA);
 
         HttpEntity<MultiValueMap<String, Object>> req = new HttpEntity<>(body, headers);
-        RestTemplate restTemplate = buildRestTemplate(properties.getConnectTimeoutMs(), properties.getReadTimeoutMs());
         try {
-            ResponseEntity<SerAnalyzeResponse> response = restTemplate.postForEntity(url, req, SerAnalyzeResponse.class);
+            ResponseEntity<SerAnalyzeResponse> response = upstreamHttpClients.ser().exchange(
+                    properties.getReadTimeoutMs(),
+                    restTemplate -> restTemplate.postForEntity(url, req, SerAnalyzeResponse.class)
+            );
             SerAnalyzeResponse payload = response.getBody();
             if (payload == null) {
                 throw new SerClientException("parse_error", "SER service returned empty body");
@@ -116,16 +117,21 @@ public class SerClient {
         }
     }
 
+    // health and warmup skip the pool permits, so a saturated SER still reads as up and keeps taking work
     public boolean probeHealth() {
-        RestTemplate rt = buildRestTemplate(properties.getHealthTimeoutMs(), properties.getHealthTimeoutMs());
-        return callGet(rt, serUrl("/health"));
+        return upstreamHttpClients.ser().exchangeWithoutPermit(
+                properties.getHealthTimeoutMs(),
+                restTemplate -> callGet(restTemplate, serUrl("/health"))
+        );
     }
 
     @SuppressWarnings("unchecked")
     public Map<String, Object> fetchHealthDetails() {
-        RestTemplate restTemplate = buildRestTemplate(properties.getHealthTimeoutMs(), properties.getHealthTimeoutMs());
         try {
-            ResponseEntity<Map> response = restTemplate.getForEntity(serUrl("/health"), Map.class);
+            ResponseEntity<Map> response = upstreamHttpClients.ser().exchangeWithoutPermit(
+                    properties.getHealthTimeoutMs(),
+                    restTemplate -> restTemplate.getForEntity(serUrl("/health"), Map.class)
+            );
             if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
                 return Map.of();
             }
@@ -136,16 +142,10 @@ public class SerClient {
     }
 
     public boolean warmup() {
-        RestTemplate restTemplate = buildRestTemplate(properties.getConnectTimeoutMs(), properties.getReadTimeoutMs());
-        if (callGet(restTemplate, serUrl("/warmup"))) return true;
-        return callGet(restTemplate, serUrl("/health"));
-    }
-
-    private RestTemplate buildRestTemplate(long connectMs, long readMs) {
-        return restTemplateBuilder
-                .setConnectTimeout(Duration.ofMillis(connectMs))
-                .setReadTimeout(Duration.ofMillis(readMs))
-                .build();
+        return upstreamHttpClients.ser().exchangeWithoutPermit(
+                properties.getReadTimeoutMs(),
+                restTemplate -> callGet(restTemplate, serUrl("/warmup")) || callGet(restTemplate, serUrl("/health"))
+        );
     }
 
     private String serUrl(String path) {
@@ -1,26 +1,24 @@
 package com.wuhao.aiemotion.integration.text;
 
+import com.wuhao.aiemotion.integration.http.UpstreamHttpClients;
 import com.wuhao.aiemotion.integration.ser.SerProperties;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
-import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Component
 public class TextSentimentClient {
 
-    private final RestTemplateBuilder restTemplateBuilder;
+    private final UpstreamHttpClients upstreamHttpClients;
     private final SerProperties serProperties;
 
-    public TextSentimentClient(RestTemplateBuilder restTemplateBuilder, SerProperties serProperties) {
-        this.restTemplateBuilder = restTemplateBuilder;
+    public TextSentimentClient(UpstreamHttpClients upstreamHttpClients, SerProperties serProperties) {
+        this.upstreamHttpClients = upstreamHttpClients;
         this.serProperties = serProperties;
     }
 
@@ -34,13 +32,10 @@ public class TextSentimentClient {
         body.put("language", language);
         HttpEntity<Map<String, Object>> req = new HttpEntity<>(body, headers);
 
-        RestTemplate restTemplate = restTemplateBuilder
-                .setConnectTimeout(Duration.ofMillis(timeoutMs))
-                .setReadTimeout(Duration.ofMillis(timeoutMs))
-                .build();
-
-        ResponseEntity<TextSentimentResponse> response =
-                restTemplate.postForEntity(url, req, TextSentimentResponse.class);
+        ResponseEntity<TextSentimentResponse> response = upstreamHttpClients.text().exchange(
+                timeoutMs,
+                restTemplate -> restTemplate.postForEntity(url, req, TextSentimentResponse.class)
+        );
         TextSentimentResponse payload = response.getBody();
         if (payload == null) {
             throw new IllegalStateException("Text sentiment service returned empty body");
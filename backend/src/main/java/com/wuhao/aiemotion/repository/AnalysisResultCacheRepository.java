@@ -0,0 +1,65 @@
+package com.wuhao.aiemotion.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class AnalysisResultCacheRepository {
+
+    public static final String TABLE = "analysis_result_cache";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AnalysisResultCacheRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Returns the cached payload and bumps its hit counter. {@code ttlHours <= 0} disables expiry.
+     */
+    public Optional<String> find(String audioSha256, String stage, String inputKey, long ttlHours) {
+        String sql = """
+                SELECT payload_json
+                FROM analysis_result_cache
+                WHERE audio_sha256 = ? AND stage = ? AND input_key = ?
+                """;
+        List<String> rows = ttlHours > 0
+                ? jdbcTemplate.queryForList(sql + " AND created_at >= NOW(3) - INTERVAL ? HOUR", String.class,
+                        audioSha256, stage, inputKey, ttlHours)
+                : jdbcTemplate.queryForList(sql, String.class, audioSha256, stage, inputKey);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        jdbcTemplate.update(
+                """
+                UPDATE analysis_result_cache
+                SET hit_count = hit_count + 1, last_hit_at = NOW(3)
+                WHERE audio_sha256 = ? AND stage = ? AND input_key = ?
+                """,
+                audioSha256, stage, inputKey
+        );
+        return Optional.ofNullable(rows.get(0));
+    }
+
+    public void upsert(String audioSha256, String stage, String inputKey, String configVersion, String payloadJson) {
+        jdbcTemplate.update(
+                """
+                INSERT INTO analysis_result_cache
+                (audio_sha256, stage, input_key, config_version, payload_json, hit_count, created_at)
+                VALUES (?, ?, ?, ?, ?, 0, NOW(3))
+                ON DUPLICATE KEY UPDATE
+                    config_version = VALUES(config_version),
+                    payload_json = VALUES(payload_json),
+                    created_at = VALUES(created_at)
+                """,
+                audioSha256, stage, inputKey, configVersion, payloadJson
+        );
+    }
+
+    public int deleteByAudioSha256(String audioSha256) {
+        return jdbcTemplate.update("DELETE FROM analysis_result_cache WHERE audio_sha256 = ?", audioSha256);
+    }
+}
@@ -5,7 +5,11 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
@@ -68,4 +72,53 @@ public class AnalysisResultRepository {
         );
     }
 
+    public int updateNarrative(long taskId, String narrativeJson) {
+        return jdbcTemplate.update(
+                """
+                UPDATE analysis_result
+                SET raw_json = JSON_SET(COALESCE(raw_json, JSON_OBJECT()), '$.narrative', CAST(? AS JSON))
+                WHERE task_id=?
+                """,
+                narrativeJson,
+                taskId
+        );
+    }
+
+    /**
+     * Results whose narrative was left at "pending" by the async backfill, e.g. because the node stopped before
+     * its in-memory queue drained.
+     */
+    public List<PendingNarrative> findPendingNarratives() {
+        return jdbcTemplate.query(
+                """
+                SELECT task_id, raw_json
+                FROM analysis_result
+                WHERE JSON_UNQUOTE(JSON_EXTRACT(raw_json, '$.narrative.status')) = 'pending'
+                ORDER BY task_id
+                """,
+                (rs, rowNum) -> new PendingNarrative(rs.getLong("task_id"), rs.getString("raw_json"))
+        );
+    }
+
+    public Map<Long, Long> findIdsByTaskIds(Collection<Long> taskIds) {
+        if (taskIds == null || taskIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Long> result = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT id, task_id FROM analysis_result WHERE task_id IN (%s)".formatted(placeholders(taskIds.size())),
+                rs -> {
+                    result.put(rs.getLong("task_id"), rs.getLong("id"));
+                },
+                taskIds.toArray()
+        );
+        return result;
+    }
+
+    private static String placeholders(int size) {
+        return String.join(",", Collections.nCopies(size, "?"));
+    }
+
+    public record PendingNarrative(long taskId, String rawJson) {
+    }
 }
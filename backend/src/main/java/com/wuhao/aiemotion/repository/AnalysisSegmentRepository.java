@@ -6,7 +6,11 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public class AnalysisSegmentRepository {
@@ -35,6 +39,19 @@ public class AnalysisSegmentRepository {
         );
     }
 
+    public Map<Long, List<AnalysisSegment>> findByTaskIdsOrderByStartMs(Collection<Long> taskIds) {
+        if (taskIds == null || taskIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, List<AnalysisSegment>> result = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT * FROM analysis_segment WHERE task_id IN (%s) ORDER BY task_id ASC, start_ms ASC".formatted(placeholders(taskIds.size())),
+                SEGMENT_ROW_MAPPER,
+                taskIds.toArray()
+        ).forEach(segment -> result.computeIfAbsent(segment.taskId(), key -> new ArrayList<>()).add(segment));
+        return result;
+    }
+
     public long countSegmentsInRange(long taskId, long fromMs, long toMs) {
         Long total = jdbcTemplate.queryForObject(
                 """
@@ -99,4 +116,7 @@ public class AnalysisSegmentRepository {
         );
     }
 
+    private static String placeholders(int size) {
+        return String.join(",", Collections.nCopies(size, "?"));
+    }
 }
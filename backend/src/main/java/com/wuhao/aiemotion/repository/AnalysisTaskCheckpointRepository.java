@@ -0,0 +1,61 @@
+package com.wuhao.aiemotion.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class AnalysisTaskCheckpointRepository {
+
+    public static final String TABLE = "analysis_task_checkpoint";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AnalysisTaskCheckpointRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<String> find(long taskId, String stage) {
+        List<String> rows = jdbcTemplate.queryForList(
+                "SELECT payload_json FROM analysis_task_checkpoint WHERE task_id=? AND stage=?",
+                String.class,
+                taskId,
+                stage
+        );
+        return rows.isEmpty() ? Optional.empty() : Optional.ofNullable(rows.get(0));
+    }
+
+    public void upsert(long taskId, String stage, int attemptNo, String payloadJson) {
+        jdbcTemplate.update(
+                """
+                INSERT INTO analysis_task_checkpoint (task_id, stage, attempt_no, payload_json, created_at)
+                VALUES (?, ?, ?, ?, NOW(3))
+                ON DUPLICATE KEY UPDATE
+                    attempt_no = VALUES(attempt_no),
+                    payload_json = VALUES(payload_json),
+                    created_at = VALUES(created_at)
+                """,
+                taskId,
+                stage,
+                attemptNo,
+                payloadJson
+        );
+    }
+
+    public int deleteByTaskId(long taskId) {
+        return jdbcTemplate.update("DELETE FROM analysis_task_checkpoint WHERE task_id=?", taskId);
+    }
+
+    public int deleteForTerminalTasks() {
+        return jdbcTemplate.update(
+                """
+                DELETE c
+                FROM analysis_task_checkpoint c
+                JOIN analysis_task t ON t.id = c.task_id
+                WHERE t.status IN ('SUCCESS', 'FAILED', 'DELETED')
+                """
+        );
+    }
+}
@@ -11,17 +11,26 @@ import java.sql.PreparedStatement;
 import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 @Repository
 public class AnalysisTaskRepository {
 
+    static final String SIGNAL_TABLE = "analysis_task_signal";
+
     private final JdbcTemplate jdbcTemplate;
+    private final SchemaCapabilityRegistry schemaCapabilityRegistry;
 
-    public AnalysisTaskRepository(JdbcTemplate jdbcTemplate) {
+    public AnalysisTaskRepository(JdbcTemplate jdbcTemplate, SchemaCapabilityRegistry schemaCapabilityRegistry) {
         this.jdbcTemplate = jdbcTemplate;
+        this.schemaCapabilityRegistry = schemaCapabilityRegistry;
     }
 
     private static final RowMapper<AnalysisTask> TASK_ROW_MAPPER = (rs, rowNum) -> new AnalysisTask(
@@ -40,7 +49,8 @@ public class AnalysisTaskRepository {
             rs.getObject("duration_ms") == null ? null : rs.getLong("duration_ms"),
             rs.getObject("ser_latency_ms") == null ? null : rs.getLong("ser_latency_ms"),
             rs.getTimestamp("created_at") == null ? null : rs.getTimestamp("created_at").toLocalDateTime(),
-            rs.getTimestamp("updated_at") == null ? null : rs.getTimestamp("updated_at").toLocalDateTime()
+            rs.getTimestamp("updated_at") == null ? null : rs.getTimestamp("updated_at").toLocalDateTime(),
+            rs.getObject("user_task_seq") == null ? null : rs.getLong("user_task_seq")
     );
 
     public boolean audioExists(long audioId) {
@@ -48,10 +58,10 @@ public class AnalysisTaskRepository {
         return n != null && n > 0;
     }
 
-    public long insertPendingTask(long audioId, int maxAttempts, String traceId) {
+    public long insertPendingTask(long audioId, int maxAttempts, String traceId, Long userTaskSeq) {
         String sql = """
-                INSERT INTO analysis_task (audio_file_id, status, attempt_count, max_attempts, trace_id, next_run_at, locked_at, locked_by)
-                VALUES (?, 'PENDING', 0, ?, ?, NULL, NULL, NULL)
+                INSERT INTO analysis_task (audio_file_id, status, attempt_count, max_attempts, trace_id, next_run_at, locked_at, locked_by, user_task_seq)
+                VALUES (?, 'PENDING', 0, ?, ?, NULL, NULL, NULL, ?)
                 """;
 
         KeyHolder keyHolder = new GeneratedKeyHolder();
@@ -60,6 +70,7 @@ public class AnalysisTaskRepository {
             ps.setLong(1, audioId);
             ps.setInt(2, maxAttempts);
             ps.setString(3, traceId);
+            ps.setObject(4, userTaskSeq);
             return ps;
         }, keyHolder);
 
@@ -141,6 +152,53 @@ public class AnalysisTaskRepository {
         return jdbcTemplate.query(sql.toString(), TASK_ROW_MAPPER, args.toArray());
     }
 
+    public List<AnalysisTask> findTaskPageAfter(PageCursor after,
+                                                int limit,
+                                                String status,
+                                                String keyword) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM analysis_task WHERE 1=1");
+        List<Object> args = new ArrayList<>();
+        appendTaskFilters(status, keyword, sql, args);
+        return queryTaskKeysetPage("", after, limit, sql, args);
+    }
+
+    public List<AnalysisTask> findTaskPageByUserAfter(long userId,
+                                                      PageCursor after,
+                                                      int limit,
+                                                      String status,
+                                                      String keyword) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT t.*
+                FROM analysis_task t
+                JOIN audio_file af ON af.id=t.audio_file_id
+                WHERE af.user_id=?
+                """);
+        List<Object> args = new ArrayList<>();
+        args.add(userId);
+        appendTaskFiltersWithAlias("t", status, keyword, sql, args);
+        return queryTaskKeysetPage("t.", after, limit, sql, args);
+    }
+
+    public static String taskCursorSortKey(String sortBy) {
+        return switch (sortBy == null ? "" : sortBy.trim()) {
+            case "updatedAt" -> "updatedAt";
+            case "status" -> null;
+            default -> "createdAt";
+        };
+    }
+
+    private List<AnalysisTask> queryTaskKeysetPage(String prefix,
+                                                   PageCursor after,
+                                                   int limit,
+                                                   StringBuilder sql,
+                                                   List<Object> args) {
+        String column = prefix + ("updatedAt".equals(after.sortKey()) ? "updated_at" : "created_at");
+        after.appendPredicate(column, prefix + "id", sql, args);
+        sql.append(" ORDER BY ").append(PageCursor.orderBy(column, prefix + "id", after.ascending())).append(" LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), TASK_ROW_MAPPER, args.toArray());
+    }
+
     private void appendTaskFilters(String status, String keyword, StringBuilder sql, List<Object> args) {
         appendTaskFiltersWithAlias("", status, keyword, sql, args);
     }
@@ -151,17 +209,49 @@ public class AnalysisTaskRepository {
             sql.append(" AND ").append(prefix).append("status=?");
             args.add(status.trim().toUpperCase());
         }
-        if (keyword != null && !keyword.isBlank()) {
-            String normalized = keyword.trim();
-            String like = "%" + normalized + "%";
-            sql.append(" AND (CAST(").append(prefix).append("id AS CHAR) LIKE ? OR CAST(").append(prefix)
-                    .append("audio_file_id AS CHAR) LIKE ? OR ").append(prefix).append("trace_id LIKE ?)");
-            args.add(like);
-            args.add(like);
-            args.add(like);
+        SearchKeyword search = SearchKeyword.parse(keyword);
+        if (search != null) {
+            appendTaskKeyword(prefix, search, sql, args);
+        }
+    }
+
+    private void appendTaskKeyword(String prefix, SearchKeyword search, StringBuilder sql, List<Object> args) {
+        switch (search.kind()) {
+            case ID -> {
+                sql.append(" AND (").append(prefix).append("id=? OR ").append(prefix).append("audio_file_id=?)");
+                args.add(search.number());
+                args.add(search.number());
+            }
+            case SERIAL_NO -> {
+                if (search.registerNo() == 0L) {
+                    // tasks without an owner are numbered by their id
+                    sql.append(" AND ").append(prefix).append("id=?");
+                    args.add(search.number());
+                } else {
+                    sql.append(" AND ").append(prefix).append("user_task_seq=? AND ").append(prefix)
+                            .append("audio_file_id IN (SELECT sk_af.id FROM audio_file sk_af WHERE sk_af.user_id=");
+                    args.add(search.number());
+                    search.appendOwnerUserId(sql, args);
+                    sql.append(")");
+                }
+                search.appendSameDay(prefix + "created_at", sql, args);
+            }
+            case TRACE_PREFIX -> {
+                sql.append(" AND ").append(prefix).append("trace_id LIKE ?");
+                args.add(search.prefixLike());
+            }
+            case TEXT -> {
+                sql.append(" AND ").append(prefix).append("audio_file_id IN (SELECT sk_af.id FROM audio_file sk_af WHERE ");
+                search.appendFileNameMatch("sk_af.", hasAudioNameFulltext(), sql, args);
+                sql.append(")");
+            }
         }
     }
 
+    private boolean hasAudioNameFulltext() {
+        return schemaCapabilityRegistry.hasIndex("audio_file", SearchKeyword.AUDIO_NAME_FULLTEXT_INDEX);
+    }
+
     private String resolveTaskOrderBy(String sortBy, String sortOrder) {
         return resolveTaskOrderByWithAlias("", sortBy, sortOrder);
     }
@@ -173,36 +263,111 @@ public class AnalysisTaskRepository {
             case "status" -> prefix + "status";
             default -> prefix + "created_at";
         };
-        String direction = "asc".equalsIgnoreCase(sortOrder) ? "ASC" : "DESC";
-        return column + " " + direction;
+        return PageCursor.orderBy(column, prefix + "id", "asc".equalsIgnoreCase(sortOrder));
     }
 
-    public List<AnalysisTask> findRunnableCandidates(int batchSize) {
-        return jdbcTemplate.query(
+    public List<AnalysisTask> claimRunnableBatch(String workerId, int batchSize) {
+        List<Long> ids = jdbcTemplate.query(
                 """
-                SELECT *
+                SELECT id
                 FROM analysis_task
                 WHERE status IN ('PENDING', 'RETRY_WAIT')
                   AND (next_run_at IS NULL OR next_run_at <= NOW())
                 ORDER BY created_at ASC
                 LIMIT ?
+                FOR UPDATE SKIP LOCKED
                 """,
-                TASK_ROW_MAPPER,
+                (rs, rowNum) -> rs.getLong("id"),
                 batchSize
         );
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = placeholders(ids.size());
+        List<Object> updateArgs = new ArrayList<>();
+        updateArgs.add(workerId);
+        updateArgs.addAll(ids);
+        jdbcTemplate.update(
+                """
+                UPDATE analysis_task
+                SET status='RUNNING', locked_by=?, locked_at=NOW(), started_at = COALESCE(started_at, NOW()), updated_at=NOW()
+                WHERE id IN (%s)
+                  AND status IN ('PENDING','RETRY_WAIT')
+                """.formatted(placeholders),
+                updateArgs.toArray()
+        );
+        List<Object> selectArgs = new ArrayList<>(ids);
+        selectArgs.add(workerId);
+        return jdbcTemplate.query(
+                """
+                SELECT *
+                FROM analysis_task
+                WHERE id IN (%s)
+                  AND status='RUNNING'
+                  AND locked_by=?
+                ORDER BY created_at ASC
+                """.formatted(placeholders),
+                TASK_ROW_MAPPER,
+                selectArgs.toArray()
+        );
+    }
+
+    /** Wake-up counter shared by all nodes; empty before the V22 signal table exists. */
+    public OptionalLong findSignalSeq() {
+        if (!schemaCapabilityRegistry.hasTable(SIGNAL_TABLE)) {
+            return OptionalLong.empty();
+        }
+        List<Long> rows = jdbcTemplate.queryForList("SELECT seq FROM analysis_task_signal WHERE id=1", Long.class);
+        return rows.isEmpty() ? OptionalLong.of(0L) : OptionalLong.of(rows.get(0));
     }
 
-    public int claimTask(long taskId, String workerId) {
+    public void bumpSignal() {
+        if (!schemaCapabilityRegistry.hasTable(SIGNAL_TABLE)) {
+            return;
+        }
+        jdbcTemplate.update(
+                "INSERT INTO analysis_task_signal (id, seq) VALUES (1, 1) ON DUPLICATE KEY UPDATE seq = seq + 1"
+        );
+    }
+
+    public int renewLeases(String workerId, List<Long> taskIds) {
+        if (taskIds == null || taskIds.isEmpty()) {
+            return 0;
+        }
+        List<Object> args = new ArrayList<>(taskIds);
+        args.add(workerId);
         return jdbcTemplate.update(
                 """
                 UPDATE analysis_task
-                SET status='RUNNING', locked_by=?, locked_at=NOW(), started_at = COALESCE(started_at, NOW()), updated_at=NOW()
-                WHERE id=?
-                  AND status IN ('PENDING','RETRY_WAIT')
-                  AND (next_run_at IS NULL OR next_run_at<=NOW())
+                SET locked_at=NOW()
+                WHERE id IN (%s)
+                  AND status='RUNNING'
+                  AND locked_by=?
+                """.formatted(placeholders(taskIds.size())),
+                args.toArray()
+        );
+    }
+
+    public int reclaimExpiredLeases(int leaseSeconds, int maxAttempts) {
+        // MySQL evaluates SET left to right, so attempt_count is bumped last.
+        return jdbcTemplate.update(
+                """
+                UPDATE analysis_task
+                SET status = CASE WHEN attempt_count + 1 >= COALESCE(max_attempts, ?) THEN 'FAILED' ELSE 'RETRY_WAIT' END,
+                    next_run_at = CASE WHEN attempt_count + 1 >= COALESCE(max_attempts, ?) THEN NULL ELSE NOW() END,
+                    finished_at = CASE WHEN attempt_count + 1 >= COALESCE(max_attempts, ?) THEN NOW() ELSE finished_at END,
+                    error_message = CONCAT('LEASE_EXPIRED:worker lease lost, lockedBy=', COALESCE(locked_by, 'unknown')),
+                    locked_by = NULL,
+                    locked_at = NULL,
+                    attempt_count = attempt_count + 1,
+                    updated_at = NOW()
+                WHERE status='RUNNING'
+                  AND (locked_at IS NULL OR locked_at < DATE_SUB(NOW(), INTERVAL ? SECOND))
                 """,
-                workerId,
-                taskId
+                maxAttempts,
+                maxAttempts,
+                maxAttempts,
+                leaseSeconds
         );
     }
 
@@ -257,18 +422,21 @@ public class AnalysisTaskRepository {
         );
     }
 
-    public Optional<String> findAudioStoragePath(long taskId) {
-        List<String> values = jdbcTemplate.query(
+    public Optional<AudioBlobRef> findAudioBlob(long taskId) {
+        List<AudioBlobRef> values = jdbcTemplate.query(
                 """
-                SELECT af.storage_path
+                SELECT af.storage_path, af.sha256
                 FROM analysis_task t
                 JOIN audio_file af ON af.id = t.audio_file_id
                 WHERE t.id = ?
                 """,
-                (rs, rowNum) -> rs.getString("storage_path"),
+                (rs, rowNum) -> new AudioBlobRef(rs.getString("storage_path"), rs.getString("sha256")),
                 taskId
         );
-        return values.isEmpty() ? Optional.empty() : Optional.ofNullable(values.get(0));
+        return values.isEmpty() || values.get(0).storagePath() == null ? Optional.empty() : Optional.of(values.get(0));
+    }
+
+    public record AudioBlobRef(String storagePath, String sha256) {
     }
 
     public Optional<Long> findUserIdByTaskId(long taskId) {
@@ -286,22 +454,6 @@ public class AnalysisTaskRepository {
         return values.isEmpty() ? Optional.empty() : Optional.ofNullable(values.get(0));
     }
 
-    public long countTasksByUserUntil(long userId, long taskIdInclusive) {
-        Long total = jdbcTemplate.queryForObject(
-                """
-                SELECT COUNT(*)
-                FROM analysis_task t
-                JOIN audio_file af ON af.id=t.audio_file_id
-                WHERE af.user_id=?
-                  AND t.id <= ?
-                """,
-                Long.class,
-                userId,
-                taskIdInclusive
-        );
-        return total == null ? 0L : total;
-    }
-
     public long countActiveTasks() {
         Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM analysis_task WHERE status='RUNNING'", Long.class);
         return total == null ? 0 : total;
@@ -332,4 +484,21 @@ public class AnalysisTaskRepository {
     public void markDeletedByAudioId(long audioId) {
         jdbcTemplate.update("UPDATE analysis_task SET status='DELETED', updated_at=NOW() WHERE audio_file_id=?", audioId);
     }
+
+    public Map<Long, AnalysisTask> findByIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, AnalysisTask> result = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT * FROM analysis_task WHERE id IN (%s)".formatted(placeholders(ids.size())),
+                TASK_ROW_MAPPER,
+                ids.toArray()
+        ).forEach(task -> result.put(task.id(), task));
+        return result;
+    }
+
+    private static String placeholders(int size) {
+        return String.join(",", Collections.nCopies(size, "?"));
+    }
 }
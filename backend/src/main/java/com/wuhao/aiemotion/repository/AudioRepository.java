@@ -9,16 +9,23 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 @Repository
 public class AudioRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final SchemaCapabilityRegistry schemaCapabilityRegistry;
 
-    public AudioRepository(JdbcTemplate jdbcTemplate) {
+    public AudioRepository(JdbcTemplate jdbcTemplate, SchemaCapabilityRegistry schemaCapabilityRegistry) {
         this.jdbcTemplate = jdbcTemplate;
+        this.schemaCapabilityRegistry = schemaCapabilityRegistry;
     }
 
     private static final RowMapper<AudioFile> AUDIO_ROW_MAPPER = (rs, rowNum) -> new AudioFile(
@@ -80,10 +87,43 @@ public class AudioRepository {
         return rows.isEmpty() ? java.util.Optional.empty() : java.util.Optional.ofNullable(rows.get(0));
     }
 
+    /** Fills in what the analysis worker measured; columns of an older schema are skipped. */
+    public int updateSpeechStats(long id, Long durationMs, Double speechRatio) {
+        if (schemaCapabilityRegistry.hasColumn("audio_file", "speech_ratio")) {
+            return jdbcTemplate.update(
+                    "UPDATE audio_file SET duration_ms=COALESCE(?, duration_ms), speech_ratio=? WHERE id=?",
+                    durationMs, speechRatio, id
+            );
+        }
+        return jdbcTemplate.update("UPDATE audio_file SET duration_ms=COALESCE(?, duration_ms) WHERE id=?", durationMs, id);
+    }
+
     public int softDelete(long id) {
         return jdbcTemplate.update("UPDATE audio_file SET status='DELETED', updated_at=NOW() WHERE id=?", id);
     }
 
+    /**
+     * Live rows that still share a content hash, and how many of them point at {@code storagePath}.
+     * Locking read: the next-key lock on idx_audio_sha256 holds back concurrent inserts of the same
+     * content until the caller commits, so a blob is never removed under a row that is being added.
+     */
+    public BlobReferences lockBlobReferences(String sha256, String storagePath) {
+        return jdbcTemplate.queryForObject(
+                """
+                SELECT COUNT(*) AS live_rows, COALESCE(SUM(storage_path = ?), 0) AS path_rows
+                FROM audio_file
+                WHERE sha256 = ? AND status <> 'DELETED'
+                FOR UPDATE
+                """,
+                (rs, rowNum) -> new BlobReferences(rs.getLong("live_rows"), rs.getLong("path_rows")),
+                storagePath,
+                sha256
+        );
+    }
+
+    public record BlobReferences(long liveRows, long pathRows) {
+    }
+
     public long countAll(boolean onlyUploaded) {
         if (onlyUploaded) {
             return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audio_file WHERE status='UPLOADED'", Long.class);
@@ -97,36 +137,54 @@ public class AudioRepository {
                     SELECT *
                     FROM audio_file
                     WHERE status='UPLOADED'
-                    ORDER BY created_at DESC
+                    ORDER BY created_at DESC, id DESC
                     LIMIT ? OFFSET ?
                     """, AUDIO_ROW_MAPPER, size, offset);
         }
         return jdbcTemplate.query("""
                 SELECT *
                 FROM audio_file
-                ORDER BY created_at DESC
+                ORDER BY created_at DESC, id DESC
                 LIMIT ? OFFSET ?
                 """, AUDIO_ROW_MAPPER, size, offset);
     }
 
     public List<AudioFile> findManagedPage(int offset, int size, String q) {
-        if (q == null || q.isBlank()) {
-            return jdbcTemplate.query("SELECT * FROM audio_file ORDER BY created_at DESC LIMIT ? OFFSET ?", AUDIO_ROW_MAPPER, size, offset);
-        }
-        String like = "%" + q + "%";
-        return jdbcTemplate.query("SELECT * FROM audio_file WHERE original_name LIKE ? OR stored_name LIKE ? ORDER BY created_at DESC LIMIT ? OFFSET ?", AUDIO_ROW_MAPPER, like, like, size, offset);
+        StringBuilder sql = new StringBuilder("SELECT * FROM audio_file WHERE 1=1");
+        List<Object> args = new ArrayList<>();
+        appendManagedFilter(q, sql, args);
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ? OFFSET ?");
+        args.add(size);
+        args.add(offset);
+        return jdbcTemplate.query(sql.toString(), AUDIO_ROW_MAPPER, args.toArray());
     }
 
     public long countManaged(String q) {
-        if (q == null || q.isBlank()) {
-            Long n = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audio_file", Long.class);
-            return n == null ? 0 : n;
-        }
-        String like = "%" + q + "%";
-        Long n = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audio_file WHERE original_name LIKE ? OR stored_name LIKE ?", Long.class, like, like);
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM audio_file WHERE 1=1");
+        List<Object> args = new ArrayList<>();
+        appendManagedFilter(q, sql, args);
+        Long n = jdbcTemplate.queryForObject(sql.toString(), Long.class, args.toArray());
         return n == null ? 0 : n;
     }
 
+    private void appendManagedFilter(String q, StringBuilder sql, List<Object> args) {
+        SearchKeyword search = SearchKeyword.parse(q);
+        if (search == null) {
+            return;
+        }
+        boolean fulltext = schemaCapabilityRegistry.hasIndex("audio_file", SearchKeyword.AUDIO_NAME_FULLTEXT_INDEX);
+        sql.append(" AND ");
+        if (search.kind() == SearchKeyword.Kind.ID) {
+            // numeric file names are common, so an id hit does not replace the name match
+            sql.append("(id=? OR ");
+            args.add(search.number());
+            search.appendFileNameMatch("", fulltext, sql, args);
+            sql.append(")");
+        } else {
+            search.appendFileNameMatch("", fulltext, sql, args);
+        }
+    }
+
     public long countByUser(long userId, boolean onlyUploaded) {
         if (onlyUploaded) {
             return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audio_file WHERE user_id=? AND status='UPLOADED'", Long.class, userId);
@@ -140,7 +198,7 @@ public class AudioRepository {
                     SELECT *
                     FROM audio_file
                     WHERE user_id=? AND status='UPLOADED'
-                    ORDER BY created_at DESC
+                    ORDER BY created_at DESC, id DESC
                     LIMIT ? OFFSET ?
                     """, AUDIO_ROW_MAPPER, userId, size, offset);
         }
@@ -148,8 +206,52 @@ public class AudioRepository {
                 SELECT *
                 FROM audio_file
                 WHERE user_id=?
-                ORDER BY created_at DESC
+                ORDER BY created_at DESC, id DESC
                 LIMIT ? OFFSET ?
                 """, AUDIO_ROW_MAPPER, userId, size, offset);
     }
+
+    public List<AudioFile> findPageAfter(Long userId, boolean onlyUploaded, PageCursor after, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM audio_file WHERE 1=1");
+        List<Object> args = new ArrayList<>();
+        if (userId != null) {
+            sql.append(" AND user_id=?");
+            args.add(userId);
+        }
+        if (onlyUploaded) {
+            sql.append(" AND status='UPLOADED'");
+        }
+        return queryKeysetPage(after, limit, sql, args);
+    }
+
+    public List<AudioFile> findManagedPageAfter(String q, PageCursor after, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM audio_file WHERE 1=1");
+        List<Object> args = new ArrayList<>();
+        appendManagedFilter(q, sql, args);
+        return queryKeysetPage(after, limit, sql, args);
+    }
+
+    private List<AudioFile> queryKeysetPage(PageCursor after, int limit, StringBuilder sql, List<Object> args) {
+        after.appendPredicate("created_at", "id", sql, args);
+        sql.append(" ORDER BY ").append(PageCursor.orderBy("created_at", "id", after.ascending())).append(" LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), AUDIO_ROW_MAPPER, args.toArray());
+    }
+
+    public Map<Long, AudioFile> findByIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, AudioFile> result = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT * FROM audio_file WHERE id IN (%s)".formatted(placeholders(ids.size())),
+                AUDIO_ROW_MAPPER,
+                ids.toArray()
+        ).forEach(audio -> result.put(audio.id(), audio));
+        return result;
+    }
+
+    private static String placeholders(int size) {
+        return String.join(",", Collections.nCopies(size, "?"));
+    }
 }
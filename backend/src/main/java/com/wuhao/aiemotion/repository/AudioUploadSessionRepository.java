@@ -19,9 +19,11 @@ import java.util.Optional;
 public class AudioUploadSessionRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final SchemaCapabilityRegistry schemaCapabilityRegistry;
 
-    public AudioUploadSessionRepository(JdbcTemplate jdbcTemplate) {
+    public AudioUploadSessionRepository(JdbcTemplate jdbcTemplate, SchemaCapabilityRegistry schemaCapabilityRegistry) {
         this.jdbcTemplate = jdbcTemplate;
+        this.schemaCapabilityRegistry = schemaCapabilityRegistry;
     }
 
     private static final RowMapper<AudioUploadSessionEntity> SESSION_ROW_MAPPER = (rs, rowNum) ->
@@ -36,19 +38,39 @@ public class AudioUploadSessionRepository {
                     rs.getInt("received_chunks"),
                     rs.getString("status"),
                     rs.getObject("merged_audio_id") == null ? null : rs.getLong("merged_audio_id"),
+                    rs.getObject("chunk_size_bytes") == null ? null : rs.getLong("chunk_size_bytes"),
+                    rs.getBytes("received_bitmap"),
                     rs.getTimestamp("expires_at") == null ? null : rs.getTimestamp("expires_at").toLocalDateTime(),
                     rs.getTimestamp("created_at") == null ? null : rs.getTimestamp("created_at").toLocalDateTime(),
                     rs.getTimestamp("updated_at") == null ? null : rs.getTimestamp("updated_at").toLocalDateTime()
             );
 
+    /**
+     * True once V19 is applied: new sessions track chunk receipt in received_bitmap instead of
+     * audio_upload_chunk rows. Sessions created earlier keep a NULL bitmap and the row-based path.
+     */
+    public boolean tracksChunkBitmap() {
+        return schemaCapabilityRegistry.hasColumn("audio_upload_session", "received_bitmap")
+                && schemaCapabilityRegistry.hasColumn("audio_upload_session", "chunk_size_bytes");
+    }
+
     public long createSession(String uploadId,
                               Long userId,
                               String originalName,
                               String contentType,
                               Long totalSizeBytes,
                               int totalChunks,
+                              Long chunkSizeBytes,
                               LocalDateTime expiresAt) {
-        String sql = """
+        boolean bitmap = tracksChunkBitmap();
+        String sql = bitmap
+                ? """
+                INSERT INTO audio_upload_session
+                (upload_id, user_id, original_name, content_type, total_size_bytes, total_chunks, status, expires_at,
+                 chunk_size_bytes, received_bitmap)
+                VALUES (?, ?, ?, ?, ?, ?, 'INIT', ?, ?, ?)
+                """
+                : """
                 INSERT INTO audio_upload_session
                 (upload_id, user_id, original_name, content_type, total_size_bytes, total_chunks, status, expires_at)
                 VALUES (?, ?, ?, ?, ?, ?, 'INIT', ?)
@@ -63,6 +85,10 @@ public class AudioUploadSessionRepository {
             ps.setObject(5, totalSizeBytes);
             ps.setInt(6, totalChunks);
             ps.setTimestamp(7, expiresAt == null ? null : Timestamp.valueOf(expiresAt));
+            if (bitmap) {
+                ps.setObject(8, chunkSizeBytes);
+                ps.setBytes(9, ChunkBitmap.empty(totalChunks));
+            }
             return ps;
         }, keyHolder);
         Number key = Objects.requireNonNull(keyHolder.getKey(), "createSession generated key is null");
@@ -70,14 +96,47 @@ public class AudioUploadSessionRepository {
     }
 
     public Optional<AudioUploadSessionEntity> findByUploadId(String uploadId) {
+        String columns = tracksChunkBitmap()
+                ? "*"
+                : "*, NULL AS chunk_size_bytes, NULL AS received_bitmap";
         List<AudioUploadSessionEntity> rows = jdbcTemplate.query(
-                "SELECT * FROM audio_upload_session WHERE upload_id=? LIMIT 1",
+                "SELECT " + columns + " FROM audio_upload_session WHERE upload_id=? LIMIT 1",
                 SESSION_ROW_MAPPER,
                 uploadId
         );
         return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
     }
 
+    /**
+     * Sets the chunk's bit and recounts in one statement, so parallel chunk requests only hold the session
+     * row for the duration of this UPDATE. Returns the received count, or -1 when the session has moved to
+     * MERGING/MERGED/CANCELED meanwhile.
+     */
+    public int markChunkReceived(long sessionId, int chunkIndex, int totalChunks) {
+        int updated = jdbcTemplate.update(
+                """
+                UPDATE audio_upload_session
+                SET received_bitmap = received_bitmap | ?,
+                    received_chunks = BIT_COUNT(received_bitmap),
+                    status = 'UPLOADING',
+                    updated_at = NOW()
+                WHERE id = ?
+                  AND status NOT IN ('MERGING','MERGED','CANCELED')
+                """,
+                ChunkBitmap.mask(chunkIndex, totalChunks),
+                sessionId
+        );
+        if (updated == 0) {
+            return -1;
+        }
+        Integer received = jdbcTemplate.queryForObject(
+                "SELECT received_chunks FROM audio_upload_session WHERE id=?",
+                Integer.class,
+                sessionId
+        );
+        return received == null ? 0 : received;
+    }
+
     public int upsertChunk(long uploadSessionId,
                            int chunkIndex,
                            long chunkSizeBytes,
@@ -131,6 +190,19 @@ public class AudioUploadSessionRepository {
         );
     }
 
+    public int markMerging(long sessionId) {
+        return jdbcTemplate.update(
+                """
+                UPDATE audio_upload_session
+                SET status='MERGING', updated_at=NOW()
+                WHERE id=?
+                  AND (status NOT IN ('MERGING','MERGED','CANCELED')
+                       OR (status='MERGING' AND updated_at < NOW() - INTERVAL 30 MINUTE))
+                """,
+                sessionId
+        );
+    }
+
     public void markMerged(long sessionId, long mergedAudioId) {
         jdbcTemplate.update(
                 "UPDATE audio_upload_session SET status='MERGED', merged_audio_id=?, updated_at=NOW() WHERE id=?",
@@ -168,6 +240,8 @@ public class AudioUploadSessionRepository {
             int receivedChunks,
             String status,
             Long mergedAudioId,
+            Long chunkSizeBytes,
+            byte[] receivedBitmap,
             LocalDateTime expiresAt,
             LocalDateTime createdAt,
             LocalDateTime updatedAt
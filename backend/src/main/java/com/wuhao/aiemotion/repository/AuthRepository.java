@@ -10,7 +10,11 @@ import java.sql.PreparedStatement;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -165,28 +169,41 @@ public class AuthRepository {
         jdbcTemplate.update("DELETE FROM auth_session WHERE refresh_token = ?", refreshToken);
     }
 
-    public long countUserRegisterSequence(long userId) {
-        Long count = jdbcTemplate.queryForObject(
-                """
-                SELECT COUNT(*)
-                FROM auth_user u
-                JOIN auth_user target ON target.id = ?
-                WHERE EXISTS (
-                    SELECT 1
-                    FROM auth_user_role ur
-                    JOIN auth_role r ON r.id = ur.role_id
-                    WHERE ur.user_id = u.id
-                      AND r.code = 'USER'
-                )
-                  AND (
-                    u.created_at < target.created_at
-                    OR (u.created_at = target.created_at AND u.id <= target.id)
-                  )
-                """,
-                Long.class,
+    public void updateRegisterNo(long userId, long registerNo) {
+        jdbcTemplate.update("UPDATE auth_user SET user_register_no=? WHERE id=?", registerNo, userId);
+    }
+
+    public Optional<Long> findRegisterNo(long userId) {
+        List<Long> rows = jdbcTemplate.query(
+                "SELECT user_register_no FROM auth_user WHERE id=?",
+                (rs, rowNum) -> rs.getObject("user_register_no") == null ? null : rs.getLong("user_register_no"),
                 userId
         );
-        return count == null ? 0L : count;
+        return rows.isEmpty() ? Optional.empty() : Optional.ofNullable(rows.get(0));
+    }
+
+    public Map<Long, Long> findRegisterNos(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Long> result = new HashMap<>();
+        jdbcTemplate.query(
+                """
+                SELECT id, user_register_no
+                FROM auth_user
+                WHERE id IN (%s)
+                  AND user_register_no IS NOT NULL
+                """.formatted(placeholders(userIds.size())),
+                rs -> {
+                    result.put(rs.getLong("id"), rs.getLong("user_register_no"));
+                },
+                userIds.toArray()
+        );
+        return result;
+    }
+
+    private static String placeholders(int size) {
+        return String.join(",", Collections.nCopies(size, "?"));
     }
 
     public record DbUser(long id, String username, String passwordHash, String status, String roleCode) {
@@ -0,0 +1,45 @@
+package com.wuhao.aiemotion.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Received-chunk set of an upload session, stored as audio_upload_session.received_bitmap.
+ * Chunk {@code i} is bit {@code 0x80 >>> (i % 8)} of byte {@code i / 8}; every value for a session has the
+ * same length so MySQL can OR a single-bit mask into the column and BIT_COUNT it in one statement.
+ */
+public final class ChunkBitmap {
+
+    private ChunkBitmap() {
+    }
+
+    public static byte[] empty(int totalChunks) {
+        if (totalChunks < 1) {
+            throw new IllegalArgumentException("totalChunks must be >= 1");
+        }
+        return new byte[(totalChunks + 7) / 8];
+    }
+
+    public static byte[] mask(int chunkIndex, int totalChunks) {
+        if (chunkIndex < 0 || chunkIndex >= totalChunks) {
+            throw new IllegalArgumentException("chunkIndex out of range");
+        }
+        byte[] bitmap = empty(totalChunks);
+        bitmap[chunkIndex >>> 3] = (byte) (0x80 >>> (chunkIndex & 7));
+        return bitmap;
+    }
+
+    public static List<Integer> indexes(byte[] bitmap, int totalChunks) {
+        List<Integer> indexes = new ArrayList<>();
+        if (bitmap == null) {
+            return indexes;
+        }
+        int limit = Math.min(totalChunks, bitmap.length * 8);
+        for (int i = 0; i < limit; i++) {
+            if ((bitmap[i >>> 3] & (0x80 >>> (i & 7))) != 0) {
+                indexes.add(i);
+            }
+        }
+        return indexes;
+    }
+}
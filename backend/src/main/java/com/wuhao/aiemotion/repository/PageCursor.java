@@ -0,0 +1,69 @@
+package com.wuhao.aiemotion.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Keyset position (sort column value + id of the last row returned) handed to clients as an opaque token.
+ * The token is bound to the sort it was issued for, so it cannot be replayed against a different ordering.
+ */
+public record PageCursor(String sortKey, boolean ascending, LocalDateTime at, long id) {
+
+    private static final String VERSION = "v1";
+
+    public static PageCursor after(String sortKey, boolean ascending, LocalDateTime at, long id) {
+        return at == null ? null : new PageCursor(sortKey, ascending, at, id);
+    }
+
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 5 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("invalid cursor");
+            }
+            return new PageCursor(parts[1], "A".equals(parts[2]), LocalDateTime.parse(parts[3]), Long.parseLong(parts[4]));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = String.join("|", VERSION, sortKey, ascending ? "A" : "D", at.toString(), Long.toString(id));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void requireSort(String expectedSortKey, boolean expectedAscending) {
+        if (expectedSortKey == null) {
+            throw new IllegalArgumentException("cursor pagination is not supported for this sort");
+        }
+        if (!expectedSortKey.equals(sortKey) || expectedAscending != ascending) {
+            throw new IllegalArgumentException("cursor was issued for a different sort");
+        }
+    }
+
+    /**
+     * Appends {@code AND (col > ? OR (col = ? AND id > ?))} (or the descending form) and binds its arguments.
+     */
+    void appendPredicate(String column, String idColumn, StringBuilder sql, List<Object> args) {
+        String op = ascending ? ">" : "<";
+        sql.append(" AND (").append(column).append(' ').append(op).append(" ? OR (")
+                .append(column).append(" = ? AND ").append(idColumn).append(' ').append(op).append(" ?))");
+        Timestamp value = Timestamp.valueOf(at);
+        args.add(value);
+        args.add(value);
+        args.add(id);
+    }
+
+    static String orderBy(String column, String idColumn, boolean ascending) {
+        String direction = ascending ? "ASC" : "DESC";
+        return column + " " + direction + ", " + idColumn + " " + direction;
+    }
+}
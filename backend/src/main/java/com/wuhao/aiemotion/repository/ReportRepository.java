@@ -5,19 +5,21 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.time.LocalDateTime;
 
 @Repository
 public class ReportRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final SchemaCapabilityRegistry schemaCapabilityRegistry;
 
-    public ReportRepository(JdbcTemplate jdbcTemplate) {
+    public ReportRepository(JdbcTemplate jdbcTemplate, SchemaCapabilityRegistry schemaCapabilityRegistry) {
         this.jdbcTemplate = jdbcTemplate;
+        this.schemaCapabilityRegistry = schemaCapabilityRegistry;
     }
 
     private static final RowMapper<ReportResource> ROW_MAPPER = (rs, rowNum) -> new ReportResource(
@@ -28,20 +30,104 @@ public class ReportRepository {
             rs.getString("risk_level"),
             rs.getString("overall_emotion"),
             rs.getTimestamp("created_at").toLocalDateTime(),
-            rs.getTimestamp("deleted_at") == null ? null : rs.getTimestamp("deleted_at").toLocalDateTime()
+            rs.getTimestamp("deleted_at") == null ? null : rs.getTimestamp("deleted_at").toLocalDateTime(),
+            rs.getObject("user_report_seq") == null ? null : rs.getLong("user_report_seq")
     );
 
-    public void upsert(long taskId, long audioId, String reportJson, String riskLevel, String overallEmotion) {
+    private static final String LIST_PROJECTION = """
+            rr.id, rr.task_id, rr.audio_id, rr.risk_level, rr.overall_emotion, rr.created_at, rr.deleted_at, rr.user_report_seq,
+            JSON_OBJECT(
+              'ser', JSON_OBJECT(
+                'audioSummary', JSON_EXTRACT(rr.report_json, '$.ser.audioSummary'),
+                'overall', JSON_EXTRACT(rr.report_json, '$.ser.overall'),
+                'fusion', JSON_EXTRACT(rr.report_json, '$.ser.fusion'),
+                'segments', JSON_EXTRACT(rr.report_json, '$.ser.segments')
+              ),
+              'textSentiment', JSON_EXTRACT(rr.report_json, '$.textSentiment'),
+              'textNeg', JSON_EXTRACT(rr.report_json, '$.textNeg'),
+              'textNegFusion', JSON_EXTRACT(rr.report_json, '$.textNegFusion'),
+              'riskAssessment', JSON_EXTRACT(rr.report_json, '$.riskAssessment')
+            ) AS report_json
+            """;
+
+    private static final String JSON_RISK_SCORE_EXPR = """
+            CASE
+              WHEN COALESCE(
+                     NULLIF(CAST(COALESCE(JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.riskAssessment.risk_score')), '0') AS DECIMAL(10,4)), 0),
+                     CAST(COALESCE(JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.analysis_result.risk_assessment.risk_score')), '0') AS DECIMAL(10,4))
+                   ) <= 1
+                THEN COALESCE(
+                       NULLIF(CAST(COALESCE(JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.riskAssessment.risk_score')), '0') AS DECIMAL(10,4)), 0),
+                       CAST(COALESCE(JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.analysis_result.risk_assessment.risk_score')), '0') AS DECIMAL(10,4))
+                     ) * 100
+              ELSE COALESCE(
+                     NULLIF(CAST(COALESCE(JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.riskAssessment.risk_score')), '0') AS DECIMAL(10,4)), 0),
+                     CAST(COALESCE(JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.analysis_result.risk_assessment.risk_score')), '0') AS DECIMAL(10,4))
+                   )
+            END
+            """;
+
+    public void upsert(long taskId,
+                       long audioId,
+                       String reportJson,
+                       String riskLevel,
+                       double riskScore,
+                       String overallEmotion) {
         jdbcTemplate.update("""
-                INSERT INTO report_resource (task_id, audio_id, report_json, risk_level, overall_emotion)
-                VALUES (?, ?, CAST(? AS JSON), ?, ?)
+                INSERT INTO report_resource (task_id, audio_id, user_id, report_json, risk_level, risk_score, overall_emotion)
+                VALUES (?, ?, (SELECT af.user_id FROM audio_file af WHERE af.id=?), CAST(? AS JSON), ?, ?, ?)
                 ON DUPLICATE KEY UPDATE
+                    user_id = VALUES(user_id),
                     report_json = VALUES(report_json),
                     risk_level = VALUES(risk_level),
+                    risk_score = VALUES(risk_score),
                     overall_emotion = VALUES(overall_emotion),
                     deleted_at = NULL,
                     created_at = CURRENT_TIMESTAMP
-                """, taskId, audioId, reportJson, riskLevel, overallEmotion);
+                """, taskId, audioId, audioId, reportJson, riskLevel, riskScore, overallEmotion);
+    }
+
+    public List<Long> findIdsMissingAnalyticsColumns(long afterId, int limit) {
+        return jdbcTemplate.query(
+                """
+                SELECT id
+                FROM report_resource
+                WHERE id > ?
+                  AND (risk_score IS NULL OR user_id IS NULL OR overall_emotion IS NULL OR overall_emotion = '')
+                ORDER BY id ASC
+                LIMIT ?
+                """,
+                (rs, rowNum) -> rs.getLong("id"),
+                afterId,
+                limit
+        );
+    }
+
+    public int backfillAnalyticsColumns(long fromIdInclusive, long toIdInclusive) {
+        return jdbcTemplate.update(
+                """
+                UPDATE report_resource rr
+                LEFT JOIN audio_file af ON af.id=rr.audio_id
+                SET rr.user_id = COALESCE(rr.user_id, af.user_id),
+                    rr.risk_score = COALESCE(rr.risk_score, %s),
+                    rr.overall_emotion = COALESCE(NULLIF(rr.overall_emotion, ''),
+                                                  JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.ser.overall.emotionCode')),
+                                                  'UNKNOWN')
+                WHERE rr.id BETWEEN ? AND ?
+                  AND (rr.risk_score IS NULL OR rr.user_id IS NULL OR rr.overall_emotion IS NULL OR rr.overall_emotion = '')
+                """.formatted(JSON_RISK_SCORE_EXPR),
+                fromIdInclusive,
+                toIdInclusive
+        );
+    }
+
+    public int updateNarrative(long taskId, String narrativeJson) {
+        return jdbcTemplate.update("""
+                UPDATE report_resource
+                SET report_json = JSON_SET(COALESCE(report_json, JSON_OBJECT()), '$.narrative', CAST(? AS JSON))
+                WHERE task_id=?
+                  AND deleted_at IS NULL
+                """, narrativeJson, taskId);
     }
 
     public long count(String riskLevel, String emotion, String keyword) {
@@ -74,7 +160,7 @@ public class ReportRepository {
                                      int size,
                                      String sortBy,
                                      String sortOrder) {
-        StringBuilder sql = new StringBuilder("SELECT rr.* FROM report_resource rr JOIN audio_file af ON af.id=rr.audio_id WHERE rr.deleted_at IS NULL");
+        StringBuilder sql = new StringBuilder("SELECT " + LIST_PROJECTION + " FROM report_resource rr JOIN audio_file af ON af.id=rr.audio_id WHERE rr.deleted_at IS NULL");
         List<Object> args = new ArrayList<>();
         appendFilters(riskLevel, emotion, keyword, sql, args);
         sql.append(" ORDER BY ").append(resolveReportOrderBy(sortBy, sortOrder)).append(" LIMIT ? OFFSET ?");
@@ -92,12 +178,12 @@ public class ReportRepository {
                                            String sortBy,
                                            String sortOrder) {
         StringBuilder sql = new StringBuilder("""
-                SELECT rr.*
+                SELECT %s
                 FROM report_resource rr
                 JOIN audio_file af ON af.id=rr.audio_id
                 WHERE rr.deleted_at IS NULL
                   AND af.user_id=?
-                """);
+                """.formatted(LIST_PROJECTION));
         List<Object> args = new ArrayList<>();
         args.add(userId);
         appendFilters(riskLevel, emotion, keyword, sql, args);
@@ -107,6 +193,48 @@ public class ReportRepository {
         return jdbcTemplate.query(sql.toString(), ROW_MAPPER, args.toArray());
     }
 
+    public List<ReportResource> pageAfter(String riskLevel,
+                                          String emotion,
+                                          String keyword,
+                                          PageCursor after,
+                                          int limit) {
+        StringBuilder sql = new StringBuilder("SELECT " + LIST_PROJECTION + " FROM report_resource rr JOIN audio_file af ON af.id=rr.audio_id WHERE rr.deleted_at IS NULL");
+        List<Object> args = new ArrayList<>();
+        appendFilters(riskLevel, emotion, keyword, sql, args);
+        return queryKeysetPage(after, limit, sql, args);
+    }
+
+    public List<ReportResource> pageByUserAfter(long userId,
+                                                String riskLevel,
+                                                String emotion,
+                                                String keyword,
+                                                PageCursor after,
+                                                int limit) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT %s
+                FROM report_resource rr
+                JOIN audio_file af ON af.id=rr.audio_id
+                WHERE rr.deleted_at IS NULL
+                  AND af.user_id=?
+                """.formatted(LIST_PROJECTION));
+        List<Object> args = new ArrayList<>();
+        args.add(userId);
+        appendFilters(riskLevel, emotion, keyword, sql, args);
+        return queryKeysetPage(after, limit, sql, args);
+    }
+
+    public static String reportCursorSortKey(String sortBy) {
+        String normalized = sortBy == null ? "" : sortBy.trim();
+        return "riskLevel".equals(normalized) || "overall".equals(normalized) ? null : "createdAt";
+    }
+
+    private List<ReportResource> queryKeysetPage(PageCursor after, int limit, StringBuilder sql, List<Object> args) {
+        after.appendPredicate("rr.created_at", "rr.id", sql, args);
+        sql.append(" ORDER BY ").append(PageCursor.orderBy("rr.created_at", "rr.id", after.ascending())).append(" LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), ROW_MAPPER, args.toArray());
+    }
+
     private void appendFilters(String riskLevel, String emotion, String keyword, StringBuilder sql, List<Object> args) {
         String normalizedRiskLevel = normalizeFilterValue(riskLevel);
         if (normalizedRiskLevel != null) {
@@ -118,13 +246,44 @@ public class ReportRepository {
             sql.append(" AND UPPER(rr.overall_emotion)=UPPER(?)");
             args.add(normalizedEmotion);
         }
-        if (keyword != null && !keyword.isBlank()) {
-            String like = "%" + keyword.trim() + "%";
-            sql.append(" AND (CAST(rr.id AS CHAR) LIKE ? OR CAST(rr.task_id AS CHAR) LIKE ? OR af.original_name LIKE ? OR rr.overall_emotion LIKE ?)");
-            args.add(like);
-            args.add(like);
-            args.add(like);
-            args.add(like);
+        SearchKeyword search = SearchKeyword.parse(keyword);
+        if (search != null) {
+            appendKeyword(search, sql, args);
+        }
+    }
+
+    private void appendKeyword(SearchKeyword search, StringBuilder sql, List<Object> args) {
+        switch (search.kind()) {
+            case ID -> {
+                // numeric file names are common, so an id hit does not replace the name match
+                sql.append(" AND (rr.id=? OR rr.task_id=? OR ");
+                args.add(search.number());
+                args.add(search.number());
+                search.appendFileNameMatch("af.", schemaCapabilityRegistry.hasIndex("audio_file", SearchKeyword.AUDIO_NAME_FULLTEXT_INDEX), sql, args);
+                sql.append(")");
+            }
+            case SERIAL_NO -> {
+                if (search.registerNo() == 0L) {
+                    // reports without an owner are numbered by their id
+                    sql.append(" AND rr.id=?");
+                    args.add(search.number());
+                } else {
+                    sql.append(" AND rr.user_report_seq=? AND rr.user_id=");
+                    args.add(search.number());
+                    search.appendOwnerUserId(sql, args);
+                }
+                search.appendSameDay("rr.created_at", sql, args);
+            }
+            case TRACE_PREFIX -> {
+                sql.append(" AND rr.task_id IN (SELECT sk_t.id FROM analysis_task sk_t WHERE sk_t.trace_id LIKE ?)");
+                args.add(search.prefixLike());
+            }
+            case TEXT -> {
+                sql.append(" AND (");
+                search.appendFileNameMatch("af.", schemaCapabilityRegistry.hasIndex("audio_file", SearchKeyword.AUDIO_NAME_FULLTEXT_INDEX), sql, args);
+                sql.append(" OR UPPER(rr.overall_emotion)=UPPER(?))");
+                args.add(search.text());
+            }
         }
     }
 
@@ -135,8 +294,7 @@ public class ReportRepository {
             case "overall" -> "rr.overall_emotion";
             default -> "rr.created_at";
         };
-        String direction = "asc".equalsIgnoreCase(sortOrder) ? "ASC" : "DESC";
-        return column + " " + direction;
+        return PageCursor.orderBy(column, "rr.id", "asc".equalsIgnoreCase(sortOrder));
     }
 
     static String normalizeFilterValue(String value) {
@@ -154,6 +312,11 @@ public class ReportRepository {
         return normalized;
     }
 
+    public static double normalizeRiskScore(double primary, double fallback) {
+        double merged = primary != 0D ? primary : fallback;
+        return merged <= 1D ? merged * 100D : merged;
+    }
+
     public Optional<ReportResource> findById(long reportId) {
         List<ReportResource> list = jdbcTemplate.query("SELECT * FROM report_resource WHERE id=? AND deleted_at IS NULL", ROW_MAPPER, reportId);
         return list.isEmpty() ? Optional.empty() : Optional.of(list.get(0));
@@ -184,20 +347,21 @@ public class ReportRepository {
         return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
     }
 
-    public long countReportsByUserUntil(long userId, long reportIdInclusive) {
-        Long total = jdbcTemplate.queryForObject(
-                """
-                SELECT COUNT(*)
-                FROM report_resource rr
-                JOIN audio_file af ON af.id=rr.audio_id
-                WHERE af.user_id=?
-                  AND rr.id <= ?
-                """,
-                Long.class,
-                userId,
-                reportIdInclusive
+    public Optional<Long> findOwnerOfUnnumberedReport(long taskId) {
+        List<Long> rows = jdbcTemplate.query(
+                "SELECT user_id FROM report_resource WHERE task_id=? AND user_report_seq IS NULL AND user_id IS NOT NULL",
+                (rs, rowNum) -> rs.getLong("user_id"),
+                taskId
+        );
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+    }
+
+    public int assignUserReportSeq(long taskId, long userReportSeq) {
+        return jdbcTemplate.update(
+                "UPDATE report_resource SET user_report_seq=? WHERE task_id=? AND user_report_seq IS NULL",
+                userReportSeq,
+                taskId
         );
-        return total == null ? 0L : total;
     }
 
     public int softDelete(long reportId) {
@@ -212,44 +376,17 @@ public class ReportRepository {
         int safeDays = Math.min(180, Math.max(1, days));
         return jdbcTemplate.queryForList(
                 """
-                SELECT trend.stat_date,
+                SELECT DATE(rr.created_at) AS stat_date,
                        COUNT(*) AS report_count,
-                       AVG(trend.normalized_risk_score) AS avg_risk_score,
-                       SUM(CASE WHEN trend.normalized_risk_score < ? THEN 1 ELSE 0 END) AS low_count,
-                       SUM(CASE WHEN trend.normalized_risk_score >= ? AND trend.normalized_risk_score < ? THEN 1 ELSE 0 END) AS medium_count,
-                       SUM(CASE WHEN trend.normalized_risk_score >= ? THEN 1 ELSE 0 END) AS high_count
-                FROM (
-                  SELECT DATE(rr.created_at) AS stat_date,
-                         CASE
-                           WHEN (
-                             CASE
-                               WHEN CAST(COALESCE(JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.riskAssessment.risk_score')), '0') AS DECIMAL(10,4)) > 0
-                                 THEN CAST(COALESCE(JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.riskAssessment.risk_score')), '0') AS DECIMAL(10,4))
-                               ELSE CAST(COALESCE(JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.analysis_result.risk_assessment.risk_score')), '0') AS DECIMAL(10,4))
-                             END
-                           ) <= 1
-                             THEN (
-                               CASE
-                                 WHEN CAST(COALESCE(JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.riskAssessment.risk_score')), '0') AS DECIMAL(10,4)) > 0
-                                   THEN CAST(COALESCE(JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.riskAssessment.risk_score')), '0') AS DECIMAL(10,4))
-                                 ELSE CAST(COALESCE(JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.analysis_result.risk_assessment.risk_score')), '0') AS DECIMAL(10,4))
-                               END
-                             ) * 100
-                           ELSE (
-                             CASE
-                               WHEN CAST(COALESCE(JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.riskAssessment.risk_score')), '0') AS DECIMAL(10,4)) > 0
-                                 THEN CAST(COALESCE(JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.riskAssessment.risk_score')), '0') AS DECIMAL(10,4))
-                               ELSE CAST(COALESCE(JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.analysis_result.risk_assessment.risk_score')), '0') AS DECIMAL(10,4))
-                             END
-                           )
-                         END AS normalized_risk_score
-                  FROM report_resource rr
-                  JOIN audio_file af ON af.id=rr.audio_id
-                  WHERE rr.deleted_at IS NULL
-                    AND af.user_id=?
-                    AND rr.created_at >= DATE_SUB(CURDATE(), INTERVAL ? DAY)
-                ) trend
-                GROUP BY trend.stat_date
+                       AVG(COALESCE(rr.risk_score, 0)) AS avg_risk_score,
+                       SUM(CASE WHEN COALESCE(rr.risk_score, 0) < ? THEN 1 ELSE 0 END) AS low_count,
+                       SUM(CASE WHEN rr.risk_score >= ? AND rr.risk_score < ? THEN 1 ELSE 0 END) AS medium_count,
+                       SUM(CASE WHEN rr.risk_score >= ? THEN 1 ELSE 0 END) AS high_count
+                FROM report_resource rr
+                WHERE rr.user_id=?
+                  AND rr.created_at >= DATE_SUB(CURDATE(), INTERVAL ? DAY)
+                  AND rr.deleted_at IS NULL
+                GROUP BY stat_date
                 ORDER BY stat_date ASC
                 """,
                 mediumRiskThreshold,
@@ -0,0 +1,144 @@
+package com.wuhao.aiemotion.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class SchemaCapabilityRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaCapabilityRegistry.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Boolean> checkedColumns = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot;
+
+    public SchemaCapabilityRegistry(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void probeOnStartup() {
+        current();
+    }
+
+    public boolean hasColumn(String tableName, String columnName) {
+        Snapshot current = current();
+        if (current == null) {
+            return false;
+        }
+        Set<String> columns = current.columns().get(tableName.toLowerCase());
+        boolean present = columns != null && columns.contains(columnName.toLowerCase());
+        checkedColumns.put(tableName + "." + columnName, present);
+        return present;
+    }
+
+    public boolean hasIndex(String tableName, String indexName) {
+        Snapshot current = current();
+        if (current == null) {
+            return false;
+        }
+        Set<String> indexes = current.indexes().get(tableName.toLowerCase());
+        boolean present = indexes != null && indexes.contains(indexName.toLowerCase());
+        checkedColumns.put(tableName + "#" + indexName, present);
+        return present;
+    }
+
+    public boolean hasTable(String tableName) {
+        Snapshot current = current();
+        return current != null && current.columns().containsKey(tableName.toLowerCase());
+    }
+
+    public synchronized Map<String, Object> refresh() {
+        snapshot = null;
+        Snapshot refreshed = current();
+        if (refreshed != null) {
+            checkedColumns.replaceAll((key, ignored) -> {
+                boolean index = key.indexOf('#') >= 0;
+                int separator = index ? key.indexOf('#') : key.indexOf('.');
+                String table = key.substring(0, separator).toLowerCase();
+                Set<String> names = index ? refreshed.indexes().get(table) : refreshed.columns().get(table);
+                return names != null && names.contains(key.substring(separator + 1).toLowerCase());
+            });
+        }
+        return snapshot();
+    }
+
+    public Map<String, Object> snapshot() {
+        Snapshot current = snapshot;
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("loaded", current != null);
+        payload.put("probedAt", current == null ? null : current.probedAt().toString());
+        payload.put("probeCostMs", current == null ? null : current.probeCostMs());
+        payload.put("tableCount", current == null ? 0 : current.columns().size());
+        payload.put("capabilities", new TreeMap<>(checkedColumns));
+        return payload;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = probe();
+            }
+            return snapshot;
+        }
+    }
+
+    private Snapshot probe() {
+        long started = System.currentTimeMillis();
+        try {
+            Map<String, Set<String>> columns = new HashMap<>();
+            jdbcTemplate.query(
+                    """
+                    SELECT TABLE_NAME, COLUMN_NAME
+                    FROM INFORMATION_SCHEMA.COLUMNS
+                    WHERE TABLE_SCHEMA = DATABASE()
+                    """,
+                    rs -> {
+                        columns.computeIfAbsent(rs.getString("TABLE_NAME").toLowerCase(), key -> new HashSet<>())
+                                .add(rs.getString("COLUMN_NAME").toLowerCase());
+                    }
+            );
+            Map<String, Set<String>> indexes = new HashMap<>();
+            jdbcTemplate.query(
+                    """
+                    SELECT DISTINCT TABLE_NAME, INDEX_NAME
+                    FROM INFORMATION_SCHEMA.STATISTICS
+                    WHERE TABLE_SCHEMA = DATABASE()
+                    """,
+                    rs -> {
+                        indexes.computeIfAbsent(rs.getString("TABLE_NAME").toLowerCase(), key -> new HashSet<>())
+                                .add(rs.getString("INDEX_NAME").toLowerCase());
+                    }
+            );
+            long costMs = System.currentTimeMillis() - started;
+            log.info("schema capabilities probed: tables={}, costMs={}", columns.size(), costMs);
+            return new Snapshot(Map.copyOf(columns), Map.copyOf(indexes), LocalDateTime.now(), costMs);
+        } catch (Exception e) {
+            log.warn("schema capability probe failed, will retry on next lookup: reason={}", e.getMessage());
+            return null;
+        }
+    }
+
+    private record Snapshot(Map<String, Set<String>> columns,
+                            Map<String, Set<String>> indexes,
+                            LocalDateTime probedAt,
+                            long probeCostMs) {
+    }
+}
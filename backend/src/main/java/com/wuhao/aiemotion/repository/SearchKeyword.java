@@ -0,0 +1,122 @@
+package com.wuhao.aiemotion.repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Classifies a list-search keyword so repositories can route it to an indexed lookup
+ * instead of running substring LIKE over every row.
+ */
+public record SearchKeyword(Kind kind, String text, long number, long registerNo, LocalDate date) {
+
+    public enum Kind {
+        /** All digits: exact primary/foreign key match. */
+        ID,
+        /** Task or report number, e.g. U0012-20260301-0003. */
+        SERIAL_NO,
+        /** Hex/dash token (UUID style) or explicit "trace:" prefix: trace_id prefix match. */
+        TRACE_PREFIX,
+        /** Anything else: file name / free text. */
+        TEXT
+    }
+
+    /** Default ngram_token_size; shorter terms are never indexed by the ngram parser. */
+    public static final int NGRAM_TOKEN_SIZE = 2;
+    public static final String AUDIO_NAME_FULLTEXT_INDEX = "ft_audio_file_name";
+
+    private static final Pattern ID_PATTERN = Pattern.compile("\\d{1,18}");
+    private static final Pattern SERIAL_NO_PATTERN = Pattern.compile("U(\\d{1,18})-(\\d{8})-(\\d{1,18})", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TRACE_PATTERN = Pattern.compile("[0-9a-f]{8}(-[0-9a-f]{0,12})*", Pattern.CASE_INSENSITIVE);
+    private static final String TRACE_SCOPE = "trace:";
+    private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    public static SearchKeyword parse(String keyword) {
+        if (keyword == null || keyword.isBlank()) {
+            return null;
+        }
+        String normalized = keyword.trim();
+        if (normalized.toLowerCase(Locale.ROOT).startsWith(TRACE_SCOPE) && normalized.length() > TRACE_SCOPE.length()) {
+            return new SearchKeyword(Kind.TRACE_PREFIX, normalized.substring(TRACE_SCOPE.length()).trim(), 0L, 0L, null);
+        }
+        if (ID_PATTERN.matcher(normalized).matches()) {
+            return new SearchKeyword(Kind.ID, normalized, Long.parseLong(normalized), 0L, null);
+        }
+        Matcher serial = SERIAL_NO_PATTERN.matcher(normalized);
+        if (serial.matches()) {
+            try {
+                LocalDate date = LocalDate.parse(serial.group(2), DATE_FMT);
+                return new SearchKeyword(Kind.SERIAL_NO, normalized, Long.parseLong(serial.group(3)),
+                        Long.parseLong(serial.group(1)), date);
+            } catch (DateTimeParseException ignored) {
+                // not a real date, fall through to text search
+            }
+        }
+        if (TRACE_PATTERN.matcher(normalized).matches()) {
+            return new SearchKeyword(Kind.TRACE_PREFIX, normalized, 0L, 0L, null);
+        }
+        return new SearchKeyword(Kind.TEXT, normalized, 0L, 0L, null);
+    }
+
+    /** Prefix pattern for an index range scan; LIKE wildcards in the keyword are escaped. */
+    public String prefixLike() {
+        return escapeLike(text) + "%";
+    }
+
+    public String containsLike() {
+        return "%" + escapeLike(text) + "%";
+    }
+
+    /**
+     * Boolean-mode phrase for an ngram FULLTEXT index, or null when the text is shorter than one ngram token
+     * and the caller has to fall back to LIKE.
+     */
+    public String fulltextPhrase() {
+        String cleaned = text.replaceAll("[\"*+\\-<>()~@]", " ").trim();
+        if (cleaned.codePointCount(0, cleaned.length()) < NGRAM_TOKEN_SIZE) {
+            return null;
+        }
+        return "\"" + cleaned + "\"";
+    }
+
+    /**
+     * Appends a file-name match against audio_file; uses the ngram FULLTEXT index when it is present.
+     */
+    void appendFileNameMatch(String prefix, boolean fulltextAvailable, StringBuilder sql, List<Object> args) {
+        String phrase = fulltextAvailable ? fulltextPhrase() : null;
+        if (phrase != null) {
+            sql.append("MATCH(").append(prefix).append("original_name, ").append(prefix)
+                    .append("stored_name) AGAINST (? IN BOOLEAN MODE)");
+            args.add(phrase);
+            return;
+        }
+        sql.append("(").append(prefix).append("original_name LIKE ? OR ").append(prefix).append("stored_name LIKE ?)");
+        args.add(containsLike());
+        args.add(containsLike());
+    }
+
+    /**
+     * Appends the owner user id encoded in a serial number. Numbers are formatted from the stored register
+     * number and fall back to the user id when the account has none.
+     */
+    void appendOwnerUserId(StringBuilder sql, List<Object> args) {
+        sql.append("COALESCE((SELECT sk_u.id FROM auth_user sk_u WHERE sk_u.user_register_no=? LIMIT 1), ?)");
+        args.add(registerNo);
+        args.add(registerNo);
+    }
+
+    void appendSameDay(String column, StringBuilder sql, List<Object> args) {
+        sql.append(" AND ").append(column).append(">=? AND ").append(column).append("<?");
+        args.add(Timestamp.valueOf(date.atStartOfDay()));
+        args.add(Timestamp.valueOf(date.plusDays(1).atStartOfDay()));
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,46 @@
+package com.wuhao.aiemotion.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public class UserSequenceRepository {
+
+    public static final String TASK = "TASK";
+    public static final String REPORT = "REPORT";
+    public static final String REGISTER = "REGISTER";
+    public static final long GLOBAL_USER_ID = 0L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserSequenceRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // The counter row stays locked until the caller's transaction ends, so a rolled back insert
+    // also rolls back its number and concurrent callers for the same user are serialized.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long next(long userId, String seqType) {
+        jdbcTemplate.update(
+                """
+                INSERT INTO user_sequence_counter (user_id, seq_type, last_value)
+                VALUES (?, ?, 1)
+                ON DUPLICATE KEY UPDATE last_value = last_value + 1
+                """,
+                userId,
+                seqType
+        );
+        Long value = jdbcTemplate.queryForObject(
+                "SELECT last_value FROM user_sequence_counter WHERE user_id=? AND seq_type=?",
+                Long.class,
+                userId,
+                seqType
+        );
+        if (value == null) {
+            throw new IllegalStateException("user sequence missing: userId=" + userId + ", type=" + seqType);
+        }
+        return value;
+    }
+}
@@ -5,9 +5,11 @@ import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -19,9 +21,11 @@ import java.util.Optional;
 public class WarningGovernanceRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final SchemaCapabilityRegistry schemaCapabilityRegistry;
 
-    public WarningGovernanceRepository(JdbcTemplate jdbcTemplate) {
+    public WarningGovernanceRepository(JdbcTemplate jdbcTemplate, SchemaCapabilityRegistry schemaCapabilityRegistry) {
         this.jdbcTemplate = jdbcTemplate;
+        this.schemaCapabilityRegistry = schemaCapabilityRegistry;
     }
 
     public List<Map<String, Object>> listRules() {
@@ -206,6 +210,22 @@ public class WarningGovernanceRepository {
         return jdbcTemplate.queryForList(sql.toString(), args.toArray());
     }
 
+    public List<Map<String, Object>> listWarningsAfter(PageCursor after,
+                                                       int limit,
+                                                       String status,
+                                                       String riskLevel,
+                                                       String breached,
+                                                       String keyword) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM warning_event WHERE 1=1");
+        List<Object> args = new ArrayList<>();
+        appendOperationalWarningScope(sql);
+        appendWarningFilters(status, riskLevel, breached, keyword, sql, args);
+        after.appendPredicate("created_at", "id", sql, args);
+        sql.append(" ORDER BY ").append(PageCursor.orderBy("created_at", "id", after.ascending())).append(" LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.queryForList(sql.toString(), args.toArray());
+    }
+
     public Optional<Map<String, Object>> findWarningById(long warningId) {
         List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT * FROM warning_event WHERE id=? LIMIT 1", warningId);
         return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
@@ -446,17 +466,15 @@ public class WarningGovernanceRepository {
     }
 
     public long countUserRiskReportsWithinWindow(long userId, int trendWindowDays, double thresholdScore) {
-        String riskExpr = riskScoreExpr("rr");
         Long total = jdbcTemplate.queryForObject(
                 """
                 SELECT COUNT(*)
                 FROM report_resource rr
-                JOIN audio_file af ON af.id=rr.audio_id
-                WHERE rr.deleted_at IS NULL
-                  AND af.user_id=?
+                WHERE rr.user_id=?
                   AND rr.created_at >= DATE_SUB(NOW(), INTERVAL ? DAY)
-                  AND %s >= ?
-                """.formatted(riskExpr),
+                  AND rr.deleted_at IS NULL
+                  AND rr.risk_score >= ?
+                """,
                 Long.class,
                 userId,
                 trendWindowDays,
@@ -470,13 +488,10 @@ public class WarningGovernanceRepository {
                 """
                 SELECT COUNT(*)
                 FROM report_resource rr
-                JOIN audio_file af ON af.id=rr.audio_id
-                WHERE rr.deleted_at IS NULL
-                  AND af.user_id=?
+                WHERE rr.user_id=?
                   AND rr.created_at >= DATE_SUB(NOW(), INTERVAL ? DAY)
-                  AND UPPER(COALESCE(NULLIF(rr.overall_emotion, ''),
-                                     JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.ser.overall.emotionCode')),
-                                     'UNKNOWN'))=UPPER(?)
+                  AND rr.deleted_at IS NULL
+                  AND UPPER(COALESCE(NULLIF(rr.overall_emotion, ''), 'UNKNOWN'))=UPPER(?)
                 """,
                 Long.class,
                 userId,
@@ -498,6 +513,60 @@ public class WarningGovernanceRepository {
         );
     }
 
+    public List<LocalDate> listSummaryDatesSince(LocalDate fromInclusive) {
+        return jdbcTemplate.query(
+                "SELECT stat_date FROM analytics_daily_summary WHERE stat_date >= ? ORDER BY stat_date ASC",
+                (rs, rowNum) -> rs.getDate("stat_date").toLocalDate(),
+                Date.valueOf(fromInclusive)
+        );
+    }
+
+    public int upsertDailySummary(LocalDate statDate) {
+        Timestamp from = Timestamp.valueOf(statDate.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(statDate.plusDays(1).atStartOfDay());
+        return jdbcTemplate.update(
+                """
+                INSERT INTO analytics_daily_summary (stat_date, dau, upload_count, report_count, warning_count, emotion_distribution_json)
+                SELECT ?,
+                       (SELECT COUNT(DISTINCT user_id)
+                        FROM audio_file
+                        WHERE created_at >= ? AND created_at < ?
+                          AND user_id IS NOT NULL),
+                       (SELECT COUNT(*)
+                        FROM audio_file
+                        WHERE created_at >= ? AND created_at < ?),
+                       (SELECT COUNT(*)
+                        FROM report_resource
+                        WHERE created_at >= ? AND created_at < ?
+                          AND deleted_at IS NULL),
+                       (SELECT COUNT(*)
+                        FROM warning_event we
+                        WHERE we.created_at >= ? AND we.created_at < ?
+                          AND %s),
+                       (SELECT JSON_OBJECTAGG(e.emotion, e.cnt)
+                        FROM (
+                          SELECT UPPER(COALESCE(NULLIF(overall_emotion, ''), 'UNKNOWN')) AS emotion, COUNT(*) AS cnt
+                          FROM report_resource
+                          WHERE created_at >= ? AND created_at < ?
+                            AND deleted_at IS NULL
+                          GROUP BY emotion
+                        ) e)
+                ON DUPLICATE KEY UPDATE
+                    dau = VALUES(dau),
+                    upload_count = VALUES(upload_count),
+                    report_count = VALUES(report_count),
+                    warning_count = VALUES(warning_count),
+                    emotion_distribution_json = VALUES(emotion_distribution_json)
+                """.formatted(operationalWarningScope("we")),
+                Date.valueOf(statDate),
+                from, to,
+                from, to,
+                from, to,
+                from, to,
+                from, to
+        );
+    }
+
     public List<Map<String, Object>> aggregateFallbackDaily(int days) {
         return jdbcTemplate.queryForList(
                 """
@@ -550,9 +619,7 @@ public class WarningGovernanceRepository {
     public List<Map<String, Object>> listEmotionDistributionLastDays(int days) {
         return jdbcTemplate.queryForList(
                 """
-                SELECT UPPER(COALESCE(NULLIF(rr.overall_emotion, ''),
-                                      JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.ser.overall.emotionCode')),
-                                      'UNKNOWN')) AS emotion,
+                SELECT UPPER(COALESCE(NULLIF(rr.overall_emotion, ''), 'UNKNOWN')) AS emotion,
                        COUNT(*) AS count
                 FROM report_resource rr
                 WHERE rr.deleted_at IS NULL
@@ -567,9 +634,7 @@ public class WarningGovernanceRepository {
     public List<Map<String, Object>> listEmotionDistributionBeforeDays(int fromDaysAgo, int toDaysAgo) {
         return jdbcTemplate.queryForList(
                 """
-                SELECT UPPER(COALESCE(NULLIF(rr.overall_emotion, ''),
-                                      JSON_UNQUOTE(JSON_EXTRACT(rr.report_json, '$.ser.overall.emotionCode')),
-                                      'UNKNOWN')) AS emotion,
+                SELECT UPPER(COALESCE(NULLIF(rr.overall_emotion, ''), 'UNKNOWN')) AS emotion,
                        COUNT(*) AS count
                 FROM report_resource rr
                 WHERE rr.deleted_at IS NULL
@@ -747,30 +812,7 @@ public class WarningGovernanceRepository {
                 """.formatted(prefix, prefix, prefix, prefix);
     }
 
-    private String riskScoreExpr(String alias) {
-        String jsonPrimary = "CAST(COALESCE(JSON_UNQUOTE(JSON_EXTRACT(%s.report_json, '$.riskAssessment.risk_score')), '0') AS DECIMAL(10,4))".formatted(alias);
-        String jsonFallback = "CAST(COALESCE(JSON_UNQUOTE(JSON_EXTRACT(%s.report_json, '$.analysis_result.risk_assessment.risk_score')), '0') AS DECIMAL(10,4))".formatted(alias);
-        String merged = "COALESCE(NULLIF(%s, 0), %s)".formatted(jsonPrimary, jsonFallback);
-        return "CASE WHEN %s <= 1 THEN %s * 100 ELSE %s END".formatted(merged, merged, merged);
-    }
-
     private boolean hasColumn(String tableName, String columnName) {
-        try {
-            Integer count = jdbcTemplate.queryForObject(
-                    """
-                    SELECT COUNT(*)
-                    FROM INFORMATION_SCHEMA.COLUMNS
-                    WHERE TABLE_SCHEMA = DATABASE()
-                      AND TABLE_NAME = ?
-                      AND COLUMN_NAME = ?
-                    """,
-                    Integer.class,
-                    tableName,
-                    columnName
-            );
-            return count != null && count > 0;
-        } catch (Exception ignored) {
-            return false;
-        }
+        return schemaCapabilityRegistry.hasColumn(tableName, columnName);
     }
 }
@@ -3,6 +3,7 @@ package com.wuhao.aiemotion.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wuhao.aiemotion.repository.ModelGovernanceRepository;
+import com.wuhao.aiemotion.repository.PageCursor;
 import com.wuhao.aiemotion.repository.WarningGovernanceRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,11 +12,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -174,22 +177,42 @@ public class AdminGovernanceService {
 
     public Map<String, Object> listWarnings(int page,
                                             int pageSize,
+                                            String cursor,
+                                            Boolean withTotal,
                                             String status,
                                             String riskLevel,
                                             String breached,
                                             String keyword) {
+        PageCursor after = PageCursor.decode(cursor);
+        if (after != null) {
+            after.requireSort("createdAt", false);
+        }
         warningGovernanceRepository.markOverdueWarningsBreached();
         int safePage = Math.max(1, page);
         int safePageSize = Math.min(100, Math.max(1, pageSize));
         int offset = (safePage - 1) * safePageSize;
-        long total = warningGovernanceRepository.countWarnings(status, riskLevel, breached, keyword);
-        List<Map<String, Object>> items = warningGovernanceRepository.listWarnings(offset, safePageSize, status, riskLevel, breached, keyword);
-        return Map.of(
-                "items", items,
-                "total", total,
-                "page", safePage,
-                "pageSize", safePageSize
-        );
+        Long total = (withTotal != null ? withTotal : after == null)
+                ? warningGovernanceRepository.countWarnings(status, riskLevel, breached, keyword)
+                : null;
+        List<Map<String, Object>> items = after == null
+                ? warningGovernanceRepository.listWarnings(offset, safePageSize + 1, status, riskLevel, breached, keyword)
+                : warningGovernanceRepository.listWarningsAfter(after, safePageSize + 1, status, riskLevel, breached, keyword);
+        boolean hasMore = items.size() > safePageSize;
+        items = hasMore ? items.subList(0, safePageSize) : items;
+        String nextCursor = null;
+        if (hasMore) {
+            Map<String, Object> last = items.get(items.size() - 1);
+            Long lastId = toLong(last.get("id"));
+            PageCursor next = lastId == null ? null : PageCursor.after("createdAt", false, toDateTime(last.get("created_at")), lastId);
+            nextCursor = next == null ? null : next.encode();
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("items", items);
+        payload.put("total", total);
+        payload.put("page", safePage);
+        payload.put("pageSize", safePageSize);
+        payload.put("nextCursor", nextCursor);
+        return payload;
     }
 
     public List<Map<String, Object>> listWarningActions(long warningId) {
@@ -513,6 +536,16 @@ public class AdminGovernanceService {
         }
     }
 
+    private LocalDateTime toDateTime(Object value) {
+        if (value instanceof LocalDateTime dateTime) {
+            return dateTime;
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return null;
+    }
+
     private record DriftDistribution(
             List<Map<String, Object>> items,
             long currentTotal,
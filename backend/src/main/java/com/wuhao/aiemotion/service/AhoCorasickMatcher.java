@@ -0,0 +1,85 @@
+package com.wuhao.aiemotion.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class AhoCorasickMatcher<T> {
+
+    private final Node root = new Node();
+    private final List<T> payloads = new ArrayList<>();
+    private final List<Integer> lengths = new ArrayList<>();
+
+    AhoCorasickMatcher(Map<String, T> patterns) {
+        for (Map.Entry<String, T> entry : patterns.entrySet()) {
+            String pattern = entry.getKey();
+            if (pattern == null || pattern.isEmpty()) {
+                continue;
+            }
+            Node node = root;
+            for (int i = 0; i < pattern.length(); i++) {
+                node = node.children.computeIfAbsent(pattern.charAt(i), key -> new Node());
+            }
+            if (node.patternIndex < 0) {
+                node.patternIndex = payloads.size();
+                payloads.add(entry.getValue());
+                lengths.add(pattern.length());
+            }
+        }
+        linkFailures();
+    }
+
+    List<Match<T>> findAll(String text) {
+        List<Match<T>> matches = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return matches;
+        }
+        Node node = root;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            while (node != root && !node.children.containsKey(c)) {
+                node = node.failure;
+            }
+            Node next = node.children.get(c);
+            node = next == null ? root : next;
+            for (Node out = node.patternIndex >= 0 ? node : node.output; out != null; out = out.output) {
+                int length = lengths.get(out.patternIndex);
+                matches.add(new Match<>(payloads.get(out.patternIndex), i + 1 - length, i + 1));
+            }
+        }
+        return matches;
+    }
+
+    private void linkFailures() {
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        root.failure = root;
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            Node parent = queue.poll();
+            for (Map.Entry<Character, Node> edge : parent.children.entrySet()) {
+                char c = edge.getKey();
+                Node child = edge.getValue();
+                Node fallback = parent.failure;
+                while (fallback != root && !fallback.children.containsKey(c)) {
+                    fallback = fallback.failure;
+                }
+                Node candidate = fallback.children.get(c);
+                child.failure = candidate == null || candidate == child ? root : candidate;
+                child.output = child.failure.patternIndex >= 0 ? child.failure : child.failure.output;
+                queue.add(child);
+            }
+        }
+    }
+
+    record Match<T>(T payload, int start, int end) {
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private Node failure;
+        private Node output;
+        private int patternIndex = -1;
+    }
+}
@@ -0,0 +1,89 @@
+package com.wuhao.aiemotion.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wuhao.aiemotion.repository.AnalysisTaskCheckpointRepository;
+import com.wuhao.aiemotion.repository.SchemaCapabilityRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Per-task outputs of finished pipeline stages, so a retried attempt (typically after a SER timeout)
+ * resumes at the failed stage instead of repeating ASR and text scoring. Checkpoints are best effort:
+ * a read or write failure only means the stage runs again.
+ */
+@Service
+public class AnalysisCheckpointService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisCheckpointService.class);
+
+    static final String STAGE_ASR = "ASR";
+    static final String STAGE_TEXT = "TEXT";
+
+    private final AnalysisTaskCheckpointRepository repository;
+    private final SchemaCapabilityRegistry schemaCapabilityRegistry;
+    private final ObjectMapper objectMapper;
+
+    public AnalysisCheckpointService(AnalysisTaskCheckpointRepository repository,
+                                     SchemaCapabilityRegistry schemaCapabilityRegistry,
+                                     ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.schemaCapabilityRegistry = schemaCapabilityRegistry;
+        this.objectMapper = objectMapper;
+    }
+
+    public <T> Optional<T> load(long taskId, String stage, Class<T> type) {
+        if (!available()) {
+            return Optional.empty();
+        }
+        try {
+            Optional<String> payload = repository.find(taskId, stage);
+            return payload.isEmpty() ? Optional.empty() : Optional.ofNullable(objectMapper.readValue(payload.get(), type));
+        } catch (Exception e) {
+            log.warn("task checkpoint read failed, stage will rerun: taskId={}, stage={}, reason={}", taskId, stage, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void save(long taskId, int attemptNo, String stage, Object payload) {
+        if (payload == null || !available()) {
+            return;
+        }
+        try {
+            repository.upsert(taskId, stage, attemptNo, objectMapper.writeValueAsString(payload));
+        } catch (Exception e) {
+            log.warn("task checkpoint write failed: taskId={}, stage={}, reason={}", taskId, stage, e.getMessage());
+        }
+    }
+
+    /** Runs inside the success transaction, so a failure is logged rather than rolling back the result. */
+    public void clear(long taskId) {
+        if (!available()) {
+            return;
+        }
+        try {
+            repository.deleteByTaskId(taskId);
+        } catch (Exception e) {
+            log.warn("task checkpoint clear failed, left for the terminal sweep: taskId={}, reason={}", taskId, e.getMessage());
+        }
+    }
+
+    /** Drops checkpoints of tasks that ended outside the worker (lease expiry, audio deletion). */
+    public int clearTerminal() {
+        if (!available()) {
+            return 0;
+        }
+        try {
+            return repository.deleteForTerminalTasks();
+        } catch (Exception e) {
+            log.warn("terminal task checkpoint sweep failed: reason={}", e.getMessage());
+            return 0;
+        }
+    }
+
+    private boolean available() {
+        return schemaCapabilityRegistry.hasTable(AnalysisTaskCheckpointRepository.TABLE);
+    }
+}
@@ -11,6 +11,9 @@ public class AnalysisNarrativeProperties {
     private int maxTranscriptChars = 600;
     private int maxSegments = 3;
     private String safetyNotice = "以上内容仅作辅助参考，不构成医疗诊断。若持续感到痛苦或风险升高，请尽快联系值得信任的人或专业支持资源。";
+    private boolean asyncEnabled = false;
+    private int asyncConcurrency = 1;
+    private int asyncQueueCapacity = 200;
     private Ollama ollama = new Ollama();
     private Trend trend = new Trend();
 
@@ -62,6 +65,30 @@ public class AnalysisNarrativeProperties {
         this.safetyNotice = safetyNotice;
     }
 
+    public boolean isAsyncEnabled() {
+        return asyncEnabled;
+    }
+
+    public void setAsyncEnabled(boolean asyncEnabled) {
+        this.asyncEnabled = asyncEnabled;
+    }
+
+    public int getAsyncConcurrency() {
+        return asyncConcurrency;
+    }
+
+    public void setAsyncConcurrency(int asyncConcurrency) {
+        this.asyncConcurrency = asyncConcurrency;
+    }
+
+    public int getAsyncQueueCapacity() {
+        return asyncQueueCapacity;
+    }
+
+    public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+        this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
     public Ollama getOllama() {
         return ollama;
     }
@@ -0,0 +1,192 @@
+package com.wuhao.aiemotion.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wuhao.aiemotion.integration.asr.AsrTranscribeResponse;
+import com.wuhao.aiemotion.integration.ser.SerAnalyzeResponse;
+import com.wuhao.aiemotion.integration.ser.SerClient;
+import com.wuhao.aiemotion.integration.ser.SerProperties;
+import com.wuhao.aiemotion.repository.AnalysisResultCacheRepository;
+import com.wuhao.aiemotion.repository.SchemaCapabilityRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in reuse of ASR transcripts and SER responses for byte-identical audio. Entries are keyed by the
+ * audio sha256 plus a hash of the model version and every request parameter that reaches the upstream,
+ * so a different config or text fusion input is simply a miss. Cache failures never fail a task.
+ */
+@Service
+public class AnalysisResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisResultCache.class);
+
+    static final String STAGE_ASR = "ASR";
+    static final String STAGE_SER = "SER";
+
+    private final AnalysisResultCacheRepository repository;
+    private final AnalysisResultCacheProperties properties;
+    private final SerProperties serProperties;
+    private final AnalysisWorkerProperties workerProperties;
+    private final AudioVadProperties vadProperties;
+    private final SchemaCapabilityRegistry schemaCapabilityRegistry;
+    private final ObjectMapper objectMapper;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public AnalysisResultCache(AnalysisResultCacheRepository repository,
+                               AnalysisResultCacheProperties properties,
+                               SerProperties serProperties,
+                               AnalysisWorkerProperties workerProperties,
+                               AudioVadProperties vadProperties,
+                               SchemaCapabilityRegistry schemaCapabilityRegistry,
+                               ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.properties = properties;
+        this.serProperties = serProperties;
+        this.workerProperties = workerProperties;
+        this.vadProperties = vadProperties;
+        this.schemaCapabilityRegistry = schemaCapabilityRegistry;
+        this.objectMapper = objectMapper;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled() && schemaCapabilityRegistry.hasTable(AnalysisResultCacheRepository.TABLE);
+    }
+
+    public Optional<AsrTranscribeResponse> findAsr(String audioSha256) {
+        return find(audioSha256, STAGE_ASR, asrConfigVersion(), "", AsrTranscribeResponse.class);
+    }
+
+    public void putAsr(String audioSha256, AsrTranscribeResponse response) {
+        put(audioSha256, STAGE_ASR, asrConfigVersion(), "", response);
+    }
+
+    public Optional<SerAnalyzeResponse> findSer(String audioSha256,
+                                                String languageHint,
+                                                SerClient.FusionTextFeatures fusionTextFeatures) {
+        return find(audioSha256, STAGE_SER, serConfigVersion(), serInputs(languageHint, fusionTextFeatures),
+                SerAnalyzeResponse.class);
+    }
+
+    public void putSer(String audioSha256,
+                       String languageHint,
+                       SerClient.FusionTextFeatures fusionTextFeatures,
+                       SerAnalyzeResponse response) {
+        put(audioSha256, STAGE_SER, serConfigVersion(), serInputs(languageHint, fusionTextFeatures), response);
+    }
+
+    public void evict(String audioSha256) {
+        if (audioSha256 == null || !schemaCapabilityRegistry.hasTable(AnalysisResultCacheRepository.TABLE)) {
+            return;
+        }
+        repository.deleteByAudioSha256(audioSha256);
+    }
+
+    public Map<String, Object> metrics() {
+        long hit = hits.sum();
+        long missed = misses.sum();
+        long lookups = hit + missed;
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("enabled", isEnabled());
+        payload.put("modelVersion", properties.getModelVersion());
+        payload.put("ttlHours", properties.getTtlHours());
+        payload.put("hits", hit);
+        payload.put("misses", missed);
+        payload.put("errors", errors.sum());
+        payload.put("hitRate", lookups == 0 ? 0.0D : Math.round(hit * 10000.0D / lookups) / 10000.0D);
+        return payload;
+    }
+
+    private <T> Optional<T> find(String audioSha256, String stage, String configVersion, String inputs, Class<T> type) {
+        if (audioSha256 == null || !isEnabled()) {
+            return Optional.empty();
+        }
+        try {
+            Optional<String> payload = repository.find(audioSha256, stage, inputKey(configVersion, inputs),
+                    properties.getTtlHours());
+            if (payload.isEmpty()) {
+                misses.increment();
+                return Optional.empty();
+            }
+            hits.increment();
+            return Optional.of(objectMapper.readValue(payload.get(), type));
+        } catch (Exception e) {
+            errors.increment();
+            log.warn("analysis result cache read failed: stage={}, sha256={}, reason={}", stage, audioSha256, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void put(String audioSha256, String stage, String configVersion, String inputs, Object response) {
+        if (audioSha256 == null || response == null || !isEnabled()) {
+            return;
+        }
+        try {
+            repository.upsert(audioSha256, stage, inputKey(configVersion, inputs), configVersion,
+                    objectMapper.writeValueAsString(response));
+        } catch (Exception e) {
+            errors.increment();
+            log.warn("analysis result cache write failed: stage={}, sha256={}, reason={}", stage, audioSha256, e.getMessage());
+        }
+    }
+
+    private String asrConfigVersion() {
+        return "asr/" + properties.getModelVersion() + preparationVersion();
+    }
+
+    private String serConfigVersion() {
+        return "ser/" + properties.getModelVersion()
+                + "/seg" + serProperties.getSegmentMs()
+                + "/ovl" + serProperties.getOverlapMs()
+                + preparationVersion();
+    }
+
+    /**
+     * Silence trimming and window stitching change what reaches the upstream, so their settings are part of
+     * the key; with both off the key is the one of a plain whole-file run.
+     */
+    private String preparationVersion() {
+        StringBuilder version = new StringBuilder();
+        long windowMs = workerProperties.getLongAudioWindowMs();
+        if (windowMs > 0) {
+            version.append("/win").append(windowMs);
+        }
+        if (vadProperties.isEnabled() && vadProperties.isTrimEnabled()) {
+            version.append("/vad")
+                    .append(vadProperties.getFrameMs()).append(',')
+                    .append(vadProperties.getMarginDb()).append(',')
+                    .append(vadProperties.getFloorDb()).append(',')
+                    .append(vadProperties.getMinSpeechMs()).append(',')
+                    .append(vadProperties.getMinSilenceMs()).append(',')
+                    .append(vadProperties.getPaddingMs()).append(',')
+                    .append(vadProperties.getMinTrimRatio());
+        }
+        return version.toString();
+    }
+
+    static String serInputs(String languageHint, SerClient.FusionTextFeatures fusionTextFeatures) {
+        String hint = languageHint == null ? "" : languageHint.trim();
+        return "lang=" + hint + "|text=" + fusionTextFeatures;
+    }
+
+    static String inputKey(String configVersion, String inputs) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((configVersion + "\n" + inputs).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.wuhao.aiemotion.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "analysis.result-cache")
+public class AnalysisResultCacheProperties {
+
+    private boolean enabled = false;
+    /** Bump whenever the ASR/SER models behind ser.base-url change; entries from other versions are ignored. */
+    private String modelVersion = "v1";
+    private long ttlHours = 720;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getModelVersion() {
+        return modelVersion;
+    }
+
+    public void setModelVersion(String modelVersion) {
+        this.modelVersion = modelVersion;
+    }
+
+    public long getTtlHours() {
+        return ttlHours;
+    }
+
+    public void setTtlHours(long ttlHours) {
+        this.ttlHours = ttlHours;
+    }
+}
@@ -0,0 +1,89 @@
+package com.wuhao.aiemotion.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class AnalysisStageLimiter {
+
+    public enum Stage {
+        ASR,
+        TEXT,
+        SER,
+        NARRATIVE
+    }
+
+    private final Map<Stage, Semaphore> permits = new EnumMap<>(Stage.class);
+    private final Map<Stage, Integer> limits = new EnumMap<>(Stage.class);
+    private final AtomicInteger threadIndex = new AtomicInteger();
+    private final ExecutorService stageExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "analysis-stage-" + threadIndex.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AnalysisStageLimiter(AnalysisWorkerProperties workerProperties) {
+        register(Stage.ASR, workerProperties.getAsrConcurrency());
+        register(Stage.TEXT, workerProperties.getTextConcurrency());
+        register(Stage.SER, workerProperties.getSerConcurrency());
+        register(Stage.NARRATIVE, workerProperties.getNarrativeConcurrency());
+    }
+
+    public <T> T call(Stage stage, Callable<T> action) throws Exception {
+        Semaphore semaphore = permits.get(stage);
+        semaphore.acquire();
+        try {
+            return action.call();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(Stage stage, Callable<T> action) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call(stage, action);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, stageExecutor);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            int limit = limits.get(stage);
+            Semaphore semaphore = permits.get(stage);
+            payload.put(stage.name().toLowerCase(), Map.of(
+                    "limit", limit,
+                    "inFlight", limit - semaphore.availablePermits(),
+                    "waiting", semaphore.getQueueLength()
+            ));
+        }
+        return payload;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stageExecutor.shutdown();
+    }
+
+    private void register(Stage stage, int configured) {
+        int limit = Math.max(1, configured);
+        limits.put(stage, limit);
+        permits.put(stage, new Semaphore(limit, true));
+    }
+}
@@ -0,0 +1,4 @@
+package com.wuhao.aiemotion.service;
+
+public record AnalysisTaskQueuedEvent(long taskId) {
+}
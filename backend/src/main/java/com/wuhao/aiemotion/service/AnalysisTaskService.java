@@ -15,11 +15,14 @@ import com.wuhao.aiemotion.repository.AnalysisSegmentRepository;
 import com.wuhao.aiemotion.repository.AnalysisTaskRepository;
 import com.wuhao.aiemotion.repository.AuthRepository;
 import com.wuhao.aiemotion.repository.AudioRepository;
+import com.wuhao.aiemotion.repository.UserSequenceRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
@@ -44,6 +47,9 @@ public class AnalysisTaskService {
     private final ObjectMapper objectMapper;
     private final AnalysisWorkerProperties workerProperties;
     private final TaskNoFormatter taskNoFormatter;
+    private final TaskSnapshotCache snapshotCache;
+    private final UserSequenceRepository userSequenceRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public AnalysisTaskService(AnalysisTaskRepository analysisTaskRepository,
                                AnalysisResultRepository analysisResultRepository,
@@ -54,7 +60,10 @@ public class AnalysisTaskService {
                                ConsistencyGuardService consistencyGuardService,
                                ObjectMapper objectMapper,
                                AnalysisWorkerProperties workerProperties,
-                               TaskNoFormatter taskNoFormatter) {
+                               TaskNoFormatter taskNoFormatter,
+                               TaskSnapshotCache snapshotCache,
+                               UserSequenceRepository userSequenceRepository,
+                               ApplicationEventPublisher eventPublisher) {
         this.analysisTaskRepository = analysisTaskRepository;
         this.analysisResultRepository = analysisResultRepository;
         this.analysisSegmentRepository = analysisSegmentRepository;
@@ -65,8 +74,12 @@ public class AnalysisTaskService {
         this.objectMapper = objectMapper;
         this.workerProperties = workerProperties;
         this.taskNoFormatter = taskNoFormatter;
+        this.snapshotCache = snapshotCache;
+        this.userSequenceRepository = userSequenceRepository;
+        this.eventPublisher = eventPublisher;
     }
 
+    @Transactional
     public AnalysisTaskStartResponse startTask(long audioId, AuthService.UserProfile user) {
         if (!audioRepository.existsById(audioId)) {
             throw new IllegalArgumentException("audio_id not found: " + audioId);
@@ -75,16 +88,29 @@ public class AnalysisTaskService {
         ensureCanAccess(ownerUserId, user);
 
         String traceId = MDC.get("traceId");
-        long taskId = analysisTaskRepository.insertPendingTask(audioId, workerProperties.getMaxAttempts(), traceId);
+        Long userTaskSeq = ownerUserId == null ? null : userSequenceRepository.next(ownerUserId, UserSequenceRepository.TASK);
+        long taskId = analysisTaskRepository.insertPendingTask(audioId, workerProperties.getMaxAttempts(), traceId, userTaskSeq);
+        eventPublisher.publishEvent(new AnalysisTaskQueuedEvent(taskId));
         AnalysisTask task = analysisTaskRepository.findById(taskId).orElse(null);
         LocalDateTime createdAt = task == null ? null : task.createdAt();
-        long userTaskSequence = resolveUserTaskSequence(ownerUserId, createdAt, taskId);
-        String taskNo = taskNoFormatter.format(resolveUserRegisterNo(ownerUserId), createdAt, userTaskSequence);
+        String taskNo = taskNoFormatter.format(resolveUserRegisterNo(ownerUserId), createdAt, userTaskSeq == null ? taskId : userTaskSeq);
         return new AnalysisTaskStartResponse(taskId, taskNo, "PENDING");
     }
 
     public AnalysisTaskStatusResponse getTask(long taskId, AuthService.UserProfile user) {
+        TaskSnapshotCache.Entry terminal = snapshotCache.findTerminal(taskId).orElse(null);
+        if (terminal != null) {
+            ensureCanAccess(terminal.ownerUserId(), user);
+            return terminal.status();
+        }
+
         AnalysisTask task = findTaskOr404(taskId);
+        String version = snapshotCache.version(taskId, task.updatedAt());
+        TaskSnapshotCache.Entry cached = snapshotCache.find(taskId, version).orElse(null);
+        if (cached != null) {
+            ensureCanAccess(cached.ownerUserId(), user);
+            return cached.status();
+        }
         Long ownerUserId = analysisTaskRepository.findUserIdByTaskId(taskId).orElse(null);
         ensureCanAccess(ownerUserId, user);
 
@@ -100,9 +126,9 @@ public class AnalysisTaskService {
                     .orElse(null);
         }
 
-        return new AnalysisTaskStatusResponse(
+        AnalysisTaskStatusResponse response = new AnalysisTaskStatusResponse(
                 task.id(),
-                taskNoFormatter.format(resolveUserRegisterNo(ownerUserId), task.createdAt(), resolveUserTaskSequence(ownerUserId, task.createdAt(), task.id())),
+                taskNoFormatter.format(resolveUserRegisterNo(ownerUserId), task.createdAt(), task.userTaskSeq() == null ? task.id() : task.userTaskSeq()),
                 task.status(),
                 task.attemptCount(),
                 task.maxAttempts(),
@@ -115,6 +141,8 @@ public class AnalysisTaskService {
                 format(task.updatedAt()),
                 overall
         );
+        snapshotCache.put(taskId, version, ownerUserId, task.audioFileId(), response);
+        return response;
     }
 
     public AnalysisTaskResultResponse getTaskResult(long taskId, AuthService.UserProfile user) {
@@ -345,18 +373,10 @@ public class AnalysisTaskService {
         return time == null ? null : time.format(FMT);
     }
 
-    private long resolveUserTaskSequence(Long ownerUserId, LocalDateTime createdAt, long fallbackTaskId) {
-        if (ownerUserId == null) {
-            return fallbackTaskId;
-        }
-        return analysisTaskRepository.countTasksByUserUntil(ownerUserId, fallbackTaskId);
-    }
-
     private long resolveUserRegisterNo(Long ownerUserId) {
         if (ownerUserId == null) {
             return 0L;
         }
-        long serial = authRepository.countUserRegisterSequence(ownerUserId);
-        return serial > 0 ? serial : ownerUserId;
+        return authRepository.findRegisterNo(ownerUserId).orElse(ownerUserId);
     }
 }
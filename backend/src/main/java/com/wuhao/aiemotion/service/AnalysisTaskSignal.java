@@ -0,0 +1,69 @@
+package com.wuhao.aiemotion.service;
+
+import com.wuhao.aiemotion.repository.AnalysisTaskRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.OptionalLong;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wakes analysis workers when a task becomes runnable. The poller on this node is released at once; the
+ * shared {@code analysis_task_signal} counter is bumped so pollers on other nodes notice on their next
+ * primary-key read instead of running the claim query every interval.
+ */
+@Component
+public class AnalysisTaskSignal {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisTaskSignal.class);
+
+    private final AnalysisTaskRepository analysisTaskRepository;
+    private final Semaphore wakeups = new Semaphore(0);
+
+    public AnalysisTaskSignal(AnalysisTaskRepository analysisTaskRepository) {
+        this.analysisTaskRepository = analysisTaskRepository;
+    }
+
+    // after commit, so a woken worker can already see the row
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskQueued(AnalysisTaskQueuedEvent event) {
+        publish();
+    }
+
+    /** Wakes the local poller and every other node's. */
+    public void publish() {
+        wake();
+        try {
+            analysisTaskRepository.bumpSignal();
+        } catch (Exception e) {
+            log.warn("analysis task signal bump failed, other nodes pick the task up on their next scan: {}",
+                    e.getMessage());
+        }
+    }
+
+    /** Wakes the local poller only. */
+    public void wake() {
+        if (wakeups.availablePermits() == 0) {
+            wakeups.release();
+        }
+    }
+
+    /** Blocks until {@link #wake()} or the timeout; true when woken. */
+    boolean await(long timeoutMs) throws InterruptedException {
+        boolean woken = wakeups.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+        wakeups.drainPermits();
+        return woken;
+    }
+
+    /** Shared counter value; empty when it cannot be read, in which case callers keep scanning. */
+    OptionalLong sharedSeq() {
+        try {
+            return analysisTaskRepository.findSignalSeq();
+        } catch (Exception e) {
+            return OptionalLong.empty();
+        }
+    }
+}
@@ -3,16 +3,31 @@ package com.wuhao.aiemotion.service;
 import com.wuhao.aiemotion.domain.AnalysisTask;
 import com.wuhao.aiemotion.integration.ser.SerClient;
 import com.wuhao.aiemotion.integration.ser.SerProperties;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 public class AnalysisTaskWorker {
@@ -21,42 +36,205 @@ public class AnalysisTaskWorker {
     private static final long SER_PROBE_COOLDOWN_MS = 5000;
 
     private final AnalysisTaskWorkerService workerService;
+    private final AnalysisTaskSignal taskSignal;
     private final AnalysisWorkerProperties workerProperties;
     private final SerClient serClient;
     private final SerProperties serProperties;
     private final String workerId;
+    private final int concurrency;
+    private final Semaphore slots;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService heartbeatExecutor;
+    private final Set<Long> inFlightTaskIds = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopping = false;
     private volatile long lastSerProbeAtMs = 0;
     private volatile boolean lastSerUp = true;
     private volatile boolean serDownLogged = false;
+    private volatile long idleDelayMs;
 
     public AnalysisTaskWorker(AnalysisTaskWorkerService workerService,
                               AnalysisWorkerProperties workerProperties,
                               SerClient serClient,
                               SerProperties serProperties,
+                              AnalysisTaskSignal taskSignal,
                               @Value("${spring.application.name:ai-emotion-backend}") String appName) {
         this.workerService = workerService;
+        this.taskSignal = taskSignal;
         this.workerProperties = workerProperties;
         this.serClient = serClient;
         this.serProperties = serProperties;
         this.workerId = buildWorkerId(appName);
-        log.info("analysis worker started: workerId={}, pollIntervalMs={}, batchSize={}",
-                workerId, workerProperties.getPollIntervalMs(), workerProperties.getBatchSize());
+        this.concurrency = Math.max(1, workerProperties.getConcurrency());
+        this.slots = new Semaphore(concurrency);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "analysis-worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // own thread rather than the shared @Scheduled one, where a slow backfill could outlast the lease
+        this.heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "analysis-worker-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.idleDelayMs = pollIntervalMs();
+        log.info("analysis worker started: workerId={}, pollIntervalMs={}, idlePollIntervalMs={}, batchSize={}, "
+                        + "concurrency={}",
+                workerId, workerProperties.getPollIntervalMs(), workerProperties.getIdlePollIntervalMs(),
+                workerProperties.getBatchSize(), concurrency);
     }
 
-    @Scheduled(fixedDelayString = "${analysis.worker.poll-interval-ms:1000}")
-    public void pollAndProcess() {
+    @EventListener(ApplicationReadyEvent.class)
+    public void startPolling() {
         if (!workerProperties.isEnabled()) {
             return;
         }
+        Thread poller = new Thread(this::pollLoop, "analysis-worker-poller");
+        poller.setDaemon(true);
+        poller.start();
+        long heartbeatMs = Math.max(10L, workerProperties.getHeartbeatIntervalMs());
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Claims up to the free slots. Returns the number of tasks claimed, or -1 when no scan ran (no free
+     * slot, SER down, stopping).
+     */
+    public int pollAndProcess() {
+        if (!workerProperties.isEnabled()) {
+            return -1;
+        }
+        if (stopping) {
+            return -1;
+        }
+        int freeSlots = slots.availablePermits();
+        if (freeSlots <= 0) {
+            return -1;
+        }
         if (!shouldConsumeTasks()) {
+            return -1;
+        }
+        List<AnalysisTask> claimed = workerService.claimBatch(workerId, freeSlots);
+        for (AnalysisTask task : claimed) {
+            slots.acquireUninterruptibly();
+            dispatch(task);
+        }
+        return claimed.size();
+    }
+
+    /**
+     * Every poll interval the shared signal counter is read by primary key; the claim query itself only
+     * runs when the counter moved, a local submit or finished slot woke the poller, or the idle delay ran
+     * out. The idle delay doubles after each empty scan up to idle-poll-interval-ms, which still bounds
+     * how late delayed retries and reclaimed leases start.
+     */
+    private void pollLoop() {
+        boolean woken = true;
+        OptionalLong seenSeq = OptionalLong.empty();
+        long nextScanAtMs = 0;
+        while (!stopping) {
+            try {
+                OptionalLong seq = taskSignal.sharedSeq();
+                boolean signalled = woken || (seq.isPresent() && !seq.equals(seenSeq));
+                seenSeq = seq;
+                long now = System.currentTimeMillis();
+                if (signalled || now >= nextScanAtMs) {
+                    int claimed = pollAndProcess();
+                    long idleMaxMs = Math.max(pollIntervalMs(), workerProperties.getIdlePollIntervalMs());
+                    // without the shared counter other nodes' submits are only seen by scanning, so no backoff
+                    idleDelayMs = claimed != 0 || seq.isEmpty()
+                            ? pollIntervalMs()
+                            : Math.min(idleMaxMs, idleDelayMs * 2);
+                    nextScanAtMs = now + idleDelayMs;
+                }
+            } catch (Exception e) {
+                log.warn("analysis worker poll failed: workerId={}, reason={}", workerId, e.getMessage());
+            }
+            try {
+                woken = taskSignal.await(pollIntervalMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private long pollIntervalMs() {
+        return Math.max(10L, workerProperties.getPollIntervalMs());
+    }
+
+    public void heartbeat() {
+        if (!workerProperties.isEnabled()) {
             return;
         }
-        List<AnalysisTask> candidates = workerService.findCandidates();
-        for (AnalysisTask task : candidates) {
-            int updated = workerService.claim(task.id(), workerId);
-            if (updated == 1) {
-                workerService.processClaimedTask(task, workerId);
+        try {
+            if (!inFlightTaskIds.isEmpty()) {
+                workerService.renewLeases(workerId, new ArrayList<>(inFlightTaskIds));
+            }
+            if (workerService.reclaimExpiredLeases() > 0) {
+                taskSignal.publish();
+            }
+        } catch (Exception e) {
+            log.warn("analysis worker heartbeat failed: workerId={}, reason={}", workerId, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("workerId", workerId);
+        payload.put("concurrency", concurrency);
+        payload.put("busySlots", concurrency - slots.availablePermits());
+        payload.put("inFlightTaskIds", List.copyOf(inFlightTaskIds));
+        payload.put("stopping", stopping);
+        payload.put("idlePollDelayMs", idleDelayMs);
+        payload.put("stages", workerService.stageSnapshot());
+        return payload;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        taskSignal.wake();
+        executor.shutdown();
+        long awaitMs = Math.max(0L, workerProperties.getShutdownAwaitMs());
+        try {
+            if (!executor.awaitTermination(awaitMs, TimeUnit.MILLISECONDS)) {
+                log.warn("analysis worker drain timed out, interrupting in-flight tasks: workerId={}, busySlots={}",
+                        workerId, concurrency - slots.availablePermits());
+                executor.shutdownNow();
+            } else {
+                log.info("analysis worker drained: workerId={}", workerId);
             }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            // leases are renewed through the drain, so stop only once the slots are done
+            heartbeatExecutor.shutdownNow();
+        }
+    }
+
+    private void dispatch(AnalysisTask task) {
+        inFlightTaskIds.add(task.id());
+        try {
+            executor.execute(() -> {
+                try {
+                    workerService.processClaimedTask(task, workerId);
+                } catch (Exception e) {
+                    log.error("analysis task slot crashed: taskId={}, workerId={}", task.id(), workerId, e);
+                } finally {
+                    inFlightTaskIds.remove(task.id());
+                    slots.release();
+                    // a freed slot may have queued work waiting behind it
+                    taskSignal.wake();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlightTaskIds.remove(task.id());
+            slots.release();
+            log.warn("analysis task dispatch rejected during shutdown, lease will expire: taskId={}, workerId={}",
+                    task.id(), workerId);
         }
     }
 
@@ -5,7 +5,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wuhao.aiemotion.domain.AnalysisSegment;
 import com.wuhao.aiemotion.domain.AnalysisTask;
 import com.wuhao.aiemotion.dto.response.AnalysisTaskResultResponse;
-import com.wuhao.aiemotion.integration.asr.AsrClient;
 import com.wuhao.aiemotion.integration.asr.AsrTranscribeResponse;
 import com.wuhao.aiemotion.integration.ser.SerAnalyzeResponse;
 import com.wuhao.aiemotion.integration.ser.SerClient;
@@ -14,6 +13,7 @@ import com.wuhao.aiemotion.integration.text.TextSentimentResponse;
 import com.wuhao.aiemotion.repository.AnalysisResultRepository;
 import com.wuhao.aiemotion.repository.AnalysisSegmentRepository;
 import com.wuhao.aiemotion.repository.AnalysisTaskRepository;
+import com.wuhao.aiemotion.repository.AudioRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -28,6 +28,9 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 @Service
 public class AnalysisTaskWorkerService {
@@ -44,7 +47,6 @@ public class AnalysisTaskWorkerService {
     private final AnalysisResultRepository analysisResultRepository;
     private final AnalysisSegmentRepository analysisSegmentRepository;
     private final SerClient serClient;
-    private final AsrClient asrClient;
     private final TranscriptSemanticScoringService transcriptSemanticScoringService;
     private final PsychologicalRiskScoringService riskScoringService;
     private final TextNegScorer textNegScorer;
@@ -55,12 +57,19 @@ public class AnalysisTaskWorkerService {
     private final ObjectMapper objectMapper;
     private final TransactionTemplate transactionTemplate;
     private final ResourceManagementService resourceManagementService;
+    private final AnalysisStageLimiter stageLimiter;
+    private final NarrativeBackfillService narrativeBackfillService;
+    private final TaskSnapshotCache taskSnapshotCache;
+    private final AnalysisResultCache analysisResultCache;
+    private final AnalysisCheckpointService analysisCheckpointService;
+    private final LongAudioWindowService longAudioWindowService;
+    private final AudioRepository audioRepository;
+    private volatile long lastSerActivityAtMs = 0;
 
     public AnalysisTaskWorkerService(AnalysisTaskRepository analysisTaskRepository,
                                      AnalysisResultRepository analysisResultRepository,
                                      AnalysisSegmentRepository analysisSegmentRepository,
                                      SerClient serClient,
-                                     AsrClient asrClient,
                                      TranscriptSemanticScoringService transcriptSemanticScoringService,
                                      PsychologicalRiskScoringService riskScoringService,
                                      TextNegScorer textNegScorer,
@@ -70,12 +79,18 @@ public class AnalysisTaskWorkerService {
                                      ConsistencyGuardService consistencyGuardService,
                                      ObjectMapper objectMapper,
                                      TransactionTemplate transactionTemplate,
-                                     ResourceManagementService resourceManagementService) {
+                                     ResourceManagementService resourceManagementService,
+                                     AnalysisStageLimiter stageLimiter,
+                                     NarrativeBackfillService narrativeBackfillService,
+                                     TaskSnapshotCache taskSnapshotCache,
+                                     AnalysisResultCache analysisResultCache,
+                                     AnalysisCheckpointService analysisCheckpointService,
+                                     LongAudioWindowService longAudioWindowService,
+                                     AudioRepository audioRepository) {
         this.analysisTaskRepository = analysisTaskRepository;
         this.analysisResultRepository = analysisResultRepository;
         this.analysisSegmentRepository = analysisSegmentRepository;
         this.serClient = serClient;
-        this.asrClient = asrClient;
         this.transcriptSemanticScoringService = transcriptSemanticScoringService;
         this.riskScoringService = riskScoringService;
         this.textNegScorer = textNegScorer;
@@ -86,14 +101,45 @@ public class AnalysisTaskWorkerService {
         this.objectMapper = objectMapper;
         this.transactionTemplate = transactionTemplate;
         this.resourceManagementService = resourceManagementService;
+        this.stageLimiter = stageLimiter;
+        this.narrativeBackfillService = narrativeBackfillService;
+        this.taskSnapshotCache = taskSnapshotCache;
+        this.analysisResultCache = analysisResultCache;
+        this.analysisCheckpointService = analysisCheckpointService;
+        this.longAudioWindowService = longAudioWindowService;
+        this.audioRepository = audioRepository;
     }
 
-    public List<AnalysisTask> findCandidates() {
-        return analysisTaskRepository.findRunnableCandidates(workerProperties.getBatchSize());
+    public List<AnalysisTask> claimBatch(String workerId, int limit) {
+        int batchSize = Math.min(limit, workerProperties.getBatchSize());
+        if (batchSize <= 0) {
+            return List.of();
+        }
+        List<AnalysisTask> claimed = transactionTemplate.execute(
+                s -> analysisTaskRepository.claimRunnableBatch(workerId, batchSize)
+        );
+        return claimed == null ? List.of() : claimed;
+    }
+
+    public int renewLeases(String workerId, List<Long> taskIds) {
+        return analysisTaskRepository.renewLeases(workerId, taskIds);
+    }
+
+    public int reclaimExpiredLeases() {
+        int reclaimed = analysisTaskRepository.reclaimExpiredLeases(
+                Math.max(1, workerProperties.getLeaseSeconds()),
+                workerProperties.getMaxAttempts()
+        );
+        if (reclaimed > 0) {
+            analysisCheckpointService.clearTerminal();
+            log.warn("analysis task leases expired, tasks requeued: reclaimed={}, leaseSeconds={}",
+                    reclaimed, workerProperties.getLeaseSeconds());
+        }
+        return reclaimed;
     }
 
-    public int claim(long taskId, String workerId) {
-        return analysisTaskRepository.claimTask(taskId, workerId);
+    public Map<String, Object> stageSnapshot() {
+        return stageLimiter.snapshot();
     }
 
     public void processClaimedTask(AnalysisTask task, String workerId) {
@@ -101,8 +147,9 @@ public class AnalysisTaskWorkerService {
         MDC.put("traceId", traceId);
         try {
             long audioId = task.audioFileId() == null ? -1 : task.audioFileId();
-            String audioPath = analysisTaskRepository.findAudioStoragePath(task.id())
+            AnalysisTaskRepository.AudioBlobRef audioBlob = analysisTaskRepository.findAudioBlob(task.id())
                     .orElseThrow(() -> new IllegalStateException("audio path not found, taskId=" + task.id()));
+            String audioPath = audioBlob.storagePath();
 
             log.info("analysis task processing start: taskId={}, audioId={}, status=PROCESSING, attemptCount={}",
                     task.id(), audioId, task.attemptCount());
@@ -116,20 +163,45 @@ public class AnalysisTaskWorkerService {
                     )
             );
 
+            taskRealtimeProgressTracker.resetStageTimings(task.id());
+            LongAudioWindowService.Preparation prepared = longAudioWindowService.prepare(task.id(), Path.of(audioPath));
+            if (task.audioFileId() != null && prepared.durationMs() != null) {
+                audioRepository.updateSpeechStats(task.audioFileId(), prepared.durationMs(),
+                        prepared.speechRatio() == null ? null : round4(prepared.speechRatio()));
+            }
             AsrTranscribeResponse asrResponse = null;
             long asrCostMs = -1;
             boolean asrFailed = false;
             Instant asrStarted = Instant.now();
             taskRealtimeProgressTracker.publish(task.id(), "ASR_RUNNING", "正在执行语音转写");
+            AsrTranscribeResponse resumedAsr = analysisCheckpointService
+                    .load(task.id(), AnalysisCheckpointService.STAGE_ASR, AsrTranscribeResponse.class)
+                    .orElse(null);
+            AsrTranscribeResponse cachedAsr = resumedAsr != null
+                    ? null
+                    : analysisResultCache.findAsr(audioBlob.sha256()).orElse(null);
+            AsrTranscribeResponse readyAsr = resumedAsr != null ? resumedAsr : cachedAsr;
+            CompletableFuture<AsrTranscribeResponse> asrFuture = readyAsr != null
+                    ? CompletableFuture.completedFuture(readyAsr)
+                    : longAudioWindowService.transcribe(task.id(), Path.of(audioPath));
+            prewarmSerIfIdle(task.id());
             try {
-                asrResponse = asrClient.transcribe(Path.of(audioPath), workerProperties.getAsrTimeoutMs());
+                asrResponse = asrFuture.join();
                 asrCostMs = Duration.between(asrStarted, Instant.now()).toMillis();
+                if (readyAsr == null) {
+                    analysisResultCache.putAsr(audioBlob.sha256(), asrResponse);
+                }
+                if (resumedAsr == null) {
+                    analysisCheckpointService.save(task.id(), task.attemptCount() + 1,
+                            AnalysisCheckpointService.STAGE_ASR, asrResponse);
+                }
             } catch (Exception ex) {
                 asrFailed = true;
                 asrCostMs = Duration.between(asrStarted, Instant.now()).toMillis();
                 log.warn("asr transcribe failed, fallback to voice-only risk: taskId={}, audioId={}, asrCostMs={}, reason={}",
-                        task.id(), audioId, asrCostMs, truncateError(ex.getMessage()));
+                        task.id(), audioId, asrCostMs, truncateError(unwrap(ex).getMessage()));
             }
+            taskRealtimeProgressTracker.recordStageTiming(task.id(), "asrMs", asrCostMs);
             String languageHint = normalizeLanguageHint(asrResponse == null ? null : asrResponse.language());
             String transcript = asrResponse == null ? "" : asrResponse.text();
             taskRealtimeProgressTracker.publish(
@@ -138,31 +210,53 @@ public class AnalysisTaskWorkerService {
                     asrFailed ? "语音转写失败，已降级为语音单模态" : "语音转写完成",
                     progressDetails(
                             "asrCostMs", asrCostMs,
+                            "asrCacheHit", cachedAsr != null,
+                            "asrResumed", resumedAsr != null,
+                            "durationMs", prepared.durationMs(),
+                            "speechRatio", prepared.speechRatio() == null ? null : round4(prepared.speechRatio()),
+                            "sentMs", prepared.sentMs(),
                             "language", languageHint,
                             "textLength", transcript == null ? 0 : transcript.length()
                     )
             );
-            TextNegScorer.TextNegScoreResult lexiconTextScore = textNegScorer.score(transcript);
+            // a text checkpoint is only valid for the transcript it was scored on, i.e. a resumed ASR result
+            TextStageCheckpoint resumedText = resumedAsr == null
+                    ? null
+                    : analysisCheckpointService
+                            .load(task.id(), AnalysisCheckpointService.STAGE_TEXT, TextStageCheckpoint.class)
+                            .orElse(null);
             TextSentimentResponse textSentiment = null;
+            Instant textStarted = Instant.now();
             taskRealtimeProgressTracker.publish(task.id(), "TEXT_RUNNING", "正在执行文本情感分析");
+            CompletableFuture<TextSentimentResponse> textFuture = resumedText != null
+                    ? CompletableFuture.completedFuture(resumedText.textSentiment())
+                    : transcript == null || transcript.isBlank()
+                    ? CompletableFuture.completedFuture(null)
+                    : stageLimiter.submit(AnalysisStageLimiter.Stage.TEXT,
+                            () -> transcriptSemanticScoringService.score(
+                                    transcript,
+                                    languageHint,
+                                    workerProperties.getTextSentimentTimeoutMs()
+                            ));
+            TextNegScorer.TextNegScoreResult lexiconTextScore = textNegScorer.score(transcript);
+            taskRealtimeProgressTracker.recordStageTiming(task.id(), "lexiconMs",
+                    Duration.between(textStarted, Instant.now()).toMillis());
             try {
-                if (transcript != null && !transcript.isBlank()) {
-                    textSentiment = transcriptSemanticScoringService.score(
-                            transcript,
-                            languageHint,
-                            workerProperties.getTextSentimentTimeoutMs()
-                    );
-                }
+                textSentiment = textFuture.join();
             } catch (Exception ex) {
                 log.warn("text sentiment failed, fallback to lexicon only: taskId={}, audioId={}, reason={}",
-                        task.id(), audioId, truncateError(ex.getMessage()));
+                        task.id(), audioId, truncateError(unwrap(ex).getMessage()));
             }
+            taskRealtimeProgressTracker.recordStageTiming(task.id(), "textMs",
+                    Duration.between(textStarted, Instant.now()).toMillis());
             TextNegFusionWeights textNegFusionWeights = resolveTextNegFusionWeights(textSentiment);
-            double fusedTextNeg = fuseTextNeg(
-                    lexiconTextScore.textNeg(),
-                    textSentiment == null ? null : textSentiment.negativeScore(),
-                    textNegFusionWeights
-            );
+            double fusedTextNeg = resumedText != null
+                    ? resumedText.fusedTextNeg()
+                    : fuseTextNeg(
+                            lexiconTextScore.textNeg(),
+                            textSentiment == null ? null : textSentiment.negativeScore(),
+                            textNegFusionWeights
+                    );
             taskRealtimeProgressTracker.publish(
                     task.id(),
                     textSentiment == null ? "TEXT_FALLBACK" : "TEXT_DONE",
@@ -175,16 +269,32 @@ public class AnalysisTaskWorkerService {
                             "modelNeg", textSentiment == null || textSentiment.negativeScore() == null ? null : round4(textSentiment.negativeScore()),
                             "fusedNeg", round4(fusedTextNeg),
                             "lexiconWeight", round4(textNegFusionWeights.lexiconWeight()),
-                            "modelWeight", round4(textNegFusionWeights.modelWeight())
+                            "modelWeight", round4(textNegFusionWeights.modelWeight()),
+                            "textResumed", resumedText != null
                     )
             );
-            SerClient.FusionTextFeatures fusionTextFeatures =
-                    buildSerFusionTextFeatures(transcript, textSentiment, fusedTextNeg);
+            SerClient.FusionTextFeatures fusionTextFeatures = resumedText != null
+                    ? resumedText.fusionTextFeatures()
+                    : buildSerFusionTextFeatures(transcript, textSentiment, fusedTextNeg);
+            if (resumedText == null && textSentiment != null) {
+                analysisCheckpointService.save(task.id(), task.attemptCount() + 1, AnalysisCheckpointService.STAGE_TEXT,
+                        new TextStageCheckpoint(textSentiment, fusedTextNeg, fusionTextFeatures));
+            }
 
             Instant started = Instant.now();
             taskRealtimeProgressTracker.publish(task.id(), "SER_RUNNING", "正在执行语音情绪识别与融合");
-            SerAnalyzeResponse response = serClient.analyze(Path.of(audioPath), languageHint, fusionTextFeatures);
+            SerAnalyzeResponse cachedSer = analysisResultCache
+                    .findSer(audioBlob.sha256(), languageHint, fusionTextFeatures)
+                    .orElse(null);
+            SerAnalyzeResponse response = cachedSer != null
+                    ? cachedSer
+                    : longAudioWindowService.analyze(task.id(), Path.of(audioPath), languageHint, fusionTextFeatures);
             long serCostMs = Duration.between(started, Instant.now()).toMillis();
+            if (cachedSer == null) {
+                lastSerActivityAtMs = System.currentTimeMillis();
+                analysisResultCache.putSer(audioBlob.sha256(), languageHint, fusionTextFeatures, response);
+            }
+            taskRealtimeProgressTracker.recordStageTiming(task.id(), "serMs", serCostMs);
 
             AnalysisTaskResultResponse.RiskAssessmentPayload baseRiskAssessment =
                     riskScoringService.evaluate(
@@ -205,23 +315,36 @@ public class AnalysisTaskWorkerService {
             );
             AnalysisTaskResultResponse.RiskAssessmentPayload riskAssessment =
                     consistencyGuardService.applyDecisionNotice(baseRiskAssessment, decision);
-            taskRealtimeProgressTracker.publish(task.id(), "NARRATIVE_RUNNING", "Generating local narrative");
-            NarrativePayload narrative = narrativeGenerationService.generate(task.id(), response, transcript, riskAssessment, decision);
-            taskRealtimeProgressTracker.publish(
-                    task.id(),
-                    "NARRATIVE_DONE",
-                    "ready".equalsIgnoreCase(narrative.status()) ? "Local narrative ready" : "Using fallback narrative",
-                    progressDetails(
-                            "narrativeStatus", narrative.status(),
-                            "narrativeModel", narrative.model()
-                    )
-            );
+            boolean narrativeAsync = narrativeGenerationService.isAsyncMode();
+            NarrativePayload narrative;
+            if (narrativeAsync) {
+                narrative = narrativeGenerationService.pending(riskAssessment);
+                taskRealtimeProgressTracker.updateNarrative(task.id(), narrative);
+            } else {
+                taskRealtimeProgressTracker.publish(task.id(), "NARRATIVE_RUNNING", "Generating local narrative");
+                Instant narrativeStarted = Instant.now();
+                narrative = stageLimiter.call(AnalysisStageLimiter.Stage.NARRATIVE,
+                        () -> narrativeGenerationService.generate(task.id(), response, transcript, riskAssessment, decision));
+                taskRealtimeProgressTracker.recordStageTiming(task.id(), "narrativeMs",
+                        Duration.between(narrativeStarted, Instant.now()).toMillis());
+                taskRealtimeProgressTracker.publish(
+                        task.id(),
+                        "NARRATIVE_DONE",
+                        "ready".equalsIgnoreCase(narrative.status()) ? "Local narrative ready" : "Using fallback narrative",
+                        progressDetails(
+                                "narrativeStatus", narrative.status(),
+                                "narrativeModel", narrative.model()
+                        )
+                );
+            }
             taskRealtimeProgressTracker.publish(
                     task.id(),
                     "PERSISTING",
                     "模型推理完成，正在写入结果",
                     progressDetails(
                             "serCostMs", serCostMs,
+                            "serCacheHit", cachedSer != null,
+                            "audioWindows", prepared.windows(),
                             "riskScore", round4(riskAssessment.risk_score()),
                             "riskLevel", riskAssessment.risk_level()
                     )
@@ -257,16 +380,50 @@ public class AnalysisTaskWorkerService {
                             "riskLevel", riskAssessment.risk_level(),
                             "fusionReady", response.fusion() == null ? null : response.fusion().ready(),
                             "decisionCode", decision.code(),
-                            "decisionStatus", decision.status()
+                            "decisionStatus", decision.status(),
+                            "narrativeStatus", narrative.status()
                     )
             );
+            if (narrativeAsync) {
+                narrativeBackfillService.enqueue(task.id(), response, transcript, riskAssessment, decision);
+            }
         } catch (Exception e) {
             transactionTemplate.executeWithoutResult(s -> handleFailure(task, workerId, e));
         } finally {
+            longAudioWindowService.release(task.id());
             MDC.remove("traceId");
         }
     }
 
+    private void prewarmSerIfIdle(long taskId) {
+        long idleMs = workerProperties.getSerPrewarmIdleMs();
+        if (idleMs <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long last = lastSerActivityAtMs;
+        if (now - last < idleMs) {
+            return;
+        }
+        lastSerActivityAtMs = now;
+        // counts against the SER limit like a real call and stays off the common pool
+        stageLimiter.submit(AnalysisStageLimiter.Stage.SER, serClient::warmup)
+                .whenComplete((ignored, ex) -> {
+                    if (ex != null) {
+                        log.debug("ser prewarm skipped: taskId={}, reason={}", taskId, unwrap(ex).getMessage());
+                    }
+                });
+    }
+
+    private Throwable unwrap(Throwable throwable) {
+        Throwable current = throwable;
+        while ((current instanceof CompletionException || current instanceof ExecutionException)
+                && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+
     protected void saveSuccessResult(AnalysisTask task,
                                      String workerId,
                                      SerAnalyzeResponse response,
@@ -313,7 +470,12 @@ public class AnalysisTaskWorkerService {
         analysisSegmentRepository.deleteByTaskId(task.id());
         List<AnalysisSegment> segments = toSegments(task.id(), response);
         analysisSegmentRepository.batchInsert(task.id(), segments);
-        analysisTaskRepository.markSuccess(task.id(), workerId, serLatencyMs);
+        int marked = analysisTaskRepository.markSuccess(task.id(), workerId, serLatencyMs);
+        if (marked == 0) {
+            throw new IllegalStateException("task lease lost before success was recorded, taskId=" + task.id());
+        }
+        taskSnapshotCache.invalidate(task.id());
+        analysisCheckpointService.clear(task.id());
         if (task.audioFileId() == null) {
             throw new IllegalStateException("audio id missing for task=" + task.id());
         }
@@ -355,8 +517,13 @@ public class AnalysisTaskWorkerService {
             log.warn("analysis task failure state update skipped: taskId={}, workerId={}", task.id(), workerId);
             return;
         }
+        taskSnapshotCache.invalidate(task.id());
 
         String status = nextAttempt >= workerProperties.getMaxAttempts() ? "FAILED" : "RETRY_WAIT";
+        if ("FAILED".equals(status)) {
+            analysisCheckpointService.clear(task.id());
+        }
+        taskRealtimeProgressTracker.updateNarrative(task.id(), null);
         log.error("analysis task failed: taskId={}, audioId={}, status={}, attemptCount={}, backoffSeconds={}, reason={}",
                 task.id(), task.audioFileId(), status, nextAttempt, backoffSeconds, error, e);
         taskRealtimeProgressTracker.publish(
@@ -598,6 +765,13 @@ public class AnalysisTaskWorkerService {
     ) {
     }
 
+    private record TextStageCheckpoint(
+            TextSentimentResponse textSentiment,
+            double fusedTextNeg,
+            SerClient.FusionTextFeatures fusionTextFeatures
+    ) {
+    }
+
     private record TextNegFusionWeights(
             double lexiconWeight,
             double modelWeight
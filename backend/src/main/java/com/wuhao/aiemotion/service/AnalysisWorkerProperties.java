@@ -7,6 +7,7 @@ public class AnalysisWorkerProperties {
 
     private boolean enabled = true;
     private long pollIntervalMs = 1000;
+    private long idlePollIntervalMs = 10000;
     private int batchSize = 20;
     private int maxAttempts = 4;
     private long serTimeoutMs = 180000;
@@ -14,6 +15,16 @@ public class AnalysisWorkerProperties {
     private long textSentimentTimeoutMs = 20000;
     private int backoffBaseSeconds = 30;
     private int backoffMaxSeconds = 600;
+    private int concurrency = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private int asrConcurrency = 2;
+    private int textConcurrency = 4;
+    private int serConcurrency = 2;
+    private int narrativeConcurrency = 1;
+    private long shutdownAwaitMs = 60000;
+    private int leaseSeconds = 120;
+    private long heartbeatIntervalMs = 20000;
+    private long serPrewarmIdleMs = 60000;
+    private long longAudioWindowMs = 120000;
 
     public boolean isEnabled() {
         return enabled;
@@ -31,6 +42,14 @@ public class AnalysisWorkerProperties {
         this.pollIntervalMs = pollIntervalMs;
     }
 
+    public long getIdlePollIntervalMs() {
+        return idlePollIntervalMs;
+    }
+
+    public void setIdlePollIntervalMs(long idlePollIntervalMs) {
+        this.idlePollIntervalMs = idlePollIntervalMs;
+    }
+
     public int getBatchSize() {
         return batchSize;
     }
@@ -86,4 +105,84 @@ public class AnalysisWorkerProperties {
     public void setBackoffMaxSeconds(int backoffMaxSeconds) {
         this.backoffMaxSeconds = backoffMaxSeconds;
     }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public int getAsrConcurrency() {
+        return asrConcurrency;
+    }
+
+    public void setAsrConcurrency(int asrConcurrency) {
+        this.asrConcurrency = asrConcurrency;
+    }
+
+    public int getTextConcurrency() {
+        return textConcurrency;
+    }
+
+    public void setTextConcurrency(int textConcurrency) {
+        this.textConcurrency = textConcurrency;
+    }
+
+    public int getSerConcurrency() {
+        return serConcurrency;
+    }
+
+    public void setSerConcurrency(int serConcurrency) {
+        this.serConcurrency = serConcurrency;
+    }
+
+    public int getNarrativeConcurrency() {
+        return narrativeConcurrency;
+    }
+
+    public void setNarrativeConcurrency(int narrativeConcurrency) {
+        this.narrativeConcurrency = narrativeConcurrency;
+    }
+
+    public long getShutdownAwaitMs() {
+        return shutdownAwaitMs;
+    }
+
+    public void setShutdownAwaitMs(long shutdownAwaitMs) {
+        this.shutdownAwaitMs = shutdownAwaitMs;
+    }
+
+    public int getLeaseSeconds() {
+        return leaseSeconds;
+    }
+
+    public void setLeaseSeconds(int leaseSeconds) {
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    public long getHeartbeatIntervalMs() {
+        return heartbeatIntervalMs;
+    }
+
+    public void setHeartbeatIntervalMs(long heartbeatIntervalMs) {
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+    }
+
+    public long getSerPrewarmIdleMs() {
+        return serPrewarmIdleMs;
+    }
+
+    public void setSerPrewarmIdleMs(long serPrewarmIdleMs) {
+        this.serPrewarmIdleMs = serPrewarmIdleMs;
+    }
+
+    public long getLongAudioWindowMs() {
+        return longAudioWindowMs;
+    }
+
+    public void setLongAudioWindowMs(long longAudioWindowMs) {
+        this.longAudioWindowMs = longAudioWindowMs;
+    }
 }
@@ -0,0 +1,87 @@
+package com.wuhao.aiemotion.service;
+
+import com.wuhao.aiemotion.repository.WarningGovernanceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class AnalyticsDailyRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsDailyRollupService.class);
+    private static final int MAX_REBUILD_DAYS = 366;
+
+    private final WarningGovernanceRepository warningGovernanceRepository;
+    private final boolean enabled;
+    private final int seedDays;
+    private LocalDate lastRolledDate;
+
+    public AnalyticsDailyRollupService(WarningGovernanceRepository warningGovernanceRepository,
+                                       @Value("${analytics.daily-rollup.enabled:true}") boolean enabled,
+                                       @Value("${analytics.daily-rollup.seed-days:30}") int seedDays) {
+        this.warningGovernanceRepository = warningGovernanceRepository;
+        this.enabled = enabled;
+        this.seedDays = Math.max(1, Math.min(seedDays, MAX_REBUILD_DAYS));
+    }
+
+    @Scheduled(initialDelayString = "${analytics.daily-rollup.initial-delay-ms:20000}",
+            fixedDelayString = "${analytics.daily-rollup.interval-ms:60000}")
+    public synchronized void roll() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        try {
+            if (lastRolledDate == null) {
+                int seeded = seedMissingDays(today);
+                if (seeded > 0) {
+                    log.info("analytics daily summary seeded {} missing days", seeded);
+                }
+            } else if (lastRolledDate.isBefore(today)) {
+                warningGovernanceRepository.upsertDailySummary(lastRolledDate);
+            }
+            warningGovernanceRepository.upsertDailySummary(today);
+            lastRolledDate = today;
+        } catch (Exception e) {
+            log.warn("analytics daily rollup failed: reason={}", e.getMessage());
+        }
+    }
+
+    public synchronized Map<String, Object> rebuild(Integer days) {
+        int safeDays = Math.max(1, Math.min(days == null ? seedDays : days, MAX_REBUILD_DAYS));
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusDays(safeDays - 1L);
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            warningGovernanceRepository.upsertDailySummary(day);
+        }
+        lastRolledDate = to;
+        log.info("analytics daily summary rebuilt: from={}, to={}", from, to);
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("from", from.toString());
+        payload.put("to", to.toString());
+        payload.put("rebuiltDays", safeDays);
+        return payload;
+    }
+
+    private int seedMissingDays(LocalDate today) {
+        LocalDate from = today.minusDays(seedDays - 1L);
+        Set<LocalDate> present = new HashSet<>(warningGovernanceRepository.listSummaryDatesSince(from));
+        int seeded = 0;
+        for (LocalDate day = from; day.isBefore(today); day = day.plusDays(1)) {
+            if (!present.contains(day)) {
+                warningGovernanceRepository.upsertDailySummary(day);
+                seeded++;
+            }
+        }
+        return seeded;
+    }
+}
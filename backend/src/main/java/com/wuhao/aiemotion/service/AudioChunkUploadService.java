@@ -4,48 +4,60 @@ import com.wuhao.aiemotion.dto.response.AnalysisTaskStartResponse;
 import com.wuhao.aiemotion.repository.AudioRepository;
 import com.wuhao.aiemotion.repository.AudioUploadSessionRepository;
 import com.wuhao.aiemotion.repository.AudioUploadSessionRepository.AudioUploadSessionEntity;
+import com.wuhao.aiemotion.repository.ChunkBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.security.MessageDigest;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HexFormat;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class AudioChunkUploadService {
 
+    private static final Logger log = LoggerFactory.getLogger(AudioChunkUploadService.class);
+
     private static final int MAX_TOTAL_CHUNKS = 4000;
     private static final long MAX_CHUNK_SIZE_BYTES = 10L * 1024 * 1024;
 
     private final AudioUploadSessionRepository uploadSessionRepository;
     private final AudioRepository audioRepository;
     private final AnalysisTaskService analysisTaskService;
-
-    @Value("${upload.base-dir:${user.home}/ai-emotion/uploads}")
-    private String baseDir;
+    private final TransactionTemplate transactionTemplate;
+    private final ContentAddressedAudioStore audioStore;
+    private final String baseDir;
 
     public AudioChunkUploadService(AudioUploadSessionRepository uploadSessionRepository,
                                    AudioRepository audioRepository,
-                                   AnalysisTaskService analysisTaskService) {
+                                   AnalysisTaskService analysisTaskService,
+                                   TransactionTemplate transactionTemplate,
+                                   ContentAddressedAudioStore audioStore,
+                                   @Value("${upload.base-dir:${user.home}/ai-emotion/uploads}") String baseDir) {
         this.uploadSessionRepository = uploadSessionRepository;
         this.audioRepository = audioRepository;
         this.analysisTaskService = analysisTaskService;
+        this.transactionTemplate = transactionTemplate;
+        this.audioStore = audioStore;
+        this.baseDir = baseDir;
     }
 
     @Transactional
@@ -53,6 +65,7 @@ public class AudioChunkUploadService {
                                            String contentType,
                                            Long fileSize,
                                            Integer totalChunks,
+                                           Long chunkSize,
                                            Long userId) {
         if (originalName == null || originalName.isBlank()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fileName is required");
@@ -64,6 +77,7 @@ public class AudioChunkUploadService {
         if (fileSize != null && fileSize < 0) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fileSize must be >= 0");
         }
+        Long directChunkSize = resolveDirectChunkSize(fileSize, safeTotalChunks, chunkSize);
 
         String uploadId = "up_" + UUID.randomUUID().toString().replace("-", "");
         LocalDateTime expiresAt = LocalDateTime.now().plusHours(24);
@@ -74,20 +88,29 @@ public class AudioChunkUploadService {
                 contentType == null || contentType.isBlank() ? null : contentType.trim(),
                 fileSize,
                 safeTotalChunks,
+                directChunkSize,
                 expiresAt
         );
         ensureChunkDir(uploadId);
+        if (directChunkSize != null) {
+            try {
+                StreamingFileWriter.preallocate(assembledPath(uploadId), fileSize);
+            } catch (IOException e) {
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "init upload session directory failed");
+            }
+        }
         return Map.of(
                 "sessionId", sessionId,
                 "uploadId", uploadId,
                 "status", "INIT",
                 "totalChunks", safeTotalChunks,
                 "receivedChunks", 0,
+                "chunkSize", directChunkSize == null ? 0L : directChunkSize,
                 "expiresAt", expiresAt.toString()
         );
     }
 
-    @Transactional
+    // File I/O runs outside any transaction; only the chunk bookkeeping holds a connection.
     public Map<String, Object> uploadChunk(String uploadId,
                                            int chunkIndex,
                                            MultipartFile file,
@@ -102,6 +125,7 @@ public class AudioChunkUploadService {
         AudioUploadSessionEntity session = requireSession(uploadId);
         assertSessionOwner(session, userId);
         assertSessionWritable(session);
+        assertNotMerging(session);
 
         if (chunkIndex < 0 || chunkIndex >= session.totalChunks()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "chunkIndex out of range");
@@ -112,22 +136,41 @@ public class AudioChunkUploadService {
         }
 
         try {
-            Path target = chunkPath(uploadId, chunkIndex);
-            Files.createDirectories(target.getParent());
-            file.transferTo(target);
-
-            String chunkSha256 = sha256(target);
-            uploadSessionRepository.upsertChunk(
-                    session.id(),
-                    chunkIndex,
-                    file.getSize(),
-                    chunkSha256,
-                    target.toString()
-            );
-
-            int received = uploadSessionRepository.countReceivedChunks(session.id());
-            String status = received >= session.totalChunks() ? "UPLOADING" : "UPLOADING";
-            uploadSessionRepository.updateProgress(session.id(), received, status);
+            int received;
+            if (session.chunkSizeBytes() != null) {
+                long offset = (long) chunkIndex * session.chunkSizeBytes();
+                long expected = Math.min(session.chunkSizeBytes(), session.totalSizeBytes() - offset);
+                if (file.getSize() != expected) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "chunk size mismatch, expected=" + expected);
+                }
+                try (InputStream inputStream = file.getInputStream()) {
+                    StreamingFileWriter.writeAt(inputStream, assembledPath(uploadId), offset, expected);
+                }
+                received = markChunkReceived(session, chunkIndex);
+            } else {
+                Path target = chunkPath(uploadId, chunkIndex);
+                StreamingFileWriter.Written written;
+                try (InputStream inputStream = file.getInputStream()) {
+                    written = StreamingFileWriter.write(inputStream, target);
+                }
+                if (session.receivedBitmap() != null) {
+                    received = markChunkReceived(session, chunkIndex);
+                } else {
+                    Integer receivedChunks = transactionTemplate.execute(status -> {
+                        uploadSessionRepository.upsertChunk(
+                                session.id(),
+                                chunkIndex,
+                                written.sizeBytes(),
+                                written.sha256(),
+                                target.toString()
+                        );
+                        int count = uploadSessionRepository.countReceivedChunks(session.id());
+                        uploadSessionRepository.updateProgress(session.id(), count, "UPLOADING");
+                        return count;
+                    });
+                    received = receivedChunks == null ? 0 : receivedChunks;
+                }
+            }
 
             int percent = (int) Math.floor((received * 100.0D) / Math.max(1, session.totalChunks()));
             return Map.of(
@@ -150,15 +193,19 @@ public class AudioChunkUploadService {
     public Map<String, Object> sessionStatus(String uploadId, Long userId) {
         AudioUploadSessionEntity session = requireSession(uploadId);
         assertSessionOwner(session, userId);
-        List<Map<String, Object>> chunks = uploadSessionRepository.listChunksBySession(session.id());
         List<Integer> uploadedIndexes = new ArrayList<>();
-        for (Map<String, Object> row : chunks) {
-            Object idx = row.get("chunk_index");
-            if (idx instanceof Number number) {
-                uploadedIndexes.add(number.intValue());
+        if (session.receivedBitmap() != null) {
+            uploadedIndexes.addAll(ChunkBitmap.indexes(session.receivedBitmap(), session.totalChunks()));
+        } else {
+            List<Map<String, Object>> chunks = uploadSessionRepository.listChunksBySession(session.id());
+            for (Map<String, Object> row : chunks) {
+                Object idx = row.get("chunk_index");
+                if (idx instanceof Number number) {
+                    uploadedIndexes.add(number.intValue());
+                }
             }
+            uploadedIndexes.sort(Comparator.naturalOrder());
         }
-        uploadedIndexes.sort(Comparator.naturalOrder());
         int progress = (int) Math.floor((session.receivedChunks() * 100.0D) / Math.max(1, session.totalChunks()));
         Map<String, Object> payload = new HashMap<>();
         payload.put("uploadId", session.uploadId());
@@ -172,74 +219,107 @@ public class AudioChunkUploadService {
         return payload;
     }
 
-    @Transactional
+    // The merge runs without a transaction; MERGING keeps a concurrent complete/chunk upload out meanwhile.
     public Map<String, Object> complete(String uploadId,
                                         boolean autoStartTask,
                                         Long userId) {
         AudioUploadSessionEntity session = requireSession(uploadId);
         assertSessionOwner(session, userId);
         assertSessionWritable(session);
+        if (autoStartTask && userId == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "login required");
+        }
 
-        int received = uploadSessionRepository.countReceivedChunks(session.id());
+        int received = session.receivedBitmap() != null
+                ? session.receivedChunks()
+                : uploadSessionRepository.countReceivedChunks(session.id());
         if (received < session.totalChunks()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "chunks not complete");
         }
+        if (uploadSessionRepository.markMerging(session.id()) == 0) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "upload session is already merging");
+        }
 
-        String generatedFileName = UUID.randomUUID().toString().replace("-", "") + detectExt(session.originalName());
-        Path mergedTarget = resolveUploadDir().resolve(generatedFileName);
-
+        ContentAddressedAudioStore.Staged staged = null;
+        ContentAddressedAudioStore.Staged normalized = null;
+        // set once the blob is published inside the transaction: true when it was already there
+        AtomicReference<Boolean> published = new AtomicReference<>();
         try {
-            Files.createDirectories(mergedTarget.getParent());
-            try (OutputStream outputStream = Files.newOutputStream(mergedTarget)) {
+            ContentAddressedAudioStore.Staged merged;
+            if (session.chunkSizeBytes() != null) {
+                // chunks were written in place at their offsets: hash once, no merge copy
+                merged = audioStore.stageAssembled(assembledPath(uploadId), detectExt(session.originalName()));
+            } else {
+                List<Path> chunks = new ArrayList<>(session.totalChunks());
                 for (int i = 0; i < session.totalChunks(); i++) {
                     Path chunk = chunkPath(uploadId, i);
                     if (!Files.exists(chunk)) {
                         throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "missing chunk index=" + i);
                     }
-                    try (InputStream inputStream = Files.newInputStream(chunk)) {
-                        inputStream.transferTo(outputStream);
-                    }
+                    chunks.add(chunk);
                 }
+                merged = audioStore.stageMerge(chunks, detectExt(session.originalName()));
+            }
+            staged = merged;
+            // The merged original stays in staging until the row commits. When normalization produced nothing
+            // (stored == merged) the original itself is what gets published; a rollback takes it back out of the
+            // blob path (restorePublished) before it is released, so a retry still has it either way.
+            ContentAddressedAudioStore.Staged stored = audioStore.normalize(merged);
+            if (stored != merged) {
+                normalized = stored;
             }
 
-            long size = Files.size(mergedTarget);
-            long audioId = audioRepository.insertAudio(
-                    userId,
-                    session.originalName(),
-                    generatedFileName,
-                    mergedTarget.toString(),
-                    session.contentType(),
-                    size,
-                    null,
-                    null
-            );
-            uploadSessionRepository.markMerged(session.id(), audioId);
-            cleanupChunkDir(uploadId);
-            uploadSessionRepository.deleteChunksBySession(session.id());
-
-            Long taskId = null;
-            String taskNo = null;
-            if (autoStartTask) {
-                if (userId == null) {
-                    throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "login required");
+            Map<String, Object> payload = transactionTemplate.execute(status -> {
+                long audioId = audioRepository.insertAudio(
+                        userId,
+                        session.originalName(),
+                        stored.storedName(),
+                        stored.blobPath().toString(),
+                        stored.contentType() != null ? stored.contentType() : session.contentType(),
+                        stored.sizeBytes(),
+                        stored.sha256(),
+                        stored.durationMs()
+                );
+                // published while the new row is still locked, before the task can be claimed
+                boolean deduplicated = publish(stored);
+                published.set(deduplicated);
+                uploadSessionRepository.markMerged(session.id(), audioId);
+                uploadSessionRepository.deleteChunksBySession(session.id());
+
+                Long taskId = null;
+                String taskNo = null;
+                if (autoStartTask) {
+                    AnalysisTaskStartResponse start = analysisTaskService.startTask(audioId, new AuthService.UserProfile(userId, "session-user", AuthService.ROLE_USER));
+                    taskId = start.taskId();
+                    taskNo = start.taskNo();
                 }
-                AnalysisTaskStartResponse start = analysisTaskService.startTask(audioId, new AuthService.UserProfile(userId, "session-user", AuthService.ROLE_USER));
-                taskId = start.taskId();
-                taskNo = start.taskNo();
+                Map<String, Object> result = new HashMap<>();
+                result.put("uploadId", uploadId);
+                result.put("audioId", audioId);
+                result.put("taskId", taskId);
+                result.put("taskNo", taskNo);
+                result.put("fileName", stored.storedName());
+                result.put("fileUrl", "/uploads/" + stored.storedName());
+                result.put("sha256", stored.sha256());
+                result.put("deduplicated", deduplicated);
+                result.put("status", "MERGED");
+                return result;
+            });
+            if (normalized != null) {
+                audioStore.discard(merged);
             }
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("uploadId", uploadId);
-            payload.put("audioId", audioId);
-            payload.put("taskId", taskId);
-            payload.put("taskNo", taskNo);
-            payload.put("fileName", generatedFileName);
-            payload.put("fileUrl", "/uploads/" + generatedFileName);
-            payload.put("status", "MERGED");
+            cleanupChunkDir(uploadId);
             return payload;
         } catch (ResponseStatusException e) {
+            restorePublished(normalized != null ? normalized : staged, published.get());
+            audioStore.discard(normalized);
+            releaseStaged(session, staged);
             uploadSessionRepository.markFailed(session.id());
             throw e;
         } catch (Exception e) {
+            restorePublished(normalized != null ? normalized : staged, published.get());
+            audioStore.discard(normalized);
+            releaseStaged(session, staged);
             uploadSessionRepository.markFailed(session.id());
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "merge chunks failed");
         }
@@ -249,6 +329,7 @@ public class AudioChunkUploadService {
     public Map<String, Object> cancel(String uploadId, Long userId) {
         AudioUploadSessionEntity session = requireSession(uploadId);
         assertSessionOwner(session, userId);
+        assertNotMerging(session);
         uploadSessionRepository.markCanceled(session.id());
         uploadSessionRepository.deleteChunksBySession(session.id());
         cleanupChunkDir(uploadId);
@@ -278,6 +359,12 @@ public class AudioChunkUploadService {
         }
     }
 
+    private void assertNotMerging(AudioUploadSessionEntity session) {
+        if ("MERGING".equalsIgnoreCase(session.status())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "upload session is merging");
+        }
+    }
+
     private Path resolveUploadDir() {
         return Paths.get(baseDir).toAbsolutePath().normalize();
     }
@@ -294,6 +381,75 @@ public class AudioChunkUploadService {
         }
     }
 
+    private Path assembledPath(String uploadId) {
+        return chunkRootDir().resolve(uploadId).resolve("assembled");
+    }
+
+    private int markChunkReceived(AudioUploadSessionEntity session, int chunkIndex) {
+        int received = uploadSessionRepository.markChunkReceived(session.id(), chunkIndex, session.totalChunks());
+        if (received < 0) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "upload session is merging");
+        }
+        return received;
+    }
+
+    /**
+     * Chunks go straight into a preallocated file when the client declares a fixed chunk size that matches
+     * fileSize/totalChunks; otherwise each chunk is kept as its own file and merged on complete.
+     */
+    private Long resolveDirectChunkSize(Long fileSize, int totalChunks, Long chunkSize) {
+        if (chunkSize == null || !uploadSessionRepository.tracksChunkBitmap()) {
+            return null;
+        }
+        if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE_BYTES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "chunkSize out of range");
+        }
+        if (fileSize == null || fileSize < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fileSize is required with chunkSize");
+        }
+        if ((fileSize + chunkSize - 1) / chunkSize != totalChunks) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "totalChunks does not match fileSize/chunkSize");
+        }
+        return chunkSize;
+    }
+
+    // an in-place assembled file is the only copy of the chunks, so put it back for a retried complete
+    private void releaseStaged(AudioUploadSessionEntity session, ContentAddressedAudioStore.Staged staged) {
+        if (staged != null && session.chunkSizeBytes() != null && Files.exists(staged.stagingPath())) {
+            try {
+                Files.move(staged.stagingPath(), assembledPath(session.uploadId()));
+                return;
+            } catch (IOException ignored) {
+                // fall through and drop it; the client has to upload again
+            }
+        }
+        audioStore.discard(staged);
+    }
+
+    /**
+     * The audio row was rolled back after its blob had been published. The blob is taken back into staging, so
+     * it is not left orphaned and the discard/release that follows sees the same files as an unpublished
+     * failure; it is copied instead of moved while other live rows still point at it.
+     */
+    private void restorePublished(ContentAddressedAudioStore.Staged stored, Boolean deduplicated) {
+        if (stored == null || deduplicated == null) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                boolean shared = audioStore.sharedBlobsEnabled() && audioRepository
+                        .lockBlobReferences(stored.sha256(), stored.blobPath().toString()).pathRows() > 0;
+                try {
+                    audioStore.unpublish(stored, !shared);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("failed to take back blob after merge rollback: {}", stored.blobPath(), e);
+        }
+    }
+
     private Path chunkPath(String uploadId, int chunkIndex) {
         String name = String.format(Locale.ROOT, "part-%06d", chunkIndex);
         return chunkRootDir().resolve(uploadId).resolve(name);
@@ -330,19 +486,11 @@ public class AudioChunkUploadService {
         return ext;
     }
 
-    private String sha256(Path file) {
+    private boolean publish(ContentAddressedAudioStore.Staged staged) {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            try (InputStream inputStream = Files.newInputStream(file)) {
-                byte[] buffer = new byte[8192];
-                int len;
-                while ((len = inputStream.read(buffer)) > 0) {
-                    digest.update(buffer, 0, len);
-                }
-            }
-            return HexFormat.of().formatHex(digest.digest());
-        } catch (Exception e) {
-            return null;
+            return audioStore.publish(staged);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 }
@@ -10,11 +10,11 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Locale;
-import java.util.UUID;
 
 @Service
 public class AudioService {
@@ -22,14 +22,16 @@ public class AudioService {
     private static final Logger log = LoggerFactory.getLogger(AudioService.class);
 
     private final AudioRepository audioRepository;
+    private final ContentAddressedAudioStore audioStore;
 
     @Value("${upload.base-dir:${user.home}/ai-emotion/uploads}")
     private String baseDir;
 
     private Path uploadDir;
 
-    public AudioService(AudioRepository audioRepository) {
+    public AudioService(AudioRepository audioRepository, ContentAddressedAudioStore audioStore) {
         this.audioRepository = audioRepository;
+        this.audioStore = audioStore;
     }
 
     @PostConstruct
@@ -58,34 +60,47 @@ public class AudioService {
             ext = ".dat";
         }
 
-        String generatedFileName = UUID.randomUUID().toString().replace("-", "") + ext;
-
-        Path target = uploadDir.resolve(generatedFileName);
         long size = file.getSize();
         String contentType = file.getContentType();
-        String targetPath = target.toString();
 
+        ContentAddressedAudioStore.Staged staged = null;
         try {
             Files.createDirectories(uploadDir);
-            log.info("Upload dir = {}", uploadDir);
-            log.info("Saving file to = {}", target);
-
-            file.transferTo(target.toFile());
-
+            try (InputStream inputStream = file.getInputStream()) {
+                staged = audioStore.stage(inputStream, ext);
+            }
+            ContentAddressedAudioStore.Staged canonical = audioStore.normalize(staged);
+            if (canonical != staged) {
+                log.info("Upload normalized: {} bytes -> {} bytes", staged.sizeBytes(), canonical.sizeBytes());
+                audioStore.discard(staged);
+                staged = canonical;
+            }
+            log.info("Saving file to = {}", staged.blobPath());
+
+            // the row goes in before the blob is published so a concurrent delete never sees the blob unreferenced
             long id = audioRepository.insertAudio(
                     userId,
                     originalFilename,
-                    generatedFileName,
-                    target.toString(),
-                    contentType,
-                    size,
-                    null,
-                    null
+                    staged.storedName(),
+                    staged.blobPath().toString(),
+                    staged.contentType() != null ? staged.contentType() : contentType,
+                    staged.sizeBytes(),
+                    staged.sha256(),
+                    staged.durationMs()
             );
-
-            return new AudioSavedResult(id, originalFilename, generatedFileName, target.toString());
+            try {
+                if (audioStore.publish(staged)) {
+                    log.info("Upload deduplicated: audioId={}, sha256={}", id, staged.sha256());
+                }
+            } catch (Exception e) {
+                audioRepository.softDelete(id);
+                throw e;
+            }
+
+            return new AudioSavedResult(id, originalFilename, staged.storedName(), staged.blobPath().toString());
         } catch (Exception e) {
-            log.error("File upload failed: name={}, size={}, contentType={}, targetPath={}", originalFilename, size, contentType, targetPath, e);
+            audioStore.discard(staged);
+            log.error("File upload failed: name={}, size={}, contentType={}, uploadDir={}", originalFilename, size, contentType, uploadDir, e);
             throw new RuntimeException(e.getMessage(), e);
         }
     }
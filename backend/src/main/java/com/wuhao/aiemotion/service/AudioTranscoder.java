@@ -0,0 +1,78 @@
+package com.wuhao.aiemotion.service;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Converts uploads to 16-bit mono PCM WAV at the rate the ASR and SER models run at, using the formats the
+ * JDK sound API can decode (WAV, AIFF, AU, including float and µ-law/A-law WAV). Channels are averaged and
+ * the rate is changed with the JDK's windowed-sinc resampler, so nothing above the new Nyquist frequency
+ * folds back into the speech band. Compressed formats (mp3, m4a, webm, ...) have no JDK decoder and are
+ * left to the upstream services' ffmpeg.
+ */
+final class AudioTranscoder {
+
+    static final String CONTENT_TYPE = "audio/wav";
+    private static final int BITS = 16;
+
+    private AudioTranscoder() {
+    }
+
+    /**
+     * Writes the canonical copy of {@code source} to {@code target} and returns its duration. Empty when the
+     * format cannot be decoded or when the canonical copy would not be smaller than the original, which covers
+     * files that are already canonical and low-rate recordings that would only grow.
+     */
+    static Optional<Long> transcode(Path source, Path target, int sampleRate) throws IOException {
+        AudioInputStream in;
+        try {
+            in = AudioSystem.getAudioInputStream(source.toFile());
+        } catch (UnsupportedAudioFileException e) {
+            return Optional.empty();
+        }
+        try (in) {
+            AudioFormat format = in.getFormat();
+            if (in.getFrameLength() != AudioSystem.NOT_SPECIFIED && format.getFrameRate() > 0
+                    && format.getFrameSize() > 0) {
+                double canonicalBytes = in.getFrameLength() / (double) format.getFrameRate() * sampleRate * (BITS / 8);
+                if (canonicalBytes >= (double) in.getFrameLength() * format.getFrameSize()) {
+                    return Optional.empty();
+                }
+            }
+            AudioInputStream decoded = decode(in);
+            if (decoded == null) {
+                return Optional.empty();
+            }
+            AudioFormat canonical = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, sampleRate, BITS, 1,
+                    BITS / 8, sampleRate, false, Map.of("interpolation", "sinc"));
+            try (AudioInputStream out = AudioSystem.getAudioInputStream(canonical, decoded)) {
+                AudioSystem.write(out, AudioFileFormat.Type.WAVE, target.toFile());
+            }
+        } catch (IllegalArgumentException e) {
+            // no converter for this encoding/layout
+            Files.deleteIfExists(target);
+            return Optional.empty();
+        }
+        return PcmWav.probe(target).map(PcmWav.Format::durationMs);
+    }
+
+    /** Signed 16-bit PCM at the source rate and layout, the step the JDK resampler accepts as input. */
+    private static AudioInputStream decode(AudioInputStream in) {
+        AudioFormat format = in.getFormat();
+        if (AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding()) && format.getSampleSizeInBits() == BITS
+                && !format.isBigEndian()) {
+            return in;
+        }
+        AudioFormat pcm = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, format.getSampleRate(), BITS,
+                format.getChannels(), format.getChannels() * (BITS / 8), format.getSampleRate(), false);
+        return AudioSystem.isConversionSupported(pcm, format) ? AudioSystem.getAudioInputStream(pcm, in) : null;
+    }
+}
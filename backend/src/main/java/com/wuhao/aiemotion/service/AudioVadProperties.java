@@ -0,0 +1,94 @@
+package com.wuhao.aiemotion.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "analysis.vad")
+public class AudioVadProperties {
+
+    private boolean enabled = true;
+    /** When false speech is only measured; the original file still goes upstream. */
+    private boolean trimEnabled = true;
+    private int frameMs = 30;
+    /** Speech must be this far above the estimated noise floor. */
+    private double marginDb = 10.0;
+    /** Frames quieter than this (dBFS) are never speech, whatever the noise floor. */
+    private double floorDb = -50.0;
+    private long minSpeechMs = 200;
+    /** Pauses shorter than this stay inside the surrounding speech region. */
+    private long minSilenceMs = 800;
+    private long paddingMs = 250;
+    /** Trimmed audio is only sent when it removes at least this share of the recording. */
+    private double minTrimRatio = 0.1;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isTrimEnabled() {
+        return trimEnabled;
+    }
+
+    public void setTrimEnabled(boolean trimEnabled) {
+        this.trimEnabled = trimEnabled;
+    }
+
+    public int getFrameMs() {
+        return frameMs;
+    }
+
+    public void setFrameMs(int frameMs) {
+        this.frameMs = frameMs;
+    }
+
+    public double getMarginDb() {
+        return marginDb;
+    }
+
+    public void setMarginDb(double marginDb) {
+        this.marginDb = marginDb;
+    }
+
+    public double getFloorDb() {
+        return floorDb;
+    }
+
+    public void setFloorDb(double floorDb) {
+        this.floorDb = floorDb;
+    }
+
+    public long getMinSpeechMs() {
+        return minSpeechMs;
+    }
+
+    public void setMinSpeechMs(long minSpeechMs) {
+        this.minSpeechMs = minSpeechMs;
+    }
+
+    public long getMinSilenceMs() {
+        return minSilenceMs;
+    }
+
+    public void setMinSilenceMs(long minSilenceMs) {
+        this.minSilenceMs = minSilenceMs;
+    }
+
+    public long getPaddingMs() {
+        return paddingMs;
+    }
+
+    public void setPaddingMs(long paddingMs) {
+        this.paddingMs = paddingMs;
+    }
+
+    public double getMinTrimRatio() {
+        return minTrimRatio;
+    }
+
+    public void setMinTrimRatio(double minTrimRatio) {
+        this.minTrimRatio = minTrimRatio;
+    }
+}
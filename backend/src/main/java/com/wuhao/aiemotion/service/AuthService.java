@@ -1,6 +1,7 @@
 package com.wuhao.aiemotion.service;
 
 import com.wuhao.aiemotion.repository.AuthRepository;
+import com.wuhao.aiemotion.repository.UserSequenceRepository;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
@@ -21,7 +22,9 @@ public class AuthService {
     private static final String USER_STATUS_ACTIVE = "ACTIVE";
 
     private final AuthRepository authRepository;
+    private final UserSequenceRepository userSequenceRepository;
     private final PasswordEncoder passwordEncoder;
+    private final AuthSessionCache sessionCache;
 
     private final long accessTokenTtlSeconds;
     private final long refreshTokenTtlSeconds;
@@ -34,7 +37,9 @@ public class AuthService {
             @Value("${auth.access-token-ttl-seconds:7200}") long accessTokenTtlSeconds,
             @Value("${auth.refresh-token-ttl-seconds:604800}") long refreshTokenTtlSeconds,
             @Value("${auth.seed-admin.username:operator}") String adminUsername,
-            @Value("${auth.seed-admin.password:operator123}") String adminPassword
+            @Value("${auth.seed-admin.password:operator123}") String adminPassword,
+            AuthSessionCache sessionCache,
+            UserSequenceRepository userSequenceRepository
     ) {
         this.authRepository = authRepository;
         this.passwordEncoder = passwordEncoder;
@@ -42,6 +47,8 @@ public class AuthService {
         this.refreshTokenTtlSeconds = refreshTokenTtlSeconds;
         this.adminUsername = adminUsername;
         this.adminPassword = adminPassword;
+        this.sessionCache = sessionCache;
+        this.userSequenceRepository = userSequenceRepository;
     }
 
     @PostConstruct
@@ -72,6 +79,7 @@ public class AuthService {
 
         long userId = authRepository.insertUser(normalizedUsername, passwordEncoder.encode(password), USER_STATUS_ACTIVE);
         authRepository.bindRole(userId, ROLE_USER);
+        authRepository.updateRegisterNo(userId, userSequenceRepository.next(UserSequenceRepository.GLOBAL_USER_ID, UserSequenceRepository.REGISTER));
 
         AuthRepository.DbUser user = authRepository.findUserWithRoleById(userId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "用户创建失败"));
@@ -107,6 +115,7 @@ public class AuthService {
         }
 
         authRepository.deleteSessionByRefreshToken(refreshToken);
+        sessionCache.invalidate(session.accessToken());
 
         AuthRepository.DbUser user = authRepository.findUserWithRoleById(session.userId())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "用户不存在或已被禁用"));
@@ -115,6 +124,12 @@ public class AuthService {
 
     @Transactional
     public UserProfile requireValidUser(String accessToken) {
+        long cacheGeneration = sessionCache.generation();
+        UserProfile cached = sessionCache.find(accessToken).orElse(null);
+        if (cached != null) {
+            return cached;
+        }
+
         AuthRepository.DbSession session = authRepository.findSessionByAccessToken(accessToken)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "登录已过期，请重新登录"));
 
@@ -131,7 +146,9 @@ public class AuthService {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "用户不可用，请联系管理员");
         }
 
-        return new UserProfile(user.id(), user.username(), user.roleCode());
+        UserProfile profile = new UserProfile(user.id(), user.username(), user.roleCode());
+        sessionCache.put(accessToken, session.accessExpireAt(), profile, cacheGeneration);
+        return profile;
     }
 
     public void requireRole(UserProfile userProfile, Set<String> roles) {
@@ -143,6 +160,7 @@ public class AuthService {
     @Transactional
     public void logout(String accessToken) {
         authRepository.deleteSessionByAccessToken(accessToken);
+        sessionCache.invalidate(accessToken);
     }
 
     private AuthTokens createSession(AuthRepository.DbUser user) {
@@ -0,0 +1,138 @@
+package com.wuhao.aiemotion.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class AuthSessionCache {
+
+    private final long ttlMs;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final AtomicLong invalidationGeneration = new AtomicLong();
+
+    public AuthSessionCache(@Value("${auth.session-cache.ttl-ms:30000}") long ttlMs,
+                            @Value("${auth.session-cache.max-entries:10000}") int maxEntries) {
+        this.ttlMs = Math.max(0L, ttlMs);
+        this.maxEntries = Math.max(16, maxEntries);
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > AuthSessionCache.this.maxEntries;
+            }
+        };
+    }
+
+    public Optional<AuthService.UserProfile> find(String accessToken) {
+        if (ttlMs <= 0 || accessToken == null) {
+            return Optional.empty();
+        }
+        String key = hash(accessToken);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && !entry.expireAt().isAfter(Instant.now())) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(entry.user());
+    }
+
+    /**
+     * Read before looking a session up in the database and handed back to {@link #put}, which then skips the
+     * entry if a logout or user invalidation ran in between; otherwise the stale lookup would re-cache a
+     * revoked token for up to the TTL.
+     */
+    public long generation() {
+        return invalidationGeneration.get();
+    }
+
+    public void put(String accessToken, Instant accessExpireAt, AuthService.UserProfile user, long generation) {
+        if (ttlMs <= 0 || accessToken == null) {
+            return;
+        }
+        Instant ttlBound = Instant.now().plusMillis(ttlMs);
+        Instant expireAt = accessExpireAt.isBefore(ttlBound) ? accessExpireAt : ttlBound;
+        if (!expireAt.isAfter(Instant.now())) {
+            return;
+        }
+        synchronized (entries) {
+            if (invalidationGeneration.get() != generation) {
+                return;
+            }
+            entries.put(hash(accessToken), new Entry(user, expireAt));
+        }
+    }
+
+    public void invalidate(String accessToken) {
+        if (accessToken == null) {
+            return;
+        }
+        synchronized (entries) {
+            invalidationGeneration.incrementAndGet();
+            if (entries.remove(hash(accessToken)) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    public void invalidateUser(long userId) {
+        synchronized (entries) {
+            invalidationGeneration.incrementAndGet();
+            int before = entries.size();
+            entries.values().removeIf(entry -> entry.user().userId() == userId);
+            invalidations.add(before - entries.size());
+        }
+    }
+
+    public Map<String, Object> metrics() {
+        long hit = hits.sum();
+        long missed = misses.sum();
+        long lookups = hit + missed;
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("size", size);
+        payload.put("maxEntries", maxEntries);
+        payload.put("ttlMs", ttlMs);
+        payload.put("hits", hit);
+        payload.put("misses", missed);
+        payload.put("invalidations", invalidations.sum());
+        payload.put("hitRate", lookups == 0 ? 0.0D : Math.round(hit * 10000.0D / lookups) / 10000.0D);
+        return payload;
+    }
+
+    private String hash(String accessToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(accessToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record Entry(AuthService.UserProfile user, Instant expireAt) {
+    }
+}
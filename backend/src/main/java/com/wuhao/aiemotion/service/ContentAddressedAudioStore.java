@@ -0,0 +1,187 @@
+package com.wuhao.aiemotion.service;
+
+import com.wuhao.aiemotion.repository.SchemaCapabilityRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Stores uploaded audio under {@code <sha256><ext>} so identical recordings share one blob.
+ * Uploads are first staged under {@code .staging/}; the caller inserts its audio_file row and then
+ * {@link #publish(Staged) publishes} the staged file, which either moves it into place or drops it
+ * when the blob already exists. Decodable uploads can first be {@link #normalize(Staged) normalized} to
+ * 16 kHz mono PCM WAV, in which case the canonical copy is what gets hashed and stored.
+ */
+@Component
+public class ContentAddressedAudioStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentAddressedAudioStore.class);
+
+    /** Pre-V18 schema: stored_name is unique, so rows cannot share a blob name yet. */
+    static final String LEGACY_STORED_NAME_INDEX = "uk_audio_file_stored_name";
+    static final String STAGING_DIR = ".staging";
+
+    private final SchemaCapabilityRegistry schemaCapabilityRegistry;
+    private final String baseDir;
+    private final boolean normalizeEnabled;
+    private final int sampleRate;
+    private Path uploadDir;
+
+    public ContentAddressedAudioStore(SchemaCapabilityRegistry schemaCapabilityRegistry,
+                                      @Value("${upload.base-dir:${user.home}/ai-emotion/uploads}") String baseDir,
+                                      @Value("${upload.normalize-enabled:true}") boolean normalizeEnabled,
+                                      @Value("${ai.sampleRate:16000}") int sampleRate) {
+        this.schemaCapabilityRegistry = schemaCapabilityRegistry;
+        this.baseDir = baseDir;
+        this.normalizeEnabled = normalizeEnabled;
+        this.sampleRate = sampleRate;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.uploadDir = Paths.get(baseDir).toAbsolutePath().normalize();
+    }
+
+    /** {@code durationMs} and {@code contentType} are only known for normalized files, null otherwise. */
+    public record Staged(Path stagingPath, String storedName, Path blobPath, long sizeBytes, String sha256,
+                         Long durationMs, String contentType) {
+    }
+
+    public Staged stage(InputStream source, String ext) throws IOException {
+        Path staging = newStagingPath(ext);
+        return toStaged(staging, StreamingFileWriter.write(source, staging), ext);
+    }
+
+    public Staged stageMerge(List<Path> parts, String ext) throws IOException {
+        Path staging = newStagingPath(ext);
+        return toStaged(staging, StreamingFileWriter.merge(parts, staging), ext);
+    }
+
+    /**
+     * Takes over a file that was assembled in place (chunks written at their offsets); it is hashed once
+     * and moved into staging, no copy is made.
+     */
+    public Staged stageAssembled(Path assembled, String ext) throws IOException {
+        StreamingFileWriter.Written written = StreamingFileWriter.hash(assembled);
+        Path staging = newStagingPath(ext);
+        try {
+            Files.move(assembled, staging, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(assembled, staging);
+        }
+        return toStaged(staging, written, ext);
+    }
+
+    /**
+     * Stages the canonical 16 kHz mono PCM WAV copy of {@code staged} next to it. Returns {@code staged} itself
+     * when normalization is off, the format has no JDK decoder or the copy would not be smaller. The source
+     * file is left in place; callers discard it once the canonical copy is published.
+     */
+    public Staged normalize(Staged staged) throws IOException {
+        if (!normalizeEnabled) {
+            return staged;
+        }
+        Path target = newStagingPath(".wav");
+        Optional<Long> durationMs;
+        try {
+            durationMs = AudioTranscoder.transcode(staged.stagingPath(), target, sampleRate);
+        } catch (IOException | RuntimeException e) {
+            log.warn("audio normalization failed, keeping the original upload: {}", staged.stagingPath(), e);
+            durationMs = Optional.empty();
+        }
+        if (durationMs.isEmpty()) {
+            Files.deleteIfExists(target);
+            return staged;
+        }
+        StreamingFileWriter.Written written;
+        try {
+            written = StreamingFileWriter.hash(target);
+        } catch (IOException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        Staged canonical = toStaged(target, written, ".wav");
+        return new Staged(canonical.stagingPath(), canonical.storedName(), canonical.blobPath(), canonical.sizeBytes(),
+                canonical.sha256(), durationMs.get(), AudioTranscoder.CONTENT_TYPE);
+    }
+
+    /**
+     * Moves the staged file to its blob path. Returns true when an identical blob was already present
+     * and the staged copy was dropped instead.
+     */
+    public boolean publish(Staged staged) throws IOException {
+        if (Files.exists(staged.blobPath())) {
+            Files.deleteIfExists(staged.stagingPath());
+            return true;
+        }
+        try {
+            // a concurrent publish of the same content may replace the target; the bytes are identical
+            Files.move(staged.stagingPath(), staged.blobPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            Files.deleteIfExists(staged.stagingPath());
+            return true;
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(staged.stagingPath(), staged.blobPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return false;
+    }
+
+    /**
+     * Takes a published blob back to its staging path after the row that referenced it was rolled back. It is
+     * moved when {@code removeBlob} (no other row uses it) and copied otherwise.
+     */
+    public void unpublish(Staged staged, boolean removeBlob) throws IOException {
+        if (removeBlob) {
+            Files.move(staged.blobPath(), staged.stagingPath(), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.copy(staged.blobPath(), staged.stagingPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public void discard(Staged staged) {
+        if (staged == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(staged.stagingPath());
+        } catch (IOException e) {
+            log.warn("failed to delete staged upload: {}", staged.stagingPath(), e);
+        }
+    }
+
+    /**
+     * Blob names are derived from the content hash once the unique stored_name key is gone;
+     * against an older schema every upload keeps its own random name.
+     */
+    boolean sharedBlobsEnabled() {
+        return !schemaCapabilityRegistry.hasIndex("audio_file", LEGACY_STORED_NAME_INDEX);
+    }
+
+    private Staged toStaged(Path staging, StreamingFileWriter.Written written, String ext) {
+        String storedName = sharedBlobsEnabled()
+                ? written.sha256() + ext
+                : UUID.randomUUID().toString().replace("-", "") + ext;
+        return new Staged(staging, storedName, uploadDir.resolve(storedName), written.sizeBytes(), written.sha256(),
+                null, null);
+    }
+
+    private Path newStagingPath(String ext) throws IOException {
+        Path dir = uploadDir.resolve(STAGING_DIR);
+        Files.createDirectories(dir);
+        return dir.resolve(UUID.randomUUID().toString().replace("-", "") + ext);
+    }
+}
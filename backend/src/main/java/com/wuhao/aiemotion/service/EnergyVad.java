@@ -0,0 +1,118 @@
+package com.wuhao.aiemotion.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Frame-energy voice activity detection. The speech threshold sits {@code marginDb} above the noise floor
+ * (10th percentile of frame energy), capped halfway between the floor and the loud frames (90th percentile)
+ * so recordings with little silence are not cut into pieces. Short pauses are bridged, short blips dropped
+ * and every region padded before it is returned.
+ */
+final class EnergyVad {
+
+    private static final double SILENT_DB = -120.0;
+
+    private EnergyVad() {
+    }
+
+    record Span(long startMs, long endMs) {
+        long lengthMs() {
+            return endMs - startMs;
+        }
+    }
+
+    record Result(long durationMs, List<Span> speech) {
+        long speechMs() {
+            return speech.stream().mapToLong(Span::lengthMs).sum();
+        }
+
+        double speechRatio() {
+            return durationMs <= 0 ? 0.0 : Math.min(1.0, (double) speechMs() / durationMs);
+        }
+    }
+
+    static Result detect(Path path, PcmWav.Format format, AudioVadProperties properties) throws IOException {
+        int frameMs = Math.max(10, properties.getFrameMs());
+        return detect(frameEnergiesDb(path, format, frameMs), frameMs, format.durationMs(), properties);
+    }
+
+    static double[] frameEnergiesDb(Path path, PcmWav.Format format, int frameMs) throws IOException {
+        long samplesPerFrame = Math.max(1, (long) format.sampleRate() * frameMs / 1000);
+        int frames = (int) ((format.frames() + samplesPerFrame - 1) / samplesPerFrame);
+        double[] energies = new double[frames];
+        try (PcmWav.MonoReader reader = new PcmWav.MonoReader(path, format)) {
+            for (int frame = 0; frame < frames; frame++) {
+                double sum = 0.0;
+                long count = 0;
+                for (long i = 0; i < samplesPerFrame; i++) {
+                    double sample = reader.next();
+                    if (Double.isNaN(sample)) {
+                        break;
+                    }
+                    sum += sample * sample;
+                    count++;
+                }
+                energies[frame] = count == 0 || sum <= 0.0 ? SILENT_DB : Math.max(SILENT_DB, 10 * Math.log10(sum / count));
+            }
+        }
+        return energies;
+    }
+
+    static Result detect(double[] energiesDb, int frameMs, long durationMs, AudioVadProperties properties) {
+        if (energiesDb.length == 0 || durationMs <= 0) {
+            return new Result(Math.max(0, durationMs), List.of());
+        }
+        double[] sorted = energiesDb.clone();
+        Arrays.sort(sorted);
+        double noise = sorted[(int) ((sorted.length - 1) * 0.1)];
+        double loud = sorted[(int) ((sorted.length - 1) * 0.9)];
+        if (loud < properties.getFloorDb()) {
+            return new Result(durationMs, List.of());
+        }
+        double threshold = loud - noise < 6.0
+                ? properties.getFloorDb()
+                : Math.max(properties.getFloorDb(), Math.min(noise + properties.getMarginDb(), (noise + loud) / 2));
+
+        List<Span> raw = new ArrayList<>();
+        int runStart = -1;
+        for (int i = 0; i <= energiesDb.length; i++) {
+            boolean speech = i < energiesDb.length && energiesDb[i] >= threshold;
+            if (speech && runStart < 0) {
+                runStart = i;
+            } else if (!speech && runStart >= 0) {
+                raw.add(new Span((long) runStart * frameMs, Math.min(durationMs, (long) i * frameMs)));
+                runStart = -1;
+            }
+        }
+
+        List<Span> bridged = new ArrayList<>();
+        for (Span span : raw) {
+            Span last = bridged.isEmpty() ? null : bridged.get(bridged.size() - 1);
+            if (last != null && span.startMs() - last.endMs() < properties.getMinSilenceMs()) {
+                bridged.set(bridged.size() - 1, new Span(last.startMs(), span.endMs()));
+            } else {
+                bridged.add(span);
+            }
+        }
+
+        List<Span> speech = new ArrayList<>();
+        for (Span span : bridged) {
+            if (span.lengthMs() < properties.getMinSpeechMs()) {
+                continue;
+            }
+            long start = Math.max(0, span.startMs() - properties.getPaddingMs());
+            long end = Math.min(durationMs, span.endMs() + properties.getPaddingMs());
+            Span last = speech.isEmpty() ? null : speech.get(speech.size() - 1);
+            if (last != null && start <= last.endMs()) {
+                speech.set(speech.size() - 1, new Span(last.startMs(), Math.max(last.endMs(), end)));
+            } else {
+                speech.add(new Span(start, end));
+            }
+        }
+        return new Result(durationMs, speech);
+    }
+}
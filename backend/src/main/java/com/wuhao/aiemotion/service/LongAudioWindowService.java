@@ -0,0 +1,334 @@
+package com.wuhao.aiemotion.service;
+
+import com.wuhao.aiemotion.integration.asr.AsrClient;
+import com.wuhao.aiemotion.integration.asr.AsrTranscribeResponse;
+import com.wuhao.aiemotion.integration.ser.SerAnalyzeResponse;
+import com.wuhao.aiemotion.integration.ser.SerClient;
+import com.wuhao.aiemotion.integration.ser.SerProperties;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Prepares a task's audio for the upstream ASR/SER calls. For WAV input an energy VAD measures speech
+ * first and, when enough silence is found, only the concatenated speech regions are sent; recordings still
+ * longer than {@code analysis.worker.long-audio-window-ms} are then split into overlapping windows that fan
+ * out through the stage limiter, so a long file occupies as many upstream workers as the stage allows.
+ * Results come back on the original timeline. Other formats go upstream unchanged.
+ * <p>
+ * The prepared files of a task are kept until {@link #release(long)} so ASR and SER share them, and past
+ * it until the last upload reading them has returned. Windows of a stage fail together: once one fails,
+ * siblings still queued for a stage permit skip their upload.
+ */
+@Service
+public class LongAudioWindowService {
+
+    private static final Logger log = LoggerFactory.getLogger(LongAudioWindowService.class);
+
+    static final String WINDOW_DIR = ".windows";
+    // well past any task run; the upload dir may be shared, so younger dirs can belong to another node
+    static final long STALE_WINDOW_DIR_MS = TimeUnit.HOURS.toMillis(6);
+
+    private final AsrClient asrClient;
+    private final SerClient serClient;
+    private final SerProperties serProperties;
+    private final AnalysisWorkerProperties workerProperties;
+    private final AudioVadProperties vadProperties;
+    private final AnalysisStageLimiter stageLimiter;
+    private final String baseDir;
+    private final Map<Long, Split> splits = new ConcurrentHashMap<>();
+    private Path windowRoot;
+
+    public LongAudioWindowService(AsrClient asrClient,
+                                  SerClient serClient,
+                                  SerProperties serProperties,
+                                  AnalysisWorkerProperties workerProperties,
+                                  AudioVadProperties vadProperties,
+                                  AnalysisStageLimiter stageLimiter,
+                                  @Value("${upload.base-dir:${user.home}/ai-emotion/uploads}") String baseDir) {
+        this.asrClient = asrClient;
+        this.serClient = serClient;
+        this.serProperties = serProperties;
+        this.workerProperties = workerProperties;
+        this.vadProperties = vadProperties;
+        this.stageLimiter = stageLimiter;
+        this.baseDir = baseDir;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.windowRoot = Paths.get(baseDir).toAbsolutePath().normalize().resolve(WINDOW_DIR);
+        sweepStaleWindowDirs(System.currentTimeMillis() - STALE_WINDOW_DIR_MS);
+    }
+
+    /** Deletes window dirs last written before {@code cutoffMs}, i.e. left behind by a crashed worker. */
+    int sweepStaleWindowDirs(long cutoffMs) {
+        if (!Files.isDirectory(windowRoot)) {
+            return 0;
+        }
+        int swept = 0;
+        try (Stream<Path> dirs = Files.list(windowRoot)) {
+            for (Path dir : dirs.toList()) {
+                if (Files.getLastModifiedTime(dir).toMillis() < cutoffMs) {
+                    deleteQuietly(dir);
+                    swept++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("stale audio window sweep failed: {}", windowRoot, e);
+        }
+        if (swept > 0) {
+            log.info("stale audio window dirs removed: root={}, count={}", windowRoot, swept);
+        }
+        return swept;
+    }
+
+    /**
+     * What was measured and what will be sent. {@code durationMs} and {@code speechRatio} are null when the
+     * file is not a readable WAV (or VAD is off); {@code sentMs} is the audio length uploaded per stage.
+     */
+    public record Preparation(Long durationMs, Double speechRatio, Long sentMs, int windows) {
+    }
+
+    private record Split(Path source,
+                         long sourceDurationMs,
+                         List<LongAudioWindows.Window> windows,
+                         List<Path> files,
+                         Path dir,
+                         long originalDurationMs,
+                         EnergyVad.Result speech,
+                         TrimmedTimeline timeline,
+                         Set<CompletableFuture<?>> uploads) {
+
+        Split(Path source, long sourceDurationMs, List<LongAudioWindows.Window> windows, List<Path> files, Path dir,
+              long originalDurationMs, EnergyVad.Result speech, TrimmedTimeline timeline) {
+            this(source, sourceDurationMs, windows, files, dir, originalDurationMs, speech, timeline,
+                    ConcurrentHashMap.newKeySet());
+        }
+
+        static Split whole(Path source, long durationMs, EnergyVad.Result speech) {
+            return new Split(source, durationMs, List.of(), List.of(), null, durationMs, speech, null);
+        }
+
+        boolean windowed() {
+            return windows.size() > 1;
+        }
+
+        AsrTranscribeResponse restore(AsrTranscribeResponse response) {
+            return timeline == null ? response : timeline.restore(response, originalDurationMs);
+        }
+
+        SerAnalyzeResponse restore(SerAnalyzeResponse response) {
+            return timeline == null ? response : timeline.restore(response, originalDurationMs);
+        }
+    }
+
+    public Preparation prepare(long taskId, Path audioPath) {
+        Split split = split(taskId, audioPath);
+        return new Preparation(
+                split.originalDurationMs() < 0 ? null : split.originalDurationMs(),
+                split.speech() == null ? null : split.speech().speechRatio(),
+                split.sourceDurationMs() < 0 ? null : split.sourceDurationMs(),
+                split.windowed() ? split.windows().size() : 0
+        );
+    }
+
+    public CompletableFuture<AsrTranscribeResponse> transcribe(long taskId, Path audioPath) {
+        Split split = split(taskId, audioPath);
+        long timeoutMs = workerProperties.getAsrTimeoutMs();
+        if (!split.windowed()) {
+            return track(split, stageLimiter.submit(AnalysisStageLimiter.Stage.ASR,
+                    () -> asrClient.transcribe(split.source(), timeoutMs)))
+                    .thenApply(split::restore);
+        }
+        return fanOut(split, AnalysisStageLimiter.Stage.ASR, file -> asrClient.transcribe(file, timeoutMs))
+                .thenApply(responses -> split.restore(LongAudioWindows.stitchAsr(
+                        split.windows(), responses, split.sourceDurationMs())));
+    }
+
+    public SerAnalyzeResponse analyze(long taskId,
+                                      Path audioPath,
+                                      String languageHint,
+                                      SerClient.FusionTextFeatures fusionTextFeatures) throws Exception {
+        Split split = split(taskId, audioPath);
+        if (!split.windowed()) {
+            return split.restore(stageLimiter.call(AnalysisStageLimiter.Stage.SER,
+                    () -> serClient.analyze(split.source(), languageHint, fusionTextFeatures)));
+        }
+        List<SerAnalyzeResponse> responses;
+        try {
+            responses = fanOut(split, AnalysisStageLimiter.Stage.SER,
+                    file -> serClient.analyze(file, languageHint, fusionTextFeatures)).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+        return split.restore(LongAudioWindows.stitchSer(
+                split.windows(),
+                responses,
+                serProperties.getSegmentMs(),
+                serProperties.getOverlapMs(),
+                split.sourceDurationMs()
+        ));
+    }
+
+    /**
+     * Forgets the task's prepared files. Uploads still running (siblings of a failed window) keep reading
+     * them, so the dir is deleted once the last of those returns.
+     */
+    public void release(long taskId) {
+        Split split = splits.remove(taskId);
+        if (split == null || split.dir() == null) {
+            return;
+        }
+        CompletableFuture.allOf(split.uploads().toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, e) -> deleteQuietly(split.dir()));
+    }
+
+    /**
+     * One upload per window through the stage limiter. The result fails as soon as any window fails rather
+     * than after the slowest sibling; siblings that have not got a permit yet then skip their upload.
+     */
+    private <T> CompletableFuture<List<T>> fanOut(Split split, AnalysisStageLimiter.Stage stage, Function<Path, T> upload) {
+        CompletableFuture<List<T>> result = new CompletableFuture<>();
+        // set while the failing window still holds its permit, so no queued sibling can slip in after it
+        AtomicBoolean failed = new AtomicBoolean();
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+        for (Path file : split.files()) {
+            futures.add(track(split, stageLimiter.submit(stage, () -> {
+                if (failed.get()) {
+                    throw new CancellationException("sibling window failed");
+                }
+                try {
+                    return upload.apply(file);
+                } catch (RuntimeException e) {
+                    failed.set(true);
+                    throw e;
+                }
+            })));
+        }
+        for (CompletableFuture<T> future : futures) {
+            future.whenComplete((ignored, e) -> {
+                if (e != null) {
+                    result.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                }
+            });
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .thenRun(() -> result.complete(futures.stream().map(CompletableFuture::join).toList()));
+        return result;
+    }
+
+    private <T> CompletableFuture<T> track(Split split, CompletableFuture<T> upload) {
+        split.uploads().add(upload);
+        upload.whenComplete((ignored, e) -> split.uploads().remove(upload));
+        return upload;
+    }
+
+    private Split split(long taskId, Path audioPath) {
+        return splits.computeIfAbsent(taskId, id -> createSplit(id, audioPath));
+    }
+
+    private Split createSplit(long taskId, Path audioPath) {
+        PcmWav.Format format = PcmWav.probe(audioPath).orElse(null);
+        if (format == null) {
+            // compressed formats are decoded upstream by ffmpeg; send them whole
+            return Split.whole(audioPath, -1, null);
+        }
+        long durationMs = format.durationMs();
+        Path dir = windowRoot.resolve(taskId + "-" + UUID.randomUUID().toString().replace("-", ""));
+        EnergyVad.Result speech = null;
+        try {
+            Path source = audioPath;
+            PcmWav.Format sourceFormat = format;
+            long sourceDurationMs = durationMs;
+            TrimmedTimeline timeline = null;
+            if (vadProperties.isEnabled()) {
+                speech = EnergyVad.detect(audioPath, format, vadProperties);
+                if (shouldTrim(speech)) {
+                    timeline = new TrimmedTimeline(speech.speech());
+                    Files.createDirectories(dir);
+                    source = dir.resolve("speech.wav");
+                    List<long[]> ranges = new ArrayList<>();
+                    for (EnergyVad.Span span : speech.speech()) {
+                        ranges.add(new long[]{format.frameAt(span.startMs()), format.frameAt(span.endMs())});
+                    }
+                    PcmWav.writeFrames(audioPath, format, ranges, source);
+                    sourceFormat = PcmWav.probe(source)
+                            .orElseThrow(() -> new IllegalStateException("trimmed audio is not readable"));
+                    sourceDurationMs = timeline.trimmedDurationMs();
+                    log.info("silence trimmed before upstream analysis: taskId={}, durationMs={}, speechMs={}, spans={}",
+                            taskId, durationMs, sourceDurationMs, speech.speech().size());
+                }
+            }
+
+            long windowMs = workerProperties.getLongAudioWindowMs();
+            List<LongAudioWindows.Window> windows = windowMs <= 0
+                    ? List.of()
+                    : LongAudioWindows.plan(sourceDurationMs, windowMs, serProperties.getSegmentMs(), serProperties.getOverlapMs());
+            if (windows.size() <= 1) {
+                return new Split(source, sourceDurationMs, List.of(), List.of(), timeline == null ? null : dir,
+                        durationMs, speech, timeline);
+            }
+            Files.createDirectories(dir);
+            List<Path> files = new ArrayList<>(windows.size());
+            for (LongAudioWindows.Window window : windows) {
+                long endFrame = window.index() == windows.size() - 1 ? sourceFormat.frames() : sourceFormat.frameAt(window.endMs());
+                Path target = dir.resolve("window-" + window.index() + ".wav");
+                PcmWav.writeFrames(source, sourceFormat, List.of(new long[]{sourceFormat.frameAt(window.startMs()), endFrame}), target);
+                files.add(target);
+            }
+            log.info("long audio split into windows: taskId={}, durationMs={}, windows={}", taskId, sourceDurationMs, windows.size());
+            return new Split(source, sourceDurationMs, windows, files, dir, durationMs, speech, timeline);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(dir);
+            log.warn("audio preparation failed, sending whole file: taskId={}, reason={}", taskId, e.getMessage());
+            return Split.whole(audioPath, durationMs, speech);
+        }
+    }
+
+    private boolean shouldTrim(EnergyVad.Result speech) {
+        if (!vadProperties.isTrimEnabled() || speech.speech().isEmpty()) {
+            // nothing above the threshold is more likely a quiet recording than no speech at all
+            return false;
+        }
+        return speech.speechMs() <= speech.durationMs() * (1.0 - vadProperties.getMinTrimRatio());
+    }
+
+    private static void deleteQuietly(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.warn("failed to delete audio window file: {}", path, e);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("failed to delete audio window dir: {}", dir, e);
+        }
+    }
+}
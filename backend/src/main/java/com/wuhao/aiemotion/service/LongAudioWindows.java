@@ -0,0 +1,400 @@
+package com.wuhao.aiemotion.service;
+
+import com.wuhao.aiemotion.integration.asr.AsrTranscribeResponse;
+import com.wuhao.aiemotion.integration.ser.SerAnalyzeResponse;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Window planning and result stitching for long recordings that are analysed as several overlapping
+ * windows. Window starts sit on the SER segment grid ({@code segmentMs - overlapMs}) and consecutive windows
+ * overlap by at least one SER segment, so every segment of a whole-file run is returned complete by some
+ * window and the stitched segment list matches the whole-file one.
+ */
+final class LongAudioWindows {
+
+    static final String[] EMOTION_LABELS = {"ANGRY", "HAPPY", "NEUTRAL", "SAD"};
+
+    private LongAudioWindows() {
+    }
+
+    /**
+     * A window covers {@code [startMs, endMs)}; overlap regions are split at their midpoint, so
+     * {@code [ownStartMs, ownEndMs)} is the part whose transcript this window contributes.
+     */
+    record Window(int index, long startMs, long endMs, long ownStartMs, long ownEndMs) {
+    }
+
+    static List<Window> plan(long durationMs, long windowMs, int segmentMs, int serOverlapMs) {
+        if (durationMs <= 0 || windowMs <= 0) {
+            return List.of();
+        }
+        long hop = Math.max(1, segmentMs - serOverlapMs);
+        long overlap = ((Math.max(1, segmentMs) + hop - 1) / hop) * hop;
+        long window = Math.max((windowMs / hop) * hop, overlap + hop);
+        long stride = window - overlap;
+
+        List<long[]> spans = new ArrayList<>();
+        long start = 0;
+        while (true) {
+            long end = Math.min(start + window, durationMs);
+            spans.add(new long[]{start, end});
+            if (end >= durationMs) {
+                break;
+            }
+            start += stride;
+        }
+        List<Window> windows = new ArrayList<>(spans.size());
+        for (int i = 0; i < spans.size(); i++) {
+            long ownStart = i == 0 ? 0 : spans.get(i)[0] + overlap / 2;
+            long ownEnd = i == spans.size() - 1 ? durationMs : spans.get(i + 1)[0] + overlap / 2;
+            windows.add(new Window(i, spans.get(i)[0], spans.get(i)[1], ownStart, ownEnd));
+        }
+        return windows;
+    }
+
+    static AsrTranscribeResponse stitchAsr(List<Window> windows, List<AsrTranscribeResponse> responses, long durationMs) {
+        List<AsrTranscribeResponse.AsrSegment> segments = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        Map<String, Integer> languageVotes = new LinkedHashMap<>();
+        String model = null;
+        long lastEnd = Long.MIN_VALUE;
+        for (int i = 0; i < windows.size(); i++) {
+            Window window = windows.get(i);
+            AsrTranscribeResponse response = responses.get(i);
+            if (response == null) {
+                continue;
+            }
+            if (model == null && response.meta() != null) {
+                model = response.meta().model();
+            }
+            if (response.language() != null && !response.language().isBlank()) {
+                languageVotes.merge(response.language(), 1, Integer::sum);
+            }
+            if (response.segments() == null || response.segments().isEmpty()) {
+                // nothing to place on the timeline, so the overlap cannot be trimmed
+                if (response.text() != null && !response.text().isBlank()) {
+                    texts.add(response.text().trim());
+                }
+                continue;
+            }
+            for (AsrTranscribeResponse.AsrSegment segment : response.segments()) {
+                long start = segment.startMs() + window.startMs();
+                long end = segment.endMs() + window.startMs();
+                long mid = (start + end) / 2;
+                if (mid < window.ownStartMs() || mid >= window.ownEndMs()) {
+                    continue;
+                }
+                // windows cut speech at different points; a segment mostly covered by the previous
+                // window's last segment is the same utterance
+                if (start < lastEnd && (Math.min(end, lastEnd) - start) * 2 > end - start) {
+                    continue;
+                }
+                lastEnd = Math.max(lastEnd, end);
+                segments.add(new AsrTranscribeResponse.AsrSegment(start, end, segment.text()));
+                if (segment.text() != null && !segment.text().isBlank()) {
+                    texts.add(segment.text().trim());
+                }
+            }
+        }
+        String language = languageVotes.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(null);
+        return new AsrTranscribeResponse(
+                String.join(" ", texts).trim(),
+                language,
+                segments,
+                new AsrTranscribeResponse.AsrMeta(model, durationMs)
+        );
+    }
+
+    /**
+     * Overall emotion and audio summary are recomputed from the stitched segments the same way the SER
+     * service aggregates them. Fusion runs upstream per window and cannot be recomputed here, so its label
+     * is the one carried by the most stitched segments.
+     */
+    static SerAnalyzeResponse stitchSer(List<Window> windows,
+                                        List<SerAnalyzeResponse> responses,
+                                        int segmentMs,
+                                        int serOverlapMs,
+                                        long durationMs) {
+        long hop = Math.max(1, segmentMs - serOverlapMs);
+        List<ShiftedSegment> shifted = new ArrayList<>();
+        for (int i = 0; i < windows.size(); i++) {
+            SerAnalyzeResponse response = responses.get(i);
+            if (response == null || response.segments() == null) {
+                continue;
+            }
+            long offset = windows.get(i).startMs();
+            for (SerAnalyzeResponse.Segment segment : response.segments()) {
+                shifted.add(new ShiftedSegment(i, new SerAnalyzeResponse.Segment(
+                        segment.startMs() + offset,
+                        segment.endMs() + offset,
+                        segment.emotionCode(),
+                        segment.confidence(),
+                        segment.scores()
+                )));
+            }
+        }
+        // the same grid segment comes back from two windows in their overlap; keep the longest copy,
+        // a copy cut short by a window end is the shorter one
+        shifted.sort(Comparator.comparingLong((ShiftedSegment s) -> s.segment().startMs())
+                .thenComparing(Comparator.comparingLong((ShiftedSegment s) -> s.segment().endMs()).reversed()));
+        List<SerAnalyzeResponse.Segment> segments = new ArrayList<>();
+        int[] keptPerWindow = new int[windows.size()];
+        long lastStart = Long.MIN_VALUE;
+        for (ShiftedSegment candidate : shifted) {
+            if (!segments.isEmpty() && candidate.segment().startMs() < lastStart + (hop + 1) / 2) {
+                continue;
+            }
+            segments.add(candidate.segment());
+            keptPerWindow[candidate.window()]++;
+            lastStart = candidate.segment().startMs();
+        }
+
+        double[] pooled = pooledScores(segments);
+        SerAnalyzeResponse.Overall overall = overall(segments, pooled);
+        SerAnalyzeResponse first = responses.stream().filter(r -> r != null).findFirst().orElse(null);
+        SerAnalyzeResponse.Meta meta = first == null || first.meta() == null ? null : new SerAnalyzeResponse.Meta(
+                first.meta().model(),
+                first.meta().engine(),
+                first.meta().routeLanguage(),
+                first.meta().routingStrategy(),
+                first.meta().languageHint(),
+                first.meta().sampleRate(),
+                durationMs,
+                first.meta().fusionEnabled()
+        );
+        return new SerAnalyzeResponse(
+                overall,
+                segments,
+                audioSummary(segments, pooled),
+                first == null ? null : first.textFeatures(),
+                fusion(responses, keptPerWindow),
+                meta
+        );
+    }
+
+    private record ShiftedSegment(int window, SerAnalyzeResponse.Segment segment) {
+    }
+
+    /** Mean of the per-segment score distributions, or null when some segment carries no scores. */
+    private static double[] pooledScores(List<SerAnalyzeResponse.Segment> segments) {
+        if (segments.isEmpty()) {
+            return null;
+        }
+        double[] pooled = new double[EMOTION_LABELS.length];
+        for (SerAnalyzeResponse.Segment segment : segments) {
+            if (segment.scores() == null) {
+                return null;
+            }
+            double[] projected = new double[EMOTION_LABELS.length];
+            double total = 0.0;
+            for (Map.Entry<String, Double> entry : segment.scores().entrySet()) {
+                int label = labelIndex(entry.getKey());
+                if (label >= 0 && entry.getValue() != null) {
+                    projected[label] += Math.max(0.0, entry.getValue());
+                    total += Math.max(0.0, entry.getValue());
+                }
+            }
+            for (int i = 0; i < pooled.length; i++) {
+                pooled[i] += total > 0.0 ? projected[i] / total : 0.0;
+            }
+        }
+        for (int i = 0; i < pooled.length; i++) {
+            pooled[i] /= segments.size();
+        }
+        return pooled;
+    }
+
+    private static SerAnalyzeResponse.Overall overall(List<SerAnalyzeResponse.Segment> segments, double[] pooled) {
+        if (segments.isEmpty()) {
+            return new SerAnalyzeResponse.Overall("NEUTRAL", 0.0);
+        }
+        if (pooled != null) {
+            int best = argMax(pooled);
+            return new SerAnalyzeResponse.Overall(EMOTION_LABELS[best], round6(pooled[best]));
+        }
+        Map<String, Integer> votes = new HashMap<>();
+        Map<String, Double> maxConfidence = new HashMap<>();
+        for (SerAnalyzeResponse.Segment segment : segments) {
+            votes.merge(segment.emotionCode(), 1, Integer::sum);
+            maxConfidence.merge(segment.emotionCode(), segment.confidence(), Math::max);
+        }
+        String best = null;
+        for (SerAnalyzeResponse.Segment segment : segments) {
+            String label = segment.emotionCode();
+            if (best == null
+                    || votes.get(label) > votes.get(best)
+                    || (votes.get(label).equals(votes.get(best)) && maxConfidence.get(label) > maxConfidence.get(best))) {
+                best = label;
+            }
+        }
+        double sum = 0.0;
+        int count = 0;
+        for (SerAnalyzeResponse.Segment segment : segments) {
+            if (segment.emotionCode() != null && segment.emotionCode().equals(best)) {
+                sum += segment.confidence();
+                count++;
+            }
+        }
+        return new SerAnalyzeResponse.Overall(best, round6(count == 0 ? 0.0 : sum / count));
+    }
+
+    private static SerAnalyzeResponse.AudioSummary audioSummary(List<SerAnalyzeResponse.Segment> segments, double[] pooled) {
+        double[] probs = new double[EMOTION_LABELS.length];
+        double maxConfidence = 0.0;
+        for (SerAnalyzeResponse.Segment segment : segments) {
+            maxConfidence = Math.max(maxConfidence, clamp01(segment.confidence()));
+        }
+        if (pooled != null) {
+            probs = pooled.clone();
+        } else {
+            double totalWeight = 0.0;
+            for (SerAnalyzeResponse.Segment segment : segments) {
+                int label = labelIndex(segment.emotionCode());
+                if (label < 0) {
+                    continue;
+                }
+                double confidence = clamp01(segment.confidence());
+                double weight = confidence > 0.0 ? confidence : 1e-6;
+                probs[label] += weight;
+                totalWeight += weight;
+            }
+            if (totalWeight <= 0.0) {
+                probs[labelIndex("NEUTRAL")] = 1.0;
+            } else {
+                for (int i = 0; i < probs.length; i++) {
+                    probs[i] /= totalWeight;
+                }
+            }
+        }
+        double entropy = 0.0;
+        for (double p : probs) {
+            entropy -= p * Math.log(Math.max(p, 1e-12));
+        }
+        return new SerAnalyzeResponse.AudioSummary(
+                probs[0], probs[1], probs[2], probs[3], maxConfidence, entropy, EMOTION_LABELS[argMax(probs)]);
+    }
+
+    private static SerAnalyzeResponse.Fusion fusion(List<SerAnalyzeResponse> responses, int[] keptPerWindow) {
+        Map<String, Double> labelWeights = new LinkedHashMap<>();
+        Map<String, Double> scores = new LinkedHashMap<>();
+        Map<String, Double> scoresRaw = new LinkedHashMap<>();
+        SerAnalyzeResponse.Fusion first = null;
+        boolean ready = true;
+        boolean enabled = false;
+        String error = null;
+        double totalWeight = 0.0;
+        for (int i = 0; i < responses.size(); i++) {
+            SerAnalyzeResponse response = responses.get(i);
+            SerAnalyzeResponse.Fusion fusion = response == null ? null : response.fusion();
+            if (fusion == null) {
+                continue;
+            }
+            if (first == null) {
+                first = fusion;
+            }
+            double weight = Math.max(1, keptPerWindow[i]);
+            totalWeight += weight;
+            ready &= Boolean.TRUE.equals(fusion.ready());
+            enabled |= Boolean.TRUE.equals(fusion.enabled());
+            if (error == null && fusion.error() != null) {
+                error = fusion.error();
+            }
+            if (fusion.label() != null) {
+                labelWeights.merge(fusion.label(), weight, Double::sum);
+            }
+            accumulate(scores, fusion.scores(), weight);
+            accumulate(scoresRaw, fusion.scoresRaw(), weight);
+        }
+        if (first == null) {
+            return null;
+        }
+        String label = labelWeights.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(null);
+        String labelRaw = null;
+        double confidenceSum = 0.0;
+        double confidenceWeight = 0.0;
+        for (int i = 0; i < responses.size(); i++) {
+            SerAnalyzeResponse.Fusion fusion = responses.get(i) == null ? null : responses.get(i).fusion();
+            if (fusion == null || label == null || !label.equals(fusion.label())) {
+                continue;
+            }
+            if (labelRaw == null) {
+                labelRaw = fusion.labelRaw();
+            }
+            if (fusion.confidence() != null) {
+                double weight = Math.max(1, keptPerWindow[i]);
+                confidenceSum += fusion.confidence() * weight;
+                confidenceWeight += weight;
+            }
+        }
+        double norm = totalWeight;
+        scores.replaceAll((k, v) -> round6(v / norm));
+        scoresRaw.replaceAll((k, v) -> round6(v / norm));
+        return new SerAnalyzeResponse.Fusion(
+                enabled,
+                ready,
+                labelRaw,
+                label,
+                confidenceWeight == 0.0 ? null : round6(confidenceSum / confidenceWeight),
+                first.temperature(),
+                scoresRaw.isEmpty() ? null : scoresRaw,
+                scores.isEmpty() ? null : scores,
+                null,
+                error
+        );
+    }
+
+    private static void accumulate(Map<String, Double> target, Map<String, Double> source, double weight) {
+        if (source == null) {
+            return;
+        }
+        source.forEach((k, v) -> {
+            if (v != null) {
+                target.merge(k, v * weight, Double::sum);
+            }
+        });
+    }
+
+    private static int labelIndex(String label) {
+        if (label == null) {
+            return -1;
+        }
+        String key = label.trim().toUpperCase(Locale.ROOT);
+        for (int i = 0; i < EMOTION_LABELS.length; i++) {
+            if (EMOTION_LABELS[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int argMax(double[] values) {
+        int best = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > values[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static double clamp01(double value) {
+        return Math.max(0.0, Math.min(1.0, value));
+    }
+
+    private static double round6(double value) {
+        return Math.round(value * 1_000_000d) / 1_000_000d;
+    }
+}
@@ -0,0 +1,193 @@
+package com.wuhao.aiemotion.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wuhao.aiemotion.dto.response.AnalysisTaskResultResponse;
+import com.wuhao.aiemotion.integration.ser.SerAnalyzeResponse;
+import com.wuhao.aiemotion.repository.AnalysisResultRepository;
+import com.wuhao.aiemotion.repository.ReportRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class NarrativeBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(NarrativeBackfillService.class);
+
+    private final NarrativeGenerationService narrativeGenerationService;
+    private final AnalysisResultRepository analysisResultRepository;
+    private final ReportRepository reportRepository;
+    private final TaskRealtimeProgressTracker progressTracker;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final Set<Long> queuedTaskIds = ConcurrentHashMap.newKeySet();
+
+    public NarrativeBackfillService(NarrativeGenerationService narrativeGenerationService,
+                                    AnalysisResultRepository analysisResultRepository,
+                                    ReportRepository reportRepository,
+                                    TaskRealtimeProgressTracker progressTracker,
+                                    ObjectMapper objectMapper,
+                                    TransactionTemplate transactionTemplate,
+                                    AnalysisNarrativeProperties properties) {
+        this.narrativeGenerationService = narrativeGenerationService;
+        this.analysisResultRepository = analysisResultRepository;
+        this.reportRepository = reportRepository;
+        this.progressTracker = progressTracker;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        int concurrency = Math.max(1, properties.getAsyncConcurrency());
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                concurrency,
+                concurrency,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, properties.getAsyncQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "narrative-backfill-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+
+    public void enqueue(long taskId,
+                        SerAnalyzeResponse response,
+                        String transcript,
+                        AnalysisTaskResultResponse.RiskAssessmentPayload riskAssessment,
+                        ConsistencyDecision decision) {
+        if (!queuedTaskIds.add(taskId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    fill(taskId, response, transcript, riskAssessment, decision);
+                } finally {
+                    queuedTaskIds.remove(taskId);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            queuedTaskIds.remove(taskId);
+            log.warn("narrative queue full, keep fallback narrative: taskId={}, queued={}", taskId, executor.getQueue().size());
+            persist(taskId, narrativeGenerationService.fallbackPayload("fallback", riskAssessment, "narrative queue full"), 0L);
+        }
+    }
+
+    /**
+     * The queue only lives in memory, so narratives still "pending" at startup were lost with the previous
+     * process. They are rebuilt from the persisted result and queued again; a row another node is still
+     * working on is at worst generated twice, and the later write wins.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        List<AnalysisResultRepository.PendingNarrative> pending;
+        try {
+            pending = analysisResultRepository.findPendingNarratives();
+        } catch (Exception ex) {
+            log.warn("pending narrative scan failed: {}", ex.getMessage());
+            return;
+        }
+        if (!pending.isEmpty()) {
+            log.info("resubmitting pending narratives: count={}", pending.size());
+        }
+        for (AnalysisResultRepository.PendingNarrative row : pending) {
+            resubmit(row);
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("active", executor.getActiveCount());
+        payload.put("queued", executor.getQueue().size());
+        payload.put("completed", executor.getCompletedTaskCount());
+        return payload;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void resubmit(AnalysisResultRepository.PendingNarrative row) {
+        AnalysisTaskResultResponse.RiskAssessmentPayload riskAssessment = null;
+        try {
+            JsonNode root = objectMapper.readTree(row.rawJson());
+            riskAssessment = read(root, "riskAssessment", AnalysisTaskResultResponse.RiskAssessmentPayload.class);
+            SerAnalyzeResponse response = read(root, "ser", SerAnalyzeResponse.class);
+            if (response == null) {
+                throw new IllegalStateException("ser result missing");
+            }
+            JsonNode transcript = root.path("transcript");
+            enqueue(row.taskId(), response, transcript.isTextual() ? transcript.asText() : null, riskAssessment,
+                    read(root, "decision", ConsistencyDecision.class));
+        } catch (Exception ex) {
+            log.warn("pending narrative cannot be rebuilt, keep fallback narrative: taskId={}, reason={}",
+                    row.taskId(), ex.getMessage());
+            persist(row.taskId(), narrativeGenerationService.fallbackPayload("fallback", riskAssessment, ex.getMessage()), 0L);
+        }
+    }
+
+    private <T> T read(JsonNode root, String field, Class<T> type) throws Exception {
+        JsonNode node = root.path(field);
+        return node.isMissingNode() || node.isNull() ? null : objectMapper.treeToValue(node, type);
+    }
+
+    private void fill(long taskId,
+                      SerAnalyzeResponse response,
+                      String transcript,
+                      AnalysisTaskResultResponse.RiskAssessmentPayload riskAssessment,
+                      ConsistencyDecision decision) {
+        Instant started = Instant.now();
+        NarrativePayload narrative;
+        try {
+            narrative = narrativeGenerationService.generate(taskId, response, transcript, riskAssessment, decision);
+        } catch (Exception ex) {
+            narrative = narrativeGenerationService.fallbackPayload("fallback", riskAssessment, ex.getMessage());
+        }
+        persist(taskId, narrative, Duration.between(started, Instant.now()).toMillis());
+    }
+
+    private void persist(long taskId, NarrativePayload narrative, long costMs) {
+        try {
+            String narrativeJson = objectMapper.writeValueAsString(narrative);
+            transactionTemplate.executeWithoutResult(s -> {
+                analysisResultRepository.updateNarrative(taskId, narrativeJson);
+                reportRepository.updateNarrative(taskId, narrativeJson);
+            });
+            log.info("narrative backfill done: taskId={}, status={}, costMs={}", taskId, narrative.status(), costMs);
+        } catch (Exception ex) {
+            log.warn("narrative backfill persist failed: taskId={}, reason={}", taskId, ex.getMessage());
+        }
+        progressTracker.recordStageTiming(taskId, "narrativeMs", costMs);
+        progressTracker.updateNarrative(taskId, narrative);
+        progressTracker.publish(
+                taskId,
+                "NARRATIVE_DONE",
+                "ready".equalsIgnoreCase(narrative.status()) ? "Local narrative ready" : "Using fallback narrative",
+                Map.of(
+                        "narrativeStatus", narrative.status(),
+                        "narrativeModel", narrative.model() == null ? "" : narrative.model()
+                )
+        );
+    }
+}
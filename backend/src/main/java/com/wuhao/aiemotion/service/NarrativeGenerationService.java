@@ -34,6 +34,35 @@ public class NarrativeGenerationService {
         this.objectMapper = objectMapper;
     }
 
+    public boolean isAsyncMode() {
+        return properties.isEnabled()
+                && properties.isAsyncEnabled()
+                && "ollama".equalsIgnoreCase(properties.getProvider());
+    }
+
+    public NarrativePayload pending(AnalysisTaskResultResponse.RiskAssessmentPayload riskAssessment) {
+        return fallbackPayload("pending", riskAssessment, null);
+    }
+
+    public NarrativePayload fallbackPayload(String status,
+                                            AnalysisTaskResultResponse.RiskAssessmentPayload riskAssessment,
+                                            String error) {
+        NarrativePayload.AdviceBuckets fallbackBuckets = toFallbackAdviceBuckets(
+                riskAssessment == null ? null : riskAssessment.advice_text()
+        );
+        return new NarrativePayload(
+                status,
+                properties.getProvider(),
+                properties.getOllama().getModel(),
+                null,
+                null,
+                fallbackBuckets,
+                flattenAdvice(fallbackBuckets),
+                cleanText(properties.getSafetyNotice()),
+                error == null ? null : truncate(error)
+        );
+    }
+
     public NarrativePayload generate(long taskId,
                                      SerAnalyzeResponse response,
                                      String transcript,
@@ -0,0 +1,254 @@
+package com.wuhao.aiemotion.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Minimal RIFF/WAVE reader and writer for uncompressed audio: integer PCM (8/16/24/32 bit) and IEEE float
+ * (32/64 bit), including WAVE_FORMAT_EXTENSIBLE headers. Slices are written as plain byte copies of the data
+ * chunk, so they are bit-identical to the source samples.
+ */
+final class PcmWav {
+
+    static final int FORMAT_PCM = 1;
+    static final int FORMAT_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+    private static final int HEADER_BYTES = 44;
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    private PcmWav() {
+    }
+
+    record Format(int encoding, int channels, int sampleRate, int bitsPerSample, long dataOffset, long dataLength) {
+
+        int blockAlign() {
+            return channels * (bitsPerSample / 8);
+        }
+
+        long frames() {
+            return dataLength / blockAlign();
+        }
+
+        long durationMs() {
+            return frames() * 1000L / sampleRate;
+        }
+
+        long frameAt(long ms) {
+            return Math.min(frames(), Math.max(0, ms) * sampleRate / 1000L);
+        }
+    }
+
+    /** Empty when the file is not a WAV this class can read; compressed and malformed files end up here. */
+    static Optional<Format> probe(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return Optional.ofNullable(parse(channel));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Format parse(FileChannel channel) throws IOException {
+        ByteBuffer head = read(channel, 0, 12);
+        if (head == null || !tag(head, 0).equals("RIFF") || !tag(head, 8).equals("WAVE")) {
+            return null;
+        }
+        long size = channel.size();
+        long position = 12;
+        int encoding = -1;
+        int channels = 0;
+        int sampleRate = 0;
+        int bits = 0;
+        while (position + 8 <= size) {
+            ByteBuffer chunk = read(channel, position, 8);
+            String id = tag(chunk, 0);
+            long length = chunk.getInt(4) & 0xFFFFFFFFL;
+            long body = position + 8;
+            if (id.equals("fmt ")) {
+                ByteBuffer fmt = read(channel, body, (int) Math.min(length, 40));
+                if (fmt == null || length < 16) {
+                    return null;
+                }
+                encoding = fmt.getShort(0) & 0xFFFF;
+                channels = fmt.getShort(2) & 0xFFFF;
+                sampleRate = fmt.getInt(4);
+                bits = fmt.getShort(14) & 0xFFFF;
+                if (encoding == FORMAT_EXTENSIBLE && length >= 26) {
+                    // the sub-format GUID starts with the real format code
+                    encoding = fmt.getShort(24) & 0xFFFF;
+                }
+            } else if (id.equals("data")) {
+                if (encoding < 0) {
+                    return null;
+                }
+                // streaming writers leave the size at 0 or 0xFFFFFFFF; trust the file length instead
+                long available = size - body;
+                long dataLength = length == 0 || length > available ? available : length;
+                Format format = new Format(encoding, channels, sampleRate, bits, body, dataLength);
+                return supported(format) ? format : null;
+            }
+            position = body + length + (length & 1);
+        }
+        return null;
+    }
+
+    private static boolean supported(Format format) {
+        if (format.channels() < 1 || format.sampleRate() <= 0 || format.bitsPerSample() % 8 != 0) {
+            return false;
+        }
+        return switch (format.encoding()) {
+            case FORMAT_PCM -> format.bitsPerSample() >= 8 && format.bitsPerSample() <= 32;
+            case FORMAT_FLOAT -> format.bitsPerSample() == 32 || format.bitsPerSample() == 64;
+            default -> false;
+        };
+    }
+
+    /**
+     * Writes the given {@code [startFrame, endFrame)} ranges back to back as a new WAV with the source format.
+     */
+    static void writeFrames(Path source, Format format, List<long[]> frameRanges, Path target) throws IOException {
+        long dataLength = 0;
+        for (long[] range : frameRanges) {
+            dataLength += (range[1] - range[0]) * format.blockAlign();
+        }
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = header(format, dataLength);
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+            for (long[] range : frameRanges) {
+                long offset = format.dataOffset() + range[0] * format.blockAlign();
+                long remaining = (range[1] - range[0]) * format.blockAlign();
+                while (remaining > 0) {
+                    long copied = in.transferTo(offset, remaining, out);
+                    if (copied <= 0) {
+                        throw new IOException("unexpected end of audio data: " + source);
+                    }
+                    offset += copied;
+                    remaining -= copied;
+                }
+            }
+        }
+    }
+
+    /** Frame-by-frame reader that downmixes every frame to one sample in [-1, 1]. */
+    static final class MonoReader implements AutoCloseable {
+
+        private final Format format;
+        private final InputStream in;
+        private final byte[] buffer;
+        private final ByteBuffer view;
+        private final int bytesPerSample;
+        private int length;
+        private int cursor;
+        private long framesLeft;
+
+        MonoReader(Path path, Format format) throws IOException {
+            this.format = format;
+            this.bytesPerSample = format.bitsPerSample() / 8;
+            this.buffer = new byte[Math.max(format.blockAlign(), READ_BUFFER_BYTES / format.blockAlign() * format.blockAlign())];
+            this.view = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            channel.position(format.dataOffset());
+            this.in = Channels.newInputStream(channel);
+            this.framesLeft = format.frames();
+        }
+
+        /** Next downmixed sample, or NaN at the end of the data. */
+        double next() throws IOException {
+            if (framesLeft <= 0) {
+                return Double.NaN;
+            }
+            if (cursor + format.blockAlign() > length && !fill()) {
+                framesLeft = 0;
+                return Double.NaN;
+            }
+            double sum = 0.0;
+            for (int c = 0; c < format.channels(); c++) {
+                sum += sample(cursor + c * bytesPerSample);
+            }
+            cursor += format.blockAlign();
+            framesLeft--;
+            return sum / format.channels();
+        }
+
+        private boolean fill() throws IOException {
+            int kept = length - cursor;
+            System.arraycopy(buffer, cursor, buffer, 0, kept);
+            length = kept;
+            cursor = 0;
+            while (length < format.blockAlign()) {
+                int n = in.read(buffer, length, buffer.length - length);
+                if (n < 0) {
+                    return false;
+                }
+                length += n;
+            }
+            return true;
+        }
+
+        private double sample(int at) {
+            if (format.encoding() == FORMAT_FLOAT) {
+                return bytesPerSample == 4 ? view.getFloat(at) : view.getDouble(at);
+            }
+            return switch (bytesPerSample) {
+                case 1 -> ((buffer[at] & 0xFF) - 128) / 128.0;
+                case 2 -> view.getShort(at) / 32768.0;
+                case 3 -> ((buffer[at] & 0xFF) | (buffer[at + 1] & 0xFF) << 8 | buffer[at + 2] << 16) / 8388608.0;
+                default -> view.getInt(at) / 2147483648.0;
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static ByteBuffer header(Format format, long dataLength) {
+        if (dataLength + HEADER_BYTES - 8 > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("wav data too large: " + dataLength);
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes(StandardCharsets.US_ASCII));
+        header.putInt((int) (dataLength + HEADER_BYTES - 8));
+        header.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        header.put("fmt ".getBytes(StandardCharsets.US_ASCII));
+        header.putInt(16);
+        header.putShort((short) format.encoding());
+        header.putShort((short) format.channels());
+        header.putInt(format.sampleRate());
+        header.putInt(format.sampleRate() * format.blockAlign());
+        header.putShort((short) format.blockAlign());
+        header.putShort((short) format.bitsPerSample());
+        header.put("data".getBytes(StandardCharsets.US_ASCII));
+        header.putInt((int) dataLength);
+        return header.flip();
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return null;
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static String tag(ByteBuffer buffer, int at) {
+        byte[] bytes = new byte[4];
+        buffer.get(at, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,56 @@
+package com.wuhao.aiemotion.service;
+
+import com.wuhao.aiemotion.repository.ReportRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public class ReportAnalyticsBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportAnalyticsBackfillService.class);
+
+    private final ReportRepository reportRepository;
+    private final boolean enabled;
+    private final int batchSize;
+    private volatile long cursorId = 0L;
+    private volatile boolean completed = false;
+
+    public ReportAnalyticsBackfillService(ReportRepository reportRepository,
+                                          @Value("${analytics.report-backfill.enabled:true}") boolean enabled,
+                                          @Value("${analytics.report-backfill.batch-size:500}") int batchSize) {
+        this.reportRepository = reportRepository;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Scheduled(initialDelayString = "${analytics.report-backfill.initial-delay-ms:30000}",
+            fixedDelayString = "${analytics.report-backfill.interval-ms:300000}")
+    public void backfill() {
+        if (!enabled || completed) {
+            return;
+        }
+        long updated = 0;
+        try {
+            while (true) {
+                List<Long> ids = reportRepository.findIdsMissingAnalyticsColumns(cursorId, batchSize);
+                if (ids.isEmpty()) {
+                    completed = true;
+                    break;
+                }
+                long lastId = ids.get(ids.size() - 1);
+                updated += reportRepository.backfillAnalyticsColumns(ids.get(0), lastId);
+                cursorId = lastId;
+            }
+            if (updated > 0) {
+                log.info("report analytics columns backfilled: rows={}, cursorId={}", updated, cursorId);
+            }
+        } catch (Exception e) {
+            log.warn("report analytics backfill paused: cursorId={}, updated={}, reason={}", cursorId, updated, e.getMessage());
+        }
+    }
+}
@@ -15,7 +15,9 @@ import com.wuhao.aiemotion.repository.AnalysisSegmentRepository;
 import com.wuhao.aiemotion.repository.AnalysisTaskRepository;
 import com.wuhao.aiemotion.repository.AuthRepository;
 import com.wuhao.aiemotion.repository.AudioRepository;
+import com.wuhao.aiemotion.repository.PageCursor;
 import com.wuhao.aiemotion.repository.ReportRepository;
+import com.wuhao.aiemotion.repository.UserSequenceRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -28,10 +30,14 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class ResourceManagementService {
@@ -47,10 +53,14 @@ public class ResourceManagementService {
     private final AuthRepository authRepository;
     private final ObjectMapper objectMapper;
     private final WarningEventTriggerService warningEventTriggerService;
+    private final UserSequenceRepository userSequenceRepository;
     private final TaskNoFormatter taskNoFormatter;
     private final ReportNoFormatter reportNoFormatter;
     private final TrendInsightGenerationService trendInsightGenerationService;
     private final PsychologicalRiskScoringService riskScoringService;
+    private final TaskSnapshotCache taskSnapshotCache;
+    private final AnalysisResultCache analysisResultCache;
+    private final AnalysisCheckpointService analysisCheckpointService;
 
     public ResourceManagementService(AnalysisTaskRepository analysisTaskRepository,
                                      AnalysisResultRepository analysisResultRepository,
@@ -63,7 +73,11 @@ public class ResourceManagementService {
                                      TaskNoFormatter taskNoFormatter,
                                      ReportNoFormatter reportNoFormatter,
                                      TrendInsightGenerationService trendInsightGenerationService,
-                                     PsychologicalRiskScoringService riskScoringService) {
+                                     PsychologicalRiskScoringService riskScoringService,
+                                     TaskSnapshotCache taskSnapshotCache,
+                                     UserSequenceRepository userSequenceRepository,
+                                     AnalysisResultCache analysisResultCache,
+                                     AnalysisCheckpointService analysisCheckpointService) {
         this.analysisTaskRepository = analysisTaskRepository;
         this.analysisResultRepository = analysisResultRepository;
         this.analysisSegmentRepository = analysisSegmentRepository;
@@ -76,10 +90,16 @@ public class ResourceManagementService {
         this.reportNoFormatter = reportNoFormatter;
         this.trendInsightGenerationService = trendInsightGenerationService;
         this.riskScoringService = riskScoringService;
+        this.taskSnapshotCache = taskSnapshotCache;
+        this.analysisResultCache = analysisResultCache;
+        this.analysisCheckpointService = analysisCheckpointService;
+        this.userSequenceRepository = userSequenceRepository;
     }
 
     public TaskListResponse tasks(int page,
                                   int pageSize,
+                                  String cursor,
+                                  Boolean withTotal,
                                   String status,
                                   String keyword,
                                   String sortBy,
@@ -88,18 +108,47 @@ public class ResourceManagementService {
                                   long userId) {
         int safePage = Math.max(1, page);
         int safeSize = Math.min(100, Math.max(1, pageSize));
+        String cursorSortKey = AnalysisTaskRepository.taskCursorSortKey(sortBy);
+        boolean ascending = "asc".equalsIgnoreCase(sortOrder);
+        PageCursor after = PageCursor.decode(cursor);
+        if (after != null) {
+            after.requireSort(cursorSortKey, ascending);
+        }
         try {
             int offset = (safePage - 1) * safeSize;
-            long total = adminView
+            Long total = !countTotal(withTotal, after) ? null : adminView
                     ? analysisTaskRepository.countTasks(status, keyword)
                     : analysisTaskRepository.countTasksByUser(userId, status, keyword);
-            List<AnalysisTask> rows = adminView
-                    ? analysisTaskRepository.findTaskPage(offset, safeSize, status, keyword, sortBy, sortOrder)
-                    : analysisTaskRepository.findTaskPageByUser(userId, offset, safeSize, status, keyword, sortBy, sortOrder);
+            List<AnalysisTask> rows;
+            if (after != null) {
+                rows = adminView
+                        ? analysisTaskRepository.findTaskPageAfter(after, safeSize + 1, status, keyword)
+                        : analysisTaskRepository.findTaskPageByUserAfter(userId, after, safeSize + 1, status, keyword);
+            } else {
+                rows = adminView
+                        ? analysisTaskRepository.findTaskPage(offset, safeSize + 1, status, keyword, sortBy, sortOrder)
+                        : analysisTaskRepository.findTaskPageByUser(userId, offset, safeSize + 1, status, keyword, sortBy, sortOrder);
+            }
+            boolean hasMore = rows.size() > safeSize;
+            rows = hasMore ? rows.subList(0, safeSize) : rows;
+            AnalysisTask last = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+            String nextCursor = !hasMore || cursorSortKey == null ? null : encodeCursor(PageCursor.after(
+                    cursorSortKey,
+                    ascending,
+                    "updatedAt".equals(cursorSortKey) ? last.updatedAt() : last.createdAt(),
+                    last.id()
+            ));
+            List<Long> taskIds = rows.stream().map(AnalysisTask::id).toList();
+            Map<Long, AudioFile> audios = audioRepository.findByIds(rows.stream()
+                    .map(AnalysisTask::audioFileId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet()));
+            Map<Long, Long> resultIds = analysisResultRepository.findIdsByTaskIds(taskIds);
+            Map<Long, Long> registerNos = resolveUserRegisterNos(audios.values());
             List<TaskListResponse.TaskDTO> items = rows.stream()
                     .map(it -> new TaskListResponse.TaskDTO(
                             it.id(),
-                            buildTaskNo(it),
+                            buildTaskNo(ownerUserId(audios, it.audioFileId()), it, registerNos),
                             it.audioFileId(),
                             it.status(),
                             it.attemptCount(),
@@ -112,18 +161,20 @@ public class ResourceManagementService {
                             format(it.finishedAt()),
                             it.durationMs(),
                             it.serLatencyMs(),
-                            analysisResultRepository.findByTaskId(it.id()).map(r -> r.id()).orElse(null)
+                            resultIds.get(it.id())
                     ))
                     .toList();
-            return new TaskListResponse(total, safePage, safeSize, safeSize, items);
+            return new TaskListResponse(total, safePage, safeSize, safeSize, items, nextCursor);
         } catch (Exception e) {
             log.warn("task list query failed, fallback to empty list", e);
-            return new TaskListResponse(0, safePage, safeSize, safeSize, List.of());
+            return new TaskListResponse(0L, safePage, safeSize, safeSize, List.of(), null);
         }
     }
 
     public ReportListResponse reports(int page,
                                       int pageSize,
+                                      String cursor,
+                                      Boolean withTotal,
                                       String riskLevel,
                                       String emotion,
                                       String keyword,
@@ -133,21 +184,40 @@ public class ResourceManagementService {
                                       long userId) {
         int safePage = Math.max(1, page);
         int safeSize = Math.min(100, Math.max(1, pageSize));
+        String cursorSortKey = ReportRepository.reportCursorSortKey(sortBy);
+        boolean ascending = "asc".equalsIgnoreCase(sortOrder);
+        PageCursor after = PageCursor.decode(cursor);
+        if (after != null) {
+            after.requireSort(cursorSortKey, ascending);
+        }
         try {
             int offset = (safePage - 1) * safeSize;
-            long total = adminView
+            Long total = !countTotal(withTotal, after) ? null : adminView
                     ? reportRepository.count(riskLevel, emotion, keyword)
                     : reportRepository.countByUser(userId, riskLevel, emotion, keyword);
-            List<ReportResource> rows = adminView
-                    ? reportRepository.page(riskLevel, emotion, keyword, offset, safeSize, sortBy, sortOrder)
-                    : reportRepository.pageByUser(userId, riskLevel, emotion, keyword, offset, safeSize, sortBy, sortOrder);
+            List<ReportResource> rows;
+            if (after != null) {
+                rows = adminView
+                        ? reportRepository.pageAfter(riskLevel, emotion, keyword, after, safeSize + 1)
+                        : reportRepository.pageByUserAfter(userId, riskLevel, emotion, keyword, after, safeSize + 1);
+            } else {
+                rows = adminView
+                        ? reportRepository.page(riskLevel, emotion, keyword, offset, safeSize + 1, sortBy, sortOrder)
+                        : reportRepository.pageByUser(userId, riskLevel, emotion, keyword, offset, safeSize + 1, sortBy, sortOrder);
+            }
+            boolean hasMore = rows.size() > safeSize;
+            rows = hasMore ? rows.subList(0, safeSize) : rows;
+            ReportResource last = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+            String nextCursor = !hasMore || cursorSortKey == null ? null
+                    : encodeCursor(PageCursor.after(cursorSortKey, ascending, last.createdAt(), last.id()));
+            ReportPageContext context = loadReportPageContext(rows);
             List<ReportListResponse.ReportDTO> items = rows.stream()
-                    .map(report -> toReportDTO(report, resolveReportOwnerUserId(report)))
+                    .map(report -> toReportDTO(report, context))
                     .toList();
-            return new ReportListResponse(total, safePage, safeSize, safeSize, items);
+            return new ReportListResponse(total, safePage, safeSize, safeSize, items, nextCursor);
         } catch (Exception e) {
             log.warn("report list query failed, fallback to empty list", e);
-            return new ReportListResponse(0, safePage, safeSize, safeSize, List.of());
+            return new ReportListResponse(0L, safePage, safeSize, safeSize, List.of(), null);
         }
     }
 
@@ -156,7 +226,7 @@ public class ResourceManagementService {
                 ? reportRepository.findById(reportId)
                 : reportRepository.findByIdForUser(reportId, userId))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "report not found: " + reportId));
-        return toReportDTO(report, resolveReportOwnerUserId(report));
+        return toReportDTO(report, loadReportPageContext(List.of(report)));
     }
 
     public Map<String, Object> reportTrend(long userId, int days) {
@@ -206,12 +276,23 @@ public class ResourceManagementService {
         }
     }
 
-    public AudioListResponse audios(int page, int size, String q) {
+    public AudioListResponse audios(int page, int size, String cursor, Boolean withTotal, String q) {
         int safePage = Math.max(1, page);
         int safeSize = Math.min(100, Math.max(1, size));
+        PageCursor after = PageCursor.decode(cursor);
+        if (after != null) {
+            after.requireSort("createdAt", false);
+        }
         int offset = (safePage - 1) * safeSize;
-        long total = audioRepository.countManaged(q);
-        List<AudioListResponse.Item> items = audioRepository.findManagedPage(offset, safeSize, q).stream()
+        Long total = countTotal(withTotal, after) ? audioRepository.countManaged(q) : null;
+        List<AudioFile> rows = after == null
+                ? audioRepository.findManagedPage(offset, safeSize + 1, q)
+                : audioRepository.findManagedPageAfter(q, after, safeSize + 1);
+        boolean hasMore = rows.size() > safeSize;
+        rows = hasMore ? rows.subList(0, safeSize) : rows;
+        AudioFile last = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+        String nextCursor = hasMore ? encodeCursor(PageCursor.after("createdAt", false, last.createdAt(), last.id())) : null;
+        List<AudioListResponse.Item> items = rows.stream()
                 .map(a -> new AudioListResponse.Item(
                         a.id(),
                         a.userId(),
@@ -224,7 +305,7 @@ public class ResourceManagementService {
                         format(a.createdAt())
                 ))
                 .toList();
-        return new AudioListResponse(total, safePage, safeSize, items);
+        return new AudioListResponse(total, safePage, safeSize, items, nextCursor);
     }
 
     @Transactional
@@ -233,7 +314,19 @@ public class ResourceManagementService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "audio not found: " + audioId));
         audioRepository.softDelete(audioId);
         analysisTaskRepository.markDeletedByAudioId(audioId);
+        analysisCheckpointService.clearTerminal();
+        taskSnapshotCache.invalidateByAudioId(audioId);
         reportRepository.softDeleteByAudioId(audioId);
+        if (audio.storagePath() != null && audio.sha256() != null) {
+            // blobs are content addressed: only the last live row referencing one may remove it
+            AudioRepository.BlobReferences refs = audioRepository.lockBlobReferences(audio.sha256(), audio.storagePath());
+            if (refs.liveRows() == 0) {
+                analysisResultCache.evict(audio.sha256());
+            }
+            if (refs.pathRows() > 0) {
+                return;
+            }
+        }
         if (audio.storagePath() != null) {
             try {
                 Files.deleteIfExists(Path.of(audio.storagePath()));
@@ -257,6 +350,7 @@ public class ResourceManagementService {
 
     public void upsertReportResource(long taskId, long audioId, String rawJson, String defaultEmotion, Double confidence) {
         String riskLevel = "LOW";
+        double riskScore = 0D;
         String overall = defaultEmotion;
         try {
             JsonNode node = objectMapper.readTree(rawJson);
@@ -264,20 +358,44 @@ public class ResourceManagementService {
             if (riskNode.isTextual()) {
                 riskLevel = riskNode.asText();
             }
+            riskScore = ReportRepository.normalizeRiskScore(
+                    node.at("/riskAssessment/risk_score").asDouble(0D),
+                    node.at("/analysis_result/risk_assessment/risk_score").asDouble(0D)
+            );
             DisplayEmotion displayEmotion = resolveDisplayEmotion(node, defaultEmotion, confidence);
             if (hasText(displayEmotion.emotionCode())) {
                 overall = displayEmotion.emotionCode();
             }
         } catch (Exception ignored) {
         }
-        reportRepository.upsert(taskId, audioId, rawJson, riskLevel, overall);
+        reportRepository.upsert(taskId, audioId, rawJson, riskLevel, riskScore, overall);
+        reportRepository.findOwnerOfUnnumberedReport(taskId).ifPresent(ownerUserId -> reportRepository.assignUserReportSeq(
+                taskId,
+                userSequenceRepository.next(ownerUserId, UserSequenceRepository.REPORT)
+        ));
         warningEventTriggerService.tryCreateWarningEvent(taskId, audioId, rawJson, overall, riskLevel);
     }
 
-    private ReportListResponse.ReportDTO toReportDTO(ReportResource report, Long ownerUserId) {
-        var audio = audioRepository.findById(report.audioId())
-                .map(a -> new ReportListResponse.AudioMetaDTO(a.id(), a.originalName(), a.storedName(), a.contentType(), a.sizeBytes(), a.durationMs()))
-                .orElse(null);
+    private ReportPageContext loadReportPageContext(List<ReportResource> reports) {
+        Set<Long> taskIds = reports.stream().map(ReportResource::taskId).collect(Collectors.toSet());
+        Map<Long, AudioFile> audios = audioRepository.findByIds(reports.stream()
+                .map(ReportResource::audioId)
+                .collect(Collectors.toSet()));
+        return new ReportPageContext(
+                audios,
+                analysisTaskRepository.findByIds(taskIds),
+                analysisSegmentRepository.findByTaskIdsOrderByStartMs(taskIds),
+                resolveUserRegisterNos(audios.values())
+        );
+    }
+
+    private ReportListResponse.ReportDTO toReportDTO(ReportResource report, ReportPageContext context) {
+        AudioFile audioFile = context.audios().get(report.audioId());
+        Long ownerUserId = audioFile == null ? null : audioFile.userId();
+        var audio = audioFile == null
+                ? null
+                : new ReportListResponse.AudioMetaDTO(audioFile.id(), audioFile.originalName(), audioFile.storedName(),
+                audioFile.contentType(), audioFile.sizeBytes(), audioFile.durationMs());
         String overall = report.overallEmotion();
         Double confidence = null;
         ReportListResponse.RiskDTO risk = new ReportListResponse.RiskDTO(0D, report.riskLevel());
@@ -291,7 +409,7 @@ public class ResourceManagementService {
             if (displayEmotion.confidence() != null) {
                 confidence = displayEmotion.confidence();
             }
-            risk = recomputeRisk(root, report.taskId(), risk, report.riskLevel());
+            risk = recomputeRisk(root, report.taskId(), context.segments().getOrDefault(report.taskId(), List.of()), risk, report.riskLevel());
             JsonNode arr = root.at("/ser/segments");
             if (arr.isArray()) {
                 segments = new java.util.ArrayList<>();
@@ -309,9 +427,9 @@ public class ResourceManagementService {
 
         return new ReportListResponse.ReportDTO(
                 report.id(),
-                buildReportNo(ownerUserId, report),
+                buildReportNo(ownerUserId, report, context.registerNos()),
                 report.taskId(),
-                buildTaskNo(ownerUserId, report.taskId()),
+                buildTaskNo(ownerUserId, report.taskId(), context.tasks().get(report.taskId()), context.registerNos()),
                 overall,
                 segments,
                 risk,
@@ -323,10 +441,10 @@ public class ResourceManagementService {
 
     private ReportListResponse.RiskDTO recomputeRisk(JsonNode root,
                                                      long taskId,
+                                                     List<AnalysisSegment> segments,
                                                      ReportListResponse.RiskDTO fallback,
                                                      String fallbackRiskLevel) {
         try {
-            List<AnalysisSegment> segments = analysisSegmentRepository.findByTaskIdOrderByStartMs(taskId);
             double textNeg = firstNumber(
                     numericValue(root.at("/textNegFusion/fusedTextNeg")),
                     numericValue(root.at("/textSentiment/negativeScore")),
@@ -484,56 +602,58 @@ public class ResourceManagementService {
         return Math.round(number * 100D) / 100D;
     }
 
-    private String format(LocalDateTime value) {
-        return value == null ? null : value.format(FMT);
+    private boolean countTotal(Boolean withTotal, PageCursor after) {
+        return withTotal != null ? withTotal : after == null;
     }
 
-    private Long resolveTaskOwnerUserId(AnalysisTask task) {
-        if (task.audioFileId() == null) return null;
-        return audioRepository.findUserIdByAudioId(task.audioFileId()).orElse(null);
+    private String encodeCursor(PageCursor cursor) {
+        return cursor == null ? null : cursor.encode();
     }
 
-    private Long resolveReportOwnerUserId(ReportResource report) {
-        return audioRepository.findUserIdByAudioId(report.audioId()).orElse(null);
+    private String format(LocalDateTime value) {
+        return value == null ? null : value.format(FMT);
     }
 
-    private String buildTaskNo(AnalysisTask task) {
-        Long ownerUserId = resolveTaskOwnerUserId(task);
-        long serial = resolveUserTaskSequence(ownerUserId, task.createdAt(), task.id());
-        return taskNoFormatter.format(resolveUserRegisterNo(ownerUserId), task.createdAt(), serial);
+    private Long ownerUserId(Map<Long, AudioFile> audios, Long audioId) {
+        AudioFile audio = audioId == null ? null : audios.get(audioId);
+        return audio == null ? null : audio.userId();
     }
 
-    private String buildTaskNo(Long ownerUserId, long taskId) {
-        AnalysisTask task = analysisTaskRepository.findById(taskId).orElse(null);
-        LocalDateTime createdAt = task == null ? null : task.createdAt();
-        long serial = resolveUserTaskSequence(ownerUserId, createdAt, taskId);
-        return taskNoFormatter.format(resolveUserRegisterNo(ownerUserId), createdAt, serial);
+    private String buildTaskNo(Long ownerUserId, AnalysisTask task, Map<Long, Long> registerNos) {
+        return buildTaskNo(ownerUserId, task.id(), task, registerNos);
     }
 
-    private String buildReportNo(Long ownerUserId, ReportResource report) {
-        long serial = resolveUserReportSequence(ownerUserId, report.createdAt(), report.id());
-        return reportNoFormatter.format(resolveUserRegisterNo(ownerUserId), report.createdAt(), serial);
+    private String buildTaskNo(Long ownerUserId, long taskId, AnalysisTask task, Map<Long, Long> registerNos) {
+        Long stored = task == null ? null : task.userTaskSeq();
+        long serial = ownerUserId == null || stored == null ? taskId : stored;
+        return taskNoFormatter.format(userRegisterNo(ownerUserId, registerNos), task == null ? null : task.createdAt(), serial);
     }
 
-    private long resolveUserTaskSequence(Long ownerUserId, LocalDateTime createdAt, long fallbackTaskId) {
-        if (ownerUserId == null) {
-            return fallbackTaskId;
-        }
-        return analysisTaskRepository.countTasksByUserUntil(ownerUserId, fallbackTaskId);
+    private String buildReportNo(Long ownerUserId, ReportResource report, Map<Long, Long> registerNos) {
+        long serial = ownerUserId == null || report.userReportSeq() == null ? report.id() : report.userReportSeq();
+        return reportNoFormatter.format(userRegisterNo(ownerUserId, registerNos), report.createdAt(), serial);
     }
 
-    private long resolveUserReportSequence(Long ownerUserId, LocalDateTime createdAt, long fallbackReportId) {
-        if (ownerUserId == null) {
-            return fallbackReportId;
-        }
-        return reportRepository.countReportsByUserUntil(ownerUserId, fallbackReportId);
+    private Map<Long, Long> resolveUserRegisterNos(Collection<AudioFile> audios) {
+        return authRepository.findRegisterNos(audios.stream()
+                .map(AudioFile::userId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
     }
 
-    private long resolveUserRegisterNo(Long ownerUserId) {
+    private long userRegisterNo(Long ownerUserId, Map<Long, Long> registerNos) {
         if (ownerUserId == null) {
             return 0L;
         }
-        long serial = authRepository.countUserRegisterSequence(ownerUserId);
+        long serial = registerNos.getOrDefault(ownerUserId, 0L);
         return serial > 0 ? serial : ownerUserId;
     }
+
+    private record ReportPageContext(
+            Map<Long, AudioFile> audios,
+            Map<Long, AnalysisTask> tasks,
+            Map<Long, List<AnalysisSegment>> segments,
+            Map<Long, Long> registerNos
+    ) {
+    }
 }
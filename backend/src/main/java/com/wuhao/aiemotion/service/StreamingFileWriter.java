@@ -0,0 +1,182 @@
+package com.wuhao.aiemotion.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Single-pass file writes: every byte is read once, hashed from the same buffer and written once.
+ * Output goes to a sibling temp file that is moved into place, so readers never see a partial file.
+ */
+final class StreamingFileWriter {
+
+    static final int BUFFER_SIZE = 1024 * 1024;
+
+    private StreamingFileWriter() {
+    }
+
+    record Written(long sizeBytes, String sha256) {
+    }
+
+    static Written write(InputStream source, Path target) throws IOException {
+        Path temp = tempSibling(target);
+        MessageDigest digest = newDigest();
+        long size = 0L;
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (ReadableByteChannel in = Channels.newChannel(source);
+             FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                if (!buffer.hasRemaining()) {
+                    buffer.clear();
+                    continue;
+                }
+                size += buffer.remaining();
+                digest.update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        moveIntoPlace(temp, target);
+        return new Written(size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Concatenates {@code parts} into {@code target}. The target is sized up front and each part is written
+     * at its absolute offset, so the merge is one sequential read and one positional write per byte.
+     */
+    static Written merge(List<Path> parts, Path target) throws IOException {
+        long total = 0L;
+        for (Path part : parts) {
+            total += Files.size(part);
+        }
+        Path temp = tempSibling(target);
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long position = 0L;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            if (total > 0) {
+                // extend once so the file system can allocate contiguously instead of growing per write
+                out.write(ByteBuffer.wrap(new byte[1]), total - 1);
+            }
+            for (Path part : parts) {
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    while (in.read(buffer) >= 0) {
+                        buffer.flip();
+                        if (!buffer.hasRemaining()) {
+                            buffer.clear();
+                            continue;
+                        }
+                        digest.update(buffer.duplicate());
+                        while (buffer.hasRemaining()) {
+                            position += out.write(buffer, position);
+                        }
+                        buffer.clear();
+                    }
+                }
+            }
+            if (position != total) {
+                throw new IOException("chunk size changed during merge: expected=" + total + ", written=" + position);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        moveIntoPlace(temp, target);
+        return new Written(total, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Creates {@code target} at its final size so chunks arriving in any order can be written at their offsets.
+     */
+    static void preallocate(Path target, long size) throws IOException {
+        Files.createDirectories(target.getParent());
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (size > 0 && out.size() < size) {
+                out.write(ByteBuffer.wrap(new byte[1]), size - 1);
+            }
+        }
+    }
+
+    /**
+     * Writes exactly {@code length} bytes from {@code source} at {@code offset} of an existing file.
+     * Concurrent callers may write disjoint ranges of the same file; a retried chunk overwrites its own range.
+     */
+    static void writeAt(InputStream source, Path target, long offset, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(1L, length)));
+        long written = 0L;
+        try (ReadableByteChannel in = Channels.newChannel(source);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                if (written + buffer.remaining() > length) {
+                    throw new IOException("chunk longer than declared: expected=" + length);
+                }
+                while (buffer.hasRemaining()) {
+                    written += out.write(buffer, offset + written);
+                }
+                buffer.clear();
+            }
+        }
+        if (written != length) {
+            throw new IOException("chunk shorter than declared: expected=" + length + ", written=" + written);
+        }
+    }
+
+    /** Sequential read-only pass for files that were assembled in place. */
+    static Written hash(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long size = 0L;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                size += buffer.remaining();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return new Written(size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private static Path tempSibling(Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        return target.resolveSibling(target.getFileName() + ".part-" + Long.toHexString(System.nanoTime()));
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
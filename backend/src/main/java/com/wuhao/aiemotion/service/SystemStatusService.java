@@ -1,8 +1,10 @@
 package com.wuhao.aiemotion.service;
 
+import com.wuhao.aiemotion.integration.http.UpstreamHttpClients;
 import com.wuhao.aiemotion.integration.ser.SerClient;
 import com.wuhao.aiemotion.integration.ser.SerProperties;
 import com.wuhao.aiemotion.repository.AnalysisTaskRepository;
+import com.wuhao.aiemotion.repository.SchemaCapabilityRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -23,6 +25,13 @@ public class SystemStatusService {
     private final AnalysisTaskRepository analysisTaskRepository;
     private final AnalysisTextScoringProperties textScoringProperties;
     private final AnalysisNarrativeProperties narrativeProperties;
+    private final AnalysisTaskWorker analysisTaskWorker;
+    private final NarrativeBackfillService narrativeBackfillService;
+    private final UpstreamHttpClients upstreamHttpClients;
+    private final TaskSnapshotCache taskSnapshotCache;
+    private final AuthSessionCache authSessionCache;
+    private final AnalysisResultCache analysisResultCache;
+    private final SchemaCapabilityRegistry schemaCapabilityRegistry;
     private final Environment environment;
     private final String aiMode;
     private final String runtimeRegistryEnv;
@@ -33,6 +42,13 @@ public class SystemStatusService {
                                AnalysisTaskRepository analysisTaskRepository,
                                AnalysisTextScoringProperties textScoringProperties,
                                AnalysisNarrativeProperties narrativeProperties,
+                               AnalysisTaskWorker analysisTaskWorker,
+                               NarrativeBackfillService narrativeBackfillService,
+                               UpstreamHttpClients upstreamHttpClients,
+                               TaskSnapshotCache taskSnapshotCache,
+                               AuthSessionCache authSessionCache,
+                               AnalysisResultCache analysisResultCache,
+                               SchemaCapabilityRegistry schemaCapabilityRegistry,
                                Environment environment,
                                @Value("${ai.mode:mock}") String aiMode,
                                @Value("${MODEL_RUNTIME_ENV:prod}") String runtimeRegistryEnv) {
@@ -42,11 +58,22 @@ public class SystemStatusService {
         this.analysisTaskRepository = analysisTaskRepository;
         this.textScoringProperties = textScoringProperties;
         this.narrativeProperties = narrativeProperties;
+        this.analysisTaskWorker = analysisTaskWorker;
+        this.narrativeBackfillService = narrativeBackfillService;
+        this.upstreamHttpClients = upstreamHttpClients;
+        this.taskSnapshotCache = taskSnapshotCache;
+        this.authSessionCache = authSessionCache;
+        this.analysisResultCache = analysisResultCache;
+        this.schemaCapabilityRegistry = schemaCapabilityRegistry;
         this.environment = environment;
         this.aiMode = aiMode;
         this.runtimeRegistryEnv = runtimeRegistryEnv;
     }
 
+    public Map<String, Object> refreshSchemaCapabilities() {
+        return schemaCapabilityRegistry.refresh();
+    }
+
     public Map<String, Object> status() {
         Map<String, Object> serHealthDetails = serClient.fetchHealthDetails();
         Map<String, Object> payload = new HashMap<>();
@@ -55,6 +82,13 @@ public class SystemStatusService {
         payload.put("ser", probeSer());
         payload.put("metrics", collectMetrics());
         payload.put("runtime", collectRuntime(serHealthDetails));
+        payload.put("worker", analysisTaskWorker.snapshot());
+        payload.put("narrativeQueue", narrativeBackfillService.snapshot());
+        payload.put("httpPools", upstreamHttpClients.metrics());
+        payload.put("snapshotCache", taskSnapshotCache.metrics());
+        payload.put("authSessionCache", authSessionCache.metrics());
+        payload.put("analysisResultCache", analysisResultCache.metrics());
+        payload.put("schemaCapabilities", schemaCapabilityRegistry.snapshot());
         payload.put("config", Map.of(
                 "serBaseUrl", serProperties.getBaseUrl(),
                 "requestTimeoutMs", serProperties.getReadTimeoutMs(),
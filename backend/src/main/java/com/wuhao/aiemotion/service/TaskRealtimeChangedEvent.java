@@ -0,0 +1,4 @@
+package com.wuhao.aiemotion.service;
+
+public record TaskRealtimeChangedEvent(long taskId, String phase) {
+}
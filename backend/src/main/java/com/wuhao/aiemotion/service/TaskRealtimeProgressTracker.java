@@ -1,19 +1,30 @@
 package com.wuhao.aiemotion.service;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class TaskRealtimeProgressTracker {
 
+    private static final long NARRATIVE_RETAIN_MS = 10 * 60 * 1000L;
+
     private final ConcurrentHashMap<Long, ProgressState> stateMap = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<Long, AtomicLong> sequenceMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Map<String, Long>> stageTimingMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, NarrativeState> narrativeMap = new ConcurrentHashMap<>();
+    private final ApplicationEventPublisher eventPublisher;
+
+    public TaskRealtimeProgressTracker(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
 
     public void publish(long taskId, String phase, String message) {
         publish(taskId, phase, message, Map.of());
@@ -26,14 +37,61 @@ public class TaskRealtimeProgressTracker {
                 message,
                 sequence,
                 System.currentTimeMillis(),
-                sanitize(details)
+                sanitize(withStageTimings(taskId, details))
         ));
+        eventPublisher.publishEvent(new TaskRealtimeChangedEvent(taskId, phase));
+    }
+
+    public void recordStageTiming(long taskId, String stage, long costMs) {
+        if (stage == null || stage.isBlank() || costMs < 0) {
+            return;
+        }
+        stageTimingMap.computeIfAbsent(taskId, key -> new ConcurrentHashMap<>()).put(stage, costMs);
+    }
+
+    public void resetStageTimings(long taskId) {
+        stageTimingMap.remove(taskId);
+    }
+
+    public Map<String, Long> stageTimings(long taskId) {
+        Map<String, Long> timings = stageTimingMap.get(taskId);
+        return timings == null ? Map.of() : Map.copyOf(timings);
     }
 
     public Optional<ProgressState> current(long taskId) {
         return Optional.ofNullable(stateMap.get(taskId));
     }
 
+    public void updateNarrative(long taskId, NarrativePayload narrative) {
+        long now = System.currentTimeMillis();
+        narrativeMap.entrySet().removeIf(entry -> !"pending".equals(entry.getValue().payload().status())
+                && now - entry.getValue().updatedAtMs() > NARRATIVE_RETAIN_MS);
+        if (narrative == null) {
+            narrativeMap.remove(taskId);
+        } else {
+            narrativeMap.put(taskId, new NarrativeState(narrative, now));
+        }
+        eventPublisher.publishEvent(new TaskRealtimeChangedEvent(taskId, "NARRATIVE"));
+    }
+
+    public Optional<NarrativePayload> narrative(long taskId) {
+        NarrativeState state = narrativeMap.get(taskId);
+        return state == null ? Optional.empty() : Optional.of(state.payload());
+    }
+
+    private Map<String, Object> withStageTimings(long taskId, Map<String, Object> details) {
+        Map<String, Long> timings = stageTimingMap.get(taskId);
+        if (timings == null || timings.isEmpty()) {
+            return details;
+        }
+        LinkedHashMap<String, Object> merged = new LinkedHashMap<>();
+        if (details != null) {
+            merged.putAll(details);
+        }
+        merged.put("stageTimings", new TreeMap<>(timings));
+        return merged;
+    }
+
     private Map<String, Object> sanitize(Map<String, Object> details) {
         if (details == null || details.isEmpty()) {
             return Map.of();
@@ -47,6 +105,9 @@ public class TaskRealtimeProgressTracker {
         return values.isEmpty() ? Map.of() : Collections.unmodifiableMap(values);
     }
 
+    private record NarrativeState(NarrativePayload payload, long updatedAtMs) {
+    }
+
     public record ProgressState(
             String phase,
             String message,
@@ -20,11 +20,14 @@ public class TaskRealtimeSnapshotService {
 
     private final AnalysisTaskService analysisTaskService;
     private final TaskRealtimeProgressTracker progressTracker;
+    private final TaskSnapshotCache snapshotCache;
 
     public TaskRealtimeSnapshotService(AnalysisTaskService analysisTaskService,
-                                       TaskRealtimeProgressTracker progressTracker) {
+                                       TaskRealtimeProgressTracker progressTracker,
+                                       TaskSnapshotCache snapshotCache) {
         this.analysisTaskService = analysisTaskService;
         this.progressTracker = progressTracker;
+        this.snapshotCache = snapshotCache;
     }
 
     public TaskRealtimeSnapshotResponse buildSnapshot(long taskId, AuthService.UserProfile user) {
@@ -56,7 +59,16 @@ public class TaskRealtimeSnapshotService {
                 riskSummary,
                 task.overall() == null ? null : task.overall().decision(),
                 progressSummary,
-                curve
+                curve,
+                progressTracker.narrative(taskId)
+                        .map(it -> new TaskRealtimeSnapshotResponse.NarrativeSummary(
+                                it.status(),
+                                it.summary(),
+                                it.explanation(),
+                                it.personalizedAdvice(),
+                                it.safetyNotice()
+                        ))
+                        .orElse(null)
         );
     }
 
@@ -66,6 +78,10 @@ public class TaskRealtimeSnapshotService {
         if (!"SUCCESS".equals(status)) {
             return List.of();
         }
+        List<TaskRealtimeSnapshotResponse.RiskCurvePoint> cached = snapshotCache.findCurve(taskId).orElse(null);
+        if (cached != null) {
+            return cached;
+        }
         try {
             AnalysisSegmentsResponse segments = analysisTaskService.getTaskSegments(taskId, 0L, null, CURVE_LIMIT, 0, user);
             List<AnalysisTaskResultResponse.AnalysisSegmentPayload> rows = segments.items();
@@ -76,6 +92,7 @@ public class TaskRealtimeSnapshotService {
             for (int index = 0; index < rows.size(); index++) {
                 points.add(toCurvePoint(rows.get(index), index));
             }
+            snapshotCache.attachCurve(taskId, points);
             return points;
         } catch (ResponseStatusException ex) {
             if (ex.getStatusCode().value() == HttpStatus.NOT_FOUND.value()) {
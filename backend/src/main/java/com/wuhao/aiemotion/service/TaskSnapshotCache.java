@@ -0,0 +1,177 @@
+package com.wuhao.aiemotion.service;
+
+import com.wuhao.aiemotion.dto.response.AnalysisTaskStatusResponse;
+import com.wuhao.aiemotion.dto.response.TaskRealtimeSnapshotResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-node cache of task status responses. Entries are keyed by {@code updated_at#progressSequence}; terminal
+ * entries may additionally be served without reading the task row, but only for {@code terminal-ttl-ms} since
+ * another node can retry or delete the task without this node hearing about it.
+ */
+@Component
+public class TaskSnapshotCache {
+
+    private static final Set<String> TERMINAL_STATUSES = Set.of("SUCCESS", "FAILED", "CANCELED");
+
+    private final TaskRealtimeProgressTracker progressTracker;
+    private final int maxEntries;
+    private final long terminalTtlMs;
+    private final LinkedHashMap<Long, Entry> entries;
+    private final LongAdder terminalHits = new LongAdder();
+    private final LongAdder versionHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public TaskSnapshotCache(TaskRealtimeProgressTracker progressTracker,
+                             @Value("${analysis.snapshot-cache.max-entries:2000}") int maxEntries,
+                             @Value("${analysis.snapshot-cache.terminal-ttl-ms:5000}") long terminalTtlMs) {
+        this.progressTracker = progressTracker;
+        this.maxEntries = Math.max(16, maxEntries);
+        this.terminalTtlMs = Math.max(0L, terminalTtlMs);
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > TaskSnapshotCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Terminal entry cached less than {@code terminal-ttl-ms} ago. Older entries stay cached and are
+     * revalidated through {@link #find(long, String)} against the task row's updated_at.
+     */
+    public Optional<Entry> findTerminal(long taskId) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(taskId);
+        }
+        if (entry != null && entry.terminal() && entry.cachedAt().plusMillis(terminalTtlMs).isAfter(Instant.now())) {
+            terminalHits.increment();
+            return Optional.of(entry);
+        }
+        return Optional.empty();
+    }
+
+    /** A version hit on a terminal entry also restarts its {@link #findTerminal(long)} window. */
+    public Optional<Entry> find(long taskId, String version) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(taskId);
+            if (entry != null && entry.terminal() && entry.version().equals(version)) {
+                entry = entry.revalidated();
+                entries.put(taskId, entry);
+            }
+        }
+        if (entry != null && entry.version().equals(version)) {
+            versionHits.increment();
+            return Optional.of(entry);
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public String version(long taskId, LocalDateTime updatedAt) {
+        long sequence = progressTracker.current(taskId)
+                .map(TaskRealtimeProgressTracker.ProgressState::sequence)
+                .orElse(0L);
+        return String.valueOf(updatedAt) + "#" + sequence;
+    }
+
+    public void put(long taskId,
+                    String version,
+                    Long ownerUserId,
+                    Long audioFileId,
+                    AnalysisTaskStatusResponse status) {
+        Entry entry = new Entry(version, ownerUserId, audioFileId, TERMINAL_STATUSES.contains(status.status()), status, null,
+                Instant.now());
+        synchronized (entries) {
+            entries.put(taskId, entry);
+        }
+    }
+
+    /**
+     * Risk curve attached to the task's terminal entry. Callers read the status through
+     * {@code AnalysisTaskService.getTask} first, which replaces a stale entry, so no TTL applies here.
+     */
+    public Optional<List<TaskRealtimeSnapshotResponse.RiskCurvePoint>> findCurve(long taskId) {
+        synchronized (entries) {
+            Entry entry = entries.get(taskId);
+            return entry != null && entry.terminal() ? Optional.ofNullable(entry.curve()) : Optional.empty();
+        }
+    }
+
+    public void attachCurve(long taskId, List<TaskRealtimeSnapshotResponse.RiskCurvePoint> curve) {
+        synchronized (entries) {
+            Entry entry = entries.get(taskId);
+            if (entry != null && entry.terminal()) {
+                entries.put(taskId, entry.withCurve(List.copyOf(curve)));
+            }
+        }
+    }
+
+    public void invalidate(long taskId) {
+        synchronized (entries) {
+            if (entries.remove(taskId) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    public void invalidateByAudioId(long audioId) {
+        synchronized (entries) {
+            int before = entries.size();
+            entries.values().removeIf(entry -> entry.audioFileId() != null && entry.audioFileId() == audioId);
+            invalidations.add(before - entries.size());
+        }
+    }
+
+    public Map<String, Object> metrics() {
+        long terminal = terminalHits.sum();
+        long versioned = versionHits.sum();
+        long missed = misses.sum();
+        long lookups = terminal + versioned + missed;
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("size", size);
+        payload.put("maxEntries", maxEntries);
+        payload.put("terminalTtlMs", terminalTtlMs);
+        payload.put("terminalHits", terminal);
+        payload.put("versionHits", versioned);
+        payload.put("misses", missed);
+        payload.put("invalidations", invalidations.sum());
+        payload.put("hitRate", lookups == 0 ? 0.0D : Math.round((terminal + versioned) * 10000.0D / lookups) / 10000.0D);
+        return payload;
+    }
+
+    public record Entry(
+            String version,
+            Long ownerUserId,
+            Long audioFileId,
+            boolean terminal,
+            AnalysisTaskStatusResponse status,
+            List<TaskRealtimeSnapshotResponse.RiskCurvePoint> curve,
+            Instant cachedAt
+    ) {
+        private Entry withCurve(List<TaskRealtimeSnapshotResponse.RiskCurvePoint> curve) {
+            return new Entry(version, ownerUserId, audioFileId, terminal, status, curve, cachedAt);
+        }
+
+        private Entry revalidated() {
+            return new Entry(version, ownerUserId, audioFileId, terminal, status, curve, Instant.now());
+        }
+    }
+}
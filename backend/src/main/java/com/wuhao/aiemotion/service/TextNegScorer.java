@@ -12,13 +12,11 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 @Component
 public class TextNegScorer {
@@ -35,8 +33,6 @@ public class TextNegScorer {
     private static final String LEXICON_ROOT = "lexicon/";
     private static final String CLAUSE_DELIMITERS = ",.;!?，。；！？\n\r";
 
-    private static final Map<String, Pattern> ENGLISH_PATTERN_CACHE = new ConcurrentHashMap<>();
-
     private static final Map<String, Double> NEGATIVE_TERM_WEIGHTS = buildNegativeTermWeights();
     private static final List<String> POSITIVE_TERMS = buildPositiveTerms();
     private static final List<String> ANGER_TERMS = buildAngerTerms();
@@ -46,6 +42,7 @@ public class TextNegScorer {
     private static final List<String> NEGATION_TERMS = buildNegationTerms();
     private static final Map<String, Double> DEGREE_TERMS = buildDegreeTerms();
     private static final Map<String, String> DIAGNOSTIC_TERM_GROUPS = buildDiagnosticTermGroups();
+    private static final AhoCorasickMatcher<LexiconEntry> LEXICON_MATCHER = buildLexiconMatcher();
 
     private final double normalizer;
     private final double highRiskFloor;
@@ -66,29 +63,24 @@ public class TextNegScorer {
         }
 
         String normalized = normalize(transcript);
+        LexiconScan scan = scanLexicon(normalized);
         double weightedHits = 0.0D;
         int hitCount = 0;
+        boolean highRiskHit = false;
 
-        for (Map.Entry<String, Double> entry : NEGATIVE_TERM_WEIGHTS.entrySet()) {
-            String term = entry.getKey();
-            List<Integer> positions = findTermPositions(normalized, term);
-            if (positions.isEmpty()) {
+        for (TermHit hit : scan.termHits()) {
+            LexiconEntry entry = hit.entry();
+            highRiskHit |= entry.highRisk();
+            if (entry.negativeWeight() == null) {
                 continue;
             }
-
-            hitCount += positions.size();
-            double termScore = 0.0D;
-            for (int start : positions) {
-                double degree = degreeMultiplier(normalized, start);
-                boolean negated = isNegated(normalized, start);
-                double local = entry.getValue() * degree * (negated ? NEGATION_REDUCTION : 1.0D);
-                termScore += local;
-            }
-            weightedHits += termScore;
+            hitCount++;
+            double degree = degreeMultiplier(normalized, scan, hit.start());
+            boolean negated = isNegated(normalized, scan, hit.start());
+            weightedHits += entry.negativeWeight() * degree * (negated ? NEGATION_REDUCTION : 1.0D);
         }
 
-        DiagnosticSummary diagnostic = buildDiagnosticSummary(normalized);
-        boolean highRiskHit = hasAnyTerm(normalized, HIGH_RISK_TERMS);
+        DiagnosticSummary diagnostic = buildDiagnosticSummary(normalized, scan);
         double textNeg = clamp(weightedHits / normalizer, 0.0D, 1.0D);
         if (highRiskHit) {
             textNeg = Math.max(textNeg, highRiskFloor);
@@ -353,63 +345,84 @@ public class TextNegScorer {
         return Map.copyOf(groups);
     }
 
-    private String normalize(String text) {
-        return text
-                .toLowerCase(Locale.ROOT)
-                .replace('\u3000', ' ')
-                .replace("\uFF0C", ",")
-                .replace("\u3002", ".")
-                .replace("\uFF1B", ";")
-                .replace("\uFF01", "!")
-                .replace("\uFF1F", "?")
-                .trim();
+    private static AhoCorasickMatcher<LexiconEntry> buildLexiconMatcher() {
+        Map<String, LexiconEntry.Builder> builders = new LinkedHashMap<>();
+        NEGATIVE_TERM_WEIGHTS.forEach((term, weight) -> lexiconEntry(builders, term).negativeWeight = weight);
+        DIAGNOSTIC_TERM_GROUPS.forEach((term, group) -> lexiconEntry(builders, term).diagnosticGroup = group);
+        for (int index = 0; index < NEUTRAL_CUE_TERMS.size(); index++) {
+            LexiconEntry.Builder builder = lexiconEntry(builders, NEUTRAL_CUE_TERMS.get(index));
+            if (builder.neutralCueCount++ == 0) {
+                builder.neutralCueOrder = index;
+            }
+        }
+        HIGH_RISK_TERMS.forEach(term -> lexiconEntry(builders, term).highRisk = true);
+        NEGATION_TERMS.forEach(term -> lexiconEntry(builders, term).negation = true);
+        DEGREE_TERMS.forEach((term, factor) -> lexiconEntry(builders, term).degree = factor);
+
+        Map<String, LexiconEntry> entries = new LinkedHashMap<>();
+        builders.forEach((term, builder) -> entries.put(term, builder.build(term)));
+        log.info("TextNegScorer lexicon automaton compiled: patterns={}", entries.size());
+        return new AhoCorasickMatcher<>(entries);
     }
 
-    private boolean hasAnyTerm(String text, List<String> terms) {
-        for (String term : terms) {
-            if (!findTermPositions(text, term).isEmpty()) {
-                return true;
+    private static LexiconEntry.Builder lexiconEntry(Map<String, LexiconEntry.Builder> builders, String term) {
+        return builders.computeIfAbsent(term, key -> new LexiconEntry.Builder());
+    }
+
+    private LexiconScan scanLexicon(String text) {
+        List<TermHit> termHits = new ArrayList<>();
+        Map<Integer, List<TermHit>> modifiersByEnd = new HashMap<>();
+        Map<String, Integer> lastEndByTerm = new HashMap<>();
+        for (AhoCorasickMatcher.Match<LexiconEntry> match : LEXICON_MATCHER.findAll(text)) {
+            LexiconEntry entry = match.payload();
+            TermHit hit = new TermHit(entry, match.start(), match.end());
+            if (entry.negation() || entry.degree() != null) {
+                modifiersByEnd.computeIfAbsent(match.end(), key -> new ArrayList<>()).add(hit);
+            }
+            if (!entry.standalone()) {
+                continue;
+            }
+            if (entry.english() && !isWordBoundary(text, match.start(), match.end())) {
+                continue;
             }
+            // Occurrences of the same term never overlap each other, matching a left-to-right indexOf scan.
+            if (match.start() < lastEndByTerm.getOrDefault(entry.term(), 0)) {
+                continue;
+            }
+            lastEndByTerm.put(entry.term(), match.end());
+            termHits.add(hit);
         }
-        return false;
+        return new LexiconScan(termHits, modifiersByEnd);
     }
 
-    private List<Integer> findTermPositions(String text, String term) {
-        if (isEnglishTerm(term)) {
-            return englishWordBoundaryIndexes(text, term);
-        }
-        return substringIndexes(text, term);
+    private boolean isWordBoundary(String text, int start, int end) {
+        return (start == 0 || !isWordChar(text.charAt(start - 1)))
+                && (end >= text.length() || !isWordChar(text.charAt(end)));
     }
 
-    private List<Integer> substringIndexes(String text, String term) {
-        List<Integer> indexes = new ArrayList<>();
-        int idx = 0;
-        while ((idx = text.indexOf(term, idx)) != -1) {
-            indexes.add(idx);
-            idx += Math.max(1, term.length());
-        }
-        return indexes;
+    private boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_';
     }
 
-    private List<Integer> englishWordBoundaryIndexes(String text, String term) {
-        Pattern pattern = ENGLISH_PATTERN_CACHE.computeIfAbsent(term, t ->
-                Pattern.compile("(?<![a-z0-9_])" + Pattern.quote(t) + "(?![a-z0-9_])")
-        );
-        Matcher matcher = pattern.matcher(text);
-        List<Integer> indexes = new ArrayList<>();
-        while (matcher.find()) {
-            indexes.add(matcher.start());
-        }
-        return indexes;
+    private String normalize(String text) {
+        return text
+                .toLowerCase(Locale.ROOT)
+                .replace('\u3000', ' ')
+                .replace("\uFF0C", ",")
+                .replace("\u3002", ".")
+                .replace("\uFF1B", ";")
+                .replace("\uFF01", "!")
+                .replace("\uFF1F", "?")
+                .trim();
     }
 
-    private boolean isEnglishTerm(String term) {
+    private static boolean isEnglishTerm(String term) {
         return term != null && !term.isBlank() && term.matches("[a-z0-9 ]+");
     }
 
-    private DiagnosticSummary buildDiagnosticSummary(String text) {
-        List<DiagnosticHit> hits = collectNonOverlappingDiagnosticHits(text);
-        List<DiagnosticHit> neutralHits = collectNeutralCueHits(text);
+    private DiagnosticSummary buildDiagnosticSummary(String text, LexiconScan scan) {
+        List<DiagnosticHit> hits = collectNonOverlappingDiagnosticHits(text, scan);
+        List<DiagnosticHit> neutralHits = collectNeutralCueHits(scan);
 
         int positiveCount = countGroupHits(hits, "HAP");
         int angerCount = countGroupHits(hits, "ANG");
@@ -445,39 +458,44 @@ public class TextNegScorer {
         );
     }
 
-    private List<DiagnosticHit> collectNonOverlappingDiagnosticHits(String text) {
-        List<Map.Entry<String, String>> candidates = DIAGNOSTIC_TERM_GROUPS.entrySet().stream()
+    private List<DiagnosticHit> collectNonOverlappingDiagnosticHits(String text, LexiconScan scan) {
+        List<TermHit> candidates = scan.termHits().stream()
+                .filter(hit -> hit.entry().diagnosticGroup() != null)
                 .sorted(Comparator
-                        .<Map.Entry<String, String>>comparingInt(entry -> entry.getKey().length())
+                        .<TermHit>comparingInt(hit -> hit.entry().term().length())
                         .reversed()
-                        .thenComparing(Map.Entry::getKey))
+                        .thenComparing(hit -> hit.entry().term())
+                        .thenComparingInt(TermHit::start))
                 .toList();
 
         boolean[] occupied = new boolean[Math.max(1, text.length())];
         List<DiagnosticHit> hits = new ArrayList<>();
-        for (Map.Entry<String, String> entry : candidates) {
-            String term = entry.getKey();
-            for (int start : findTermPositions(text, term)) {
-                int end = Math.min(text.length(), start + term.length());
-                if (isOccupied(occupied, start, end)) {
-                    continue;
-                }
-                markOccupied(occupied, start, end);
-                hits.add(new DiagnosticHit(term, entry.getValue(), start, end));
+        for (TermHit candidate : candidates) {
+            int start = candidate.start();
+            int end = Math.min(text.length(), candidate.end());
+            if (isOccupied(occupied, start, end)) {
+                continue;
             }
+            markOccupied(occupied, start, end);
+            hits.add(new DiagnosticHit(candidate.entry().term(), candidate.entry().diagnosticGroup(), start, end));
         }
         hits.sort(Comparator.comparingInt(DiagnosticHit::start));
         return hits;
     }
 
-    private List<DiagnosticHit> collectNeutralCueHits(String text) {
+    private List<DiagnosticHit> collectNeutralCueHits(LexiconScan scan) {
+        List<TermHit> cues = scan.termHits().stream()
+                .filter(hit -> hit.entry().neutralCueCount() > 0)
+                .sorted(Comparator
+                        .comparingInt(TermHit::start)
+                        .thenComparingInt(hit -> hit.entry().neutralCueOrder()))
+                .toList();
         List<DiagnosticHit> hits = new ArrayList<>();
-        for (String term : NEUTRAL_CUE_TERMS) {
-            for (int start : findTermPositions(text, term)) {
-                hits.add(new DiagnosticHit(term, "NEU", start, Math.min(text.length(), start + term.length())));
+        for (TermHit cue : cues) {
+            for (int copy = 0; copy < cue.entry().neutralCueCount(); copy++) {
+                hits.add(new DiagnosticHit(cue.entry().term(), "NEU", cue.start(), cue.end()));
             }
         }
-        hits.sort(Comparator.comparingInt(DiagnosticHit::start));
         return hits;
     }
 
@@ -555,23 +573,21 @@ public class TextNegScorer {
                 .orElse("NEU");
     }
 
-    private boolean isNegated(String text, int start) {
-        String clause = recentClause(text, start, NEGATION_LEFT_CONTEXT);
+    private boolean isNegated(String text, LexiconScan scan, int start) {
+        ClauseWindow clause = recentClause(text, start, NEGATION_LEFT_CONTEXT);
         if (clause.isEmpty()) {
             return false;
         }
 
         int bestEnd = -1;
         int bestLength = 0;
-        for (String neg : NEGATION_TERMS) {
-            int idx = clause.lastIndexOf(neg);
-            if (idx < 0) {
-                continue;
-            }
-            int end = idx + neg.length();
-            if (end > bestEnd || (end == bestEnd && neg.length() > bestLength)) {
+        for (int end = clause.end(); end > clause.start() && bestEnd < 0; end--) {
+            for (TermHit modifier : scan.modifiersEndingAt(end)) {
+                if (!modifier.entry().negation() || modifier.start() < clause.start()) {
+                    continue;
+                }
                 bestEnd = end;
-                bestLength = neg.length();
+                bestLength = Math.max(bestLength, modifier.end() - modifier.start());
             }
         }
 
@@ -579,52 +595,48 @@ public class TextNegScorer {
             return false;
         }
 
-        int distance = clause.length() - bestEnd;
+        int distance = clause.end() - bestEnd;
         int limit = bestLength >= 2 ? NEGATION_DISTANCE_LIMIT + 2 : NEGATION_DISTANCE_LIMIT;
         return distance <= limit;
     }
 
-    private double degreeMultiplier(String text, int start) {
-        String clause = recentClause(text, start, DEGREE_LEFT_CONTEXT);
+    private double degreeMultiplier(String text, LexiconScan scan, int start) {
+        ClauseWindow clause = recentClause(text, start, DEGREE_LEFT_CONTEXT);
         if (clause.isEmpty()) {
             return 1.0D;
         }
 
         double factor = 1.0D;
-        int bestDistance = Integer.MAX_VALUE;
-
-        for (Map.Entry<String, Double> degree : DEGREE_TERMS.entrySet()) {
-            int idx = clause.lastIndexOf(degree.getKey());
-            if (idx < 0) {
-                continue;
-            }
-            int distance = clause.length() - (idx + degree.getKey().length());
-            if (distance > DEGREE_DISTANCE_LIMIT) {
-                continue;
-            }
-            if (degree.getValue() > factor || (Double.compare(degree.getValue(), factor) == 0 && distance < bestDistance)) {
-                factor = degree.getValue();
-                bestDistance = distance;
+        int nearestEnd = Math.max(clause.start() + 1, clause.end() - DEGREE_DISTANCE_LIMIT);
+        for (int end = clause.end(); end >= nearestEnd; end--) {
+            for (TermHit modifier : scan.modifiersEndingAt(end)) {
+                Double degree = modifier.entry().degree();
+                if (degree != null && modifier.start() >= clause.start() && degree > factor) {
+                    factor = degree;
+                }
             }
         }
         return factor;
     }
 
-    private String recentClause(String text, int start, int leftWindow) {
+    private ClauseWindow recentClause(String text, int start, int leftWindow) {
         int leftStart = Math.max(0, start - leftWindow);
-        String left = text.substring(leftStart, start);
         int cut = -1;
-        for (int i = 0; i < CLAUSE_DELIMITERS.length(); i++) {
-            char delimiter = CLAUSE_DELIMITERS.charAt(i);
-            int idx = left.lastIndexOf(delimiter);
-            if (idx > cut) {
-                cut = idx;
+        for (int index = start - 1; index >= leftStart; index--) {
+            if (CLAUSE_DELIMITERS.indexOf(text.charAt(index)) >= 0) {
+                cut = index;
+                break;
             }
         }
-        if (cut >= 0 && cut + 1 < left.length()) {
-            left = left.substring(cut + 1);
+        int from = cut >= 0 && cut + 1 < start ? cut + 1 : leftStart;
+        int to = start;
+        while (from < to && text.charAt(from) <= ' ') {
+            from++;
         }
-        return left.trim();
+        while (to > from && text.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        return new ClauseWindow(from, to);
     }
 
     private static double clamp(double value, double min, double max) {
@@ -638,6 +650,52 @@ public class TextNegScorer {
     private record DiagnosticHit(String term, String group, int start, int end) {
     }
 
+    private record LexiconEntry(
+            String term,
+            boolean english,
+            Double negativeWeight,
+            String diagnosticGroup,
+            int neutralCueCount,
+            int neutralCueOrder,
+            boolean highRisk,
+            boolean negation,
+            Double degree
+    ) {
+        private boolean standalone() {
+            return negativeWeight != null || diagnosticGroup != null || neutralCueCount > 0 || highRisk;
+        }
+
+        private static final class Builder {
+            private Double negativeWeight;
+            private String diagnosticGroup;
+            private int neutralCueCount;
+            private int neutralCueOrder;
+            private boolean highRisk;
+            private boolean negation;
+            private Double degree;
+
+            private LexiconEntry build(String term) {
+                return new LexiconEntry(term, isEnglishTerm(term), negativeWeight, diagnosticGroup,
+                        neutralCueCount, neutralCueOrder, highRisk, negation, degree);
+            }
+        }
+    }
+
+    private record TermHit(LexiconEntry entry, int start, int end) {
+    }
+
+    private record LexiconScan(List<TermHit> termHits, Map<Integer, List<TermHit>> modifiersByEnd) {
+        private List<TermHit> modifiersEndingAt(int end) {
+            return modifiersByEnd.getOrDefault(end, List.of());
+        }
+    }
+
+    private record ClauseWindow(int start, int end) {
+        private boolean isEmpty() {
+            return start >= end;
+        }
+    }
+
     private record DiagnosticSummary(
             String dominantEmotion,
             double diagnosticScore,
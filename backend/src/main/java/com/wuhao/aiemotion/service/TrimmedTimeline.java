@@ -0,0 +1,107 @@
+package com.wuhao.aiemotion.service;
+
+import com.wuhao.aiemotion.integration.asr.AsrTranscribeResponse;
+import com.wuhao.aiemotion.integration.ser.SerAnalyzeResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps timestamps of audio made by concatenating the speech spans back onto the original recording, so
+ * segments returned for trimmed audio line up with the file the user uploaded.
+ */
+final class TrimmedTimeline {
+
+    private final List<EnergyVad.Span> spans;
+    private final long[] trimmedStarts;
+    private final long trimmedDurationMs;
+
+    TrimmedTimeline(List<EnergyVad.Span> spans) {
+        if (spans.isEmpty()) {
+            throw new IllegalArgumentException("spans must not be empty");
+        }
+        this.spans = List.copyOf(spans);
+        this.trimmedStarts = new long[spans.size()];
+        long offset = 0;
+        for (int i = 0; i < spans.size(); i++) {
+            trimmedStarts[i] = offset;
+            offset += spans.get(i).lengthMs();
+        }
+        this.trimmedDurationMs = offset;
+    }
+
+    long trimmedDurationMs() {
+        return trimmedDurationMs;
+    }
+
+    List<EnergyVad.Span> spans() {
+        return spans;
+    }
+
+    /**
+     * A start maps into the span that begins at it; an end that falls exactly on a cut maps to the end of
+     * the span before the cut rather than to the start of the next one.
+     */
+    long toOriginal(long trimmedMs, boolean end) {
+        int span = 0;
+        for (int i = 1; i < trimmedStarts.length; i++) {
+            if (end ? trimmedStarts[i] < trimmedMs : trimmedStarts[i] <= trimmedMs) {
+                span = i;
+            }
+        }
+        long within = Math.max(0, Math.min(trimmedMs - trimmedStarts[span], spans.get(span).lengthMs()));
+        return spans.get(span).startMs() + within;
+    }
+
+    SerAnalyzeResponse restore(SerAnalyzeResponse response, long originalDurationMs) {
+        if (response == null) {
+            return null;
+        }
+        List<SerAnalyzeResponse.Segment> segments = new ArrayList<>();
+        if (response.segments() != null) {
+            for (SerAnalyzeResponse.Segment segment : response.segments()) {
+                segments.add(new SerAnalyzeResponse.Segment(
+                        toOriginal(segment.startMs(), false),
+                        toOriginal(segment.endMs(), true),
+                        segment.emotionCode(),
+                        segment.confidence(),
+                        segment.scores()
+                ));
+            }
+        }
+        SerAnalyzeResponse.Meta meta = response.meta() == null ? null : new SerAnalyzeResponse.Meta(
+                response.meta().model(),
+                response.meta().engine(),
+                response.meta().routeLanguage(),
+                response.meta().routingStrategy(),
+                response.meta().languageHint(),
+                response.meta().sampleRate(),
+                originalDurationMs,
+                response.meta().fusionEnabled()
+        );
+        return new SerAnalyzeResponse(response.overall(), segments, response.audioSummary(),
+                response.textFeatures(), response.fusion(), meta);
+    }
+
+    AsrTranscribeResponse restore(AsrTranscribeResponse response, long originalDurationMs) {
+        if (response == null) {
+            return null;
+        }
+        List<AsrTranscribeResponse.AsrSegment> segments = new ArrayList<>();
+        if (response.segments() != null) {
+            for (AsrTranscribeResponse.AsrSegment segment : response.segments()) {
+                segments.add(new AsrTranscribeResponse.AsrSegment(
+                        toOriginal(segment.startMs(), false),
+                        toOriginal(segment.endMs(), true),
+                        segment.text()
+                ));
+            }
+        }
+        return new AsrTranscribeResponse(
+                response.text(),
+                response.language(),
+                segments,
+                new AsrTranscribeResponse.AsrMeta(response.meta() == null ? null : response.meta().model(), originalDurationMs)
+        );
+    }
+}
@@ -3,6 +3,7 @@ package com.wuhao.aiemotion.websocket;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wuhao.aiemotion.dto.response.TaskRealtimeSnapshotResponse;
 import com.wuhao.aiemotion.service.AuthService;
+import com.wuhao.aiemotion.service.TaskRealtimeChangedEvent;
 import com.wuhao.aiemotion.service.TaskRealtimeSnapshotService;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
@@ -10,6 +11,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
@@ -23,11 +25,14 @@ import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 public class TaskRealtimeWebSocketHandler extends TextWebSocketHandler {
@@ -43,21 +48,26 @@ public class TaskRealtimeWebSocketHandler extends TextWebSocketHandler {
     private final TaskRealtimeSnapshotService snapshotService;
     private final ScheduledExecutorService pushExecutor;
     private final ConcurrentHashMap<String, SessionState> sessions = new ConcurrentHashMap<>();
-
-    @Value("${analysis.realtime.push-interval-ms:1000}")
-    private long pushIntervalMs;
+    private final ConcurrentHashMap<Long, TaskChannel> channels = new ConcurrentHashMap<>();
+    private final long coalesceMs;
 
     public TaskRealtimeWebSocketHandler(ObjectMapper objectMapper,
                                         AuthService authService,
-                                        TaskRealtimeSnapshotService snapshotService) {
+                                        TaskRealtimeSnapshotService snapshotService,
+                                        @Value("${analysis.realtime.coalesce-ms:100}") long coalesceMs,
+                                        @Value("${analysis.realtime.safety-poll-interval-ms:15000}") long safetyPollIntervalMs) {
         this.objectMapper = objectMapper;
         this.authService = authService;
         this.snapshotService = snapshotService;
+        this.coalesceMs = Math.max(0L, coalesceMs);
+        AtomicInteger threadIndex = new AtomicInteger();
         this.pushExecutor = Executors.newScheduledThreadPool(2, runnable -> {
-            Thread thread = new Thread(runnable, "task-realtime-ws-push");
+            Thread thread = new Thread(runnable, "task-realtime-ws-push-" + threadIndex.incrementAndGet());
             thread.setDaemon(true);
             return thread;
         });
+        long safetyPollMs = Math.max(1000L, safetyPollIntervalMs);
+        this.pushExecutor.scheduleWithFixedDelay(this::refreshAll, safetyPollMs, safetyPollMs, TimeUnit.MILLISECONDS);
     }
 
     @Override
@@ -73,16 +83,30 @@ public class TaskRealtimeWebSocketHandler extends TextWebSocketHandler {
             return;
         }
 
-        sessions.put(session.getId(), state);
-        pushSnapshot(state, true);
+        // The first snapshot is built with the connecting user so the ownership check runs per session.
+        String payload;
+        boolean finished;
+        try {
+            TaskRealtimeSnapshotResponse snapshot = snapshotService.buildSnapshot(state.taskId(), state.user());
+            payload = objectMapper.writeValueAsString(snapshot);
+            finished = isFinished(snapshot);
+        } catch (ResponseStatusException ex) {
+            closeByStatus(session, ex);
+            return;
+        }
+        if (!send(state, payload)) {
+            closeQuietly(session, INTERNAL_CLOSE);
+            return;
+        }
+        if (finished) {
+            closeQuietly(session, CloseStatus.NORMAL);
+            return;
+        }
 
-        ScheduledFuture<?> future = pushExecutor.scheduleWithFixedDelay(
-                () -> pushSnapshot(state, false),
-                pushIntervalMs,
-                pushIntervalMs,
-                TimeUnit.MILLISECONDS
-        );
-        state.setFuture(future);
+        sessions.put(session.getId(), state);
+        if (subscribe(state, payload)) {
+            onTaskChanged(new TaskRealtimeChangedEvent(state.taskId(), "SUBSCRIBED"));
+        }
 
         log.info("task realtime websocket connected: sessionId={}, taskId={}, userId={}",
                 session.getId(), state.taskId(), state.user().userId());
@@ -101,6 +125,22 @@ public class TaskRealtimeWebSocketHandler extends TextWebSocketHandler {
         closeQuietly(session, INTERNAL_CLOSE);
     }
 
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskRealtimeChangedEvent event) {
+        TaskChannel channel = channels.get(event.taskId());
+        if (channel == null || !channel.scheduled().compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            pushExecutor.schedule(() -> {
+                channel.scheduled().set(false);
+                refresh(channel);
+            }, coalesceMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            channel.scheduled().set(false);
+        }
+    }
+
     @PreDestroy
     public void shutdown() {
         pushExecutor.shutdownNow();
@@ -141,41 +181,98 @@ public class TaskRealtimeWebSocketHandler extends TextWebSocketHandler {
         return new SessionState(session, taskId, user);
     }
 
-    private void pushSnapshot(SessionState state, boolean force) {
-        if (!state.session().isOpen()) {
-            release(state.session().getId());
-            return;
-        }
-        try {
-            TaskRealtimeSnapshotResponse snapshot = snapshotService.buildSnapshot(state.taskId(), state.user());
-            String payload = objectMapper.writeValueAsString(snapshot);
-            if (!force && payload.equals(state.lastPayload())) {
-                if (snapshot.terminal()) {
-                    closeQuietly(state.session(), CloseStatus.NORMAL);
-                    release(state.session().getId());
+    /**
+     * Adds the session under the channel lock that refresh/release hold while dropping an empty channel, and
+     * retries on a channel that was dropped in between. Returns true when the channel already pushed a
+     * different payload than the one this session just got, i.e. a refresh is due.
+     */
+    private boolean subscribe(SessionState state, String payload) {
+        while (true) {
+            TaskChannel channel = channels.computeIfAbsent(state.taskId(), TaskChannel::new);
+            synchronized (channel) {
+                if (channel.removed()) {
+                    continue;
+                }
+                channel.subscribers().add(state);
+                if (channel.lastPayload() == null) {
+                    channel.setLastPayload(payload);
+                    return false;
                 }
+                return !payload.equals(channel.lastPayload());
+            }
+        }
+    }
+
+    private void refreshAll() {
+        for (TaskChannel channel : channels.values()) {
+            refresh(channel);
+        }
+    }
+
+    private void refresh(TaskChannel channel) {
+        synchronized (channel) {
+            channel.subscribers().removeIf(state -> !state.session().isOpen());
+            SessionState viewer = channel.subscribers().stream().findFirst().orElse(null);
+            if (viewer == null) {
+                drop(channel);
                 return;
             }
-            synchronized (state.session()) {
-                if (!state.session().isOpen()) {
+            try {
+                // One snapshot per task per change, fanned out to every subscriber of that task.
+                TaskRealtimeSnapshotResponse snapshot = snapshotService.buildSnapshot(channel.taskId(), viewer.user());
+                String payload = objectMapper.writeValueAsString(snapshot);
+                boolean finished = isFinished(snapshot);
+                if (!payload.equals(channel.lastPayload())) {
+                    channel.setLastPayload(payload);
+                    for (SessionState state : channel.subscribers()) {
+                        if (!payload.equals(state.lastPayload()) && !send(state, payload)) {
+                            closeQuietly(state.session(), INTERNAL_CLOSE);
+                            release(state.session().getId());
+                        }
+                    }
+                }
+                if (finished) {
+                    for (SessionState state : channel.subscribers()) {
+                        closeQuietly(state.session(), CloseStatus.NORMAL);
+                        release(state.session().getId());
+                    }
+                }
+            } catch (ResponseStatusException ex) {
+                for (SessionState state : channel.subscribers()) {
+                    closeByStatus(state.session(), ex);
                     release(state.session().getId());
-                    return;
                 }
-                state.session().sendMessage(new TextMessage(payload));
-                state.setLastPayload(payload);
+            } catch (Exception ex) {
+                log.warn("task realtime websocket push failed: taskId={}, subscribers={}, reason={}",
+                        channel.taskId(), channel.subscribers().size(), ex.getMessage());
+                for (SessionState state : channel.subscribers()) {
+                    closeQuietly(state.session(), INTERNAL_CLOSE);
+                    release(state.session().getId());
+                }
+            }
+        }
+    }
+
+    private boolean isFinished(TaskRealtimeSnapshotResponse snapshot) {
+        boolean narrativePending = snapshot.narrative() != null && "pending".equals(snapshot.narrative().status());
+        return snapshot.terminal() && !narrativePending;
+    }
+
+    private boolean send(SessionState state, String payload) {
+        WebSocketSession session = state.session();
+        synchronized (session) {
+            if (!session.isOpen()) {
+                return false;
             }
-            if (snapshot.terminal()) {
-                closeQuietly(state.session(), CloseStatus.NORMAL);
-                release(state.session().getId());
+            try {
+                session.sendMessage(new TextMessage(payload));
+                state.setLastPayload(payload);
+                return true;
+            } catch (IOException | IllegalStateException ex) {
+                log.warn("task realtime websocket send failed: sessionId={}, taskId={}, reason={}",
+                        session.getId(), state.taskId(), ex.getMessage());
+                return false;
             }
-        } catch (ResponseStatusException ex) {
-            closeByStatus(state.session(), ex);
-            release(state.session().getId());
-        } catch (Exception ex) {
-            log.warn("task realtime websocket push failed: sessionId={}, taskId={}, reason={}",
-                    state.session().getId(), state.taskId(), ex.getMessage());
-            closeQuietly(state.session(), INTERNAL_CLOSE);
-            release(state.session().getId());
         }
     }
 
@@ -184,12 +281,24 @@ public class TaskRealtimeWebSocketHandler extends TextWebSocketHandler {
         if (state == null) {
             return;
         }
-        ScheduledFuture<?> future = state.future();
-        if (future != null) {
-            future.cancel(false);
+        TaskChannel channel = channels.get(state.taskId());
+        if (channel == null) {
+            return;
+        }
+        synchronized (channel) {
+            channel.subscribers().remove(state);
+            if (channel.subscribers().isEmpty()) {
+                drop(channel);
+            }
         }
     }
 
+    // callers hold the channel lock; a subscriber that still got this instance sees removed() and retries
+    private void drop(TaskChannel channel) {
+        channel.markRemoved();
+        channels.remove(channel.taskId(), channel);
+    }
+
     private void closeByStatus(WebSocketSession session, ResponseStatusException ex) {
         int code = ex.getStatusCode().value();
         if (code == 401) {
@@ -296,7 +405,6 @@ public class TaskRealtimeWebSocketHandler extends TextWebSocketHandler {
         private final WebSocketSession session;
         private final long taskId;
         private final AuthService.UserProfile user;
-        private volatile ScheduledFuture<?> future;
         private volatile String lastPayload;
 
         private SessionState(WebSocketSession session, long taskId, AuthService.UserProfile user) {
@@ -317,12 +425,44 @@ public class TaskRealtimeWebSocketHandler extends TextWebSocketHandler {
             return user;
         }
 
-        private ScheduledFuture<?> future() {
-            return future;
+        private String lastPayload() {
+            return lastPayload;
+        }
+
+        private void setLastPayload(String lastPayload) {
+            this.lastPayload = lastPayload;
+        }
+    }
+
+    private static final class TaskChannel {
+        private final long taskId;
+        private final Set<SessionState> subscribers = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private volatile String lastPayload;
+        private boolean removed;
+
+        private TaskChannel(long taskId) {
+            this.taskId = taskId;
+        }
+
+        private long taskId() {
+            return taskId;
+        }
+
+        private Set<SessionState> subscribers() {
+            return subscribers;
+        }
+
+        private AtomicBoolean scheduled() {
+            return scheduled;
+        }
+
+        private boolean removed() {
+            return removed;
         }
 
-        private void setFuture(ScheduledFuture<?> future) {
-            this.future = future;
+        private void markRemoved() {
+            removed = true;
         }
 
         private String lastPayload() {
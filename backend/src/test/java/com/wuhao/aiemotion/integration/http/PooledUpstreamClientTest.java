@@ -0,0 +1,54 @@
+package com.wuhao.aiemotion.integration.http;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PooledUpstreamClientTest {
+
+    @Test
+    void callsWithoutPermitShouldNotWaitBehindASaturatedPool() throws Exception {
+        UpstreamHttpProperties.Pool pool = new UpstreamHttpProperties.Pool(1);
+        pool.setAcquireTimeoutMs(50);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        PooledUpstreamClient client = new PooledUpstreamClient("ser", new RestTemplateBuilder(), executor, 1000, pool);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Future<String> analyze = executor.submit(() -> client.exchange(180_000, restTemplate -> {
+                holding.countDown();
+                await(release);
+                return "analyze";
+            }));
+            assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+            assertThrows(ResourceAccessException.class, () -> client.exchange(1500, restTemplate -> "queued"));
+            assertEquals("health", client.exchangeWithoutPermit(1500, restTemplate -> "health"));
+
+            release.countDown();
+            assertEquals("analyze", analyze.get(5, TimeUnit.SECONDS));
+            assertEquals(Long.valueOf(1L), client.metrics().get("acquireTimeouts"));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
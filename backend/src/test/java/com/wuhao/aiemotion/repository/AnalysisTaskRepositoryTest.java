@@ -0,0 +1,148 @@
+package com.wuhao.aiemotion.repository;
+
+import com.wuhao.aiemotion.domain.AnalysisTask;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisTaskRepositoryTest {
+
+    private final TaskTable table = new TaskTable();
+    private final AnalysisTaskRepository repository = new AnalysisTaskRepository(table, new SchemaCapabilityRegistry(null));
+
+    @Test
+    void claimBatchShouldSkipRowsLockedByAnotherClaimAndLockTheRestToTheWorker() {
+        table.add(1L, "PENDING");
+        table.add(2L, "RETRY_WAIT");
+        table.add(3L, "PENDING");
+        table.add(4L, "RUNNING");
+        table.lockedElsewhere.add(1L);
+
+        List<AnalysisTask> claimed = repository.claimRunnableBatch("worker-a", 5);
+
+        assertEquals(List.of(2L, 3L), claimed.stream().map(AnalysisTask::id).toList());
+        assertTrue(table.statements.get(0).contains("FOR UPDATE SKIP LOCKED"));
+        assertEquals(List.of(5), table.args.get(0));
+        assertEquals("RUNNING", table.status.get(2L));
+        assertEquals("worker-a", table.lockedBy.get(3L));
+        assertEquals("PENDING", table.status.get(1L));
+    }
+
+    @Test
+    void claimBatchShouldStopAfterTheSelectWhenNothingIsRunnable() {
+        table.add(1L, "RUNNING");
+
+        assertTrue(repository.claimRunnableBatch("worker-a", 5).isEmpty());
+        assertEquals(1, table.statements.size());
+    }
+
+    @Test
+    void renewLeasesShouldOnlyTouchRunningTasksStillLockedByTheWorker() {
+        table.add(1L, "PENDING");
+        table.add(2L, "PENDING");
+        repository.claimRunnableBatch("worker-a", 5);
+        table.lockedBy.put(2L, "worker-b");
+
+        int renewed = repository.renewLeases("worker-a", List.of(1L, 2L));
+
+        assertEquals(1, renewed);
+        assertEquals(List.of(1L, 2L, "worker-a"), table.args.get(table.args.size() - 1));
+        assertEquals(0, repository.renewLeases("worker-a", List.of()));
+    }
+
+    @Test
+    void reclaimShouldBindAttemptLimitsAndLeaseWindowInStatementOrder() {
+        repository.reclaimExpiredLeases(120, 4);
+
+        String sql = table.statements.get(0);
+        assertTrue(sql.contains("WHERE status='RUNNING'"));
+        assertTrue(sql.contains("locked_at < DATE_SUB(NOW(), INTERVAL ? SECOND)"));
+        assertTrue(sql.contains("ELSE 'RETRY_WAIT'"));
+        assertEquals(List.of(4, 4, 4, 120), table.args.get(0));
+    }
+
+    /**
+     * Just enough of analysis_task to run the claim statements: status and locked_by per id, plus the ids
+     * another open transaction holds row locks on.
+     */
+    private static final class TaskTable extends JdbcTemplate {
+
+        final TreeMap<Long, String> status = new TreeMap<>();
+        final TreeMap<Long, String> lockedBy = new TreeMap<>();
+        final Set<Long> lockedElsewhere = new HashSet<>();
+        final List<String> statements = new ArrayList<>();
+        final List<List<Object>> args = new ArrayList<>();
+
+        void add(long id, String taskStatus) {
+            status.put(id, taskStatus);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... params) {
+            record(sql, params);
+            if (sql.contains("FOR UPDATE SKIP LOCKED")) {
+                int limit = (Integer) params[0];
+                return (List<T>) status.keySet().stream()
+                        .filter(id -> runnable(id) && !lockedElsewhere.contains(id))
+                        .limit(limit)
+                        .toList();
+            }
+            String worker = (String) params[params.length - 1];
+            List<AnalysisTask> rows = new ArrayList<>();
+            for (int i = 0; i < params.length - 1; i++) {
+                long id = (Long) params[i];
+                if ("RUNNING".equals(status.get(id)) && worker.equals(lockedBy.get(id))) {
+                    rows.add(new AnalysisTask(id, null, "RUNNING", 0, 4, null, null, null, worker,
+                            null, null, null, null, null, null, null, null));
+                }
+            }
+            return (List<T>) rows;
+        }
+
+        @Override
+        public int update(String sql, Object... params) {
+            record(sql, params);
+            int changed = 0;
+            if (sql.contains("SET status='RUNNING'")) {
+                for (int i = 1; i < params.length; i++) {
+                    long id = (Long) params[i];
+                    if (runnable(id)) {
+                        status.put(id, "RUNNING");
+                        lockedBy.put(id, (String) params[0]);
+                        changed++;
+                    }
+                }
+            } else if (sql.contains("SET locked_at=NOW()")) {
+                String worker = (String) params[params.length - 1];
+                for (int i = 0; i < params.length - 1; i++) {
+                    long id = (Long) params[i];
+                    if ("RUNNING".equals(status.get(id)) && worker.equals(lockedBy.get(id))) {
+                        changed++;
+                    }
+                }
+            }
+            return changed;
+        }
+
+        private boolean runnable(long id) {
+            String current = status.get(id);
+            return "PENDING".equals(current) || "RETRY_WAIT".equals(current);
+        }
+
+        private void record(String sql, Object[] params) {
+            statements.add(sql);
+            args.add(Arrays.asList(params));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.wuhao.aiemotion.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChunkBitmapTest {
+
+    @Test
+    void emptyShouldUseOneBitPerChunk() {
+        assertEquals(1, ChunkBitmap.empty(1).length);
+        assertEquals(1, ChunkBitmap.empty(8).length);
+        assertEquals(2, ChunkBitmap.empty(9).length);
+        assertEquals(500, ChunkBitmap.empty(4000).length);
+    }
+
+    @Test
+    void maskShouldSetMostSignificantBitFirst() {
+        assertArrayEquals(new byte[]{(byte) 0x80, 0}, ChunkBitmap.mask(0, 10));
+        assertArrayEquals(new byte[]{0, 0x40}, ChunkBitmap.mask(9, 10));
+        assertThrows(IllegalArgumentException.class, () -> ChunkBitmap.mask(10, 10));
+    }
+
+    @Test
+    void indexesShouldDecodeOredMasks() {
+        byte[] bitmap = ChunkBitmap.empty(12);
+        for (int index : new int[]{11, 0, 7, 8}) {
+            byte[] mask = ChunkBitmap.mask(index, 12);
+            for (int i = 0; i < bitmap.length; i++) {
+                bitmap[i] |= mask[i];
+            }
+        }
+        assertEquals(List.of(0, 7, 8, 11), ChunkBitmap.indexes(bitmap, 12));
+        assertEquals(List.of(), ChunkBitmap.indexes(null, 12));
+    }
+}
@@ -0,0 +1,41 @@
+package com.wuhao.aiemotion.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageCursorTest {
+
+    @Test
+    void encodeShouldRoundTrip() {
+        PageCursor cursor = PageCursor.after("updatedAt", true, LocalDateTime.of(2026, 3, 1, 8, 30, 15), 42L);
+        PageCursor decoded = PageCursor.decode(cursor.encode());
+        assertEquals(cursor, decoded);
+    }
+
+    @Test
+    void decodeShouldTreatBlankAsFirstPage() {
+        assertNull(PageCursor.decode(null));
+        assertNull(PageCursor.decode("  "));
+    }
+
+    @Test
+    void decodeShouldRejectGarbage() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not-a-cursor"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("%%%"));
+    }
+
+    @Test
+    void requireSortShouldRejectCursorFromAnotherOrdering() {
+        PageCursor cursor = PageCursor.after("createdAt", false, LocalDateTime.of(2026, 3, 1, 8, 0), 7L);
+        assertDoesNotThrow(() -> cursor.requireSort("createdAt", false));
+        assertThrows(IllegalArgumentException.class, () -> cursor.requireSort("createdAt", true));
+        assertThrows(IllegalArgumentException.class, () -> cursor.requireSort("updatedAt", false));
+        assertThrows(IllegalArgumentException.class, () -> cursor.requireSort(null, false));
+    }
+}
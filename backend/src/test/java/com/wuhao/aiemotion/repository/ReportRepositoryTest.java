@@ -1,9 +1,14 @@
 package com.wuhao.aiemotion.repository;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ReportRepositoryTest {
 
@@ -24,4 +29,36 @@ class ReportRepositoryTest {
         assertEquals("HIGH", ReportRepository.normalizeFilterValue("HIGH"));
         assertEquals("sad", ReportRepository.normalizeFilterValue(" sad "));
     }
+
+    @Test
+    void normalizeRiskScoreShouldMatchLegacyJsonExpression() {
+        assertEquals(72.0D, ReportRepository.normalizeRiskScore(0.72D, 0.1D), 1e-9);
+        assertEquals(35.0D, ReportRepository.normalizeRiskScore(0D, 0.35D), 1e-9);
+        assertEquals(64.0D, ReportRepository.normalizeRiskScore(64D, 0D), 1e-9);
+        assertEquals(0D, ReportRepository.normalizeRiskScore(0D, 0D), 1e-9);
+    }
+
+    @Test
+    void numericKeywordShouldMatchIdsAndNumericFileNames() {
+        CapturingJdbcTemplate jdbc = new CapturingJdbcTemplate();
+
+        new ReportRepository(jdbc, new SchemaCapabilityRegistry(null)).count(null, null, "20240301");
+
+        assertTrue(jdbc.sql.contains(" AND (rr.id=? OR rr.task_id=? OR (af.original_name LIKE ? OR af.stored_name LIKE ?))"));
+        assertEquals(List.of(20240301L, 20240301L, "%20240301%", "%20240301%"), jdbc.args);
+    }
+
+    private static final class CapturingJdbcTemplate extends JdbcTemplate {
+
+        String sql;
+        List<Object> args;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+            this.sql = sql;
+            this.args = Arrays.asList(args);
+            return (T) Long.valueOf(0L);
+        }
+    }
 }
@@ -0,0 +1,56 @@
+package com.wuhao.aiemotion.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SearchKeywordTest {
+
+    @Test
+    void parseShouldRecognizeIds() {
+        SearchKeyword keyword = SearchKeyword.parse(" 1024 ");
+        assertEquals(SearchKeyword.Kind.ID, keyword.kind());
+        assertEquals(1024L, keyword.number());
+        assertEquals("%1024%", keyword.containsLike());
+    }
+
+    @Test
+    void parseShouldRecognizeSerialNumbers() {
+        SearchKeyword keyword = SearchKeyword.parse("u0012-20260301-0003");
+        assertEquals(SearchKeyword.Kind.SERIAL_NO, keyword.kind());
+        assertEquals(12L, keyword.registerNo());
+        assertEquals(3L, keyword.number());
+        assertEquals(LocalDate.of(2026, 3, 1), keyword.date());
+    }
+
+    @Test
+    void parseShouldTreatInvalidSerialDateAsText() {
+        assertEquals(SearchKeyword.Kind.TEXT, SearchKeyword.parse("U0012-20261399-0003").kind());
+    }
+
+    @Test
+    void parseShouldRecognizeTracePrefixes() {
+        assertEquals(SearchKeyword.Kind.TRACE_PREFIX, SearchKeyword.parse("3f2a9c1e-77b0").kind());
+        SearchKeyword scoped = SearchKeyword.parse("trace:req-abc");
+        assertEquals(SearchKeyword.Kind.TRACE_PREFIX, scoped.kind());
+        assertEquals("req-abc%", scoped.prefixLike());
+    }
+
+    @Test
+    void parseShouldFallBackToText() {
+        assertNull(SearchKeyword.parse("  "));
+        SearchKeyword keyword = SearchKeyword.parse("录音_50%");
+        assertEquals(SearchKeyword.Kind.TEXT, keyword.kind());
+        assertEquals("%录音\\_50\\%%", keyword.containsLike());
+        assertEquals("\"录音_50%\"", keyword.fulltextPhrase());
+    }
+
+    @Test
+    void fulltextPhraseShouldSkipTermsShorterThanOneNgram() {
+        assertNull(SearchKeyword.parse("哭").fulltextPhrase());
+        assertNull(SearchKeyword.parse("a-").fulltextPhrase());
+    }
+}
@@ -0,0 +1,32 @@
+package com.wuhao.aiemotion.service;
+
+import com.wuhao.aiemotion.repository.AnalysisTaskRepository;
+import com.wuhao.aiemotion.repository.SchemaCapabilityRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisTaskSignalTest {
+
+    // no datasource: the capability probe fails and the signal table counts as absent
+    private final AnalysisTaskSignal signal = new AnalysisTaskSignal(
+            new AnalysisTaskRepository(null, new SchemaCapabilityRegistry(null)));
+
+    @Test
+    void wakeupsBeforeTheWaitShouldCollapseIntoOne() throws Exception {
+        signal.wake();
+        signal.wake();
+
+        assertTrue(signal.await(0));
+        assertFalse(signal.await(10));
+    }
+
+    @Test
+    void publishWithoutSignalTableShouldStillWakeTheLocalPoller() throws Exception {
+        signal.publish();
+
+        assertTrue(signal.await(1000));
+        assertTrue(signal.sharedSeq().isEmpty());
+    }
+}
@@ -0,0 +1,385 @@
+package com.wuhao.aiemotion.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wuhao.aiemotion.domain.AnalysisSegment;
+import com.wuhao.aiemotion.domain.AnalysisTask;
+import com.wuhao.aiemotion.dto.response.AnalysisTaskResultResponse;
+import com.wuhao.aiemotion.integration.asr.AsrTranscribeResponse;
+import com.wuhao.aiemotion.integration.ser.SerAnalyzeResponse;
+import com.wuhao.aiemotion.integration.ser.SerClient;
+import com.wuhao.aiemotion.integration.text.TextSentimentResponse;
+import com.wuhao.aiemotion.repository.AnalysisResultRepository;
+import com.wuhao.aiemotion.repository.AnalysisSegmentRepository;
+import com.wuhao.aiemotion.repository.AnalysisTaskCheckpointRepository;
+import com.wuhao.aiemotion.repository.AnalysisTaskRepository;
+import com.wuhao.aiemotion.repository.SchemaCapabilityRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisTaskWorkerServiceTest {
+
+    private static final long TASK_ID = 11L;
+    private static final SerAnalyzeResponse SER = new SerAnalyzeResponse(
+            new SerAnalyzeResponse.Overall("NEU", 0.7D),
+            List.of(new SerAnalyzeResponse.Segment(0L, 1000L, "NEU", 0.7D)),
+            null, null, null, null);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AnalysisWorkerProperties properties = new AnalysisWorkerProperties();
+    private final List<String> phases = new CopyOnWriteArrayList<>();
+    private final TaskRealtimeProgressTracker tracker =
+            new TaskRealtimeProgressTracker(event -> phases.add(((TaskRealtimeChangedEvent) event).phase()));
+    private final Pipeline pipeline = new Pipeline();
+    private final TextModel textModel = new TextModel();
+    private final Ser ser = new Ser();
+    private final Results results = new Results();
+    private final Checkpoints checkpoints = new Checkpoints();
+    private final List<Exception> failures = new ArrayList<>();
+    private final Worker worker = new Worker();
+
+    @Test
+    void asrFailureShouldFallBackToVoiceOnlyAndStillRunSer() throws Exception {
+        pipeline.asr.set(CompletableFuture.failedFuture(new IllegalStateException("asr down")));
+
+        worker.processClaimedTask(task(0), "worker-a");
+
+        assertTrue(failures.isEmpty());
+        assertEquals(1, pipeline.serCalls.get());
+        assertEquals(0, textModel.calls.get());
+        assertEquals(0.0D, pipeline.fusionTextFeatures.get().textNegative(), 1e-9);
+        assertTrue(phases.containsAll(List.of("ASR_FAILED", "TEXT_FALLBACK", "DONE")));
+        JsonNode persisted = objectMapper.readTree(results.rawJson.get());
+        assertTrue(persisted.path("asr").isNull());
+        assertEquals("", persisted.path("transcript").asText());
+        assertEquals("NEU", persisted.path("ser").path("overall").path("emotionCode").asText());
+    }
+
+    @Test
+    void serPrewarmShouldRunOnTheStageExecutor() throws Exception {
+        pipeline.asr.set(CompletableFuture.completedFuture(new AsrTranscribeResponse("", "zh", List.of(), null)));
+
+        worker.processClaimedTask(task(0), "worker-a");
+
+        assertTrue(ser.warmedUp.await(5, TimeUnit.SECONDS));
+        assertTrue(ser.warmupThread.get().startsWith("analysis-stage-"));
+    }
+
+    @Test
+    void retryAfterSerFailureShouldResumeFromTheAsrAndTextCheckpoints() throws Exception {
+        pipeline.asr.set(CompletableFuture.completedFuture(
+                new AsrTranscribeResponse("今天很难过", "zh", List.of(), null)));
+        pipeline.serFailure.set(new IllegalStateException("ser timeout"));
+
+        worker.processClaimedTask(task(0), "worker-a");
+
+        assertEquals(1, failures.size());
+        assertEquals(Set.of(TASK_ID + ":ASR", TASK_ID + ":TEXT"), checkpoints.payloads.keySet());
+        assertEquals(Integer.valueOf(1), checkpoints.attempts.get(TASK_ID + ":TEXT"));
+        SerClient.FusionTextFeatures firstFeatures = pipeline.fusionTextFeatures.get();
+
+        pipeline.asr.set(CompletableFuture.failedFuture(new IllegalStateException("asr must not rerun")));
+        pipeline.serFailure.set(null);
+
+        worker.processClaimedTask(task(1), "worker-a");
+
+        assertEquals(1, failures.size());
+        assertEquals(1, pipeline.asrCalls.get());
+        assertEquals(1, textModel.calls.get());
+        assertEquals(2, pipeline.serCalls.get());
+        assertEquals(firstFeatures, pipeline.fusionTextFeatures.get());
+        assertTrue(checkpoints.payloads.isEmpty());
+        JsonNode persisted = objectMapper.readTree(results.rawJson.get());
+        assertEquals("今天很难过", persisted.path("transcript").asText());
+    }
+
+    @Test
+    void checkpointClearFailureShouldNotUndoACompletedAnalysis() throws Exception {
+        pipeline.asr.set(CompletableFuture.completedFuture(
+                new AsrTranscribeResponse("今天很难过", "zh", List.of(), null)));
+        checkpoints.failDeletes = true;
+
+        worker.processClaimedTask(task(0), "worker-a");
+
+        assertTrue(failures.isEmpty());
+        assertTrue(phases.contains("DONE"));
+        assertEquals("NEU", objectMapper.readTree(results.rawJson.get()).path("ser").path("overall").path("emotionCode").asText());
+    }
+
+    private AnalysisTask task(int attemptCount) {
+        return new AnalysisTask(TASK_ID, 5L, "RUNNING", attemptCount, 4, null, null, null, "worker-a",
+                null, null, null, null, null, null, null, null);
+    }
+
+    /** The worker with its stores replaced by in-memory fakes; failures are collected instead of persisted. */
+    private final class Worker extends AnalysisTaskWorkerService {
+
+        Worker() {
+            super(new Tasks(), results, new Segments(), ser, textModel,
+                    new PsychologicalRiskScoringService(new InterventionAdviceService()),
+                    new TextNegScorer(10.0D, 0.8D), tracker, properties, new Narratives(),
+                    new ConsistencyGuardService(new AnalysisConsistencyProperties(), objectMapper), objectMapper,
+                    new DirectTransactions(), new Reports(), new AnalysisStageLimiter(properties), null,
+                    new TaskSnapshotCache(tracker, 16, 60_000L), new NoResultCache(),
+                    new AnalysisCheckpointService(checkpoints, new CheckpointSchema(), objectMapper),
+                    pipeline, null);
+        }
+
+        @Override
+        protected void handleFailure(AnalysisTask task, String workerId, Exception e) {
+            failures.add(e);
+        }
+    }
+
+    /**
+     * ASR answers with whatever future the test sets; SER records the text features it was given and then
+     * throws {@code serFailure} when one is set.
+     */
+    private static final class Pipeline extends LongAudioWindowService {
+
+        final AtomicReference<CompletableFuture<AsrTranscribeResponse>> asr = new AtomicReference<>();
+        final AtomicReference<SerClient.FusionTextFeatures> fusionTextFeatures = new AtomicReference<>();
+        final AtomicReference<RuntimeException> serFailure = new AtomicReference<>();
+        final AtomicInteger asrCalls = new AtomicInteger();
+        final AtomicInteger serCalls = new AtomicInteger();
+
+        Pipeline() {
+            super(null, null, null, null, null, null, null);
+        }
+
+        @Override
+        public Preparation prepare(long taskId, Path audioPath) {
+            return new Preparation(null, null, null, 0);
+        }
+
+        @Override
+        public CompletableFuture<AsrTranscribeResponse> transcribe(long taskId, Path audioPath) {
+            asrCalls.incrementAndGet();
+            return asr.get();
+        }
+
+        @Override
+        public SerAnalyzeResponse analyze(long taskId, Path audioPath, String languageHint,
+                                          SerClient.FusionTextFeatures features) {
+            serCalls.incrementAndGet();
+            fusionTextFeatures.set(features);
+            if (serFailure.get() != null) {
+                throw serFailure.get();
+            }
+            return SER;
+        }
+
+        @Override
+        public void release(long taskId) {
+        }
+    }
+
+    private static final class TextModel extends TranscriptSemanticScoringService {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        TextModel() {
+            super(null, null, null, null, null);
+        }
+
+        @Override
+        public TextSentimentResponse score(String transcript, String languageHint, long timeoutMs) {
+            calls.incrementAndGet();
+            return new TextSentimentResponse("negative", 0.6D, Map.of("negative", 0.6D, "neutral", 0.3D,
+                    "positive", 0.1D), false, null, null, null, null, null, null, null, null);
+        }
+    }
+
+    private static final class Ser extends SerClient {
+
+        final CountDownLatch warmedUp = new CountDownLatch(1);
+        final AtomicReference<String> warmupThread = new AtomicReference<>();
+
+        Ser() {
+            super(null, null);
+        }
+
+        @Override
+        public boolean warmup() {
+            warmupThread.set(Thread.currentThread().getName());
+            warmedUp.countDown();
+            return true;
+        }
+    }
+
+    private static final class Tasks extends AnalysisTaskRepository {
+
+        Tasks() {
+            super(null, new SchemaCapabilityRegistry(null));
+        }
+
+        @Override
+        public Optional<AudioBlobRef> findAudioBlob(long taskId) {
+            return Optional.of(new AudioBlobRef("/uploads/audio.wav", "sha"));
+        }
+
+        @Override
+        public int markSuccess(long taskId, String workerId, long serLatencyMs) {
+            return 1;
+        }
+    }
+
+    private static final class Results extends AnalysisResultRepository {
+
+        final AtomicReference<String> rawJson = new AtomicReference<>();
+
+        Results() {
+            super(null);
+        }
+
+        @Override
+        public void upsertByTaskId(long taskId, String modelName, String overallEmotionCode, Double overallConfidence,
+                                   Integer durationMs, Integer sampleRate, String rawJson) {
+            this.rawJson.set(rawJson);
+        }
+    }
+
+    private static final class Segments extends AnalysisSegmentRepository {
+
+        Segments() {
+            super(null);
+        }
+
+        @Override
+        public void deleteByTaskId(long taskId) {
+        }
+
+        @Override
+        public void batchInsert(long taskId, List<AnalysisSegment> segments) {
+        }
+    }
+
+    private static final class Reports extends ResourceManagementService {
+
+        Reports() {
+            super(null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+        }
+
+        @Override
+        public void upsertReportResource(long taskId, long audioId, String rawJson, String defaultEmotion,
+                                         Double confidence) {
+        }
+    }
+
+    private final class Narratives extends NarrativeGenerationService {
+
+        Narratives() {
+            super(new AnalysisNarrativeProperties(), null, objectMapper);
+        }
+
+        @Override
+        public boolean isAsyncMode() {
+            return false;
+        }
+
+        @Override
+        public NarrativePayload generate(long taskId, SerAnalyzeResponse response, String transcript,
+                                         AnalysisTaskResultResponse.RiskAssessmentPayload riskAssessment,
+                                         ConsistencyDecision decision) {
+            return fallbackPayload("fallback", riskAssessment, null);
+        }
+    }
+
+    private static final class NoResultCache extends AnalysisResultCache {
+
+        NoResultCache() {
+            super(null, null, null, null, null, null, null);
+        }
+
+        @Override
+        public Optional<AsrTranscribeResponse> findAsr(String audioSha256) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void putAsr(String audioSha256, AsrTranscribeResponse response) {
+        }
+
+        @Override
+        public Optional<SerAnalyzeResponse> findSer(String audioSha256, String languageHint,
+                                                   SerClient.FusionTextFeatures fusionTextFeatures) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void putSer(String audioSha256, String languageHint, SerClient.FusionTextFeatures fusionTextFeatures,
+                           SerAnalyzeResponse response) {
+        }
+    }
+
+    /** analysis_task_checkpoint as maps of payloads and attempt numbers keyed by task and stage. */
+    private static final class Checkpoints extends AnalysisTaskCheckpointRepository {
+
+        final Map<String, String> payloads = new ConcurrentHashMap<>();
+        final Map<String, Integer> attempts = new ConcurrentHashMap<>();
+        volatile boolean failDeletes;
+
+        Checkpoints() {
+            super(null);
+        }
+
+        @Override
+        public Optional<String> find(long taskId, String stage) {
+            return Optional.ofNullable(payloads.get(taskId + ":" + stage));
+        }
+
+        @Override
+        public void upsert(long taskId, String stage, int attemptNo, String payloadJson) {
+            payloads.put(taskId + ":" + stage, payloadJson);
+            attempts.put(taskId + ":" + stage, attemptNo);
+        }
+
+        @Override
+        public int deleteByTaskId(long taskId) {
+            if (failDeletes) {
+                throw new IllegalStateException("checkpoint table unavailable");
+            }
+            int before = payloads.size();
+            payloads.keySet().removeIf(key -> key.startsWith(taskId + ":"));
+            return before - payloads.size();
+        }
+    }
+
+    private static final class CheckpointSchema extends SchemaCapabilityRegistry {
+
+        CheckpointSchema() {
+            super(null);
+        }
+
+        @Override
+        public boolean hasTable(String tableName) {
+            return AnalysisTaskCheckpointRepository.TABLE.equals(tableName);
+        }
+    }
+
+    private static final class DirectTransactions extends TransactionTemplate {
+
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            return action.doInTransaction(null);
+        }
+    }
+}
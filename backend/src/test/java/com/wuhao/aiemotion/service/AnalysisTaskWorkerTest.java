@@ -0,0 +1,209 @@
+package com.wuhao.aiemotion.service;
+
+import com.wuhao.aiemotion.domain.AnalysisTask;
+import com.wuhao.aiemotion.integration.ser.SerProperties;
+import com.wuhao.aiemotion.repository.AnalysisTaskRepository;
+import com.wuhao.aiemotion.repository.SchemaCapabilityRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisTaskWorkerTest {
+
+    private final AnalysisWorkerProperties properties = new AnalysisWorkerProperties();
+    private final Tasks tasks = new Tasks();
+    private final Signal signal = new Signal();
+    private AnalysisTaskWorker worker;
+
+    @AfterEach
+    void tearDown() {
+        tasks.gate.countDown();
+        if (worker != null) {
+            worker.shutdown();
+        }
+    }
+
+    @Test
+    void pollShouldClaimNoMoreThanTheFreeSlotsAndTrackWhatIsInFlight() throws Exception {
+        worker = worker(2);
+
+        assertEquals(2, worker.pollAndProcess());
+        assertTrue(tasks.started.tryAcquire(2, 5, TimeUnit.SECONDS));
+        assertEquals(List.of(2), tasks.limits);
+        assertEquals(2, worker.snapshot().get("busySlots"));
+        assertEquals(List.of(1L, 2L), sortedInFlight());
+
+        assertEquals(-1, worker.pollAndProcess());
+        assertEquals(List.of(2), tasks.limits);
+
+        worker.heartbeat();
+        assertEquals(List.of(1L, 2L), tasks.renewed.stream().sorted().toList());
+
+        tasks.gate.countDown();
+        assertTrue(signal.woken.tryAcquire(2, 5, TimeUnit.SECONDS));
+        assertEquals(0, worker.snapshot().get("busySlots"));
+        assertEquals(List.of(), sortedInFlight());
+
+        tasks.renewed.clear();
+        worker.heartbeat();
+        assertTrue(tasks.renewed.isEmpty());
+    }
+
+    @Test
+    void slotsFreedByFinishedTasksShouldBeOfferedToTheNextPoll() throws Exception {
+        worker = worker(3);
+        tasks.available = 1;
+
+        assertEquals(1, worker.pollAndProcess());
+        assertTrue(tasks.started.tryAcquire(1, 5, TimeUnit.SECONDS));
+        tasks.available = 5;
+
+        assertEquals(2, worker.pollAndProcess());
+        assertTrue(tasks.started.tryAcquire(2, 5, TimeUnit.SECONDS));
+        assertEquals(List.of(3, 2), tasks.limits);
+        assertEquals(3, worker.snapshot().get("busySlots"));
+
+        tasks.gate.countDown();
+        assertTrue(signal.woken.tryAcquire(3, 5, TimeUnit.SECONDS));
+        tasks.available = 0;
+        assertEquals(0, worker.pollAndProcess());
+        assertEquals(List.of(3, 2, 3), tasks.limits);
+    }
+
+    @Test
+    void crashedTaskShouldStillReleaseItsSlotAndInFlightEntry() throws Exception {
+        worker = worker(1);
+        tasks.crash = true;
+        tasks.gate.countDown();
+
+        assertEquals(1, worker.pollAndProcess());
+        assertTrue(signal.woken.tryAcquire(1, 5, TimeUnit.SECONDS));
+
+        assertEquals(0, worker.snapshot().get("busySlots"));
+        assertEquals(List.of(), sortedInFlight());
+        assertEquals(1, worker.pollAndProcess());
+    }
+
+    @Test
+    void heartbeatShouldRunOnTheWorkersOwnThread() throws Exception {
+        properties.setHeartbeatIntervalMs(20);
+        worker = worker(1);
+        tasks.available = 0;
+
+        worker.startPolling();
+
+        assertTrue(tasks.heartbeats.await(5, TimeUnit.SECONDS));
+        assertEquals("analysis-worker-heartbeat", tasks.heartbeatThread.get());
+    }
+
+    @Test
+    void stoppingWorkerShouldNotClaim() {
+        worker = worker(2);
+        worker.shutdown();
+
+        assertEquals(-1, worker.pollAndProcess());
+        assertTrue(tasks.limits.isEmpty());
+    }
+
+    private AnalysisTaskWorker worker(int concurrency) {
+        properties.setConcurrency(concurrency);
+        properties.setShutdownAwaitMs(1000);
+        SerProperties serProperties = new SerProperties();
+        serProperties.setEnabled(false);
+        return new AnalysisTaskWorker(tasks, properties, null, serProperties, signal, "test");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> sortedInFlight() {
+        return ((List<Long>) worker.snapshot().get("inFlightTaskIds")).stream().sorted().toList();
+    }
+
+    /** Hands out numbered tasks whose processing holds its slot until {@code gate} opens. */
+    private static final class Tasks extends AnalysisTaskWorkerService {
+
+        final CountDownLatch gate = new CountDownLatch(1);
+        final Semaphore started = new Semaphore(0);
+        final List<Integer> limits = new CopyOnWriteArrayList<>();
+        final List<Long> renewed = new CopyOnWriteArrayList<>();
+        final CountDownLatch heartbeats = new CountDownLatch(1);
+        final AtomicReference<String> heartbeatThread = new AtomicReference<>();
+        private final AtomicLong nextId = new AtomicLong();
+        volatile int available = Integer.MAX_VALUE;
+        volatile boolean crash;
+
+        Tasks() {
+            super(null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null,
+                    null, null, null, null, null);
+        }
+
+        @Override
+        public List<AnalysisTask> claimBatch(String workerId, int limit) {
+            limits.add(limit);
+            List<AnalysisTask> claimed = new ArrayList<>();
+            for (int i = 0; i < Math.min(limit, available); i++) {
+                claimed.add(new AnalysisTask(nextId.incrementAndGet(), 5L, "RUNNING", 0, 4, null, null, null,
+                        workerId, null, null, null, null, null, null, null, null));
+            }
+            return claimed;
+        }
+
+        @Override
+        public void processClaimedTask(AnalysisTask task, String workerId) {
+            started.release();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (crash) {
+                throw new IllegalStateException("slot crashed");
+            }
+        }
+
+        @Override
+        public int renewLeases(String workerId, List<Long> taskIds) {
+            renewed.addAll(taskIds);
+            return taskIds.size();
+        }
+
+        @Override
+        public int reclaimExpiredLeases() {
+            heartbeatThread.compareAndSet(null, Thread.currentThread().getName());
+            heartbeats.countDown();
+            return 0;
+        }
+
+        @Override
+        public Map<String, Object> stageSnapshot() {
+            return Map.of();
+        }
+    }
+
+    /** Counts local wakeups; a finished slot wakes the poller only after giving its permit back. */
+    private static final class Signal extends AnalysisTaskSignal {
+
+        final Semaphore woken = new Semaphore(0);
+
+        Signal() {
+            super(new AnalysisTaskRepository(null, new SchemaCapabilityRegistry(null)));
+        }
+
+        @Override
+        public void wake() {
+            super.wake();
+            woken.release();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.wuhao.aiemotion.service;
+
+import com.wuhao.aiemotion.dto.response.AnalysisTaskStartResponse;
+import com.wuhao.aiemotion.repository.AudioRepository;
+import com.wuhao.aiemotion.repository.AudioUploadSessionRepository;
+import com.wuhao.aiemotion.repository.AudioUploadSessionRepository.AudioUploadSessionEntity;
+import com.wuhao.aiemotion.repository.SchemaCapabilityRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AudioChunkUploadServiceTest {
+
+    private static final String UPLOAD_ID = "up_test";
+    private static final byte[] DATA = "not decodable audio".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path dir;
+
+    private final Sessions sessions = new Sessions();
+    private final AudioRows audioRows = new AudioRows();
+    private final Tasks tasks = new Tasks();
+    private AudioChunkUploadService service;
+    private Path assembled;
+    private Path blob;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ContentAddressedAudioStore store = new ContentAddressedAudioStore(new SchemaCapabilityRegistry(null),
+                dir.toString(), true, 16000);
+        store.init();
+        service = new AudioChunkUploadService(sessions, audioRows, tasks, new RollbackTemplate(audioRows), store,
+                dir.toString());
+        assembled = dir.resolve(".chunks").resolve(UPLOAD_ID).resolve("assembled");
+        Files.createDirectories(assembled.getParent());
+        Files.write(assembled, DATA);
+        blob = dir.resolve(StreamingFileWriter.hash(assembled).sha256() + ".dat");
+    }
+
+    @Test
+    void failedTaskStartShouldTakeThePublishedBlobBackSoCompleteCanBeRetried() throws Exception {
+        tasks.fail = true;
+
+        assertThrows(ResponseStatusException.class, () -> service.complete(UPLOAD_ID, true, 7L));
+
+        assertFalse(Files.exists(blob));
+        assertArrayEquals(DATA, Files.readAllBytes(assembled));
+        assertTrue(audioRows.committed.isEmpty());
+        assertEquals("FAILED", sessions.status);
+        assertStagingEmpty();
+
+        tasks.fail = false;
+        Map<String, Object> result = service.complete(UPLOAD_ID, true, 7L);
+
+        assertEquals("MERGED", result.get("status"));
+        assertEquals(99L, result.get("taskId"));
+        assertArrayEquals(DATA, Files.readAllBytes(blob));
+        assertEquals(List.of(blob.toString()), audioRows.committed);
+        assertStagingEmpty();
+    }
+
+    @Test
+    void rollbackShouldLeaveABlobThatOtherRowsStillReference() throws Exception {
+        Files.write(blob, DATA);
+        audioRows.committed.add(blob.toString());
+        tasks.fail = true;
+
+        assertThrows(ResponseStatusException.class, () -> service.complete(UPLOAD_ID, true, 7L));
+
+        assertArrayEquals(DATA, Files.readAllBytes(blob));
+        assertArrayEquals(DATA, Files.readAllBytes(assembled));
+        assertEquals(List.of(blob.toString()), audioRows.committed);
+        assertStagingEmpty();
+    }
+
+    private void assertStagingEmpty() throws Exception {
+        try (var staging = Files.list(dir.resolve(ContentAddressedAudioStore.STAGING_DIR))) {
+            assertEquals(0L, staging.count());
+        }
+    }
+
+    /** One in-place session whose single chunk has arrived. */
+    private static final class Sessions extends AudioUploadSessionRepository {
+
+        String status = "UPLOADING";
+
+        Sessions() {
+            super(null, new SchemaCapabilityRegistry(null));
+        }
+
+        @Override
+        public Optional<AudioUploadSessionEntity> findByUploadId(String uploadId) {
+            LocalDateTime now = LocalDateTime.now();
+            return Optional.of(new AudioUploadSessionEntity(1L, UPLOAD_ID, 7L, "voice.dat",
+                    "application/octet-stream", (long) DATA.length, 1, 1, status, null, (long) DATA.length,
+                    new byte[]{1}, now.plusHours(1), now, now));
+        }
+
+        @Override
+        public int markMerging(long sessionId) {
+            if (List.of("MERGING", "MERGED", "CANCELED").contains(status)) {
+                return 0;
+            }
+            status = "MERGING";
+            return 1;
+        }
+
+        @Override
+        public void markMerged(long sessionId, long mergedAudioId) {
+            status = "MERGED";
+        }
+
+        @Override
+        public void markFailed(long sessionId) {
+            status = "FAILED";
+        }
+
+        @Override
+        public void deleteChunksBySession(long sessionId) {
+        }
+    }
+
+    /** audio_file storage paths, split into committed rows and rows inserted by the open transaction. */
+    private static final class AudioRows extends AudioRepository {
+
+        final List<String> committed = new ArrayList<>();
+        final List<String> uncommitted = new ArrayList<>();
+
+        AudioRows() {
+            super(null, new SchemaCapabilityRegistry(null));
+        }
+
+        @Override
+        public long insertAudio(Long userId, String originalName, String storedName, String storagePath,
+                                String contentType, Long sizeBytes, String sha256, Long durationMs) {
+            uncommitted.add(storagePath);
+            return committed.size() + uncommitted.size();
+        }
+
+        @Override
+        public BlobReferences lockBlobReferences(String sha256, String storagePath) {
+            long rows = committed.stream().filter(storagePath::equals).count();
+            return new BlobReferences(rows, rows);
+        }
+    }
+
+    private static final class RollbackTemplate extends TransactionTemplate {
+
+        private final AudioRows audioRows;
+
+        RollbackTemplate(AudioRows audioRows) {
+            this.audioRows = audioRows;
+        }
+
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            try {
+                T result = action.doInTransaction(null);
+                audioRows.committed.addAll(audioRows.uncommitted);
+                return result;
+            } finally {
+                audioRows.uncommitted.clear();
+            }
+        }
+    }
+
+    private static final class Tasks extends AnalysisTaskService {
+
+        boolean fail;
+
+        Tasks() {
+            super(null, null, null, null, null, null, null, null, null, null, null, null, null);
+        }
+
+        @Override
+        public AnalysisTaskStartResponse startTask(long audioId, AuthService.UserProfile user) {
+            if (fail) {
+                throw new IllegalStateException("task insert failed");
+            }
+            return new AnalysisTaskStartResponse(99L, "T99", "PENDING");
+        }
+    }
+}
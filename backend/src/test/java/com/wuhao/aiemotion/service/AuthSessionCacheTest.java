@@ -0,0 +1,63 @@
+package com.wuhao.aiemotion.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthSessionCacheTest {
+
+    private final AuthSessionCache cache = new AuthSessionCache(60_000L, 16);
+
+    @Test
+    void shouldServeCachedUserUntilLogout() {
+        AuthService.UserProfile user = new AuthService.UserProfile(7L, "alice", AuthService.ROLE_USER);
+        cache.put("atk_1", Instant.now().plusSeconds(3600), user, cache.generation());
+
+        assertEquals(user, cache.find("atk_1").orElseThrow());
+
+        cache.invalidate("atk_1");
+        assertFalse(cache.find("atk_1").isPresent());
+    }
+
+    @Test
+    void shouldNotCacheALookupThatRacedWithLogout() {
+        AuthService.UserProfile user = new AuthService.UserProfile(7L, "alice", AuthService.ROLE_USER);
+        long generation = cache.generation();
+
+        cache.invalidate("atk_6");
+        cache.put("atk_6", Instant.now().plusSeconds(3600), user, generation);
+        assertFalse(cache.find("atk_6").isPresent());
+
+        long userGeneration = cache.generation();
+        cache.invalidateUser(7L);
+        cache.put("atk_6", Instant.now().plusSeconds(3600), user, userGeneration);
+        assertFalse(cache.find("atk_6").isPresent());
+
+        cache.put("atk_6", Instant.now().plusSeconds(3600), user, cache.generation());
+        assertTrue(cache.find("atk_6").isPresent());
+    }
+
+    @Test
+    void shouldNotOutliveAccessTokenExpiry() {
+        cache.put("atk_2", Instant.now().minusSeconds(1), new AuthService.UserProfile(8L, "bob", AuthService.ROLE_USER), cache.generation());
+
+        assertFalse(cache.find("atk_2").isPresent());
+    }
+
+    @Test
+    void shouldDropEverySessionOfUser() {
+        cache.put("atk_3", Instant.now().plusSeconds(3600), new AuthService.UserProfile(9L, "carol", AuthService.ROLE_USER), cache.generation());
+        cache.put("atk_4", Instant.now().plusSeconds(3600), new AuthService.UserProfile(9L, "carol", AuthService.ROLE_USER), cache.generation());
+        cache.put("atk_5", Instant.now().plusSeconds(3600), new AuthService.UserProfile(10L, "dave", AuthService.ROLE_ADMIN), cache.generation());
+
+        cache.invalidateUser(9L);
+
+        assertFalse(cache.find("atk_3").isPresent());
+        assertFalse(cache.find("atk_4").isPresent());
+        assertTrue(cache.find("atk_5").isPresent());
+    }
+}
@@ -0,0 +1,132 @@
+package com.wuhao.aiemotion.service;
+
+import com.wuhao.aiemotion.repository.SchemaCapabilityRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentAddressedAudioStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private ContentAddressedAudioStore store;
+
+    @BeforeEach
+    void setUp() {
+        // no datasource: the capability probe fails and the legacy unique index counts as absent
+        store = new ContentAddressedAudioStore(new SchemaCapabilityRegistry(null), dir.toString(), true, 16000);
+        store.init();
+    }
+
+    @Test
+    void identicalUploadsShouldShareOneBlob() throws Exception {
+        byte[] data = "same recording".getBytes(StandardCharsets.UTF_8);
+
+        ContentAddressedAudioStore.Staged first = store.stage(new ByteArrayInputStream(data), ".wav");
+        ContentAddressedAudioStore.Staged second = store.stage(new ByteArrayInputStream(data), ".wav");
+
+        assertEquals(first.sha256() + ".wav", first.storedName());
+        assertEquals(first.blobPath(), second.blobPath());
+        assertFalse(store.publish(first));
+        assertTrue(store.publish(second));
+        assertArrayEquals(data, Files.readAllBytes(first.blobPath()));
+        assertFalse(Files.exists(second.stagingPath()));
+        try (var staging = Files.list(dir.resolve(ContentAddressedAudioStore.STAGING_DIR))) {
+            assertEquals(0, staging.count());
+        }
+    }
+
+    @Test
+    void mergedChunksShouldResolveToTheSameBlobAsASingleUpload() throws Exception {
+        Path p1 = Files.write(dir.resolve("part-1"), "same ".getBytes(StandardCharsets.UTF_8));
+        Path p2 = Files.write(dir.resolve("part-2"), "recording".getBytes(StandardCharsets.UTF_8));
+
+        ContentAddressedAudioStore.Staged merged = store.stageMerge(List.of(p1, p2), ".wav");
+        ContentAddressedAudioStore.Staged single = store.stage(
+                new ByteArrayInputStream("same recording".getBytes(StandardCharsets.UTF_8)), ".wav");
+
+        assertEquals(single.storedName(), merged.storedName());
+    }
+
+    @Test
+    void differentContentShouldNotShareBlob() throws Exception {
+        ContentAddressedAudioStore.Staged a = store.stage(new ByteArrayInputStream(new byte[]{1}), ".wav");
+        ContentAddressedAudioStore.Staged b = store.stage(new ByteArrayInputStream(new byte[]{2}), ".wav");
+
+        assertNotEquals(a.blobPath(), b.blobPath());
+        store.discard(a);
+        assertFalse(Files.exists(a.stagingPath()));
+    }
+
+    @Test
+    void stereoWavShouldBeStoredAsSixteenKilohertzMono() throws Exception {
+        Path source = stereoWav(dir.resolve("source.wav"), 44_100, 3);
+        ContentAddressedAudioStore.Staged staged;
+        try (var in = Files.newInputStream(source)) {
+            staged = store.stage(in, ".wav");
+        }
+
+        ContentAddressedAudioStore.Staged canonical = store.normalize(staged);
+
+        PcmWav.Format format = PcmWav.probe(canonical.stagingPath()).orElseThrow();
+        assertEquals(1, format.channels());
+        assertEquals(16_000, format.sampleRate());
+        assertEquals(16, format.bitsPerSample());
+        assertEquals(3000L, canonical.durationMs(), 5.0);
+        assertEquals("audio/wav", canonical.contentType());
+        assertEquals(canonical.sha256() + ".wav", canonical.storedName());
+        assertTrue(canonical.sizeBytes() * 5 < staged.sizeBytes());
+        assertTrue(Files.exists(staged.stagingPath()));
+    }
+
+    @Test
+    void undecodableOrAlreadyCanonicalUploadsShouldBeKeptAsIs() throws Exception {
+        ContentAddressedAudioStore.Staged opaque = store.stage(
+                new ByteArrayInputStream("not audio".getBytes(StandardCharsets.UTF_8)), ".mp3");
+        ContentAddressedAudioStore.Staged canonical;
+        Path source = stereoWav(dir.resolve("source.wav"), 44_100, 1);
+        try (var in = Files.newInputStream(source)) {
+            canonical = store.normalize(store.normalize(store.stage(in, ".wav")));
+        }
+
+        assertSame(opaque, store.normalize(opaque));
+        assertSame(canonical, store.normalize(canonical));
+        try (var staging = Files.list(dir.resolve(ContentAddressedAudioStore.STAGING_DIR))) {
+            assertEquals(3, staging.count());
+        }
+    }
+
+    private static Path stereoWav(Path path, int sampleRate, int seconds) throws Exception {
+        int frames = sampleRate * seconds;
+        byte[] pcm = new byte[frames * 4];
+        for (int i = 0; i < frames; i++) {
+            short sample = (short) (Math.sin(2 * Math.PI * 220 * i / sampleRate) * 8000);
+            for (int channel = 0; channel < 2; channel++) {
+                pcm[4 * i + 2 * channel] = (byte) sample;
+                pcm[4 * i + 2 * channel + 1] = (byte) (sample >> 8);
+            }
+        }
+        AudioFormat format = new AudioFormat(sampleRate, 16, 2, true, false);
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(pcm), format, frames), AudioFileFormat.Type.WAVE,
+                path.toFile());
+        return path;
+    }
+}
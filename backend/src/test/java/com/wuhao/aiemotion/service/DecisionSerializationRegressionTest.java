@@ -149,7 +149,8 @@ class DecisionSerializationRegressionTest {
                 new TaskRealtimeSnapshotResponse.RiskSummary(37.58D, "NORMAL", 1.0D, 0.0D, 0.0D, 0.2646D),
                 decision,
                 null,
-                List.of()
+                List.of(),
+                null
         );
 
         JsonNode resultJson = objectMapper.readTree(objectMapper.writeValueAsBytes(resultResponse));
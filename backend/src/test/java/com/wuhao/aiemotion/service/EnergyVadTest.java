@@ -0,0 +1,100 @@
+package com.wuhao.aiemotion.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnergyVadTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldFindSpeechBetweenSilenceAndPadIt() {
+        double[] energies = new double[100];
+        Arrays.fill(energies, -70.0);
+        Arrays.fill(energies, 20, 40, -20.0);
+
+        EnergyVad.Result result = EnergyVad.detect(energies, 30, 3000, new AudioVadProperties());
+
+        assertEquals(List.of(new EnergyVad.Span(350, 1450)), result.speech());
+        assertEquals(1100.0 / 3000, result.speechRatio(), 1e-9);
+    }
+
+    @Test
+    void shouldBridgeShortPausesAndDropBlips() {
+        double[] energies = new double[200];
+        Arrays.fill(energies, -70.0);
+        Arrays.fill(energies, 10, 30, -20.0);
+        Arrays.fill(energies, 40, 60, -20.0);
+        energies[150] = -20.0;
+
+        EnergyVad.Result result = EnergyVad.detect(energies, 30, 6000, new AudioVadProperties());
+
+        assertEquals(List.of(new EnergyVad.Span(50, 2050)), result.speech());
+    }
+
+    @Test
+    void continuousSpeechAndSilenceShouldNotBeCut() {
+        double[] speech = new double[100];
+        Arrays.fill(speech, -18.0);
+        double[] silence = new double[100];
+        Arrays.fill(silence, -90.0);
+
+        assertEquals(1.0, EnergyVad.detect(speech, 30, 3000, new AudioVadProperties()).speechRatio(), 1e-9);
+        assertTrue(EnergyVad.detect(silence, 30, 3000, new AudioVadProperties()).speech().isEmpty());
+    }
+
+    @Test
+    void shouldReadWavAndWriteBitExactSlices() throws Exception {
+        short[] samples = new short[16000];
+        for (int i = 8000; i < 12000; i++) {
+            samples[i] = (short) (Math.sin(i * 0.1) * 12000);
+        }
+        Path wav = writeWav(dir.resolve("in.wav"), samples);
+        PcmWav.Format format = PcmWav.probe(wav).orElseThrow();
+
+        assertEquals(1000, format.durationMs());
+        EnergyVad.Result result = EnergyVad.detect(wav, format, new AudioVadProperties());
+        assertEquals(1, result.speech().size());
+        assertTrue(result.speech().get(0).startMs() <= 500 && result.speech().get(0).endMs() >= 750);
+
+        Path slice = dir.resolve("slice.wav");
+        PcmWav.writeFrames(wav, format, List.of(new long[]{8000, 8100}, new long[]{11900, 12000}), slice);
+        PcmWav.Format sliced = PcmWav.probe(slice).orElseThrow();
+        assertEquals(200, sliced.frames());
+        byte[] source = Files.readAllBytes(wav);
+        byte[] target = Files.readAllBytes(slice);
+        assertEquals(ByteBuffer.wrap(source, 44 + 8000 * 2, 200), ByteBuffer.wrap(target, 44, 200));
+        assertEquals(ByteBuffer.wrap(source, 44 + 11900 * 2, 200), ByteBuffer.wrap(target, 244, 200));
+    }
+
+    @Test
+    void nonWavShouldNotProbe() throws Exception {
+        Path mp3 = Files.write(dir.resolve("a.mp3"), new byte[]{'I', 'D', '3', 4, 0});
+        assertTrue(PcmWav.probe(mp3).isEmpty());
+    }
+
+    private static Path writeWav(Path path, short[] samples) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(44 + samples.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + samples.length * 2)
+                .put("WAVE".getBytes(StandardCharsets.US_ASCII))
+                .put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+                .putShort((short) 1).putShort((short) 1).putInt(16000).putInt(32000).putShort((short) 2).putShort((short) 16)
+                .put("data".getBytes(StandardCharsets.US_ASCII)).putInt(samples.length * 2);
+        for (short sample : samples) {
+            buffer.putShort(sample);
+        }
+        return Files.write(path, buffer.array());
+    }
+}
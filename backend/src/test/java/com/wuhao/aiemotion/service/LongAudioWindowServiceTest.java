@@ -0,0 +1,184 @@
+package com.wuhao.aiemotion.service;
+
+import com.wuhao.aiemotion.integration.asr.AsrClient;
+import com.wuhao.aiemotion.integration.asr.AsrTranscribeResponse;
+import com.wuhao.aiemotion.integration.ser.SerAnalyzeResponse;
+import com.wuhao.aiemotion.integration.ser.SerClient;
+import com.wuhao.aiemotion.integration.ser.SerProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongAudioWindowServiceTest {
+
+    private static final long TASK_ID = 7L;
+
+    @TempDir
+    Path dir;
+
+    private final AnalysisWorkerProperties workerProperties = new AnalysisWorkerProperties();
+    private final SerProperties serProperties = new SerProperties();
+    private final Upstream upstream = new Upstream();
+    private AnalysisStageLimiter stageLimiter;
+    private LongAudioWindowService service;
+    private Path audio;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        workerProperties.setLongAudioWindowMs(1000);
+        workerProperties.setAsrConcurrency(2);
+        workerProperties.setSerConcurrency(2);
+        serProperties.setSegmentMs(500);
+        AudioVadProperties vadProperties = new AudioVadProperties();
+        vadProperties.setEnabled(false);
+        stageLimiter = new AnalysisStageLimiter(workerProperties);
+        service = new LongAudioWindowService(upstream.asr, upstream.ser, serProperties, workerProperties, vadProperties,
+                stageLimiter, dir.toString());
+        service.init();
+        audio = writeWav(dir.resolve("long.wav"), 16000 * 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstream.gate.countDown();
+        stageLimiter.shutdown();
+    }
+
+    @Test
+    void failedSerWindowShouldFailFastSkipQueuedSiblingsAndKeepFilesForTheRunningOne() throws Exception {
+        assertTrue(service.prepare(TASK_ID, audio).windows() > 3);
+
+        assertThrows(IllegalStateException.class, () -> service.analyze(TASK_ID, audio, null, null));
+
+        assertEquals(2, upstream.serCalls.get());
+        Path windowDir = onlyWindowDir();
+        service.release(TASK_ID);
+        assertTrue(Files.exists(windowDir));
+
+        upstream.gate.countDown();
+        assertTrue(awaitDeleted(windowDir));
+        assertEquals(2, upstream.serCalls.get());
+    }
+
+    @Test
+    void failedAsrWindowShouldFailTheTranscriptWithoutWaitingForTheSlowSibling() throws Exception {
+        service.prepare(TASK_ID, audio);
+
+        CompletableFuture<AsrTranscribeResponse> transcript = service.transcribe(TASK_ID, audio);
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> transcript.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof IllegalStateException);
+        assertEquals(2, upstream.asrCalls.get());
+        Path windowDir = onlyWindowDir();
+        service.release(TASK_ID);
+        assertTrue(Files.exists(windowDir));
+
+        upstream.gate.countDown();
+        assertTrue(awaitDeleted(windowDir));
+    }
+
+    @Test
+    void startupShouldSweepOnlyStaleWindowDirs() throws Exception {
+        Path root = dir.resolve(LongAudioWindowService.WINDOW_DIR);
+        Path stale = Files.createDirectories(root.resolve("3-crashed"));
+        Files.write(stale.resolve("window-0.wav"), new byte[]{1});
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(
+                System.currentTimeMillis() - LongAudioWindowService.STALE_WINDOW_DIR_MS - 60_000));
+        Path live = Files.createDirectories(root.resolve("4-running"));
+
+        service.init();
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(live));
+    }
+
+    private Path onlyWindowDir() throws Exception {
+        try (var dirs = Files.list(dir.resolve(LongAudioWindowService.WINDOW_DIR))) {
+            List<Path> all = dirs.toList();
+            assertEquals(1, all.size());
+            return all.get(0);
+        }
+    }
+
+    private static boolean awaitDeleted(Path path) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (Files.exists(path)) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static Path writeWav(Path path, int frames) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(44 + frames * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + frames * 2)
+                .put("WAVE".getBytes(StandardCharsets.US_ASCII))
+                .put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+                .putShort((short) 1).putShort((short) 1).putInt(16000).putInt(32000).putShort((short) 2).putShort((short) 16)
+                .put("data".getBytes(StandardCharsets.US_ASCII)).putInt(frames * 2);
+        for (int i = 0; i < frames; i++) {
+            buffer.putShort((short) (Math.sin(i * 0.1) * 12000));
+        }
+        return Files.write(path, buffer.array());
+    }
+
+    /**
+     * Per stage, the first window upload to arrive blocks on {@code gate} and the second fails; any later one
+     * would mean a queued sibling was not skipped.
+     */
+    private static final class Upstream {
+
+        final CountDownLatch gate = new CountDownLatch(1);
+        final AtomicInteger asrCalls = new AtomicInteger();
+        final AtomicInteger serCalls = new AtomicInteger();
+
+        final AsrClient asr = new AsrClient(null, null) {
+            @Override
+            public AsrTranscribeResponse transcribe(Path audioPath, long timeoutMs) {
+                respond(asrCalls.incrementAndGet());
+                return new AsrTranscribeResponse("", "zh", List.of(), null);
+            }
+        };
+
+        final SerClient ser = new SerClient(null, null) {
+            @Override
+            public SerAnalyzeResponse analyze(Path audioPath, String languageHint, FusionTextFeatures features) {
+                respond(serCalls.incrementAndGet());
+                return new SerAnalyzeResponse(null, List.of(), null, null, null, null);
+            }
+        };
+
+        private void respond(int call) {
+            if (call == 1) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return;
+            }
+            throw new IllegalStateException("window upload failed");
+        }
+    }
+}
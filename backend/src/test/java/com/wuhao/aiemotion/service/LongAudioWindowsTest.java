@@ -0,0 +1,106 @@
+package com.wuhao.aiemotion.service;
+
+import com.wuhao.aiemotion.integration.asr.AsrTranscribeResponse;
+import com.wuhao.aiemotion.integration.ser.SerAnalyzeResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LongAudioWindowsTest {
+
+    @Test
+    void planShouldAlignWindowsToSegmentGridAndOverlapByOneSegment() {
+        List<LongAudioWindows.Window> windows = LongAudioWindows.plan(300_000, 120_000, 8000, 0);
+
+        assertEquals(3, windows.size());
+        assertEquals(0, windows.get(0).startMs());
+        assertEquals(112_000, windows.get(1).startMs());
+        assertEquals(224_000, windows.get(2).startMs());
+        assertEquals(300_000, windows.get(2).endMs());
+        assertEquals(116_000, windows.get(0).ownEndMs());
+        assertEquals(116_000, windows.get(1).ownStartMs());
+    }
+
+    @Test
+    void planShouldKeepShortAudioInOneWindow() {
+        assertEquals(1, LongAudioWindows.plan(120_000, 120_000, 8000, 0).size());
+    }
+
+    @Test
+    void stitchedSerSegmentsShouldMatchWholeFileSegmentation() {
+        long duration = 500_123;
+        List<LongAudioWindows.Window> windows = LongAudioWindows.plan(duration, 120_000, 8000, 2000);
+        List<SerAnalyzeResponse> responses = new ArrayList<>();
+        for (LongAudioWindows.Window window : windows) {
+            responses.add(new SerAnalyzeResponse(null, serSegments(window.startMs(), window.endMs()), null, null, null, null));
+        }
+
+        SerAnalyzeResponse stitched = LongAudioWindows.stitchSer(windows, responses, 8000, 2000, duration);
+
+        List<SerAnalyzeResponse.Segment> whole = serSegments(0, duration);
+        assertEquals(whole.size(), stitched.segments().size());
+        for (int i = 0; i < whole.size(); i++) {
+            assertEquals(whole.get(i).startMs(), stitched.segments().get(i).startMs());
+            assertEquals(whole.get(i).endMs(), stitched.segments().get(i).endMs());
+            assertEquals(whole.get(i).emotionCode(), stitched.segments().get(i).emotionCode());
+        }
+    }
+
+    @Test
+    void stitchedSerSummaryShouldPoolSegmentScores() {
+        List<LongAudioWindows.Window> windows = LongAudioWindows.plan(130_000, 120_000, 8000, 0);
+        SerAnalyzeResponse first = new SerAnalyzeResponse(null, List.of(
+                new SerAnalyzeResponse.Segment(0, 8000, "SAD", 0.8, Map.of("SAD", 0.8, "NEUTRAL", 0.2))
+        ), null, null, null, null);
+        SerAnalyzeResponse second = new SerAnalyzeResponse(null, List.of(
+                new SerAnalyzeResponse.Segment(8000, 16_000, "HAPPY", 0.6, Map.of("HAPPY", 0.6, "SAD", 0.4))
+        ), null, null, null, null);
+
+        SerAnalyzeResponse stitched = LongAudioWindows.stitchSer(windows, List.of(first, second), 8000, 0, 130_000);
+
+        assertEquals("SAD", stitched.overall().emotionCode());
+        assertEquals(0.6, stitched.overall().confidence(), 1e-9);
+        assertEquals(0.6, stitched.audioSummary().audio_prob_sad(), 1e-9);
+        assertEquals(0.3, stitched.audioSummary().audio_prob_hap(), 1e-9);
+        assertEquals(0.8, stitched.audioSummary().audio_confidence(), 1e-9);
+    }
+
+    @Test
+    void stitchedTranscriptShouldDropUtterancesRepeatedInTheOverlap() {
+        List<LongAudioWindows.Window> windows = LongAudioWindows.plan(200_000, 120_000, 8000, 0);
+        AsrTranscribeResponse first = new AsrTranscribeResponse("a b", "zh", List.of(
+                new AsrTranscribeResponse.AsrSegment(0, 100_000, "a"),
+                new AsrTranscribeResponse.AsrSegment(100_000, 120_000, "b")
+        ), null);
+        AsrTranscribeResponse second = new AsrTranscribeResponse("b c", "zh", List.of(
+                new AsrTranscribeResponse.AsrSegment(0, 8000, "b"),
+                new AsrTranscribeResponse.AsrSegment(8000, 88_000, "c")
+        ), new AsrTranscribeResponse.AsrMeta("whisper", 88_000));
+
+        AsrTranscribeResponse stitched = LongAudioWindows.stitchAsr(windows, List.of(first, second), 200_000);
+
+        assertEquals("a b c", stitched.text());
+        assertEquals(3, stitched.segments().size());
+        assertEquals(120_000, stitched.segments().get(2).startMs());
+        assertEquals(200_000, stitched.meta().durationMs());
+    }
+
+    /** Mirrors the SER service segmentation: fixed segments on a hop grid, the last one cut at the end. */
+    private static List<SerAnalyzeResponse.Segment> serSegments(long from, long to) {
+        List<SerAnalyzeResponse.Segment> segments = new ArrayList<>();
+        long length = to - from;
+        for (long start = 0; start < length; start += 6000) {
+            long end = Math.min(start + 8000, length);
+            String label = ((from + start) / 6000) % 2 == 0 ? "SAD" : "NEUTRAL";
+            segments.add(new SerAnalyzeResponse.Segment(start, end, label, 0.7, Map.of(label, 1.0)));
+            if (end == length) {
+                break;
+            }
+        }
+        return segments;
+    }
+}
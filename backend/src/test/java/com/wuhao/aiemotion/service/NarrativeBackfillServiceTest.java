@@ -0,0 +1,171 @@
+package com.wuhao.aiemotion.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wuhao.aiemotion.dto.response.AnalysisTaskResultResponse;
+import com.wuhao.aiemotion.integration.ser.SerAnalyzeResponse;
+import com.wuhao.aiemotion.repository.AnalysisResultRepository;
+import com.wuhao.aiemotion.repository.ReportRepository;
+import com.wuhao.aiemotion.repository.SchemaCapabilityRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NarrativeBackfillServiceTest {
+
+    private static final SerAnalyzeResponse SER = new SerAnalyzeResponse(
+            new SerAnalyzeResponse.Overall("SAD", 0.8D), List.of(), null, null, null, null);
+    private static final AnalysisTaskResultResponse.RiskAssessmentPayload RISK =
+            new AnalysisTaskResultResponse.RiskAssessmentPayload(0.4D, "MEDIUM", "rest", 0.5D, 0.1D, 0.1D, 0.2D, 0.3D);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AnalysisNarrativeProperties properties = new AnalysisNarrativeProperties();
+    private final ResultTable results = new ResultTable(objectMapper);
+
+    @Test
+    void narrativesDroppedByShutdownShouldBeResubmittedOnTheNextStartup() throws Exception {
+        CountDownLatch never = new CountDownLatch(1);
+        NarrativeBackfillService first = service(new Generator(never));
+        results.insertPending(1L);
+        results.insertPending(2L);
+        first.enqueue(1L, SER, "first", RISK, null);
+        first.enqueue(2L, SER, "second", RISK, null);
+
+        first.shutdown();
+        assertEquals(Long.valueOf(1L), results.written.poll(5, TimeUnit.SECONDS));
+        assertEquals("fallback", results.status(1L));
+        assertEquals("pending", results.status(2L));
+
+        NarrativeBackfillService restarted = service(new Generator(null));
+        restarted.resumePending();
+
+        assertEquals(Long.valueOf(2L), results.written.poll(5, TimeUnit.SECONDS));
+        assertEquals("ready", results.status(2L));
+        assertEquals("fallback", results.status(1L));
+        restarted.shutdown();
+    }
+
+    @Test
+    void pendingRowsThatCannotBeRebuiltShouldFallBackInsteadOfStayingPending() throws Exception {
+        ObjectNode raw = objectMapper.createObjectNode();
+        raw.set("riskAssessment", objectMapper.valueToTree(RISK));
+        raw.set("narrative", objectMapper.valueToTree(Map.of("status", "pending")));
+        results.rows.put(3L, raw);
+
+        NarrativeBackfillService service = service(new Generator(null));
+        service.resumePending();
+
+        assertEquals("fallback", results.status(3L));
+        assertTrue(results.rows.get(3L).path("narrative").path("error").asText().contains("ser result missing"));
+        service.shutdown();
+    }
+
+    private NarrativeBackfillService service(NarrativeGenerationService generator) {
+        return new NarrativeBackfillService(
+                generator,
+                results,
+                new ReportRepository(null, new SchemaCapabilityRegistry(null)) {
+                    @Override
+                    public int updateNarrative(long taskId, String narrativeJson) {
+                        return 1;
+                    }
+                },
+                new TaskRealtimeProgressTracker(event -> {}),
+                objectMapper,
+                new TransactionTemplate() {
+                    @Override
+                    public <T> T execute(TransactionCallback<T> action) {
+                        return action.doInTransaction(null);
+                    }
+                },
+                properties
+        );
+    }
+
+    /** Returns a ready narrative, after waiting on {@code gate} when one is given. */
+    private final class Generator extends NarrativeGenerationService {
+
+        private final CountDownLatch gate;
+
+        Generator(CountDownLatch gate) {
+            super(properties, null, objectMapper);
+            this.gate = gate;
+        }
+
+        @Override
+        public NarrativePayload generate(long taskId,
+                                         SerAnalyzeResponse response,
+                                         String transcript,
+                                         AnalysisTaskResultResponse.RiskAssessmentPayload riskAssessment,
+                                         ConsistencyDecision decision) {
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted", e);
+                }
+            }
+            return new NarrativePayload("ready", "ollama", "test", transcript, null, null, List.of(), null, null);
+        }
+    }
+
+    /** analysis_result.raw_json per task, in the shape the worker persists. */
+    private static final class ResultTable extends AnalysisResultRepository {
+
+        final Map<Long, ObjectNode> rows = new ConcurrentHashMap<>();
+        final BlockingQueue<Long> written = new LinkedBlockingQueue<>();
+        private final ObjectMapper objectMapper;
+
+        ResultTable(ObjectMapper objectMapper) {
+            super(null);
+            this.objectMapper = objectMapper;
+        }
+
+        void insertPending(long taskId) {
+            Map<String, Object> raw = new LinkedHashMap<>();
+            raw.put("ser", SER);
+            raw.put("transcript", "persisted transcript " + taskId);
+            raw.put("riskAssessment", RISK);
+            raw.put("decision", null);
+            raw.put("narrative", Map.of("status", "pending"));
+            rows.put(taskId, objectMapper.valueToTree(raw));
+        }
+
+        String status(long taskId) {
+            return rows.get(taskId).path("narrative").path("status").asText();
+        }
+
+        @Override
+        public List<PendingNarrative> findPendingNarratives() {
+            return rows.keySet().stream()
+                    .sorted()
+                    .filter(taskId -> "pending".equals(status(taskId)))
+                    .map(taskId -> new PendingNarrative(taskId, rows.get(taskId).toString()))
+                    .toList();
+        }
+
+        @Override
+        public int updateNarrative(long taskId, String narrativeJson) {
+            try {
+                rows.get(taskId).set("narrative", objectMapper.readTree(narrativeJson));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            written.add(taskId);
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.wuhao.aiemotion.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StreamingFileWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writeShouldHashWhileStreaming() throws Exception {
+        byte[] data = randomBytes(StreamingFileWriter.BUFFER_SIZE * 2 + 123);
+        Path target = dir.resolve("chunk");
+
+        StreamingFileWriter.Written written = StreamingFileWriter.write(new ByteArrayInputStream(data), target);
+
+        assertEquals(data.length, written.sizeBytes());
+        assertEquals(sha256(data), written.sha256());
+        assertArrayEquals(data, Files.readAllBytes(target));
+        assertEquals(1, Files.list(dir).count());
+    }
+
+    @Test
+    void mergeShouldConcatenatePartsInOrderAndHashWholeFile() throws Exception {
+        byte[] first = randomBytes(StreamingFileWriter.BUFFER_SIZE + 7);
+        byte[] second = randomBytes(0);
+        byte[] third = randomBytes(4096);
+        Path p1 = Files.write(dir.resolve("part-1"), first);
+        Path p2 = Files.write(dir.resolve("part-2"), second);
+        Path p3 = Files.write(dir.resolve("part-3"), third);
+        byte[] expected = new byte[first.length + third.length];
+        System.arraycopy(first, 0, expected, 0, first.length);
+        System.arraycopy(third, 0, expected, first.length, third.length);
+
+        StreamingFileWriter.Written merged = StreamingFileWriter.merge(List.of(p1, p2, p3), dir.resolve("out/merged.wav"));
+
+        assertEquals(expected.length, merged.sizeBytes());
+        assertEquals(sha256(expected), merged.sha256());
+        assertArrayEquals(expected, Files.readAllBytes(dir.resolve("out/merged.wav")));
+    }
+
+    @Test
+    void writeAtShouldAssembleChunksArrivingOutOfOrder() throws Exception {
+        int chunkSize = 1000;
+        byte[] data = randomBytes(chunkSize * 3 + 17);
+        Path target = dir.resolve("assembled");
+        StreamingFileWriter.preallocate(target, data.length);
+
+        for (int index : new int[]{3, 1, 0, 2}) {
+            int offset = index * chunkSize;
+            int length = Math.min(chunkSize, data.length - offset);
+            StreamingFileWriter.writeAt(new ByteArrayInputStream(data, offset, length), target, offset, length);
+        }
+
+        assertArrayEquals(data, Files.readAllBytes(target));
+        assertEquals(sha256(data), StreamingFileWriter.hash(target).sha256());
+    }
+
+    @Test
+    void writeAtShouldRejectChunkLongerThanDeclared() throws Exception {
+        Path target = dir.resolve("assembled");
+        StreamingFileWriter.preallocate(target, 10);
+
+        assertThrows(IOException.class,
+                () -> StreamingFileWriter.writeAt(new ByteArrayInputStream(new byte[6]), target, 5, 5));
+        assertEquals(10, Files.size(target));
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+}
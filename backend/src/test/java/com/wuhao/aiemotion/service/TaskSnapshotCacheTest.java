@@ -0,0 +1,64 @@
+package com.wuhao.aiemotion.service;
+
+import com.wuhao.aiemotion.dto.response.AnalysisTaskStatusResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskSnapshotCacheTest {
+
+    private final TaskRealtimeProgressTracker tracker = new TaskRealtimeProgressTracker(event -> {
+    });
+    private final TaskSnapshotCache cache = new TaskSnapshotCache(tracker, 16, 60_000L);
+
+    @Test
+    void shouldMissWhenProgressSequenceAdvances() {
+        LocalDateTime updatedAt = LocalDateTime.of(2026, 1, 1, 8, 0);
+        String version = cache.version(1L, updatedAt);
+        cache.put(1L, version, 7L, 3L, status(1L, "RUNNING"));
+
+        assertTrue(cache.find(1L, version).isPresent());
+        assertFalse(cache.findTerminal(1L).isPresent());
+
+        tracker.publish(1L, "ASR_RUNNING", "asr");
+        String next = cache.version(1L, updatedAt);
+        assertNotEquals(version, next);
+        assertFalse(cache.find(1L, next).isPresent());
+    }
+
+    @Test
+    void shouldServeTerminalTasksUntilInvalidated() {
+        cache.put(2L, cache.version(2L, LocalDateTime.now()), 7L, 5L, status(2L, "SUCCESS"));
+
+        assertEquals("SUCCESS", cache.findTerminal(2L).orElseThrow().status().status());
+
+        cache.invalidateByAudioId(5L);
+        assertFalse(cache.findTerminal(2L).isPresent());
+        assertEquals(1L, cache.metrics().get("invalidations"));
+    }
+
+    @Test
+    void shouldRevalidateTerminalTasksThroughTheVersionOnceTheTtlPassed() {
+        TaskSnapshotCache expired = new TaskSnapshotCache(tracker, 16, 0L);
+        LocalDateTime updatedAt = LocalDateTime.of(2026, 1, 1, 8, 0);
+        String version = expired.version(3L, updatedAt);
+        expired.put(3L, version, 7L, 5L, status(3L, "SUCCESS"));
+        expired.attachCurve(3L, List.of());
+
+        assertFalse(expired.findTerminal(3L).isPresent());
+        assertTrue(expired.find(3L, version).isPresent());
+        assertFalse(expired.find(3L, expired.version(3L, updatedAt.plusSeconds(1))).isPresent());
+        assertTrue(expired.findCurve(3L).isPresent());
+    }
+
+    private AnalysisTaskStatusResponse status(long taskId, String status) {
+        return new AnalysisTaskStatusResponse(taskId, "T" + taskId, status, 0, 4, null, null, null,
+                null, null, null, null, null);
+    }
+}
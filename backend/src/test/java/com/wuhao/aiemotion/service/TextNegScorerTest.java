@@ -90,4 +90,14 @@ class TextNegScorerTest {
         assertNotEquals(0.0D, result.emotion4Scores().getOrDefault("ANG", 0.0D));
         assertNotEquals(0.0D, result.emotion4Scores().getOrDefault("SAD", 0.0D));
     }
+
+    @Test
+    void shouldCountEveryOccurrenceAcrossLongTranscripts() {
+        TextNegScorer.TextNegScoreResult once = scorer.score("我很焦虑。");
+        TextNegScorer.TextNegScoreResult repeated = scorer.score("我很焦虑。".repeat(200));
+
+        assertEquals(1, once.hitCount());
+        assertEquals(200, repeated.hitCount());
+        assertEquals(1.0D, repeated.textNeg());
+    }
 }
@@ -0,0 +1,42 @@
+package com.wuhao.aiemotion.service;
+
+import com.wuhao.aiemotion.integration.ser.SerAnalyzeResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TrimmedTimelineTest {
+
+    private final TrimmedTimeline timeline = new TrimmedTimeline(List.of(
+            new EnergyVad.Span(1000, 3000),
+            new EnergyVad.Span(10_000, 11_000)
+    ));
+
+    @Test
+    void shouldMapTrimmedOffsetsBackToTheRecording() {
+        assertEquals(3000, timeline.trimmedDurationMs());
+        assertEquals(1000, timeline.toOriginal(0, false));
+        assertEquals(2500, timeline.toOriginal(1500, false));
+        assertEquals(10_000, timeline.toOriginal(2000, false));
+        assertEquals(3000, timeline.toOriginal(2000, true));
+        assertEquals(11_000, timeline.toOriginal(3000, true));
+    }
+
+    @Test
+    void restoredSerResponseShouldUseOriginalTimes() {
+        SerAnalyzeResponse trimmed = new SerAnalyzeResponse(null, List.of(
+                new SerAnalyzeResponse.Segment(0, 2000, "SAD", 0.8),
+                new SerAnalyzeResponse.Segment(1500, 3000, "NEUTRAL", 0.6)
+        ), null, null, null, new SerAnalyzeResponse.Meta("m", "e", "zh", "r", "zh", 16000, 3000, true));
+
+        SerAnalyzeResponse restored = timeline.restore(trimmed, 12_000);
+
+        assertEquals(1000, restored.segments().get(0).startMs());
+        assertEquals(3000, restored.segments().get(0).endMs());
+        assertEquals(2500, restored.segments().get(1).startMs());
+        assertEquals(11_000, restored.segments().get(1).endMs());
+        assertEquals(12_000, restored.meta().durationMs());
+    }
+}
@@ -10,6 +10,7 @@ export interface UploadSessionInitResponse {
   status: string
   totalChunks: number
   receivedChunks: number
+  chunkSize?: number
   expiresAt?: string
 }
 
@@ -59,6 +60,7 @@ export const initUploadSession = async (payload: {
   contentType?: string
   fileSize?: number
   totalChunks: number
+  chunkSize?: number
 }) => {
   const response = await http.post<UploadSessionInitResponse>('/api/audio/upload-sessions/init', payload)
   return response.data